@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.benchmark;
+
+import static dynamic.mapping.core.BenchmarkFixtures.CONNECTOR;
+import static dynamic.mapping.core.BenchmarkFixtures.TENANT;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dynamic.mapping.connector.core.callback.ConnectorMessage;
+import dynamic.mapping.core.BenchmarkFixtures;
+import dynamic.mapping.core.ConfigurationRegistry;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.processor.inbound.JSONProcessorInbound;
+import dynamic.mapping.processor.model.ProcessingContext;
+
+/**
+ * Processing of an inbound JSON message with a mapping expanding the array of
+ * devices in the payload into one measurement per device. The requests are
+ * built as when testing a mapping, external ids are resolved with the mock and
+ * nothing is sent to Cumulocity.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InboundProcessingBenchmark {
+
+    @Param({ "1", "50" })
+    public int devices;
+
+    private ConfigurationRegistry configurationRegistry;
+
+    private JSONProcessorInbound processor;
+
+    private Mapping mapping;
+
+    private ConnectorMessage message;
+
+    @Setup
+    public void setUp() {
+        configurationRegistry = BenchmarkFixtures.createConfigurationRegistry();
+        processor = new JSONProcessorInbound(configurationRegistry);
+        mapping = BenchmarkFixtures.expandArrayMapping();
+        message = ConnectorMessage.builder().tenant(TENANT).connectorIdentifier(CONNECTOR)
+                .topic("fleet/gateway1/measurements").sendPayload(false)
+                .payload(BenchmarkFixtures.expandArrayPayload(devices).getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        configurationRegistry.getVirtThreadPool().shutdownNow();
+    }
+
+    private ProcessingContext<Object> newContext() throws Exception {
+        Object payload = processor.deserializePayload(mapping, message);
+        return ProcessingContext.<Object>builder().payload(payload).topic(message.getTopic())
+                .mappingType(mapping.mappingType).mapping(mapping).sendPayload(false).tenant(TENANT)
+                .serviceConfiguration(configurationRegistry.getServiceConfigurations().get(TENANT)).build();
+    }
+
+    @Benchmark
+    public Object deserializePayload() throws Exception {
+        return processor.deserializePayload(mapping, message);
+    }
+
+    @Benchmark
+    public ProcessingContext<Object> extractFromSource() throws Exception {
+        ProcessingContext<Object> context = newContext();
+        processor.enrichPayload(context);
+        processor.extractFromSource(context);
+        return context;
+    }
+
+    @Benchmark
+    public ProcessingContext<Object> substituteInTargetAndSend() throws Exception {
+        ProcessingContext<Object> context = newContext();
+        processor.enrichPayload(context);
+        processor.extractFromSource(context);
+        processor.validateProcessingCache(context);
+        processor.applyFilter(context);
+        processor.substituteInTargetAndSend(context);
+        return context;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.benchmark;
+
+import static dynamic.mapping.core.BenchmarkFixtures.TENANT;
+import static dynamic.mapping.core.BenchmarkFixtures.inboundMappings;
+import static dynamic.mapping.core.BenchmarkFixtures.inboundTopics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dynamic.mapping.core.cache.InboundTopicCache;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.MappingTreeNode;
+import dynamic.mapping.model.ResolveException;
+import dynamic.mapping.model.TopicMatcher;
+
+/**
+ * Resolution of the inbound mappings for the topic of a message: walking the
+ * mapping tree, matching with the compiled tree and the topic cache in front
+ * of the compiled tree, as used by <code>MappingComponent</code>.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InboundResolverBenchmark {
+
+    private static final int TOPICS = 4096;
+
+    @Param({ "100", "1000" })
+    public int mappings;
+
+    private MappingTreeNode tree;
+
+    private TopicMatcher matcher;
+
+    private InboundTopicCache topicCache;
+
+    private String[] topics;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws ResolveException {
+        tree = MappingTreeNode.createRootNode(TENANT);
+        for (Mapping mapping : inboundMappings(mappings)) {
+            tree.addMapping(mapping);
+        }
+        matcher = tree.compileMatcher();
+        topicCache = new InboundTopicCache(TOPICS, TENANT, matcher);
+        topics = inboundTopics(TOPICS);
+    }
+
+    private String nextTopic() {
+        next = (next + 1) % topics.length;
+        return topics[next];
+    }
+
+    @Benchmark
+    public List<Mapping> mappingTree() throws ResolveException {
+        return tree.resolveMapping(nextTopic());
+    }
+
+    @Benchmark
+    public List<Mapping> topicMatcher() {
+        return matcher.match(nextTopic());
+    }
+
+    @Benchmark
+    public List<Mapping> topicCache() {
+        return topicCache.resolve(nextTopic());
+    }
+}
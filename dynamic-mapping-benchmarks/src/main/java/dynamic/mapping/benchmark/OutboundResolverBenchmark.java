@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.benchmark;
+
+import static dynamic.mapping.core.BenchmarkFixtures.TENANT;
+import static dynamic.mapping.core.BenchmarkFixtures.outboundMappings;
+import static dynamic.mapping.core.BenchmarkFixtures.outboundMeasurement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dashjoin.jsonata.json.Json;
+
+import dynamic.mapping.core.BenchmarkFixtures;
+import dynamic.mapping.core.ConfigurationRegistry;
+import dynamic.mapping.core.MappingComponent;
+import dynamic.mapping.model.API;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.ResolveException;
+
+/**
+ * Resolution of the outbound mappings for a Cumulocity message with
+ * <code>MappingComponent.resolveMappingOutbound</code>: the message is parsed
+ * and resolved with the index of the mappings loaded into the component. The
+ * baseline evaluates the filter of every mapping of the API.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OutboundResolverBenchmark {
+
+    private static final int MESSAGES = 64;
+
+    @Param({ "100", "1000" })
+    public int mappings;
+
+    private ConfigurationRegistry configurationRegistry;
+
+    private MappingComponent mappingComponent;
+
+    private List<Mapping> outboundMappings;
+
+    private String[] messages;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        configurationRegistry = BenchmarkFixtures.createConfigurationRegistry();
+        mappingComponent = configurationRegistry.getMappingComponent();
+        outboundMappings = outboundMappings(mappings);
+        BenchmarkFixtures.loadOutboundMappings(configurationRegistry, outboundMappings);
+        messages = new String[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++) {
+            messages[i] = outboundMeasurement(i * (mappings / MESSAGES + 1) % mappings);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        configurationRegistry.getVirtThreadPool().shutdownNow();
+    }
+
+    private String nextMessage() {
+        next = (next + 1) % messages.length;
+        return messages[next];
+    }
+
+    private boolean evaluate(Mapping mapping, Map<?, ?> message) {
+        return mappingComponent.getCompiledExpression(TENANT, mapping, mapping.filterMapping)
+                .evaluate(message) != null;
+    }
+
+    @Benchmark
+    public List<Mapping> mappingIndex() throws ResolveException {
+        return mappingComponent.resolveMappingOutbound(TENANT, nextMessage(), API.MEASUREMENT);
+    }
+
+    @Benchmark
+    public List<Mapping> evaluateAllFilters() {
+        Map<?, ?> message = (Map<?, ?>) Json.parseJson(nextMessage());
+        List<Mapping> result = new ArrayList<>();
+        for (Mapping mapping : outboundMappings) {
+            if (API.MEASUREMENT.equals(mapping.targetAPI) && evaluate(mapping, message)) {
+                result.add(mapping);
+            }
+        }
+        return result;
+    }
+}
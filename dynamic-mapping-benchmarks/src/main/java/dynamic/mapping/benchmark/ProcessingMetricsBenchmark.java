@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.benchmark;
+
+import static dynamic.mapping.core.BenchmarkFixtures.CONNECTOR;
+import static dynamic.mapping.core.BenchmarkFixtures.TENANT;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dynamic.mapping.core.BenchmarkFixtures;
+import dynamic.mapping.core.ProcessingMetrics;
+import dynamic.mapping.model.API;
+import dynamic.mapping.model.Direction;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.processor.model.MappingType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Recording the meters of a processed message, by registering the meters with
+ * their builders for every message and with the handles cached in
+ * <code>ProcessingMetrics</code>.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessingMetricsBenchmark {
+
+    private MeterRegistry registry;
+
+    private ProcessingMetrics processingMetrics;
+
+    private Mapping mapping;
+
+    @Setup
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        processingMetrics = new ProcessingMetrics(registry);
+        mapping = BenchmarkFixtures.mapping("m1", Direction.INBOUND, API.MEASUREMENT, MappingType.JSON);
+    }
+
+    @Benchmark
+    public void registerPerMessage() {
+        Counter.builder("dynmapper_inbound_message_total")
+                .tag("tenant", TENANT).tag("connector", CONNECTOR)
+                .register(registry).increment();
+        Timer.builder("dynmapper_inbound_processing_time")
+                .tag("tenant", TENANT).tag("connector", CONNECTOR)
+                .register(registry).record(1, TimeUnit.MILLISECONDS);
+        Timer.builder("dynmapper_mapping_processing_time")
+                .tag("tenant", TENANT).tag("mapping", mapping.identifier).tag("direction", "INBOUND")
+                .register(registry).record(1, TimeUnit.MILLISECONDS);
+    }
+
+    @Benchmark
+    public void cachedHandles() {
+        ProcessingMetrics.ConnectorMeters meters = processingMetrics.getConnectorMeters(TENANT, CONNECTOR);
+        meters.getInboundMessageCounter().increment();
+        meters.getInboundProcessingTimer().record(1, TimeUnit.MILLISECONDS);
+        processingMetrics.getMappingTimer(TENANT, mapping).record(1, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.benchmark;
+
+import static dynamic.mapping.core.BenchmarkFixtures.CONNECTOR;
+import static dynamic.mapping.core.BenchmarkFixtures.TENANT;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dynamic.mapping.connector.core.callback.ConnectorMessage;
+import dynamic.mapping.core.BenchmarkFixtures;
+import dynamic.mapping.core.ConfigurationRegistry;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.processor.model.ProcessingContext;
+import dynamic.mapping.processor.processor.fixed.InternalCustomMeasurementOuter.InternalCustomMeasurement;
+import dynamic.mapping.processor.processor.fixed.InternalProtobufProcessor;
+
+/**
+ * Processing of an inbound message with the internal protobuf processor, from
+ * parsing the protobuf payload to building the measurement request.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProtobufProcessingBenchmark {
+
+    private ConfigurationRegistry configurationRegistry;
+
+    private InternalProtobufProcessor processor;
+
+    private Mapping mapping;
+
+    private ConnectorMessage message;
+
+    @Setup
+    public void setUp() {
+        configurationRegistry = BenchmarkFixtures.createConfigurationRegistry();
+        processor = new InternalProtobufProcessor(configurationRegistry);
+        mapping = BenchmarkFixtures.protobufMapping();
+        byte[] payload = InternalCustomMeasurement.newBuilder().setTimestamp(System.currentTimeMillis())
+                .setValue(21.5f).setUnit("C").setMeasurementType("c8y_GenericMeasurement")
+                .setExternalIdType("c8y_Serial").setExternalId("sensor1").build().toByteArray();
+        message = ConnectorMessage.builder().tenant(TENANT).connectorIdentifier(CONNECTOR)
+                .topic(mapping.mappingTopic).sendPayload(false).payload(payload).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        configurationRegistry.getVirtThreadPool().shutdownNow();
+    }
+
+    private ProcessingContext<byte[]> newContext() {
+        byte[] payload = processor.deserializePayload(mapping, message);
+        return ProcessingContext.<byte[]>builder().payload(payload).topic(message.getTopic())
+                .mappingType(mapping.mappingType).mapping(mapping).sendPayload(false).tenant(TENANT)
+                .serviceConfiguration(configurationRegistry.getServiceConfigurations().get(TENANT)).build();
+    }
+
+    @Benchmark
+    public ProcessingContext<byte[]> extractFromSource() throws Exception {
+        ProcessingContext<byte[]> context = newContext();
+        processor.extractFromSource(context);
+        return context;
+    }
+
+    @Benchmark
+    public ProcessingContext<byte[]> substituteInTargetAndSend() throws Exception {
+        ProcessingContext<byte[]> context = newContext();
+        processor.extractFromSource(context);
+        processor.validateProcessingCache(context);
+        processor.applyFilter(context);
+        processor.substituteInTargetAndSend(context);
+        return context;
+    }
+}
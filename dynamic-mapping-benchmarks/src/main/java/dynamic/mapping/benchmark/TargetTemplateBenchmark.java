@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+
+import dynamic.mapping.core.BenchmarkFixtures;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.MappingSubstitution;
+import dynamic.mapping.model.MappingSubstitution.SubstituteValue;
+import dynamic.mapping.model.MappingSubstitution.SubstituteValue.TYPE;
+import dynamic.mapping.processor.model.RepairStrategy;
+import dynamic.mapping.processor.model.TargetTemplate;
+
+/**
+ * Building the target payload of a measurement from its substitutes, with the
+ * compiled target template and, as baseline, by parsing the template and
+ * writing every substitute with <code>substituteValueInPayload</code>.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TargetTemplateBenchmark {
+
+    private static final String[] PATHS = { "c8y_Temperature.T.value", "c8y_Temperature.T.unit", "time" };
+
+    private Mapping mapping;
+
+    private TargetTemplate template;
+
+    private SubstituteValue[] substitutes;
+
+    @Setup
+    public void setUp() {
+        mapping = BenchmarkFixtures.expandArrayMapping();
+        template = TargetTemplate.compile(mapping);
+        substitutes = new SubstituteValue[] {
+                new SubstituteValue(21.5, TYPE.NUMBER, RepairStrategy.DEFAULT),
+                new SubstituteValue("C", TYPE.TEXTUAL, RepairStrategy.DEFAULT),
+                new SubstituteValue("2024-01-01T12:00:00.000Z", TYPE.TEXTUAL, RepairStrategy.DEFAULT) };
+    }
+
+    @Benchmark
+    public DocumentContext compiledTemplate() {
+        DocumentContext payloadTarget = template.newDocument();
+        for (int i = 0; i < PATHS.length; i++) {
+            template.substitute(substitutes[i], payloadTarget, PATHS[i]);
+        }
+        return payloadTarget;
+    }
+
+    @Benchmark
+    public DocumentContext parseTemplate() throws Exception {
+        DocumentContext payloadTarget = JsonPath.parse(mapping.targetTemplate);
+        for (int i = 0; i < PATHS.length; i++) {
+            MappingSubstitution.substituteValueInPayload(substitutes[i], payloadTarget, PATHS[i]);
+        }
+        return payloadTarget;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import com.cumulocity.model.ID;
+import com.cumulocity.rest.representation.identity.ExternalIDRepresentation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dynamic.mapping.configuration.ServiceConfiguration;
+import dynamic.mapping.core.mock.MockIdentity;
+import dynamic.mapping.model.API;
+import dynamic.mapping.model.Direction;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.MappingSubstitution;
+import dynamic.mapping.model.QOS;
+import dynamic.mapping.model.SnoopStatus;
+import dynamic.mapping.processor.model.MappingType;
+import dynamic.mapping.processor.model.ProcessingContext;
+import dynamic.mapping.processor.model.RepairStrategy;
+
+/**
+ * Fixtures of the benchmarks: a <code>ConfigurationRegistry</code> wired
+ * without Spring and mappings as they are used in production, e.g. wildcard
+ * topics and substitutions expanding arrays.
+ * The fixture lives in the package of <code>MappingComponent</code>, as the
+ * registry of the component is injected by Spring.
+ */
+public class BenchmarkFixtures {
+
+    public static final String TENANT = "t100";
+
+    public static final String CONNECTOR = "benchmark";
+
+    public static final String MEASUREMENT_TEMPLATE = "{\"c8y_Temperature\":{\"T\":{\"value\":0,\"unit\":\"C\"}},"
+            + "\"time\":\"2025-01-01T00:00:00.000Z\",\"type\":\"c8y_TemperatureMeasurement\",\"source\":{\"id\":\"0\"}}";
+
+    public static final String GENERIC_MEASUREMENT_TEMPLATE = "{\"c8y_GenericMeasurement\":{\"Module\":{\"value\":0,\"unit\":\"\"}},"
+            + "\"time\":\"2025-01-01T00:00:00.000Z\",\"type\":\"\",\"source\":{\"id\":\"0\"}}";
+
+    /**
+     * C8YAgent resolving external ids with the mock used for testing mappings,
+     * no request is sent to Cumulocity.
+     */
+    public static class MockC8YAgent extends C8YAgent {
+        private final MockIdentity mockIdentity = new MockIdentity();
+
+        @Override
+        public ExternalIDRepresentation resolveExternalId2GlobalId(String tenant, ID identity,
+                ProcessingContext<?> context) {
+            return mockIdentity.getExternalId(identity);
+        }
+    }
+
+    public static ConfigurationRegistry createConfigurationRegistry() {
+        ConfigurationRegistry configurationRegistry = new ConfigurationRegistry();
+        configurationRegistry.setObjectMapper(new ObjectMapper());
+        configurationRegistry.setVirtThreadPool(Executors.newVirtualThreadPerTaskExecutor());
+        configurationRegistry.setC8yAgent(new MockC8YAgent());
+        configurationRegistry.getServiceConfigurations().put(TENANT, new ServiceConfiguration());
+        MappingComponent mappingComponent = new MappingComponent();
+        mappingComponent.configurationRegistry = configurationRegistry;
+        mappingComponent.initializeMappingCaches(TENANT);
+        configurationRegistry.setMappingComponent(mappingComponent);
+        return configurationRegistry;
+    }
+
+    /**
+     * Load the outbound mappings into the cache and resolver of the
+     * <code>MappingComponent</code>, as when the mappings are loaded from the
+     * inventory.
+     */
+    public static void loadOutboundMappings(ConfigurationRegistry configurationRegistry, List<Mapping> mappings) {
+        configurationRegistry.getMappingComponent().updateMappingOutboundCache(TENANT, mappings);
+    }
+
+    public static Mapping mapping(String id, Direction direction, API targetAPI, MappingType mappingType) {
+        Mapping mapping = new Mapping();
+        mapping.id = id;
+        mapping.identifier = id;
+        mapping.name = "Mapping - " + id;
+        mapping.direction = direction;
+        mapping.targetAPI = targetAPI;
+        mapping.mappingType = mappingType;
+        mapping.substitutions = new MappingSubstitution[0];
+        mapping.active = true;
+        mapping.debug = false;
+        mapping.tested = false;
+        mapping.supportsMessageContext = false;
+        mapping.createNonExistingDevice = false;
+        mapping.updateExistingDevice = false;
+        mapping.useExternalId = true;
+        mapping.externalIdType = "c8y_Serial";
+        mapping.snoopStatus = SnoopStatus.NONE;
+        mapping.snoopedTemplates = new ArrayList<>();
+        mapping.qos = QOS.AT_LEAST_ONCE;
+        return mapping;
+    }
+
+    public static MappingSubstitution substitution(String pathSource, String pathTarget, boolean expandArray) {
+        MappingSubstitution substitution = new MappingSubstitution();
+        substitution.pathSource = pathSource;
+        substitution.pathTarget = pathTarget;
+        substitution.repairStrategy = RepairStrategy.DEFAULT;
+        substitution.expandArray = expandArray;
+        return substitution;
+    }
+
+    /**
+     * Inbound mappings on topics with a fixed prefix per fleet, single level and
+     * multi level wildcards, e.g. <code>fleet3/+/sensor42</code> and
+     * <code>fleet3/#</code>.
+     */
+    public static List<Mapping> inboundMappings(int count) {
+        List<Mapping> mappings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Mapping mapping = mapping("in" + i, Direction.INBOUND, API.MEASUREMENT, MappingType.JSON);
+            int fleet = i % 10;
+            switch (i % 4) {
+                case 0 -> mapping.mappingTopic = "fleet" + fleet + "/+/sensor" + i;
+                case 1 -> mapping.mappingTopic = "fleet" + fleet + "/device" + i + "/#";
+                case 2 -> mapping.mappingTopic = "fleet" + fleet + "/+/+/measurement" + i;
+                default -> mapping.mappingTopic = "fleet" + fleet + "/device" + i + "/sensor" + i;
+            }
+            mapping.targetTemplate = MEASUREMENT_TEMPLATE;
+            mappings.add(mapping);
+        }
+        return mappings;
+    }
+
+    /**
+     * Topics of messages matching the inbound mappings, the topics are not
+     * repeated so that caches are only hit for the given share of topics.
+     */
+    public static String[] inboundTopics(int count) {
+        String[] topics = new String[count];
+        for (int i = 0; i < count; i++) {
+            int fleet = i % 10;
+            switch (i % 4) {
+                case 0 -> topics[i] = "fleet" + fleet + "/device" + (i * 7) + "/sensor" + i;
+                case 1 -> topics[i] = "fleet" + fleet + "/device" + i + "/sensor/temperature";
+                case 2 -> topics[i] = "fleet" + fleet + "/device" + (i * 7) + "/module/measurement" + i;
+                default -> topics[i] = "fleet" + fleet + "/unknown" + i;
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * Inbound JSON mapping creating one measurement per element of the array
+     * <code>devices</code>.
+     */
+    public static Mapping expandArrayMapping() {
+        Mapping mapping = mapping("expand", Direction.INBOUND, API.MEASUREMENT, MappingType.JSON);
+        mapping.mappingTopic = "fleet/+/measurements";
+        mapping.targetTemplate = MEASUREMENT_TEMPLATE;
+        mapping.substitutions = new MappingSubstitution[] {
+                substitution("devices.id", Mapping.IDENTITY + ".externalId", true),
+                substitution("devices.temperature", "c8y_Temperature.T.value", true),
+                substitution("devices.time", "time", true),
+                substitution("unit", "c8y_Temperature.T.unit", false) };
+        return mapping;
+    }
+
+    public static String expandArrayPayload(int devices) {
+        StringBuilder payload = new StringBuilder("{\"unit\":\"C\",\"devices\":[");
+        for (int i = 0; i < devices; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append("{\"id\":\"sensor").append(i).append("\",\"temperature\":").append(20 + i % 10)
+                    .append(",\"time\":\"2025-01-01T00:00:").append(String.format("%02d", i % 60))
+                    .append(".000Z\",\"battery\":{\"level\":").append(i % 100).append("}}");
+        }
+        return payload.append("]}").toString();
+    }
+
+    public static Mapping protobufMapping() {
+        Mapping mapping = mapping("protobuf", Direction.INBOUND, API.MEASUREMENT, MappingType.PROTOBUF_INTERNAL);
+        mapping.mappingTopic = "protobuf/measurement";
+        mapping.targetTemplate = GENERIC_MEASUREMENT_TEMPLATE;
+        return mapping;
+    }
+
+    /**
+     * Outbound mappings of measurements filtered by fragments of the message,
+     * every tenth filter is a JSONata expression that is not a simple path.
+     */
+    public static List<Mapping> outboundMappings(int count) {
+        List<Mapping> mappings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            API api = i % 5 == 0 ? API.EVENT : API.MEASUREMENT;
+            Mapping mapping = mapping("out" + i, Direction.OUTBOUND, api, MappingType.JSON);
+            mapping.publishTopic = "measurements/" + i;
+            mapping.filterMapping = i % 10 == 9 ? "c8y_Fragment" + i + ".value > 20" : "c8y_Fragment" + i;
+            mapping.targetTemplate = "{\"value\":0}";
+            mappings.add(mapping);
+        }
+        return mappings;
+    }
+
+    public static String outboundMeasurement(int fragment) {
+        return "{\"id\":\"4711\",\"type\":\"c8y_Measurement\",\"time\":\"2025-01-01T00:00:00.000Z\","
+                + "\"source\":{\"id\":\"909090\"},\"c8y_Fragment" + fragment + "\":{\"value\":21,\"unit\":\"C\"},"
+                + "\"c8y_Temperature\":{\"T\":{\"value\":21,\"unit\":\"C\"}}}";
+    }
+}
@@ -26,6 +26,9 @@ import jakarta.validation.constraints.NotNull;
 import com.fasterxml.jackson.annotation.JsonSetter;
 import com.fasterxml.jackson.annotation.Nulls;
 
+import dynamic.mapping.processor.model.OrderingKey;
+import dynamic.mapping.processor.model.OverflowPolicy;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.ToString;
@@ -46,6 +49,23 @@ public class ServiceConfiguration implements Cloneable {
 		this.outboundMappingEnabled = true;
 		this.inboundExternalIdCacheSize = 0;
 		this.inboundExternalIdCacheRetention = 1;
+		this.inboundExternalIdCacheNegativeRetention = 60;
+		this.inboundTopicCacheSize = 10000;
+		this.inboundMaxInFlight = 1000;
+		this.inboundMaxQueuedBytes = 64L * 1024 * 1024;
+		this.inboundOverflowPolicy = OverflowPolicy.BLOCK;
+		this.measurementBatchSize = 1;
+		this.measurementBatchLinger = 20;
+		this.c8yMaxConcurrentRequests = 50;
+		this.c8yRequestRetries = 3;
+		this.sharedNotificationConsumer = false;
+		this.notificationMaxUnacked = 0;
+		this.notificationAckLinger = 50;
+		this.processingOrderingKey = OrderingKey.NONE;
+		this.mappingStatusInterval = 25;
+		this.maxMappingMeters = 1000;
+		this.logPayloadSampleRate = 1;
+		this.logSummaryInterval = 60;
 	}
 
 	@NotNull
@@ -91,4 +111,105 @@ public class ServiceConfiguration implements Cloneable {
 	@NotNull
 	@JsonSetter(nulls = Nulls.SKIP)
 	public Integer inboundExternalIdCacheRetention;
+
+	// seconds an external id unknown to the identity service is cached, 0
+	// disables negative caching
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer inboundExternalIdCacheNegativeRetention;
+
+	// maximum number of topics with resolved inbound mappings that are cached, 0
+	// disables the cache
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer inboundTopicCacheSize;
+
+	// maximum number of inbound messages processed concurrently per connector, 0
+	// disables the admission control
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer inboundMaxInFlight;
+
+	// maximum payload bytes of inbound messages waiting for processing per
+	// connector
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Long inboundMaxQueuedBytes;
+
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public OverflowPolicy inboundOverflowPolicy;
+
+	// maximum number of measurements written with one request, 1 or less
+	// disables batching. Disabled by default: a measurement waits up to
+	// measurementBatchLinger for its batch and a failed bulk request is repeated
+	// measurement by measurement
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer measurementBatchSize;
+
+	// milliseconds to wait for further measurements before a batch is written
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer measurementBatchLinger;
+
+	// maximum number of concurrent requests to Cumulocity, the limit is lowered
+	// while requests are rejected with 429 or 503
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer c8yMaxConcurrentRequests;
+
+	// number of retries of requests rejected with 429 or 503
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer c8yRequestRetries;
+
+	// one Notification 2.0 consumer per tenant, notifications are resolved once
+	// and dispatched to all outbound connectors
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public boolean sharedNotificationConsumer;
+
+	// maximum number of notifications processed but not yet acknowledged, a
+	// notification is acknowledged after its messages were published, 0
+	// acknowledges notifications when they are received
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer notificationMaxUnacked;
+
+	// milliseconds acknowledgements of processed notifications are collected
+	// before they are sent
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer notificationAckLinger;
+
+	// messages with the same key are processed in the order they were received,
+	// outbound messages are ordered by the device of the Cumulocity message
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public OrderingKey processingOrderingKey;
+
+	// minimum seconds between two updates of the mapping status in the inventory,
+	// the status is only written when a mapping status changed
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer mappingStatusInterval;
+
+	// maximum number of mappings with their own processing time histogram,
+	// further mappings share the histogram tagged with mapping=_other_
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer maxMappingMeters;
+
+	// when logPayload is enabled the payload of every n-th message of a mapping
+	// is logged
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer logPayloadSampleRate;
+
+	// seconds between two summaries of the processed messages, single messages
+	// are logged at debug level, 0 disables the summary
+	@NotNull
+	@JsonSetter(nulls = Nulls.SKIP)
+	public Integer logSummaryInterval;
 }
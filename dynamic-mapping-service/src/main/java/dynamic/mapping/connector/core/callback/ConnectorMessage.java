@@ -22,6 +22,7 @@
 package dynamic.mapping.connector.core.callback;
 
 import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -47,4 +48,18 @@ public class ConnectorMessage {
     private boolean sendPayload;
 
     private boolean supportsMessageContext;
+
+    // payload already parsed by the dispatcher, e.g. to determine the ordering key
+    @Getter(AccessLevel.NONE)
+    private Object parsedPayload;
+
+    /**
+     * Returns the parsed payload once, so that it is only used by the first
+     * mapping that processes the message, as processors modify the payload.
+     */
+    public synchronized Object takeParsedPayload() {
+        Object parsed = parsedPayload;
+        parsedPayload = null;
+        return parsed;
+    }
 }
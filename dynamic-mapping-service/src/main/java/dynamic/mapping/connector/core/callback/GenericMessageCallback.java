@@ -21,10 +21,19 @@
 
 package dynamic.mapping.connector.core.callback;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import dynamic.mapping.processor.model.ProcessingContext;
+
 public interface GenericMessageCallback {
     void onClose(String closeMessage, Throwable closeException);
 
     void onMessage(ConnectorMessage message);
 
+    // process the message, the returned future completes when the processing is
+    // finished. This allows connectors to acknowledge a message after processing
+    CompletableFuture<List<ProcessingContext<?>>> processMessage(ConnectorMessage message);
+
     void onError( Throwable errorException);
 }
@@ -688,6 +688,9 @@ public abstract class AConnectorClient {
     public void stopHousekeepingAndClose() {
         List<Runnable> stoppedTasks = this.housekeepingExecutor.shutdownNow();
         close();
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
         log.info("Tenant {} - Shutdown housekeepingTasks: {}",
                 tenant,
                 stoppedTasks);
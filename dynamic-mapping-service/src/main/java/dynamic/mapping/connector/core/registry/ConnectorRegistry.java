@@ -142,10 +142,10 @@ public class ConnectorRegistry {
             Map<String, AConnectorClient> connectorMap = connectorTenantMap.get(tenant);
             if (connectorMap.get(identifier) != null) {
                 AConnectorClient client = connectorMap.get(identifier);
-                // to avoid memory leaks
-                client.setDispatcher(null);
                 client.disconnect();
+                // closes the dispatcher, which is released afterwards to avoid memory leaks
                 client.stopHousekeepingAndClose();
+                client.setDispatcher(null);
 
                 // store last connector status for monitoring
                 connectorStatusMap.get(tenant).put(identifier, client.getConnectorStatus());
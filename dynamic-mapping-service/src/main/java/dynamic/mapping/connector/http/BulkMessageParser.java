@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.connector.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads the messages of a bulk request to the HTTP connector while the body is
+ * streamed. The body is either a JSON array of messages or NDJSON, i.e. one
+ * message per line.
+ * A message is either the payload itself or an object of the form
+ * <code>{"topic": "sub/topic", "payload": ...}</code>, where the topic is
+ * appended to the topic of the request. An object with other fields, or with
+ * only one of these fields, is the payload itself. A textual payload is passed
+ * on unchanged, e.g. for flat file mappings.
+ */
+public class BulkMessageParser {
+
+    public static final String TOPIC = "topic";
+
+    public static final String PAYLOAD = "payload";
+
+    private BulkMessageParser() {
+    }
+
+    /**
+     * Parse the messages of the body and pass the sub topic, null if not set, and
+     * the payload of every message to the handler.
+     * 
+     * @return number of messages read
+     */
+    public static int parse(InputStream body, ObjectMapper objectMapper, BiConsumer<String, byte[]> handler)
+            throws IOException {
+        int count = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+                while (token != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        throw new IOException("Unexpected end of JSON array after " + count + " messages");
+                    }
+                    handle(objectMapper.readTree(parser), objectMapper, handler);
+                    count++;
+                    token = parser.nextToken();
+                }
+                if (parser.nextToken() != null) {
+                    throw new IOException("Unexpected content after JSON array");
+                }
+            } else {
+                // NDJSON, root level values separated by line breaks
+                while (token != null) {
+                    handle(objectMapper.readTree(parser), objectMapper, handler);
+                    count++;
+                    token = parser.nextToken();
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void handle(JsonNode message, ObjectMapper objectMapper, BiConsumer<String, byte[]> handler)
+            throws IOException {
+        String subTopic = null;
+        JsonNode payload = message;
+        if (isEnvelope(message)) {
+            JsonNode topic = message.get(TOPIC);
+            subTopic = topic == null || topic.isNull() ? null : topic.asText();
+            payload = message.get(PAYLOAD);
+        }
+        byte[] bytes = payload.isTextual() ? payload.textValue().getBytes(StandardCharsets.UTF_8)
+                : objectMapper.writeValueAsBytes(payload);
+        handler.accept(subTopic, bytes);
+    }
+
+    // an envelope contains a topic and a payload, but no other fields, so a payload
+    // with a field "payload" is not mistaken for an envelope
+    private static boolean isEnvelope(JsonNode message) {
+        return message.isObject() && message.size() == 2 && message.has(TOPIC) && message.has(PAYLOAD);
+    }
+
+    // Method to append the sub topic of a message to the topic of the request
+    public static String joinTopic(String topic, String subTopic) {
+        if (subTopic == null || subTopic.isEmpty()) {
+            return topic;
+        }
+        String sub = subTopic.startsWith("/") ? subTopic.substring(1) : subTopic;
+        if (topic == null || topic.isEmpty()) {
+            return sub;
+        }
+        return topic.endsWith("/") ? topic + sub : topic + "/" + sub;
+    }
+}
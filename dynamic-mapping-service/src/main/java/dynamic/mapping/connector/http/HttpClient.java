@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import dynamic.mapping.connector.core.ConnectorPropertyType;
 import dynamic.mapping.connector.core.ConnectorSpecification;
@@ -53,6 +54,7 @@ public class HttpClient extends AConnectorClient {
     public static final String HTTP_CONNECTOR_PATH = "httpConnector";
     public static final String HTTP_CONNECTOR_IDENTIFIER = "HTTP_CONNECTOR_IDENTIFIER";
     public static final String HTTP_CONNECTOR_ABSOLUTE_PATH = "/httpConnector";
+    public static final String HTTP_CONNECTOR_BULK_ABSOLUTE_PATH = "/httpConnectorBulk";
     public static final String PROPERTY_CUTOFF_LEADING_SLASH = "cutOffLeadingSlash";
 
     public HttpClient() {
@@ -70,7 +72,9 @@ public class HttpClient extends AConnectorClient {
                 + "The sub path following '.../dynamic-mapping-service/httpConnector/' is used as '<MAPPING_TOPIC>', e.g. a json payload send to 'https://<YOUR_CUMULOCITY_TENANT>/service/dynamic-mapping-service/httpConnector/temp/berlin_01' \n" 
                 + "will be resolved to a mapping with mapping topic: 'temp/berlin_01'.\n"
                 + "The message must be send in a POST request.\n" 
-                + "NOTE: The leading '/' is cut off from the sub path.This can be configured ";
+                + "NOTE: The leading '/' is cut off from the sub path.This can be configured \n"
+                + "Multiple messages can be sent as JSON array or NDJSON to '.../dynamic-mapping-service/httpConnectorBulk/', "
+                + "a message of the form {\"topic\": \"<SUB_TOPIC>\", \"payload\": ...} is resolved with the sub topic appended to the sub path.";
         connectorType = ConnectorType.HTTP;
         connectorSpecification = new ConnectorSpecification(name, description, connectorType, configProps, false,supportedDirections());
     }
@@ -225,6 +229,15 @@ public class HttpClient extends AConnectorClient {
         dispatcher.onMessage(message);
     }
 
+    public CompletableFuture<List<ProcessingContext<?>>> processMessage(ConnectorMessage message) {
+        return dispatcher.processMessage(message);
+    }
+
+    // Method to test if inbound messages are currently not admitted for processing
+    public boolean isInboundSaturated() {
+        return dispatcher.isSaturated();
+    }
+
     @Override
     public List<Direction>  supportedDirections() {
         return new ArrayList<>( Arrays.asList(Direction.INBOUND));
@@ -21,6 +21,7 @@
 
 package dynamic.mapping.connector.kafka;
 
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -29,6 +30,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,11 +39,13 @@ import org.apache.commons.lang3.mutable.MutableInt;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 // import org.apache.kafka.common.serialization.StringDeserializer;
 // import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.core.io.support.PropertiesLoaderUtils;
 
 import dynamic.mapping.connector.core.ConnectorProperty;
+import dynamic.mapping.connector.core.ConnectorPropertyCondition;
 import dynamic.mapping.connector.core.ConnectorPropertyType;
 import dynamic.mapping.connector.core.ConnectorSpecification;
 import dynamic.mapping.connector.core.client.AConnectorClient;
@@ -55,6 +60,9 @@ import dynamic.mapping.model.QOS;
 import dynamic.mapping.processor.inbound.DispatcherInbound;
 import dynamic.mapping.processor.model.C8YRequest;
 import dynamic.mapping.processor.model.ProcessingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import dynamic.mapping.configuration.ConnectorConfiguration;
 import java.io.IOException;
@@ -104,6 +112,33 @@ public class KafkaClient extends AConnectorClient {
             		new ConnectorProperty(null, false, 6, ConnectorPropertyType.STRING_LARGE_PROPERTY, true, false,
             				removeDateCommentLine(writerConsumer.getBuffer().toString()), null, null));
 
+            ConnectorPropertyCondition commitAfterProcessingCondition = new ConnectorPropertyCondition(
+            		"commitAfterProcessing", new String[] { "true" });
+            configProps.put("commitAfterProcessing",
+            		new ConnectorProperty(null, false, 7, ConnectorPropertyType.BOOLEAN_PROPERTY, false, false, false, null, null));
+            configProps.put("maxInFlightRecords",
+            		new ConnectorProperty(null, false, 8, ConnectorPropertyType.NUMERIC_PROPERTY, false, false,
+            				DEFAULT_MAX_IN_FLIGHT_RECORDS, null, commitAfterProcessingCondition));
+            configProps.put("consumerPoolSize",
+            		new ConnectorProperty(null, false, 9, ConnectorPropertyType.NUMERIC_PROPERTY, false, false,
+            				0, null, null));
+            configProps.put("producerBatchSize",
+            		new ConnectorProperty(null, false, 10, ConnectorPropertyType.NUMERIC_PROPERTY, false, false,
+            				DEFAULT_PRODUCER_BATCH_SIZE, null, null));
+            configProps.put("producerLingerMs",
+            		new ConnectorProperty(null, false, 11, ConnectorPropertyType.NUMERIC_PROPERTY, false, false,
+            				DEFAULT_PRODUCER_LINGER_MS, null, null));
+            configProps.put("producerCompression",
+            		new ConnectorProperty(null, false, 12, ConnectorPropertyType.OPTION_PROPERTY, false, false, "none",
+            				Map.ofEntries(
+            						new AbstractMap.SimpleEntry<String, String>("none", "none"),
+            						new AbstractMap.SimpleEntry<String, String>("gzip", "gzip"),
+            						new AbstractMap.SimpleEntry<String, String>("snappy", "snappy"),
+            						new AbstractMap.SimpleEntry<String, String>("lz4", "lz4"),
+            						new AbstractMap.SimpleEntry<String, String>("zstd", "zstd")), null));
+            configProps.put("producerIdempotence",
+            		new ConnectorProperty(null, false, 13, ConnectorPropertyType.BOOLEAN_PROPERTY, false, false, false, null, null));
+
             String name = "Kafka";
             String description = "Generic connector to receive and send messages to a external Kafka broker. Inbound mappings allow to extract values from the payload and the  key and map these to the Cumulocity payload. The relevant setting in a mapping is 'supportsMessageContext'.\n In outbound mappings the any string that is mapped to '_CONTEXT_DATA_.key' is used as the outbound Kafka record.\n The connector uses SASL_SSL as security protocol.";
             connectorType = ConnectorType.KAFKA;
@@ -157,6 +192,18 @@ public class KafkaClient extends AConnectorClient {
 		this.dispatcher = dispatcher;
 		this.tenant = tenant;
 		this.connectionState.setFalse();
+		this.publishCounter = Counter.builder("dynmapper_kafka_publish_total")
+				.description("Total number of outbound records acknowledged by the Kafka broker")
+				.tag("tenant", tenant).tag("connector", connectorIdentifier)
+				.register(Metrics.globalRegistry);
+		this.publishErrorCounter = Counter.builder("dynmapper_kafka_publish_errors_total")
+				.description("Total number of outbound records that could not be sent to the Kafka broker")
+				.tag("tenant", tenant).tag("connector", connectorIdentifier)
+				.register(Metrics.globalRegistry);
+		this.publishTimer = Timer.builder("dynmapper_kafka_publish_time")
+				.description("Time from sending an outbound record until it is acknowledged by the Kafka broker")
+				.tag("tenant", tenant).tag("connector", connectorIdentifier)
+				.register(Metrics.globalRegistry);
 
 		// defaultPropertiesProducer = new Properties();
 		// String jaasTemplate =
@@ -201,10 +248,26 @@ public class KafkaClient extends AConnectorClient {
 
 	private HashMap<String, TopicConsumer> consumerList = new HashMap<String, TopicConsumer>();
 
+	// consumers shared by all topics, only used when consumerPoolSize is greater
+	// than 0
+	private KafkaConsumerPool consumerPool;
+
 	private Properties defaultPropertiesConsumer;
 	private Properties defaultPropertiesProducer;
 
-	private KafkaProducer<String, String> kafkaProducer;
+	// records are sent as byte arrays, the payload is only encoded once
+	private KafkaProducer<byte[], byte[]> kafkaProducer;
+
+	private Counter publishCounter;
+	private Counter publishErrorCounter;
+	private Timer publishTimer;
+
+	// maximum number of records in process per partition when committing after
+	// processing
+	private static final int DEFAULT_MAX_IN_FLIGHT_RECORDS = 500;
+
+	private static final int DEFAULT_PRODUCER_BATCH_SIZE = 65536;
+	private static final int DEFAULT_PRODUCER_LINGER_MS = 5;
 
 	private String KAFKA_CONSUMER_PROPERTIES = "/kafka-consumer.properties";
 	private String KAFKA_PRODUCER_PROPERTIES = "/kafka-producer.properties";
@@ -246,6 +309,7 @@ public class KafkaClient extends AConnectorClient {
 			defaultPropertiesProducer.put("sasl.mechanism", saslMechanism);
 			defaultPropertiesProducer.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
 			defaultPropertiesProducer.put("group.id", groupId);
+			configureProducerPipeline(defaultPropertiesProducer);
 			log.info("Tenant {} - Trying to connect {} - phase II: (shouldConnect):{} {}", tenant,
 					getConnectorName(),
 					shouldConnect(), bootstrapServers);
@@ -259,6 +323,11 @@ public class KafkaClient extends AConnectorClient {
 					// sync, the ActiveSubscriptionMappingInbound is build on the
 					// previously used updatedMappings
 					kafkaProducer = new KafkaProducer<>(defaultPropertiesProducer);
+					int consumerPoolSize = getConsumerPoolSize();
+					if (consumerPoolSize > 0) {
+						consumerPool = new KafkaConsumerPool(createTopicConfig(null), connectorStatus,
+								consumerPoolSize);
+					}
 					connectionState.setTrue();
 					updateConnectorStatusAndSend(ConnectorStatus.CONNECTED, true, true);
 					List<Mapping> updatedMappings = mappingComponent.rebuildMappingInboundCache(tenant);
@@ -277,6 +346,31 @@ public class KafkaClient extends AConnectorClient {
 		}
 	}
 
+	// records are batched per partition and sent without waiting for the
+	// acknowledgement of the previous batch
+	private void configureProducerPipeline(Properties props) {
+		Map<String, Object> properties = connectorConfiguration.getProperties();
+		props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+		props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+		props.put(ProducerConfig.BATCH_SIZE_CONFIG,
+				getNumericProperty(properties, "producerBatchSize", DEFAULT_PRODUCER_BATCH_SIZE));
+		props.put(ProducerConfig.LINGER_MS_CONFIG,
+				getNumericProperty(properties, "producerLingerMs", DEFAULT_PRODUCER_LINGER_MS));
+		props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG,
+				properties.getOrDefault("producerCompression", "none").toString());
+		boolean idempotence = Boolean.parseBoolean(
+				properties.getOrDefault("producerIdempotence", false).toString());
+		props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, idempotence);
+		if (idempotence) {
+			props.put(ProducerConfig.ACKS_CONFIG, "all");
+		}
+	}
+
+	private static int getNumericProperty(Map<String, Object> properties, String name, int defaultValue) {
+		Object value = properties.get(name);
+		return value instanceof Number number ? number.intValue() : defaultValue;
+	}
+
 	@Override
 	public boolean isConnected() {
 		return connectionState.getValue();
@@ -303,6 +397,14 @@ public class KafkaClient extends AConnectorClient {
 				}
 			});
 
+			if (consumerPool != null) {
+				try {
+					consumerPool.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				consumerPool = null;
+			}
 			connectionState.setFalse();
 			updateConnectorStatusAndSend(ConnectorStatus.DISCONNECTED, true, true);
 			List<Mapping> updatedMappings = mappingComponent.rebuildMappingInboundCache(tenant);
@@ -315,6 +417,12 @@ public class KafkaClient extends AConnectorClient {
 
 	@Override
 	public void close() {
+		// the meters are not registered for the specification of the connector
+		if (publishCounter != null) {
+			Metrics.globalRegistry.remove(publishCounter);
+			Metrics.globalRegistry.remove(publishErrorCounter);
+			Metrics.globalRegistry.remove(publishTimer);
+		}
 	}
 
 	@Override
@@ -329,16 +437,39 @@ public class KafkaClient extends AConnectorClient {
 
 	@Override
 	public void subscribe(String topic, QOS qos) throws ConnectorException {
-		TopicConsumer kafkaConsumer = new TopicConsumer(
-				new TopicConfig(tenant, bootstrapServers, topic, username, password, saslMechanism, groupId,
-						defaultPropertiesConsumer),
-				connectorStatus);
-		consumerList.put(topic, kafkaConsumer);
 		TopicConsumerCallback topicConsumerCallback = new TopicConsumerCallback(dispatcher, tenant, getConnectorIdentifier(),
 				topic, true);
+		if (consumerPool != null) {
+			// the topic is added to the subscription of a pooled consumer
+			consumerPool.subscribe(topic, topicConsumerCallback);
+			return;
+		}
+		TopicConsumer kafkaConsumer = new TopicConsumer(createTopicConfig(topic), connectorStatus);
+		consumerList.put(topic, kafkaConsumer);
 		kafkaConsumer.start(topicConsumerCallback);
 	}
 
+	private TopicConfig createTopicConfig(String topic) {
+		TopicConfig topicConfig = new TopicConfig(tenant, bootstrapServers, topic, username, password,
+				saslMechanism, groupId, defaultPropertiesConsumer);
+		if (isCommitAfterProcessing()) {
+			// partitions are processed in parallel, offsets are committed after processing
+			topicConfig.setMaxInFlightRecords(((Number) connectorConfiguration.getProperties()
+					.getOrDefault("maxInFlightRecords", DEFAULT_MAX_IN_FLIGHT_RECORDS)).intValue());
+			topicConfig.setVirtThreadPool(virtThreadPool);
+		}
+		return topicConfig;
+	}
+
+	private int getConsumerPoolSize() {
+		return getNumericProperty(connectorConfiguration.getProperties(), "consumerPoolSize", 0);
+	}
+
+	private boolean isCommitAfterProcessing() {
+		return Boolean.parseBoolean(connectorConfiguration.getProperties()
+				.getOrDefault("commitAfterProcessing", false).toString());
+	}
+
 	@Override
 	public void monitorSubscriptions() {
 
@@ -349,7 +480,17 @@ public class KafkaClient extends AConnectorClient {
 			String mapIdent = it.next();
 			Mapping map = getMappingsDeployedInbound().get(mapIdent);
 			// test if topicConsumer was started successfully
-			if (consumerList.containsKey(map.mappingTopic)) {
+			if (consumerPool != null && consumerPool.isFailed(map.mappingTopic)) {
+				try {
+					unsubscribe(map.mappingTopic);
+					getMappingsDeployedInbound().remove(map.identifier);
+					log.warn(
+							"Tenant {} - Failed to subscribe to mappingTopic {} for mapping {} in connector {}!",
+							tenant, map.mappingTopic, map, getConnectorName());
+				} catch (Exception e) {
+					// ignore interrupt
+				}
+			} else if (consumerList.containsKey(map.mappingTopic)) {
 				TopicConsumer kafkaConsumer = consumerList.get(map.mappingTopic);
 				if (kafkaConsumer.shouldStop()) {
 					try {
@@ -369,6 +510,10 @@ public class KafkaClient extends AConnectorClient {
 
 	@Override
 	public void unsubscribe(String topic) throws Exception {
+		if (consumerPool != null) {
+			consumerPool.unsubscribe(topic);
+			return;
+		}
 		TopicConsumer kafkaConsumer = consumerList.remove(topic);
 		if (kafkaConsumer != null)
 			kafkaConsumer.close();
@@ -383,14 +528,43 @@ public class KafkaClient extends AConnectorClient {
 	public void publishMEAO(ProcessingContext<?> context) {
 		C8YRequest currentRequest = context.getCurrentRequest();
 		String payload = currentRequest.getRequest();
-		String key = currentRequest.getSourceId();
+		byte[] key = currentRequest.getSourceId() != null
+				? currentRequest.getSourceId().getBytes(StandardCharsets.UTF_8)
+				: null;
 		if (context.isSupportsMessageContext() && context.getKey() != null) {
-			key = new String(context.getKey());
+			key = context.getKey();
 		}
-		kafkaProducer.send(new ProducerRecord<String, String>(context.getMapping().publishTopic, key, payload));
-
-		log.info("Tenant {} - Published outbound message: {} for mapping: {} on topic: {}, {}", tenant, payload,
-				context.getMapping().name, context.getResolvedPublishTopic(), connectorName);
+		String topic = context.getResolvedPublishTopic() != null ? context.getResolvedPublishTopic()
+				: context.getMapping().publishTopic;
+		Mapping mapping = context.getMapping();
+		long start = System.nanoTime();
+		CompletableFuture<Void> published = new CompletableFuture<>();
+		// the result of the send is recorded in the request when the broker
+		// acknowledged the record, the next record is sent without waiting
+		kafkaProducer.send(new ProducerRecord<byte[], byte[]>(topic, key, payload.getBytes(StandardCharsets.UTF_8)),
+				(metadata, exception) -> {
+					publishTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+					if (exception != null) {
+						currentRequest.setError(exception);
+						publishErrorCounter.increment();
+						mappingComponent.getMappingStatus(tenant, mapping).incrementErrors();
+						log.error("Tenant {} - Failed to publish outbound message for mapping: {} on topic: {}, {}",
+								tenant, mapping.name, topic, connectorName, exception);
+					} else {
+						currentRequest.setResponse(metadata.toString());
+						publishCounter.increment();
+						// the payload is only logged when it is sampled for the message
+						if (context.isLogPayload()) {
+							log.info("Tenant {} - Published outbound message: {} for mapping: {} on topic: {}, {}",
+									tenant, payload, mapping.name, topic, connectorName);
+						} else {
+							log.debug("Tenant {} - Published outbound message for mapping: {} on topic: {}, {}",
+									tenant, mapping.name, topic, connectorName);
+						}
+					}
+					published.complete(null);
+				});
+		context.addPendingPublish(published);
 	}
 
     @Override
@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.connector.kafka;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.errors.TopicAuthorizationException;
+import org.apache.kafka.common.errors.WakeupException;
+
+import dynamic.mapping.core.ConnectorStatus;
+import dynamic.mapping.core.ConnectorStatusEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pool of a fixed number of Kafka consumers shared by all topics of a
+ * connector, instead of one consumer per topic.
+ * Every topic is assigned to the consumer with the fewest topics and records
+ * are dispatched to the listener of <code>record.topic()</code>. Subscribing
+ * and unsubscribing a topic only changes the subscription of one consumer, the
+ * consumer is not closed.
+ */
+@Slf4j
+public class KafkaConsumerPool {
+
+	private static final int WAIT_MS_RECONNECT = 30000;
+
+	private static final Duration POLL_TIMEOUT = Duration.ofSeconds(10);
+
+	private final TopicConfig topicConfig;
+
+	private final ConnectorStatusEvent connectorStatus;
+
+	// creates the consumers, not yet subscribed
+	private final Function<TopicConfig, Consumer<byte[], byte[]>> consumerFactory;
+
+	private final List<PooledConsumer> consumers = new ArrayList<>();
+
+	// structure: < topic , listener >
+	private final Map<String, TopicConsumerListener> listeners = new ConcurrentHashMap<>();
+
+	// structure: < topic , consumer >
+	private final Map<String, PooledConsumer> assignments = new ConcurrentHashMap<>();
+
+	// topics the consumers are not authorized for
+	private final Set<String> failedTopics = ConcurrentHashMap.newKeySet();
+
+	private boolean closed; // guarded by this
+
+	public KafkaConsumerPool(final TopicConfig topicConfig, ConnectorStatusEvent connectorStatus, int size) {
+		this(topicConfig, connectorStatus, size, Topic::createConsumer);
+	}
+
+	KafkaConsumerPool(final TopicConfig topicConfig, ConnectorStatusEvent connectorStatus, int size,
+			Function<TopicConfig, Consumer<byte[], byte[]>> consumerFactory) {
+		this.topicConfig = topicConfig;
+		this.connectorStatus = connectorStatus;
+		this.consumerFactory = consumerFactory;
+		for (int i = 0; i < Math.max(1, size); i++) {
+			consumers.add(new PooledConsumer(i));
+		}
+	}
+
+	public synchronized void subscribe(String topic, TopicConsumerListener listener) {
+		if (closed) {
+			throw new IllegalStateException("Closed");
+		}
+		listeners.put(topic, listener);
+		failedTopics.remove(topic);
+		if (assignments.containsKey(topic)) {
+			return;
+		}
+		PooledConsumer consumer = consumers.stream()
+				.min(Comparator.comparingInt(PooledConsumer::getTopicCount))
+				.orElseThrow();
+		assignments.put(topic, consumer);
+		consumer.addTopic(topic);
+		if (!consumer.isAlive()) {
+			consumer.start();
+		}
+	}
+
+	public synchronized void unsubscribe(String topic) {
+		listeners.remove(topic);
+		PooledConsumer consumer = assignments.remove(topic);
+		if (consumer != null) {
+			consumer.removeTopic(topic);
+		}
+	}
+
+	public boolean isFailed(String topic) {
+		return failedTopics.contains(topic);
+	}
+
+	public void close() throws InterruptedException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			listeners.clear();
+			assignments.clear();
+		}
+		for (PooledConsumer consumer : consumers) {
+			consumer.close();
+		}
+		for (PooledConsumer consumer : consumers) {
+			if (consumer.isAlive() && Thread.currentThread() != consumer) {
+				consumer.join();
+			}
+		}
+	}
+
+	private CompletableFuture<?> process(ConsumerRecord<?, ?> record) throws Exception {
+		TopicConsumerListener listener = listeners.get(record.topic());
+		if (listener == null) {
+			// topic was unsubscribed since the record was fetched
+			return CompletableFuture.completedFuture(null);
+		}
+		return listener.processEvent(Topic.toBytes(record.key()), Topic.toBytes(record.value()));
+	}
+
+	private class PooledConsumer extends Thread {
+		// topics of this consumer, guarded by this
+		private final Set<String> topics = new HashSet<>();
+		private volatile Consumer<byte[], byte[]> consumer;
+		private volatile boolean closed;
+
+		PooledConsumer(int index) {
+			super("Consumer#" + topicConfig.getBootstrapServers() + "/pool-" + index);
+		}
+
+		synchronized int getTopicCount() {
+			return topics.size();
+		}
+
+		synchronized void addTopic(String topic) {
+			topics.add(topic);
+			subscriptionChanged();
+		}
+
+		synchronized void removeTopic(String topic) {
+			topics.remove(topic);
+			subscriptionChanged();
+		}
+
+		private synchronized Set<String> getTopics() {
+			return new HashSet<>(topics);
+		}
+
+		// the subscription is applied by the polling thread, as the consumer is not
+		// thread safe
+		private void subscriptionChanged() {
+			notifyAll();
+			Consumer<byte[], byte[]> current = consumer;
+			if (current != null) {
+				current.wakeup();
+			}
+		}
+
+		private synchronized void awaitTopics() throws InterruptedException {
+			while (topics.isEmpty() && !closed) {
+				wait();
+			}
+		}
+
+		// the polling thread is woken up and not interrupted, as the offsets of the
+		// processed records are committed before the consumer is closed, which fails
+		// on an interrupted thread
+		void close() {
+			closed = true;
+			synchronized (this) {
+				notifyAll();
+			}
+			Consumer<byte[], byte[]> current = consumer;
+			if (current != null) {
+				current.wakeup();
+			}
+		}
+
+		private synchronized void awaitReconnect() throws InterruptedException {
+			long deadline = System.currentTimeMillis() + WAIT_MS_RECONNECT;
+			long remaining;
+			while (!closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+				wait(remaining);
+			}
+		}
+
+		@Override
+		public void run() {
+			while (!closed) {
+				ParallelRecordConsumer parallelConsumer = null;
+				try {
+					consumer = consumerFactory.apply(topicConfig);
+					if (topicConfig.getMaxInFlightRecords() > 0) {
+						parallelConsumer = new ParallelRecordConsumer(topicConfig.getTenant(), consumer,
+								topicConfig.getMaxInFlightRecords(), topicConfig.getVirtThreadPool(), record -> {
+									try {
+										return process(record);
+									} catch (final InterruptedException e) {
+										throw new org.apache.kafka.common.errors.InterruptException(e);
+									} catch (final org.apache.kafka.common.errors.InterruptException e) {
+										// not turned into a failed processing, which would be committed
+										throw e;
+									} catch (final Exception error) {
+										return CompletableFuture.failedFuture(error);
+									}
+								});
+					}
+					connectorStatus.updateStatus(ConnectorStatus.CONNECTED, true);
+					consumeUntilClosed(parallelConsumer);
+				} catch (final WakeupException e) {
+					// woken up by close()
+				} catch (final Exception e) {
+					if (closed) {
+						break;
+					}
+					handleError(e);
+					try {
+						awaitReconnect();
+					} catch (final InterruptedException ie) {
+						break;
+					}
+				} finally {
+					if (parallelConsumer != null) {
+						parallelConsumer.commitProcessed();
+					}
+					Consumer<byte[], byte[]> current = consumer;
+					consumer = null;
+					if (current != null) {
+						try {
+							current.close();
+						} catch (final Exception ignore) {
+						}
+					}
+				}
+			}
+		}
+
+		private void consumeUntilClosed(ParallelRecordConsumer parallelConsumer) throws InterruptedException {
+			Set<String> subscribed = Set.of();
+			while (!closed) {
+				Set<String> current = getTopics();
+				if (!current.equals(subscribed)) {
+					if (current.isEmpty()) {
+						consumer.unsubscribe();
+					} else if (parallelConsumer != null) {
+						consumer.subscribe(current, parallelConsumer);
+					} else {
+						consumer.subscribe(current);
+					}
+					subscribed = current;
+					log.info("Tenant {} - Consumer {} subscribed to topics {}", topicConfig.getTenant(), getName(),
+							subscribed);
+				}
+				if (subscribed.isEmpty()) {
+					awaitTopics();
+					continue;
+				}
+				try {
+					if (parallelConsumer != null) {
+						parallelConsumer.pollOnce();
+					} else {
+						pollSequential();
+					}
+				} catch (WakeupException e) {
+					// woken up to apply a changed subscription or to close the consumer
+				}
+			}
+		}
+
+		private void pollSequential() {
+			final ConsumerRecords<byte[], byte[]> records = consumer.poll(POLL_TIMEOUT);
+			for (ConsumerRecord<byte[], byte[]> record : records) {
+				TopicConsumerListener listener = listeners.get(record.topic());
+				if (listener == null) {
+					continue;
+				}
+				try {
+					listener.onEvent(Topic.toBytes(record.key()), Topic.toBytes(record.value()));
+				} catch (final InterruptedException e) { // can be thrown by a blocking operation inside onEvent()
+					throw new org.apache.kafka.common.errors.InterruptException(e);
+				} catch (final Exception error) {
+					// don't corrupt the consuming loop because of an error in a listener
+					log.error("Tenant {} - Failed to process message on topic {} with error: ",
+							topicConfig.getTenant(), record.topic(), error);
+				}
+			}
+		}
+
+		private void handleError(Exception e) {
+			log.error("Tenant {} - Consumer {} stopped by error, reconnecting ...", topicConfig.getTenant(),
+					getName(), e);
+			if (e instanceof TopicAuthorizationException authorizationException) {
+				// stop consuming the topics, these are reported as failed subscriptions
+				for (String topic : authorizationException.unauthorizedTopics()) {
+					failedTopics.add(topic);
+					assignments.remove(topic, this);
+					synchronized (this) {
+						topics.remove(topic);
+					}
+				}
+			}
+			String msg = "Consumer:" + getName() + " --- " + e.getClass().getName() + ": " + e.getMessage();
+			if (!(e.getCause() == null)) {
+				msg = msg + " --- Caused by " + e.getCause().getClass().getName() + ": " + e.getCause().getMessage();
+			}
+			connectorStatus.setMessage(msg);
+			connectorStatus.updateStatus(ConnectorStatus.FAILED, false);
+		}
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.connector.kafka;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.WakeupException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consumes records of all assigned partitions concurrently and commits their
+ * offsets after processing.
+ * Records with the same key in a partition are processed in order, records
+ * without a key in the order of their partition. The offset of a partition is
+ * only committed up to the first record that is still in process, so every
+ * record is processed at least once. A partition is paused when
+ * <code>maxInFlight</code> records of the partition are in process and resumed
+ * when half of them are completed.
+ * A record whose processing is interrupted is not committed, the
+ * <code>InterruptException</code> is passed on to the polling thread, so that
+ * the record is consumed again after the consumer is recreated.
+ * All methods apart from the completion of records must be called from the
+ * polling thread, as the <code>Consumer</code> is not thread safe.
+ */
+@Slf4j
+public class ParallelRecordConsumer implements ConsumerRebalanceListener {
+
+	private static final Duration POLL_TIMEOUT_IDLE = Duration.ofSeconds(10);
+
+	private static final Duration POLL_TIMEOUT_IN_FLIGHT = Duration.ofMillis(200);
+
+	private static class PendingRecord {
+		final long offset;
+		volatile boolean completed;
+
+		PendingRecord(long offset) {
+			this.offset = offset;
+		}
+	}
+
+	private final String tenant;
+
+	private final Consumer<?, ?> consumer;
+
+	private final int maxInFlight;
+
+	private final ExecutorService virtThreadPool;
+
+	// processes a record, the returned future completes when the processing is
+	// finished
+	private final Function<ConsumerRecord<?, ?>, CompletableFuture<?>> processor;
+
+	// structure: < partition , records in process in the order of the offsets >
+	private final Map<TopicPartition, ArrayDeque<PendingRecord>> pendingRecords = new HashMap<>();
+
+	// structure: < partition or partition and key , last record of the lane >
+	private final Map<Object, CompletableFuture<?>> lanes = new HashMap<>();
+
+	private final Set<TopicPartition> pausedPartitions = new HashSet<>();
+
+	// set when the processing of a record started asynchronously was interrupted,
+	// thrown on the polling thread
+	private volatile InterruptException interrupted;
+
+	public ParallelRecordConsumer(String tenant, Consumer<?, ?> consumer, int maxInFlight,
+			ExecutorService virtThreadPool, Function<ConsumerRecord<?, ?>, CompletableFuture<?>> processor) {
+		this.tenant = tenant;
+		this.consumer = consumer;
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.virtThreadPool = virtThreadPool;
+		this.processor = processor;
+	}
+
+	/**
+	 * Poll and process records until the consumer is woken up or the thread is
+	 * interrupted. The consumer has to be subscribed with this instance as
+	 * <code>ConsumerRebalanceListener</code>.
+	 */
+	public void consumeUntilError() {
+		try {
+			while (true) {
+				pollOnce();
+			}
+		} finally {
+			commitProcessed();
+		}
+	}
+
+	// commit the offsets of the records processed so far, e.g. before the consumer
+	// is closed
+	public void commitProcessed() {
+		try {
+			commit(new HashSet<>(pendingRecords.keySet()), true);
+		} catch (Exception e) {
+			log.warn("Tenant {} - Could not commit offsets of processed records: {}", tenant, e.getMessage());
+		}
+	}
+
+	// poll once, submit the records and commit the offsets of completed records
+	public void pollOnce() {
+		InterruptException error = interrupted;
+		if (error != null) {
+			throw error;
+		}
+		Duration timeout = pendingRecords.isEmpty() ? POLL_TIMEOUT_IDLE : POLL_TIMEOUT_IN_FLIGHT;
+		ConsumerRecords<?, ?> records = consumer.poll(timeout);
+		for (ConsumerRecord<?, ?> record : records) {
+			submit(record);
+		}
+		commit(new HashSet<>(pendingRecords.keySet()), false);
+		lanes.values().removeIf(CompletableFuture::isDone);
+	}
+
+	private void submit(ConsumerRecord<?, ?> record) {
+		TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+		PendingRecord pending = new PendingRecord(record.offset());
+		ArrayDeque<PendingRecord> partitionRecords = pendingRecords.computeIfAbsent(partition,
+				k -> new ArrayDeque<>());
+		partitionRecords.addLast(pending);
+
+		Object lane = getLane(partition, record.key());
+		CompletableFuture<?> predecessor = lanes.get(lane);
+		CompletableFuture<?> processing;
+		if (predecessor == null || predecessor.isDone()) {
+			processing = process(record);
+		} else {
+			// start the record when the previous record of the lane is completed, the
+			// record is started on a virtual thread as the processing might block
+			processing = predecessor.handle((result, error) -> null)
+					.thenComposeAsync(ignore -> process(record), virtThreadPool);
+		}
+		lanes.put(lane, processing);
+		processing.whenComplete((result, error) -> {
+			Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+					: error;
+			if (cause instanceof InterruptException interruptException) {
+				// the record stays in process, so its offset is not committed
+				interrupted = interruptException;
+				return;
+			}
+			if (error != null) {
+				log.warn("Tenant {} - Processing of record {} on partition {} failed, committing anyway: {}",
+						tenant, record.offset(), partition, error.getMessage());
+			}
+			pending.completed = true;
+		});
+
+		if (partitionRecords.size() >= maxInFlight && pausedPartitions.add(partition)) {
+			consumer.pause(List.of(partition));
+		}
+	}
+
+	private CompletableFuture<?> process(ConsumerRecord<?, ?> record) {
+		try {
+			CompletableFuture<?> processing = processor.apply(record);
+			return processing == null ? CompletableFuture.completedFuture(null) : processing;
+		} catch (InterruptException e) {
+			throw e;
+		} catch (Exception e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	// commit the offsets up to the first record in process
+	private void commit(Collection<TopicPartition> partitions, boolean sync) {
+		Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+		for (TopicPartition partition : partitions) {
+			ArrayDeque<PendingRecord> partitionRecords = pendingRecords.get(partition);
+			if (partitionRecords == null) {
+				continue;
+			}
+			long committable = -1;
+			while (!partitionRecords.isEmpty() && partitionRecords.peekFirst().completed) {
+				committable = partitionRecords.pollFirst().offset + 1;
+			}
+			if (committable >= 0) {
+				offsets.put(partition, new OffsetAndMetadata(committable));
+			}
+			if (partitionRecords.size() <= maxInFlight / 2 && pausedPartitions.remove(partition)) {
+				consumer.resume(List.of(partition));
+			}
+		}
+		pendingRecords.values().removeIf(ArrayDeque::isEmpty);
+		if (offsets.isEmpty()) {
+			return;
+		}
+		if (sync) {
+			try {
+				consumer.commitSync(offsets);
+			} catch (WakeupException e) {
+				// a pending wakeup, e.g. to close the consumer, is consumed by the first
+				// blocking call, so the commit is repeated once
+				consumer.commitSync(offsets);
+			}
+		} else {
+			consumer.commitAsync(offsets, (committed, e) -> {
+				if (e != null) {
+					log.warn("Tenant {} - Could not commit offsets {}: {}", tenant, committed, e.getMessage());
+				}
+			});
+		}
+	}
+
+	private static Object getLane(TopicPartition partition, Object key) {
+		if (key == null) {
+			return partition;
+		}
+		// byte arrays are compared by content
+		Object laneKey = key instanceof byte[] bytes ? ByteBuffer.wrap(bytes) : key;
+		return List.of(partition, laneKey);
+	}
+
+	@Override
+	public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+		// commit what is processed, records still in process are processed again by the
+		// new owner of the partition
+		try {
+			commit(partitions, true);
+		} catch (Exception e) {
+			log.warn("Tenant {} - Could not commit offsets of revoked partitions {}: {}", tenant, partitions,
+					e.getMessage());
+		}
+		forget(partitions);
+	}
+
+	@Override
+	public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+	}
+
+	@Override
+	public void onPartitionsLost(Collection<TopicPartition> partitions) {
+		forget(partitions);
+	}
+
+	private void forget(Collection<TopicPartition> partitions) {
+		for (TopicPartition partition : partitions) {
+			pendingRecords.remove(partition);
+			pausedPartitions.remove(partition);
+		}
+	}
+}
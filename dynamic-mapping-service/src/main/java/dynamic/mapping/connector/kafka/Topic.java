@@ -27,14 +27,14 @@ import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
-import org.apache.kafka.clients.producer.ProducerConfig;
-import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class Topic implements AutoCloseable {
@@ -43,31 +43,44 @@ public class Topic implements AutoCloseable {
 	private final Consumer<byte[], byte[]> consumer;
 
 	public Topic(final TopicConfig topicConfig) {
+		this(topicConfig, createConsumer(topicConfig));
+	}
+
+	Topic(final TopicConfig topicConfig, final Consumer<byte[], byte[]> consumer) {
 		this.topicConfig = topicConfig;
 
+		this.consumer = consumer;
+		try {
+			consumer.partitionsFor(topicConfig.getTopic()); // just to check connectivity immediately
+		} catch (final Exception e) {
+			try {
+				consumer.close();
+			} catch (final Exception ignore) {
+			}
+			throw e;
+		}
+	}
+
+	// create a consumer with the connection settings of the topicConfig, the
+	// consumer is not yet subscribed
+	static Consumer<byte[], byte[]> createConsumer(final TopicConfig topicConfig) {
 		final Properties props = SerializationUtils.clone(topicConfig.getDefaultPropertiesConsumer());
 
 		props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, topicConfig.getBootstrapServers());
 		props.put("group.id", topicConfig.getGroupId());
 		// this is a common topic consumer, so we just pull byte arrays and pass them
 		// to a listener, we don't do any decoding in here
-		props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
-		props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+		props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+		props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
 		String jaasTemplate = "org.apache.kafka.common.security.scram.ScramLoginModule required username=\"%s\" password=\"%s\";";
 		String jaasCfg = String.format(jaasTemplate, topicConfig.getUsername(), topicConfig.getPassword());
 		props.put("sasl.jaas.config", jaasCfg);
 		props.put("sasl.mechanism", topicConfig.getSaslMechanism());
-
-		consumer = new KafkaConsumer<>(props);
-		try {
-			consumer.partitionsFor(topicConfig.getTopic()); // just to check connectivity immediately
-		} catch (final Exception e) {
-			try {
-				consumer.close();
-			} catch (final Exception ignore) {
-			}
-			throw e;
+		if (topicConfig.getMaxInFlightRecords() > 0) {
+			// offsets are committed after the records are processed
+			props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
 		}
+		return new KafkaConsumer<>(props);
 	}
 
 	/**
@@ -88,21 +101,7 @@ public class Topic implements AutoCloseable {
 			final ConsumerRecords<byte[], byte[]> records = consumer.poll(Duration.ofSeconds(10));
 			for (ConsumerRecord<byte[], byte[]> record : records) {
 				try {
-					Object key = record.key();
-					Object event = record.value();
-					byte[] keyByte;
-					byte[] eventByte;
-					if (key instanceof String) {
-						keyByte = ((String) key).getBytes();
-					} else {
-						keyByte = record.key();
-					}
-					if (event instanceof String) {
-						eventByte = ((String) event).getBytes();
-					} else {
-						eventByte = record.key();
-					}
-					listener.onEvent(keyByte, eventByte);
+					listener.onEvent(record.key(), record.value());
 				} catch (final InterruptedException e) { // can be thrown by a blocking operation inside onEvent()
 					throw new org.apache.kafka.common.errors.InterruptException(e);
 				} catch (final Exception error) {
@@ -117,6 +116,45 @@ public class Topic implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Consume the events of all partitions concurrently, the offsets are committed
+	 * after the events are processed. As in <code>consumeUntilError</code> we
+	 * can exit from this method only by an exception.
+	 *
+	 * @param listener
+	 */
+	public void consumeInParallelUntilError(final TopicEventListener listener) {
+		ParallelRecordConsumer parallelConsumer = new ParallelRecordConsumer(topicConfig.getTenant(), consumer,
+				topicConfig.getMaxInFlightRecords(), topicConfig.getVirtThreadPool(),
+				record -> {
+					try {
+						return listener.processEvent(toBytes(record.key()), toBytes(record.value()));
+					} catch (final InterruptedException e) {
+						throw new org.apache.kafka.common.errors.InterruptException(e);
+					} catch (final org.apache.kafka.common.errors.InterruptException e) {
+						// not turned into a failed processing, which would be committed
+						throw e;
+					} catch (final Exception error) {
+						log.error("Tenant {} - Failed to process message on topic {} with error: ",
+								topicConfig.getTenant(), topicConfig.getTopic(), error);
+						return CompletableFuture.failedFuture(error);
+					}
+				});
+		consumer.subscribe(Arrays.asList(topicConfig.getTopic()), parallelConsumer);
+		parallelConsumer.consumeUntilError();
+	}
+
+	// records are deserialized as byte arrays, see createConsumer
+	static byte[] toBytes(Object value) {
+		return (byte[]) value;
+	}
+
+	// Method to stop consuming from another thread, the consuming thread leaves
+	// consumeUntilError or consumeInParallelUntilError with a WakeupException
+	public void wakeup() {
+		consumer.wakeup();
+	}
+
 	@Override
 	public void close() {
 		try {
@@ -22,6 +22,7 @@
 package dynamic.mapping.connector.kafka;
 
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -37,6 +38,10 @@ public class TopicConfig {
 	private String saslMechanism;
 	private String groupId;
 	private Properties defaultPropertiesConsumer;
+	// maximum number of records in process per partition, 0 or less to process
+	// records sequentially with auto commit
+	private int maxInFlightRecords;
+	private ExecutorService virtThreadPool;
 
 	public TopicConfig(String tenant, String bootstrapServers, String topic, String username, String password,
 			String saslMechanism,
@@ -21,6 +21,9 @@
 
 package dynamic.mapping.connector.kafka;
 
+import java.util.function.Function;
+
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.common.errors.TopicAuthorizationException;
 
 import dynamic.mapping.core.ConnectorStatusEvent;
@@ -29,13 +32,20 @@ import dynamic.mapping.core.ConnectorStatus;
 public class TopicConsumer {
 	private final TopicConfig topicConfig;
 	private final ConnectorStatusEvent connectorStatus;
+	private final Function<TopicConfig, Consumer<byte[], byte[]>> consumerFactory;
 
 	private ConsumingThread consumingThread; // guarded by this
 	private boolean closed; // guarded by this
 
 	public TopicConsumer(final TopicConfig topicConfig, ConnectorStatusEvent connectorStatus) {
+		this(topicConfig, connectorStatus, Topic::createConsumer);
+	}
+
+	TopicConsumer(final TopicConfig topicConfig, ConnectorStatusEvent connectorStatus,
+			Function<TopicConfig, Consumer<byte[], byte[]>> consumerFactory) {
 		this.topicConfig = topicConfig;
 		this.connectorStatus = connectorStatus;
+		this.consumerFactory = consumerFactory;
 	}
 
 	public synchronized void start(final TopicConsumerListener listener) {
@@ -93,6 +103,10 @@ public class TopicConsumer {
 		private final TopicConsumerListener listener;
 		private final ConnectorStatusEvent connectorStatus;
 		private volatile boolean closed;
+		// the topic currently consumed, woken up by close() when offsets are committed
+		// after processing
+		private volatile Topic topic;
+		private final Object reconnectLock = new Object();
 		boolean shouldStop = false;
 
 		ConsumingThread(final TopicConsumerListener listener, ConnectorStatusEvent connectorStatus) {
@@ -107,10 +121,15 @@ public class TopicConsumer {
 			Exception error = null;
 			boolean continueToListen = true;
 
-			while (continueToListen) {
+			while (continueToListen && !closed) {
 				Topic tc = null;
 				try {
-					tc = new Topic(topicConfig);
+					tc = new Topic(topicConfig, consumerFactory.apply(topicConfig));
+					topic = tc;
+					if (closed) {
+						// closed before the topic could be woken up
+						break;
+					}
 
 					try {
 						listener.onStarted();
@@ -119,9 +138,13 @@ public class TopicConsumer {
 					}
 
 					// we consume the events from the topic until
-					// this thread is interrupted by close()
+					// this thread is interrupted or the topic is woken up by close()
 					connectorStatus.updateStatus(ConnectorStatus.CONNECTED, true);
-					tc.consumeUntilError(listener);
+					if (topicConfig.getMaxInFlightRecords() > 0) {
+						tc.consumeInParallelUntilError(listener);
+					} else {
+						tc.consumeUntilError(listener);
+					}
 				} catch (final Exception e) {
 					if (closed) {
 						break;
@@ -132,6 +155,7 @@ public class TopicConsumer {
 						shouldStop = true;
 					}
 				} finally {
+					topic = null;
 					if (tc != null) {
 						try {
 							tc.close();
@@ -149,7 +173,7 @@ public class TopicConsumer {
 				}
 
 				try {
-					Thread.sleep(WAIT_MS_RECONNECT); // TODO: make the timeout configurable and use backoff with jitter
+					awaitReconnect(); // TODO: make the timeout configurable and use backoff with jitter
 				} catch (final InterruptedException e) {
 					break; // interrupted by close()
 					// we don't restore the flag interrupted, since we still need
@@ -176,12 +200,36 @@ public class TopicConsumer {
 			connectorStatus.updateStatus(ConnectorStatus.FAILED, false);
 		}
 
+		private void awaitReconnect() throws InterruptedException {
+			long deadline = System.currentTimeMillis() + WAIT_MS_RECONNECT;
+			long remaining;
+			synchronized (reconnectLock) {
+				while (!closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+					reconnectLock.wait(remaining);
+				}
+			}
+		}
+
 		void close() {
 			if (closed) { // no atomicity/membars required
 				return; // since can be called only by one single thread
 			}
 			closed = true;
 
+			if (topicConfig.getMaxInFlightRecords() > 0) {
+				// the offsets of the processed records are committed synchronously before the
+				// consumer is closed, which fails on an interrupted thread, so the consuming
+				// thread is woken up and not interrupted
+				synchronized (reconnectLock) {
+					reconnectLock.notifyAll();
+				}
+				Topic current = topic;
+				if (current != null) {
+					current.wakeup();
+				}
+				return;
+			}
+
 			// We stop the consuming with org.apache.kafka.common.errors.InterruptException
 			// In here it isn't convenient to call Topic.close() directly to initiate
 			// org.apache.kafka.common.errors.WakeupException, since we recreate
@@ -21,6 +21,8 @@
 
 package dynamic.mapping.connector.kafka;
 
+import java.util.concurrent.CompletableFuture;
+
 import dynamic.mapping.connector.core.callback.ConnectorMessage;
 import dynamic.mapping.connector.core.callback.GenericMessageCallback;
 import lombok.extern.slf4j.Slf4j;
@@ -44,7 +46,16 @@ public class TopicConsumerCallback implements TopicConsumerListener {
 
     @Override
     public void onEvent(byte[] key, byte[] event) throws Exception {
-        ConnectorMessage connectorMessage =  ConnectorMessage.builder()
+        genericMessageCallback.onMessage(createConnectorMessage(key, event));
+    }
+
+    @Override
+    public CompletableFuture<?> processEvent(byte[] key, byte[] event) throws Exception {
+        return genericMessageCallback.processMessage(createConnectorMessage(key, event));
+    }
+
+    private ConnectorMessage createConnectorMessage(byte[] key, byte[] event) {
+        return ConnectorMessage.builder()
         .tenant(tenant)
         .supportsMessageContext(supportsMessageContext)
         .topic(topic)
@@ -53,7 +64,6 @@ public class TopicConsumerCallback implements TopicConsumerListener {
         .key(key)
         .payload(event)
         .build();
-        genericMessageCallback.onMessage(connectorMessage);
     }
 
     @Override
@@ -21,6 +21,12 @@
 
 package dynamic.mapping.connector.kafka;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface TopicEventListener {
     void onEvent(byte[] key, byte[] event) throws Exception;
+
+    // process the event, the returned future completes when the processing is
+    // finished
+    CompletableFuture<?> processEvent(byte[] key, byte[] event) throws Exception;
 }
\ No newline at end of file
@@ -21,6 +21,7 @@
 
 package dynamic.mapping.connector.mqtt;
 
+import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
 
 import com.hivemq.client.mqtt.datatypes.MqttTopic;
@@ -28,20 +29,59 @@ import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
 
 import dynamic.mapping.connector.core.callback.ConnectorMessage;
 import dynamic.mapping.connector.core.callback.GenericMessageCallback;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 public class MQTTCallback implements Consumer<Mqtt3Publish> {
     GenericMessageCallback genericMessageCallback;
     static String TOPIC_LEVEL_SEPARATOR = String.valueOf(MqttTopic.TOPIC_LEVEL_SEPARATOR);
     String tenant;
     String connectorIdentifier;
     boolean supportsMessageContext;
+    // window of messages received but not yet acknowledged, only used with manual
+    // acknowledgement
+    Semaphore inFlightWindow;
+    // acknowledge messages whose processing failed, otherwise the broker
+    // redelivers them when the session is resumed
+    boolean acknowledgeFailed;
 
     MQTTCallback(GenericMessageCallback callback, String tenant, String connectorIdentifier,
             boolean supportsMessageContext) {
+        this(callback, tenant, connectorIdentifier, supportsMessageContext, 0);
+    }
+
+    /**
+     * With a <code>receiveMaximum</code> greater than 0 messages are acknowledged
+     * manually after their processing is completed. The callback blocks when
+     * <code>receiveMaximum</code> messages are not yet acknowledged. Then the
+     * broker stops sending messages once its in-flight window is full.
+     */
+    MQTTCallback(GenericMessageCallback callback, String tenant, String connectorIdentifier,
+            boolean supportsMessageContext, int receiveMaximum) {
+        this(callback, tenant, connectorIdentifier, supportsMessageContext, receiveMaximum, false);
+    }
+
+    /**
+     * With manual acknowledgement a message whose processing failed is not
+     * acknowledged unless <code>acknowledgeFailed</code> is set. The broker
+     * redelivers it when the session is resumed after a reconnect. Until then the
+     * message occupies a slot of the in-flight window of the broker, so with many
+     * failing messages the broker sends fewer messages until the next reconnect.
+     */
+    MQTTCallback(GenericMessageCallback callback, String tenant, String connectorIdentifier,
+            boolean supportsMessageContext, int receiveMaximum, boolean acknowledgeFailed) {
+        this.acknowledgeFailed = acknowledgeFailed;
         this.genericMessageCallback = callback;
         this.tenant = tenant;
         this.connectorIdentifier = connectorIdentifier;
         this.supportsMessageContext = supportsMessageContext;
+        if (receiveMaximum > 0) {
+            this.inFlightWindow = new Semaphore(receiveMaximum);
+        }
+    }
+
+    boolean isManualAcknowledgement() {
+        return inFlightWindow != null;
     }
 
     @Override
@@ -70,7 +110,46 @@ public class MQTTCallback implements Consumer<Mqtt3Publish> {
                 .build();
 
         connectorMessage.setSupportsMessageContext(supportsMessageContext);
-        genericMessageCallback.onMessage(connectorMessage);
+        if (!isManualAcknowledgement()) {
+            genericMessageCallback.onMessage(connectorMessage);
+            return;
+        }
+
+        inFlightWindow.acquireUninterruptibly();
+        try {
+            genericMessageCallback.processMessage(connectorMessage).whenComplete((result, error) -> {
+                if (error == null) {
+                    acknowledge(mqttMessage);
+                } else {
+                    log.warn("Tenant {} - Processing of message on topic {} failed: {}", tenant, topic,
+                            error.getMessage());
+                    failed(mqttMessage);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Tenant {} - Error processing message on topic {}: ", tenant, topic, e);
+            failed(mqttMessage);
+        }
+    }
+
+    private void failed(Mqtt3Publish mqttMessage) {
+        if (acknowledgeFailed) {
+            acknowledge(mqttMessage);
+        } else {
+            // the message stays unacknowledged and is redelivered by the broker
+            inFlightWindow.release();
+        }
+    }
+
+    private void acknowledge(Mqtt3Publish mqttMessage) {
+        try {
+            mqttMessage.acknowledge();
+        } catch (Exception e) {
+            // message was already acknowledged or the session is closed
+            log.debug("Tenant {} - Could not acknowledge message: {}", tenant, e.getMessage());
+        } finally {
+            inFlightWindow.release();
+        }
     }
 
 }
\ No newline at end of file
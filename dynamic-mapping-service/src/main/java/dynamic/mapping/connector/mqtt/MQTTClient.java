@@ -37,6 +37,11 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.TrustManagerFactory;
 import com.hivemq.client.mqtt.mqtt3.message.unsubscribe.Mqtt3Unsubscribe;
@@ -67,6 +72,10 @@ import com.hivemq.client.mqtt.mqtt3.message.auth.Mqtt3SimpleAuthBuilder.Complete
 import com.hivemq.client.mqtt.mqtt3.message.connect.connack.Mqtt3ConnAck;
 import com.hivemq.client.mqtt.mqtt3.message.connect.connack.Mqtt3ConnAckReturnCode;
 import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import dynamic.mapping.configuration.ConnectorConfiguration;
@@ -83,6 +92,8 @@ public class MQTTClient extends AConnectorClient {
         ConnectorPropertyCondition tlsCondition = new ConnectorPropertyCondition("protocol", new String[] {"mqtts://","wss://"});
         ConnectorPropertyCondition useSelfSignedCertificateCondition = new ConnectorPropertyCondition("useSelfSignedCertificate", new String[] {"true"});
         ConnectorPropertyCondition wsCondition = new ConnectorPropertyCondition("protocol", new String[] {"ws://","wss://"});
+        ConnectorPropertyCondition manualAcknowledgementCondition = new ConnectorPropertyCondition("manualAcknowledgement", new String[] {"true"});
+        ConnectorPropertyCondition asyncPublishCondition = new ConnectorPropertyCondition("asyncPublish", new String[] {"true"});
 		configProps.put("protocol",
 				new ConnectorProperty(null, true, 0, ConnectorPropertyType.OPTION_PROPERTY, false, false, "mqtt://",
 						Map.ofEntries(
@@ -111,6 +122,16 @@ public class MQTTClient extends AConnectorClient {
 				new ConnectorProperty(null, false, 9, ConnectorPropertyType.BOOLEAN_PROPERTY, false, false, true, null, null));
 		configProps.put("serverPath",
 				new ConnectorProperty(null, false, 10, ConnectorPropertyType.STRING_PROPERTY, false, false, null, null, wsCondition));
+		configProps.put("manualAcknowledgement",
+				new ConnectorProperty(null, false, 11, ConnectorPropertyType.BOOLEAN_PROPERTY, false, false, false, null, null));
+		configProps.put("receiveMaximum",
+				new ConnectorProperty(null, false, 12, ConnectorPropertyType.NUMERIC_PROPERTY, false, false, DEFAULT_RECEIVE_MAXIMUM, null, manualAcknowledgementCondition));
+		configProps.put("acknowledgeFailedMessages",
+				new ConnectorProperty(null, false, 13, ConnectorPropertyType.BOOLEAN_PROPERTY, false, false, false, null, manualAcknowledgementCondition));
+		configProps.put("asyncPublish",
+				new ConnectorProperty(null, false, 14, ConnectorPropertyType.BOOLEAN_PROPERTY, false, false, false, null, null));
+		configProps.put("maxInFlightPublishes",
+				new ConnectorProperty(null, false, 15, ConnectorPropertyType.NUMERIC_PROPERTY, false, false, DEFAULT_MAX_IN_FLIGHT_PUBLISHES, null, asyncPublishCondition));
 		String name = "Generic MQTT";
 		String description = "Generic connector for connecting to external MQTT broker over tcp or websocket.";
 		connectorType = ConnectorType.MQTT;
@@ -150,6 +171,27 @@ public class MQTTClient extends AConnectorClient {
 
 	protected Mqtt3BlockingClient mqttClient;
 
+	protected static final int DEFAULT_RECEIVE_MAXIMUM = 100;
+
+	protected static final int DEFAULT_MAX_IN_FLIGHT_PUBLISHES = 100;
+
+	// window of outbound messages published but not yet completed by the broker,
+	// only used with asynchronous publishing
+	protected volatile Semaphore publishWindow;
+
+	protected int maxInFlightPublishes;
+
+	protected Timer publishTimer;
+
+	protected Counter publishErrorCounter;
+
+	// bound to this client, removed when the client is closed
+	protected Gauge publishInFlightGauge;
+
+	// executes the callback when messages are acknowledged manually, as the
+	// callback blocks when the in-flight window is full
+	protected ExecutorService callbackExecutor;
+
 	@Getter
 	protected List<QOS> supportedQOS;
 
@@ -305,8 +347,39 @@ public class MQTTClient extends AConnectorClient {
 				mqttClient.getConfig().getServerPort(), configuredServerPath);
 		// Registering Callback
 		Mqtt3AsyncClient mqtt3AsyncClient = mqttClient.toAsync();
-		mqttCallback = new MQTTCallback(dispatcher, tenant, getConnectorIdentifier(), false);
-		mqtt3AsyncClient.publishes(MqttGlobalPublishFilter.ALL, mqttCallback);
+		boolean manualAcknowledgement = Boolean.parseBoolean(connectorConfiguration.getProperties()
+				.getOrDefault("manualAcknowledgement", false).toString());
+		if (manualAcknowledgement) {
+			// messages are acknowledged after processing, the broker only sends new
+			// messages when the in-flight window of the session has capacity
+			int receiveMaximum = ((Number) connectorConfiguration.getProperties()
+					.getOrDefault("receiveMaximum", DEFAULT_RECEIVE_MAXIMUM)).intValue();
+			// failed messages are redelivered by the broker unless they are acknowledged
+			boolean acknowledgeFailedMessages = Boolean.parseBoolean(connectorConfiguration.getProperties()
+					.getOrDefault("acknowledgeFailedMessages", false).toString());
+			mqttCallback = new MQTTCallback(dispatcher, tenant, getConnectorIdentifier(), false,
+					Math.max(1, receiveMaximum), acknowledgeFailedMessages);
+			shutdownCallbackExecutor();
+			callbackExecutor = Executors.newSingleThreadExecutor();
+			mqtt3AsyncClient.publishes(MqttGlobalPublishFilter.ALL, mqttCallback, callbackExecutor, true);
+			log.info("Tenant {} - Connector {} acknowledges messages after processing, receiveMaximum: {}", tenant,
+					getConnectorName(), receiveMaximum);
+		} else {
+			mqttCallback = new MQTTCallback(dispatcher, tenant, getConnectorIdentifier(), false);
+			mqtt3AsyncClient.publishes(MqttGlobalPublishFilter.ALL, mqttCallback);
+		}
+		boolean asyncPublish = Boolean.parseBoolean(connectorConfiguration.getProperties()
+				.getOrDefault("asyncPublish", false).toString());
+		if (asyncPublish) {
+			// outbound messages are published without waiting for the acknowledgement of
+			// the previous message, at most maxInFlightPublishes are outstanding
+			enableAsyncPublish(((Number) connectorConfiguration.getProperties()
+					.getOrDefault("maxInFlightPublishes", DEFAULT_MAX_IN_FLIGHT_PUBLISHES)).intValue());
+			log.info("Tenant {} - Connector {} publishes asynchronously, maxInFlightPublishes: {}", tenant,
+					getConnectorName(), maxInFlightPublishes);
+		} else {
+			publishWindow = null;
+		}
 
 		// stay in the loop until successful
 		boolean successful = false;
@@ -326,8 +399,10 @@ public class MQTTClient extends AConnectorClient {
 					}
 				}
 				try {
+					// keep the session when acknowledging manually, so the broker redelivers
+					// messages not acknowledged before a disconnect
 					Mqtt3ConnAck ack = mqttClient.connectWith()
-							.cleanSession(true)
+							.cleanSession(!manualAcknowledgement)
 							.keepAlive(60)
 							.send();
 					if (!ack.getReturnCode().equals(Mqtt3ConnAckReturnCode.SUCCESS)) {
@@ -390,6 +465,22 @@ public class MQTTClient extends AConnectorClient {
 
 	@Override
 	public void close() {
+		shutdownCallbackExecutor();
+		removePublishInFlightGauge();
+	}
+
+	private void removePublishInFlightGauge() {
+		if (publishInFlightGauge != null) {
+			Metrics.globalRegistry.remove(publishInFlightGauge);
+			publishInFlightGauge = null;
+		}
+	}
+
+	private void shutdownCallbackExecutor() {
+		if (callbackExecutor != null) {
+			callbackExecutor.shutdownNow();
+			callbackExecutor = null;
+		}
 	}
 
 	@Override
@@ -517,10 +608,86 @@ public class MQTTClient extends AConnectorClient {
 		MqttQos mqttQos = MqttQos.fromCode(context.getQos().ordinal());
 		Mqtt3Publish mqttMessage = Mqtt3Publish.builder().topic(context.getResolvedPublishTopic()).qos(mqttQos)
 				.payload(payload.getBytes()).build();
-		mqttClient.publish(mqttMessage);
+		Semaphore window = publishWindow;
+		if (window == null) {
+			mqttClient.publish(mqttMessage);
+			logPublished(context, payload);
+		} else {
+			publishAsync(context, mqttMessage, window);
+		}
+	}
+
+	// the payload is only logged when it is sampled for the message
+	private void logPublished(ProcessingContext<?> context, String payload) {
+		if (context.isLogPayload()) {
+			log.info("Tenant {} - Published outbound message: {} for mapping: {} on topic: {}, {}", tenant, payload,
+					context.getMapping().name, context.getResolvedPublishTopic(), connectorName);
+		} else {
+			log.debug("Tenant {} - Published outbound message for mapping: {} on topic: {}, {}", tenant,
+					context.getMapping().name, context.getResolvedPublishTopic(), connectorName);
+		}
+	}
+
+	// the result is recorded in the current request when the broker completed the
+	// publish, blocks while the in-flight window is full
+	private void publishAsync(ProcessingContext<?> context, Mqtt3Publish mqttMessage, Semaphore window) {
+		C8YRequest currentRequest = context.getCurrentRequest();
+		Mapping mapping = context.getMapping();
+		window.acquireUninterruptibly();
+		long start = System.nanoTime();
+		try {
+			context.addPendingPublish(mqttClient.toAsync().publish(mqttMessage).whenComplete((result, error) -> {
+				window.release();
+				publishTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				if (error != null) {
+					currentRequest.setError(error instanceof Exception exception ? exception
+							: new CompletionException(error));
+					publishErrorCounter.increment();
+					mappingComponent.getMappingStatus(tenant, mapping).incrementErrors();
+					log.error("Tenant {} - Failed to publish outbound message for mapping: {} on topic: {}, {}",
+							tenant, mapping.name, mqttMessage.getTopic(), connectorName, error);
+				} else {
+					currentRequest.setResponse(result.toString());
+					logPublished(context, currentRequest.getRequest());
+				}
+			}));
+		} catch (RuntimeException e) {
+			window.release();
+			throw e;
+		}
+	}
+
+	void enableAsyncPublish(int maxInFlightPublishes) {
+		this.maxInFlightPublishes = Math.max(1, maxInFlightPublishes);
+		publishWindow = new Semaphore(this.maxInFlightPublishes);
+		registerPublishMetrics();
+	}
+
+	private void registerPublishMetrics() {
+		publishTimer = Timer.builder("dynmapper_mqtt_publish_time")
+				.description("Time from publishing an outbound message until it is completed by the MQTT broker")
+				.tag("tenant", tenant).tag("connector", connectorIdentifier)
+				.register(Metrics.globalRegistry);
+		publishErrorCounter = Counter.builder("dynmapper_mqtt_publish_errors_total")
+				.description("Total number of outbound messages that could not be published to the MQTT broker")
+				.tag("tenant", tenant).tag("connector", connectorIdentifier)
+				.register(Metrics.globalRegistry);
+		// a gauge registered before, e.g. by a client of the connector that was not
+		// closed, would stay bound to that client
+		Gauge previous = Metrics.globalRegistry.find("dynmapper_mqtt_publish_in_flight")
+				.tag("tenant", tenant).tag("connector", connectorIdentifier).gauge();
+		if (previous != null) {
+			Metrics.globalRegistry.remove(previous);
+		}
+		publishInFlightGauge = Gauge.builder("dynmapper_mqtt_publish_in_flight", this, MQTTClient::getPublishesInFlight)
+				.description("Number of outbound messages published but not yet completed by the MQTT broker")
+				.tag("tenant", tenant).tag("connector", connectorIdentifier)
+				.register(Metrics.globalRegistry);
+	}
 
-		log.info("Tenant {} - Published outbound message: {} for mapping: {} on topic: {}, {}", tenant, payload,
-				context.getMapping().name, context.getResolvedPublishTopic(), connectorName);
+	public int getPublishesInFlight() {
+		Semaphore window = publishWindow;
+		return window == null ? 0 : maxInFlightPublishes - window.availablePermits();
 	}
 
 	@Override
@@ -22,13 +22,16 @@
 package dynamic.mapping.connector.webhook;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 import dynamic.mapping.connector.core.ConnectorPropertyType;
 import dynamic.mapping.connector.core.ConnectorSpecification;
@@ -66,6 +69,8 @@ public class WebHook extends AConnectorClient {
                 new String[] { "Basic" });
         ConnectorPropertyCondition bearerAuthenticationCondition = new ConnectorPropertyCondition("authentication",
                 new String[] { "Bearer" });
+        ConnectorPropertyCondition highThroughputCondition = new ConnectorPropertyCondition("highThroughput",
+                new String[] { "true" });
         configProps.put("baseUrl",
                 new ConnectorProperty(null, true, 0, ConnectorPropertyType.STRING_PROPERTY, false, false, null, null,
                         null));
@@ -92,6 +97,29 @@ public class WebHook extends AConnectorClient {
         configProps.put("baseUrlHealthEndpoint",
                 new ConnectorProperty("health endpoint for GET request", false, 6,
                         ConnectorPropertyType.STRING_PROPERTY, false, false, null, null, null));
+        configProps.put("highThroughput",
+                new ConnectorProperty("publish asynchronously with a pooled HTTP client", false, 7,
+                        ConnectorPropertyType.BOOLEAN_PROPERTY, false, false, false, null, null));
+        configProps.put("maxConnections",
+                new ConnectorProperty(null, false, 8, ConnectorPropertyType.NUMERIC_PROPERTY, false, false,
+                        DEFAULT_MAX_CONNECTIONS, null, highThroughputCondition));
+        configProps.put("http2",
+                new ConnectorProperty("negotiate HTTP/2 with https endpoints", false, 9,
+                        ConnectorPropertyType.BOOLEAN_PROPERTY, false, false, false, null, highThroughputCondition));
+        configProps.put("maxConcurrentRequests",
+                new ConnectorProperty(null, false, 10, ConnectorPropertyType.NUMERIC_PROPERTY, false, false,
+                        DEFAULT_MAX_CONCURRENT_REQUESTS, null, highThroughputCondition));
+        configProps.put("batchSize",
+                new ConnectorProperty("payloads posted as one JSON array, 1 disables batching", false, 11,
+                        ConnectorPropertyType.NUMERIC_PROPERTY, false, false, 1, null, highThroughputCondition));
+        configProps.put("batchLinger",
+                new ConnectorProperty("milliseconds to wait for further payloads of a batch", false, 12,
+                        ConnectorPropertyType.NUMERIC_PROPERTY, false, false, DEFAULT_BATCH_LINGER, null,
+                        highThroughputCondition));
+        configProps.put("maxRetries",
+                new ConnectorProperty("retries of requests failing with 408, 425, 429 or 5xx", false, 13,
+                        ConnectorPropertyType.NUMERIC_PROPERTY, false, false, DEFAULT_MAX_RETRIES, null,
+                        highThroughputCondition));
         String name = "Webhook";
         String description = "Webhook to send outbound messages to the configured REST endpoint as POST in JSON format. The publishTopic is appended to the Rest endpoint. In case the endpoint does not end with a trailing / and the publishTopic is not start with a / it is automatically added. The health endpoint is tested with a GET request.";
         connectorType = ConnectorType.WEB_HOOK;
@@ -126,6 +154,14 @@ public class WebHook extends AConnectorClient {
 
     protected RestClient webhookClient;
 
+    // only used in high throughput mode
+    protected WebHookPublisher webhookPublisher;
+
+    protected static final int DEFAULT_MAX_CONNECTIONS = 50;
+    protected static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 50;
+    protected static final int DEFAULT_BATCH_LINGER = 50;
+    protected static final int DEFAULT_MAX_RETRIES = 3;
+
     protected String baseUrl;
     protected Boolean baseUrlEndsWithSlash;
 
@@ -159,24 +195,44 @@ public class WebHook extends AConnectorClient {
         String headerAccept = (String) connectorConfiguration.getProperties().getOrDefault("headerAccept",
                 "application/json");
 
-        // Create RestClient builder
-        RestClient.Builder builder = RestClient.builder()
-                .requestFactory(new HttpComponentsClientHttpRequestFactory())
-                .baseUrl(baseUrl)
-                .defaultHeader("Accept", headerAccept);
-
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Accept", headerAccept);
         // Add authentication if specified
         if ("Basic".equalsIgnoreCase(authentication) && !StringUtils.isEmpty(user) && !StringUtils.isEmpty(password)) {
             String credentials = Base64.getEncoder()
                     .encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
-            builder.defaultHeader("Authorization", "Basic " + credentials);
+            headers.put("Authorization", "Basic " + credentials);
         } else if ("Bearer".equalsIgnoreCase(authentication) && password != null) {
-            builder.defaultHeader("Authorization", "Bearer " + token);
+            headers.put("Authorization", "Bearer " + token);
         }
 
+        // Create RestClient builder
+        RestClient.Builder builder = RestClient.builder()
+                .requestFactory(new HttpComponentsClientHttpRequestFactory())
+                .baseUrl(baseUrl);
+        headers.forEach(builder::defaultHeader);
+
         // Build the client
         webhookClient = builder.build();
 
+        if (webhookPublisher != null) {
+            webhookPublisher.close();
+            webhookPublisher = null;
+        }
+        if (Boolean.parseBoolean(connectorConfiguration.getProperties().getOrDefault("highThroughput", false)
+                .toString())) {
+            webhookPublisher = new WebHookPublisher(tenant, connectorIdentifier, headers,
+                    getNumericProperty("maxConnections", DEFAULT_MAX_CONNECTIONS),
+                    Boolean.parseBoolean(connectorConfiguration.getProperties().getOrDefault("http2", false)
+                            .toString()),
+                    getNumericProperty("maxConcurrentRequests", DEFAULT_MAX_CONCURRENT_REQUESTS),
+                    getNumericProperty("batchSize", 1),
+                    Duration.ofMillis(getNumericProperty("batchLinger", DEFAULT_BATCH_LINGER)),
+                    getNumericProperty("maxRetries", DEFAULT_MAX_RETRIES), virtThreadPool);
+            log.info("Tenant {} - Connector {} publishes asynchronously, batchSize: {}", tenant, getConnectorName(),
+                    getNumericProperty("batchSize", 1));
+        }
+
         // stay in the loop until successful
         boolean successful = false;
         while (!successful) {
@@ -236,6 +292,11 @@ public class WebHook extends AConnectorClient {
         }
     }
 
+    private int getNumericProperty(String name, int defaultValue) {
+        Object value = connectorConfiguration.getProperties().get(name);
+        return value instanceof Number number ? number.intValue() : defaultValue;
+    }
+
     public ResponseEntity<String> checkHealth(String baseUrlHealthEndpoint) {
         try {
             return webhookClient.get()
@@ -301,6 +362,10 @@ public class WebHook extends AConnectorClient {
         if (isConnected()) {
             updateConnectorStatusAndSend(ConnectorStatus.DISCONNECTING, true, true);
             log.info("Tenant {} - Disconnecting from webHook endpoint {}", tenant, baseUrl);
+            if (webhookPublisher != null) {
+                webhookPublisher.close();
+                webhookPublisher = null;
+            }
 
             connectionState.setFalse();
             updateConnectorStatusAndSend(ConnectorStatus.DISCONNECTED, true, true);
@@ -339,9 +404,29 @@ public class WebHook extends AConnectorClient {
             contextPath = "/" + contextPath;
         }
         String path = (new StringBuffer(baseUrl)).append(contextPath).toString();
-        log.info("Tenant {} - Published path: {}",
+        log.debug("Tenant {} - Published path: {}",
                 tenant, path);
 
+        WebHookPublisher publisher = webhookPublisher;
+        if (publisher != null) {
+            // the result is recorded in the current request when the endpoint responded
+            Mapping mapping = context.getMapping();
+            context.addPendingPublish(publisher.publish(path, payload).whenComplete((result, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    currentRequest.setError(cause instanceof Exception exception ? exception
+                            : new CompletionException(cause));
+                    mappingComponent.getMappingStatus(tenant, mapping).incrementErrors();
+                } else {
+                    log.debug("Tenant {} - Published outbound message for mapping: {} on path: {}, {}", tenant,
+                            mapping.name, path, connectorName);
+                }
+            }));
+            return;
+        }
+
         try {
             ResponseEntity<String> responseEntity = webhookClient.post()
                     .uri(path)
@@ -360,10 +445,14 @@ public class WebHook extends AConnectorClient {
                     })
                     .toEntity(String.class);
 
-            if (responseEntity.getStatusCode().is2xxSuccessful()) {
+            // the payload is only logged when it is sampled for the message
+            if (responseEntity.getStatusCode().is2xxSuccessful() && context.isLogPayload()) {
                 log.info("Tenant {} - Published outbound message: {} for mapping: {} on topic: {}, {}, {}",
                         tenant, payload, context.getMapping().name, context.getResolvedPublishTopic(), path,
                         connectorName);
+            } else if (responseEntity.getStatusCode().is2xxSuccessful()) {
+                log.debug("Tenant {} - Published outbound message for mapping: {} on topic: {}, {}, {}",
+                        tenant, context.getMapping().name, context.getResolvedPublishTopic(), path, connectorName);
             }
 
         } catch (Exception e) {
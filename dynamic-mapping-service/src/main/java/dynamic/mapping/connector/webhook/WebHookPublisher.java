@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.connector.webhook;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import dynamic.mapping.core.BatchWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes outbound payloads of a WebHook connector with a pooled async HTTP
+ * client. At most <code>maxConcurrentRequests</code> requests are executed
+ * concurrently, further requests wait for a free slot.
+ * With a <code>batchSize</code> greater than 1 the payloads for one path are
+ * collected and posted as one JSON array, see {@link BatchWriter}. Then every
+ * batch is posted as an array, also a batch with a single payload, and when a
+ * batch fails all its payloads fail. Requests failing with a transient status,
+ * e.g. 429 or 503, or with an I/O error are retried with exponential backoff and
+ * jitter, other client errors are not retried.
+ */
+@Slf4j
+public class WebHookPublisher implements AutoCloseable {
+
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(408, 425, 429, 500, 502, 503, 504);
+
+    private static final long INITIAL_BACKOFF_MS = 200;
+
+    private static final long MAX_BACKOFF_MS = 10000;
+
+    // writers of paths without payloads for this time are removed
+    private static final Duration IDLE_WRITER_TIMEOUT = Duration.ofMinutes(1);
+
+    private static class PathWriter {
+        private final BatchWriter<String, Void> writer;
+
+        private volatile long lastPublished = System.nanoTime();
+
+        private PathWriter(BatchWriter<String, Void> writer) {
+            this.writer = writer;
+        }
+    }
+
+    private final String tenant;
+
+    private final CloseableHttpAsyncClient httpClient;
+
+    private final Map<String, String> headers;
+
+    private final Semaphore concurrency;
+
+    private final int maxRetries;
+
+    private final int batchSize;
+
+    private final Duration batchLinger;
+
+    private final ExecutorService virtThreadPool;
+
+    private final ScheduledExecutorService batchScheduler;
+
+    // structure: < path , pathWriter >
+    private final Map<String, PathWriter> batchWriters = new ConcurrentHashMap<>();
+
+    private final Timer requestTimer;
+
+    private final Counter retryCounter;
+
+    private final Counter errorCounter;
+
+    public WebHookPublisher(String tenant, String connectorIdentifier, Map<String, String> headers,
+            int maxConnections, boolean http2, int maxConcurrentRequests, int batchSize, Duration batchLinger,
+            int maxRetries, ExecutorService virtThreadPool) {
+        this.tenant = tenant;
+        this.headers = headers;
+        this.concurrency = new Semaphore(Math.max(1, maxConcurrentRequests));
+        this.maxRetries = Math.max(0, maxRetries);
+        this.batchSize = batchSize;
+        this.batchLinger = batchLinger;
+        this.virtThreadPool = virtThreadPool;
+        this.batchScheduler = Executors
+                .newSingleThreadScheduledExecutor(Thread.ofVirtual().name("webhook-batch-scheduler").factory());
+
+        // HTTP/2 is negotiated with ALPN for https endpoints, then all requests to an
+        // endpoint are multiplexed over one connection
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(Math.max(1, maxConnections))
+                .setMaxConnPerRoute(Math.max(1, maxConnections))
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(http2 ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                        .build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofSeconds(10))
+                        .setSocketTimeout(Timeout.ofSeconds(30))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .evictIdleConnections(TimeValue.ofMinutes(1))
+                .build();
+        this.httpClient.start();
+        if (batchSize > 1) {
+            long idleCheck = IDLE_WRITER_TIMEOUT.toMillis();
+            batchScheduler.scheduleAtFixedRate(this::removeIdleWriters, idleCheck, idleCheck, TimeUnit.MILLISECONDS);
+        }
+
+        Tags tags = Tags.of("tenant", tenant, "connector", connectorIdentifier);
+        this.requestTimer = Timer.builder("dynmapper_webhook_request_time")
+                .description("Time of a request to the WebHook endpoint including retries")
+                .tags(tags).register(Metrics.globalRegistry);
+        this.retryCounter = Counter.builder("dynmapper_webhook_retries_total")
+                .description("Total number of retried requests to the WebHook endpoint")
+                .tags(tags).register(Metrics.globalRegistry);
+        this.errorCounter = Counter.builder("dynmapper_webhook_errors_total")
+                .description("Total number of failed requests to the WebHook endpoint")
+                .tags(tags).register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Post the payload to the path. The returned future completes when the
+     * payload, or the batch containing it, is accepted by the endpoint.
+     */
+    public CompletableFuture<Void> publish(String path, String payload) {
+        if (batchSize <= 1) {
+            return CompletableFuture.runAsync(() -> post(path, payload), virtThreadPool);
+        }
+        // without a single writer a batch of one payload is posted as array as well
+        PathWriter pathWriter = batchWriters.computeIfAbsent(path,
+                p -> new PathWriter(new BatchWriter<String, Void>(tenant, "webhook", batchSize, batchLinger,
+                        payloads -> {
+                            post(p, toJsonArray(payloads));
+                            return null;
+                        }, null, virtThreadPool, batchScheduler)));
+        pathWriter.lastPublished = System.nanoTime();
+        return pathWriter.writer.submit(payload);
+    }
+
+    // a writer removed while a payload is submitted still posts its batch after
+    // the linger time
+    private void removeIdleWriters() {
+        long now = System.nanoTime();
+        batchWriters.values().removeIf(pathWriter -> {
+            if (now - pathWriter.lastPublished < IDLE_WRITER_TIMEOUT.toNanos()) {
+                return false;
+            }
+            pathWriter.writer.flush();
+            return true;
+        });
+    }
+
+    static String toJsonArray(List<String> payloads) {
+        StringBuilder array = new StringBuilder(payloads.stream().mapToInt(String::length).sum() + payloads.size() + 1);
+        array.append('[');
+        for (int i = 0; i < payloads.size(); i++) {
+            if (i > 0) {
+                array.append(',');
+            }
+            array.append(payloads.get(i));
+        }
+        return array.append(']').toString();
+    }
+
+    static boolean isRetryable(int statusCode) {
+        return RETRYABLE_STATUS_CODES.contains(statusCode);
+    }
+
+    // delay before the retry, doubled with every attempt and randomized by up to
+    // half to spread retries of concurrent requests. A Retry-After header in
+    // seconds is preferred
+    static long backoff(int attempt, Header retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return Math.min(MAX_BACKOFF_MS, Long.parseLong(retryAfter.getValue().trim()) * 1000);
+            } catch (NumberFormatException e) {
+                // Retry-After is an HTTP date, use the default backoff
+            }
+        }
+        long backoff = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+
+    // executed on a virtual thread, blocks until the request completed
+    private void post(String path, String body) {
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        try {
+            for (int attempt = 0;; attempt++) {
+                Header retryAfter = null;
+                String failure;
+                SimpleHttpRequest request = SimpleRequestBuilder.post(path)
+                        .setBody(body, ContentType.APPLICATION_JSON)
+                        .build();
+                headers.forEach(request::setHeader);
+                concurrency.acquire();
+                try {
+                    SimpleHttpResponse response = httpClient.execute(request, null).get();
+                    int statusCode = response.getCode();
+                    if (statusCode >= 200 && statusCode < 300) {
+                        return;
+                    }
+                    failure = "Error when publishing MEAO: " + statusCode;
+                    if (!isRetryable(statusCode)) {
+                        throw new RuntimeException(failure);
+                    }
+                    retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+                } catch (ExecutionException e) {
+                    // I/O errors are retried
+                    failure = "Failed to publish MEAO message: " + e.getCause().getMessage();
+                } finally {
+                    concurrency.release();
+                }
+                if (attempt >= maxRetries) {
+                    throw new RuntimeException(failure);
+                }
+                retryCounter.increment();
+                log.debug("Tenant {} - {} {}, retrying ...", tenant, failure, path);
+                Thread.sleep(backoff(attempt, retryAfter));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errorCounter.increment();
+            throw new CompletionException(e);
+        } catch (RuntimeException e) {
+            errorCounter.increment();
+            log.error("Tenant {} - {} {}", tenant, e.getMessage(), path);
+            throw e;
+        } finally {
+            sample.stop(requestTimer);
+        }
+    }
+
+    @Override
+    public void close() {
+        // pending batches are posted before the client is closed
+        batchWriters.values().forEach(pathWriter -> pathWriter.writer.flush());
+        batchWriters.clear();
+        batchScheduler.shutdownNow();
+        httpClient.close(CloseMode.GRACEFUL);
+        Metrics.globalRegistry.remove(requestTimer);
+        Metrics.globalRegistry.remove(retryCounter);
+        Metrics.globalRegistry.remove(errorCounter);
+    }
+}
@@ -360,6 +360,9 @@ public class ConfigurationController {
             }
 
             configurationRegistry.getServiceConfigurations().put(tenant, configuration);
+            configurationRegistry.getProcessingMetrics().setMaxMappingMeters(tenant, configuration.maxMappingMeters);
+            configurationRegistry.getC8yAgent().initializeMeasurementBatchWriter(tenant);
+            configurationRegistry.getC8yAgent().deleteRequestExecutor(tenant);
             return ResponseEntity.status(HttpStatus.CREATED).build();
         } catch (Exception ex) {
             log.error("Tenant {} - Error getting mqtt broker configuration {}", tenant, ex);
@@ -24,6 +24,12 @@ package dynamic.mapping.controller;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.cumulocity.microservice.context.credentials.Credentials;
 import com.cumulocity.microservice.security.service.SecurityUserDetails;
@@ -33,11 +39,13 @@ import dynamic.mapping.configuration.ServiceConfigurationComponent;
 import dynamic.mapping.connector.core.callback.ConnectorMessage;
 import dynamic.mapping.connector.core.registry.ConnectorRegistry;
 import dynamic.mapping.connector.core.registry.ConnectorRegistryException;
+import dynamic.mapping.connector.http.BulkMessageParser;
 import dynamic.mapping.connector.http.HttpClient;
 import dynamic.mapping.core.*;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -82,6 +90,9 @@ public class HttpConnectorController {
     @Autowired
     private RoleService roleService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Autowired
     private ContextService<UserCredentials> contextService;
 
@@ -97,6 +108,9 @@ public class HttpConnectorController {
     @Value("${APP.mappingHttpConnectorRole}")
     private String mappingHttpConnectorRole;
 
+    // seconds a client should wait before retrying a bulk request rejected with 429
+    private static final String BULK_RETRY_AFTER = "1";
+
     @RequestMapping(value = { "/httpConnector",
             "/httpConnector/**" }, method = { RequestMethod.POST, RequestMethod.PUT }, consumes = MediaType.ALL_VALUE)
     @PreAuthorize("hasRole(@environment.getProperty('APP.mappingHttpConnectorRole'))")
@@ -108,11 +122,8 @@ public class HttpConnectorController {
         try {
             HttpClient connectorClient = connectorRegistry
                     .getHttpConnectorForTenant(tenant);
-            Integer cutOffLength = Boolean.parseBoolean((String) connectorClient.getConnectorConfiguration()
-                    .getProperties().get(HttpClient.PROPERTY_CUTOFF_LEADING_SLASH)) ? 1 : 0;
             // Get the path
-            String subPath = fullPath.equals(HttpClient.HTTP_CONNECTOR_ABSOLUTE_PATH) ? ""
-                    : fullPath.substring(HttpClient.HTTP_CONNECTOR_ABSOLUTE_PATH.length() + cutOffLength);
+            String subPath = getSubPath(connectorClient, fullPath, HttpClient.HTTP_CONNECTOR_ABSOLUTE_PATH);
             // Read the body manually
             byte[] payload = readBody(request);
             // build connectorMessage
@@ -134,6 +145,98 @@ public class HttpConnectorController {
         }
     }
 
+    /**
+     * Receives many messages with one request, the body is a JSON array or NDJSON
+     * and is parsed while it is streamed, see {@link BulkMessageParser}. The
+     * messages are processed asynchronously, the response 202 contains a
+     * correlation id and the number of accepted messages. Messages dropped from
+     * the inbound queue while the request is read are counted as rejected. When
+     * the inbound queue of the connector is saturated the request is answered
+     * with 429. When the body turns out to be invalid after messages were
+     * processed, the request is answered with 207 and the counts and the error.
+     */
+    @RequestMapping(value = { "/httpConnectorBulk",
+            "/httpConnectorBulk/**" }, method = { RequestMethod.POST, RequestMethod.PUT }, consumes = MediaType.ALL_VALUE)
+    @PreAuthorize("hasRole(@environment.getProperty('APP.mappingHttpConnectorRole'))")
+    public ResponseEntity<?> processBulkMessages(HttpServletRequest request) {
+        String tenant = contextService.getContext().getTenant();
+        String fullPath = request.getRequestURI().substring(request.getContextPath().length());
+        String correlationId = UUID.randomUUID().toString();
+
+        log.debug("Tenant {} -  HTTPConnector bulk message received. Topic: {}, correlationId: {}", tenant, fullPath,
+                correlationId);
+        HttpClient connectorClient;
+        try {
+            connectorClient = connectorRegistry.getHttpConnectorForTenant(tenant);
+        } catch (ConnectorRegistryException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage());
+        }
+        if (connectorClient.isInboundSaturated()) {
+            return tooManyRequests();
+        }
+        String subPath = getSubPath(connectorClient, fullPath, HttpClient.HTTP_CONNECTOR_BULK_ABSOLUTE_PATH);
+        AtomicInteger submitted = new AtomicInteger();
+        // messages rejected by the inbound queue, or dropped from it while the request
+        // is read
+        AtomicInteger rejected = new AtomicInteger();
+        String error = null;
+        try (InputStream inputStream = request.getInputStream()) {
+            BulkMessageParser.parse(inputStream, objectMapper, (subTopic, payload) -> {
+                ConnectorMessage connectorMessage = ConnectorMessage.builder()
+                        .tenant(tenant)
+                        .supportsMessageContext(true)
+                        .topic(BulkMessageParser.joinTopic(subPath, subTopic))
+                        .sendPayload(true)
+                        .connectorIdentifier(HttpClient.HTTP_CONNECTOR_IDENTIFIER)
+                        .payload(payload)
+                        .build();
+                submitted.incrementAndGet();
+                connectorClient.processMessage(connectorMessage).whenComplete((result, e) -> {
+                    if (e instanceof RejectedExecutionException) {
+                        rejected.incrementAndGet();
+                    }
+                });
+            });
+        } catch (IOException ex) {
+            log.warn("Tenant {} - Invalid bulk message, correlationId: {}, submitted before error: {}, error: {}",
+                    tenant, correlationId, submitted.get(), ex.getMessage());
+            if (submitted.get() == 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format(
+                        "Invalid bulk message, correlationId %s: %s", correlationId, ex.getLocalizedMessage()));
+            }
+            error = String.format("Invalid bulk message after %d messages: %s", submitted.get(),
+                    ex.getLocalizedMessage());
+        }
+        int rejectedCount = rejected.get();
+        int acceptedCount = submitted.get() - rejectedCount;
+        log.debug("Tenant {} -  HTTPConnector bulk message correlationId: {}, accepted: {}, rejected: {}", tenant,
+                correlationId, acceptedCount, rejectedCount);
+        if (error != null) {
+            // the messages before the error are already processed, so the request is
+            // answered with the counts and the error instead of 400
+            return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(Map.of("correlationId", correlationId,
+                    "accepted", acceptedCount, "rejected", rejectedCount, "error", error));
+        }
+        if (acceptedCount == 0 && rejectedCount > 0) {
+            return tooManyRequests();
+        }
+        return ResponseEntity.accepted()
+                .body(Map.of("correlationId", correlationId, "accepted", acceptedCount, "rejected", rejectedCount));
+    }
+
+    private ResponseEntity<?> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, BULK_RETRY_AFTER)
+                .build();
+    }
+
+    private String getSubPath(HttpClient connectorClient, String fullPath, String basePath) {
+        Integer cutOffLength = Boolean.parseBoolean(String.valueOf(connectorClient.getConnectorConfiguration()
+                .getProperties().get(HttpClient.PROPERTY_CUTOFF_LEADING_SLASH))) ? 1 : 0;
+        return fullPath.equals(basePath) ? ""
+                : fullPath.substring(Math.min(fullPath.length(), basePath.length() + cutOffLength));
+    }
+
     @ExceptionHandler(value = { AccessDeniedException.class })
     public void handleAccessDeniedException(HttpServletRequest request, HttpServletResponse response,
             AccessDeniedException accessDeniedException) throws IOException {
@@ -212,7 +212,7 @@ public class OperationController {
     }
 
     private ResponseEntity<?> handleRefreshStatusMapping(String tenant) throws Exception {
-        mappingComponent.sendMappingStatus(tenant);
+        mappingComponent.sendMappingStatus(tenant, true);
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
@@ -286,6 +286,10 @@ public class OperationController {
             configurationRegistry.getC8yAgent().clearInboundExternalIdCache(tenant, false, cacheSize);
             log.info("Tenant {} - Cache cleared: {}", tenant, cacheId);
             return ResponseEntity.status(HttpStatus.CREATED).build();
+        } else if ("OUTBOUND_ID_CACHE".equals(cacheId)) {
+            configurationRegistry.getC8yAgent().clearOutboundExternalIdCache(tenant);
+            log.info("Tenant {} - Cache cleared: {}", tenant, cacheId);
+            return ResponseEntity.status(HttpStatus.CREATED).build();
         }
 
         String errorMsg = String.format("Tenant %s - Unknown cache: %s", tenant, cacheId);
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects single requests of one tenant and writes them with one bulk
+ * request, e.g. measurements are written with one POST of a measurement
+ * collection.
+ * A batch is flushed when <code>maxBatchSize</code> requests are collected or
+ * <code>linger</code> has passed since the first request of the batch. Every
+ * request is completed individually with its result. When the bulk request
+ * fails, the requests of the batch are written one by one, so that only the
+ * faulty requests complete with an error.
+ * Without a <code>singleWriter</code> every batch is written with the bulk
+ * writer, also a batch of one request, and all requests of a failed batch
+ * complete with the error.
+ * The bulk writer returns one result per request, or null if it has no
+ * results, e.g. for <code>Void</code>. When the number of results differs from
+ * the number of requests, the results cannot be assigned and all requests of
+ * the batch complete with an <code>IllegalStateException</code>. They are not
+ * written again, as the bulk request succeeded.
+ */
+@Slf4j
+public class BatchWriter<T, R> {
+
+    private static class Pending<T, R> {
+        final T request;
+        final CompletableFuture<R> future = new CompletableFuture<>();
+
+        Pending(T request) {
+            this.request = request;
+        }
+    }
+
+    private final String tenant;
+
+    private final String name;
+
+    @Getter
+    private final int maxBatchSize;
+
+    @Getter
+    private final Duration linger;
+
+    // writes a batch, the results are returned in the order of the requests or
+    // null if the writer has no results
+    private final Function<List<T>, List<R>> bulkWriter;
+
+    // null to write every batch with the bulk writer
+    private final Function<T, R> singleWriter;
+
+    private final ExecutorService virtThreadPool;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // guarded by lock
+    private List<Pending<T, R>> batch = null;
+
+    private final DistributionSummary batchSizeSummary;
+
+    private final Timer flushTimer;
+
+    public BatchWriter(String tenant, String name, int maxBatchSize, Duration linger,
+            Function<List<T>, List<R>> bulkWriter, Function<T, R> singleWriter, ExecutorService virtThreadPool,
+            ScheduledExecutorService scheduler) {
+        this.tenant = tenant;
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+        this.bulkWriter = bulkWriter;
+        this.singleWriter = singleWriter;
+        this.virtThreadPool = virtThreadPool;
+        this.scheduler = scheduler;
+
+        Tags tags = Tags.of("tenant", tenant, "api", name);
+        this.batchSizeSummary = DistributionSummary.builder("dynmapper_batch_size")
+                .description("Number of requests written with one bulk request")
+                .tags(tags).publishPercentileHistogram().register(Metrics.globalRegistry);
+        this.flushTimer = Timer.builder("dynmapper_batch_flush_time")
+                .description("Time to write a batch of requests")
+                .tags(tags).publishPercentileHistogram().register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Add a request to the current batch. The returned future completes when the
+     * batch is written.
+     */
+    public CompletableFuture<R> submit(T request) {
+        Pending<T, R> pending = new Pending<>(request);
+        List<Pending<T, R>> full = null;
+        List<Pending<T, R>> created = null;
+        lock.lock();
+        try {
+            if (batch == null) {
+                batch = new ArrayList<>(maxBatchSize);
+                created = batch;
+            }
+            batch.add(pending);
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                batch = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            flushAsync(full);
+        } else if (created != null) {
+            List<Pending<T, R>> scheduled = created;
+            scheduler.schedule(() -> flushIfCurrent(scheduled), linger.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Add a request to the current batch and wait until the batch is written.
+     * Exceptions of the request are passed on unwrapped.
+     */
+    public R write(T request) {
+        try {
+            return submit(request).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Method to write all pending requests, e.g. when the tenant is unsubscribed
+    public void flush() {
+        List<Pending<T, R>> pending;
+        lock.lock();
+        try {
+            pending = batch;
+            batch = null;
+        } finally {
+            lock.unlock();
+        }
+        if (pending != null) {
+            flushBatch(pending);
+        }
+    }
+
+    private void flushIfCurrent(List<Pending<T, R>> scheduled) {
+        lock.lock();
+        try {
+            // the batch was already flushed, because it reached maxBatchSize
+            if (batch != scheduled) {
+                return;
+            }
+            batch = null;
+        } finally {
+            lock.unlock();
+        }
+        flushAsync(scheduled);
+    }
+
+    private void flushAsync(List<Pending<T, R>> pending) {
+        try {
+            virtThreadPool.submit(() -> flushBatch(pending));
+        } catch (RejectedExecutionException e) {
+            pending.forEach(p -> p.future.completeExceptionally(e));
+        }
+    }
+
+    private void flushBatch(List<Pending<T, R>> pending) {
+        batchSizeSummary.record(pending.size());
+        if (pending.size() == 1 && singleWriter != null) {
+            writeSingle(pending.get(0));
+            return;
+        }
+        List<T> requests = new ArrayList<>(pending.size());
+        pending.forEach(p -> requests.add(p.request));
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        List<R> results;
+        try {
+            results = bulkWriter.apply(requests);
+            sample.stop(flushTimer);
+        } catch (Exception e) {
+            sample.stop(flushTimer);
+            if (singleWriter == null) {
+                log.warn("Tenant {} - Bulk request for {} {} failed: {}", tenant, pending.size(), name,
+                        e.getMessage());
+                pending.forEach(p -> p.future.completeExceptionally(e));
+                return;
+            }
+            log.warn("Tenant {} - Bulk request for {} {} failed, writing requests one by one: {}", tenant,
+                    pending.size(), name, e.getMessage());
+            pending.forEach(this::writeSingle);
+            return;
+        }
+        if (results != null && results.size() != pending.size()) {
+            IllegalStateException e = new IllegalStateException(String.format(
+                    "Bulk response for %d %s requests contains %d results", pending.size(), name, results.size()));
+            log.warn("Tenant {} - {}", tenant, e.getMessage());
+            pending.forEach(p -> p.future.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            pending.get(i).future.complete(results == null ? null : results.get(i));
+        }
+    }
+
+    private void writeSingle(Pending<T, R> pending) {
+        try {
+            pending.future.complete(singleWriter.apply(pending.request));
+        } catch (Exception e) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+}
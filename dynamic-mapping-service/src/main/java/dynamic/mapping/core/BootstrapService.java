@@ -21,14 +21,10 @@
 
 package dynamic.mapping.core;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.TimeZone;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -60,6 +56,8 @@ import dynamic.mapping.connector.kafka.KafkaClient;
 import dynamic.mapping.connector.mqtt.MQTTClient;
 import dynamic.mapping.connector.mqtt.MQTTServiceClient;
 import dynamic.mapping.connector.webhook.WebHook;
+import dynamic.mapping.core.cache.InboundExternalIdCache;
+import dynamic.mapping.core.cache.OutboundExternalIdCache;
 import dynamic.mapping.model.Direction;
 import dynamic.mapping.model.MappingServiceRepresentation;
 import dynamic.mapping.notification.C8YNotificationSubscriber;
@@ -81,7 +79,6 @@ public class BootstrapService {
     private final MicroserviceSubscriptionsService subscriptionsService;
     private final String additionalSubscriptionIdTest;
     private final Integer inboundExternalIdCacheSize;
-    private final Map<String, Instant> cacheRetentionStartMap;
 
     @Qualifier("virtThreadPool")
     private ExecutorService virtThreadPool;
@@ -111,7 +108,6 @@ public class BootstrapService {
         this.subscriptionsService = subscriptionsService;
         this.additionalSubscriptionIdTest = additionalSubscriptionIdTest;
         this.inboundExternalIdCacheSize = inboundExternalIdCacheSize;
-        this.cacheRetentionStartMap = new ConcurrentHashMap<>();
     }
 
     @PreDestroy
@@ -144,10 +140,15 @@ public class BootstrapService {
         configurationRegistry.getServiceConfigurations().remove(tenant);
         configurationRegistry.getMappingServiceRepresentations().remove(tenant);
         mappingComponent.cleanMappingStatus(tenant);
+        mappingComponent.deleteMappingCaches(tenant);
+        configurationRegistry.getProcessingMetrics().removeTenant(tenant);
         configurationRegistry.getPayloadProcessorsInbound().remove(tenant);
         configurationRegistry.getPayloadProcessorsOutbound().remove(tenant);
 
         c8YAgent.deleteInboundExternalIdCache(tenant);
+        c8YAgent.deleteOutboundExternalIdCache(tenant);
+        c8YAgent.deleteMeasurementBatchWriter(tenant);
+        c8YAgent.deleteRequestExecutor(tenant);
     }
 
     @EventListener
@@ -167,6 +168,7 @@ public class BootstrapService {
 
         ServiceConfiguration serviceConfig = initializeServiceConfiguration(tenant);
         initializeCache(tenant, serviceConfig);
+        c8YAgent.initializeMeasurementBatchWriter(tenant);
         initializeTimeZoneAndMappings(tenant);
         initializeConnectors(tenant, serviceConfig);
 
@@ -196,6 +198,7 @@ public class BootstrapService {
         }
 
         configurationRegistry.getServiceConfigurations().put(tenant, serviceConfig);
+        configurationRegistry.getProcessingMetrics().setMaxMappingMeters(tenant, serviceConfig.maxMappingMeters);
         return serviceConfig;
     }
 
@@ -205,7 +208,7 @@ public class BootstrapService {
                 .orElse(inboundExternalIdCacheSize);
 
         c8YAgent.initializeInboundExternalIdCache(tenant, cacheSize);
-        cacheRetentionStartMap.put(tenant, Instant.now());
+        c8YAgent.initializeOutboundExternalIdCache(tenant, cacheSize);
     }
 
     private void initializeTimeZoneAndMappings(String tenant) {
@@ -304,6 +307,7 @@ public class BootstrapService {
     public void shutdownAndRemoveConnector(String tenant, String connectorIdentifier)
             throws ConnectorRegistryException {
         // connectorRegistry.unregisterClient(tenant, connectorIdentifier);
+        configurationRegistry.getProcessingMetrics().removeConnector(tenant, connectorIdentifier);
         ServiceConfiguration serviceConfiguration = serviceConfigurationComponent.getServiceConfiguration(tenant);
         if (serviceConfiguration.isOutboundMappingEnabled()) {
             configurationRegistry.getNotificationSubscriber().unsubscribeDeviceSubscriberByConnector(tenant,
@@ -398,25 +402,15 @@ public class BootstrapService {
     }
 
     private void cleanupCacheForTenant(String tenant) {
-        Instant cacheRetentionStart = cacheRetentionStartMap.get(tenant);
-        if (cacheRetentionStart == null)
+        // entries expire individually after the retention, only pending
+        // maintenance of the cache is done here
+        InboundExternalIdCache inboundExternalIdCache = c8YAgent.getInboundExternalIdCache(tenant);
+        if (inboundExternalIdCache == null)
             return;
-
-        ServiceConfiguration serviceConfig = serviceConfigurationComponent.getServiceConfiguration(tenant);
-        int retentionDays = serviceConfig.getInboundExternalIdCacheRetention();
-
-        if (shouldClearCache(cacheRetentionStart, retentionDays)) {
-            int cacheSize = c8YAgent.getInboundExternalIdCache(tenant).getCacheSize();
-            c8YAgent.clearInboundExternalIdCache(tenant, false, cacheSize);
-            cacheRetentionStartMap.put(tenant, Instant.now());
-
-            log.info("Tenant {} - Identity Cache cleared. Old Size: {}, New size: {}",
-                    tenant, cacheSize, c8YAgent.getInboundExternalIdCache(tenant).getCacheSize());
-        }
-    }
-
-    private boolean shouldClearCache(Instant cacheRetentionStart, int retentionDays) {
-        return retentionDays > 0 &&
-                Duration.between(cacheRetentionStart, Instant.now()).compareTo(Duration.ofDays(retentionDays)) >= 0;
+        inboundExternalIdCache.cleanUp();
+        log.debug("Tenant {} - Identity Cache size: {}", tenant, inboundExternalIdCache.getCacheSize());
+        OutboundExternalIdCache outboundExternalIdCache = c8YAgent.getOutboundExternalIdCache(tenant);
+        if (outboundExternalIdCache != null)
+            outboundExternalIdCache.cleanUp();
     }
 }
@@ -36,6 +36,7 @@ import com.cumulocity.rest.representation.alarm.AlarmRepresentation;
 import com.cumulocity.rest.representation.event.EventRepresentation;
 import com.cumulocity.rest.representation.identity.ExternalIDRepresentation;
 import com.cumulocity.rest.representation.inventory.ManagedObjectRepresentation;
+import com.cumulocity.rest.representation.measurement.MeasurementCollectionRepresentation;
 import com.cumulocity.rest.representation.measurement.MeasurementRepresentation;
 import com.cumulocity.rest.representation.operation.OperationRepresentation;
 import com.cumulocity.sdk.client.Platform;
@@ -52,6 +53,8 @@ import dynamic.mapping.configuration.TrustedCertificateCollectionRepresentation;
 import dynamic.mapping.configuration.TrustedCertificateRepresentation;
 import dynamic.mapping.connector.core.client.AConnectorClient;
 import dynamic.mapping.core.cache.InboundExternalIdCache;
+import dynamic.mapping.core.cache.OutboundExternalIdCache;
+import dynamic.mapping.core.cache.RequestCoalescer;
 import dynamic.mapping.core.facade.IdentityFacade;
 import dynamic.mapping.core.facade.InventoryFacade;
 import dynamic.mapping.model.API;
@@ -60,6 +63,7 @@ import dynamic.mapping.model.ExtensionEntry;
 import dynamic.mapping.model.ExtensionType;
 import dynamic.mapping.model.LoggingEventType;
 import dynamic.mapping.model.MappingServiceRepresentation;
+import dynamic.mapping.processor.MessageLogger;
 import dynamic.mapping.processor.ProcessingException;
 import dynamic.mapping.processor.extension.ExtensibleProcessor;
 import dynamic.mapping.processor.extension.ExtensionsComponent;
@@ -67,8 +71,6 @@ import dynamic.mapping.processor.extension.ProcessorExtensionSource;
 import dynamic.mapping.processor.extension.ProcessorExtensionTarget;
 import dynamic.mapping.processor.model.C8YRequest;
 import dynamic.mapping.processor.model.ProcessingContext;
-import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.Metrics;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -86,9 +88,17 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.util.Map.entry;
 
@@ -138,6 +148,29 @@ public class C8YAgent implements ImportBeanDefinitionRegistrar {
     @Getter
     private Map<String, InboundExternalIdCache> inboundExternalIdCaches = new HashMap<>();
 
+    @Getter
+    private Map<String, OutboundExternalIdCache> outboundExternalIdCaches = new HashMap<>();
+
+    // concurrent resolutions and creations for the same external id share one
+    // request, keys have the format: <tenant>/<externalIdType>/<externalId>
+    private final RequestCoalescer<String, ExternalIDRepresentation> externalIdResolutions = new RequestCoalescer<>(
+            "resolve_external_id");
+
+    private final RequestCoalescer<String, ManagedObjectRepresentation> deviceCreations = new RequestCoalescer<>(
+            "create_device");
+
+    // structure: < tenant , requestExecutor >
+    private Map<String, C8YRequestExecutor> requestExecutors = new ConcurrentHashMap<>();
+
+    // structure: < tenant , summary of the requests >
+    private Map<String, MessageLogger> requestLoggers = new ConcurrentHashMap<>();
+
+    // structure: < tenant , batchWriter >
+    private Map<String, BatchWriter<MeasurementRepresentation, MeasurementRepresentation>> measurementBatchWriters = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService batchScheduler = Executors
+            .newSingleThreadScheduledExecutor(Thread.ofVirtual().name("batch-scheduler").factory());
+
     @Getter
     private ConfigurationRegistry configurationRegistry;
 
@@ -170,48 +203,104 @@ public class C8YAgent implements ImportBeanDefinitionRegistrar {
         }
         ExternalIDRepresentation result = subscriptionsService.callForTenant(tenant, () -> {
             try {
+                configurationRegistry.getProcessingMetrics().getIdentityRequestCounter(tenant).increment();
+                // results of testing mappings are not cached, they are resolved with the mock
+                boolean cacheResult = context == null || context.isSendPayload();
                 ExternalIDRepresentation resultInner = this.getInboundExternalIdCache(tenant)
-                        .getIdByExternalId(identity);
-                Counter.builder("dynmapper_inbound_identity_requests_total").tag("tenant", tenant)
-                        .register(Metrics.globalRegistry).increment();
+                        .resolve(identity, id -> cacheResult ? loadExternalId2GlobalIdCoalesced(tenant, id)
+                                : loadExternalId2GlobalId(tenant, id, context), cacheResult);
                 if (resultInner == null) {
-                    resultInner = identityApi.resolveExternalId2GlobalId(identity, context);
-                    this.getInboundExternalIdCache(tenant).putIdForExternalId(identity,
-                            resultInner);
-
-                } else {
-                    log.debug("Tenant {} - Cache hit for external ID {} -> {}", tenant, identity.getValue(),
-                            resultInner.getManagedObject().getId().getValue());
-                    Counter.builder("dynmapper_inbound_identity_cache_hits_total").tag("tenant", tenant)
-                            .register(Metrics.globalRegistry).increment();
+                    log.warn("Tenant {} - External ID {} not found", tenant, identity.getValue());
+                } else if (cacheResult && getOutboundExternalIdCache(tenant) != null) {
+                    getOutboundExternalIdCache(tenant).putExternalId(resultInner);
                 }
                 return resultInner;
             } catch (SDKException e) {
-                log.warn("Tenant {} - External ID {} not found", tenant, identity.getValue());
+                log.warn("Tenant {} - External ID {} could not be resolved: {}", tenant, identity.getValue(),
+                        e.getMessage());
             }
             return null;
         });
         return result;
     }
 
+    private ExternalIDRepresentation loadExternalId2GlobalIdCoalesced(String tenant, ID identity) {
+        try {
+            return externalIdResolutions.execute(getCoalescingKey(tenant, identity),
+                    () -> loadExternalId2GlobalId(tenant, identity, null));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new CompletionException(e);
+        }
+    }
+
+    private static String getCoalescingKey(String tenant, ID identity) {
+        return tenant + "/" + identity.getType() + "/" + identity.getValue();
+    }
+
+    // returns null if the external id is not known, other errors are passed on
+    private ExternalIDRepresentation loadExternalId2GlobalId(String tenant, ID identity,
+            ProcessingContext<?> context) {
+        try {
+            return executeRequest(tenant, "identity",
+                    () -> identityApi.resolveExternalId2GlobalId(identity, context));
+        } catch (SDKException e) {
+            if (e.getHttpStatus() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
     public ExternalIDRepresentation resolveGlobalId2ExternalId(String tenant, GId gid, String idType,
             ProcessingContext<?> context) {
-        // TODO Use Cache
         if (idType == null) {
             idType = "c8y_Serial";
         }
         final String idt = idType;
+        OutboundExternalIdCache outboundExternalIdCache = getOutboundExternalIdCache(tenant);
+        if (outboundExternalIdCache != null) {
+            ExternalIDRepresentation cached = outboundExternalIdCache.getExternalId(gid, idt);
+            if (cached != null) {
+                return cached;
+            }
+        }
         ExternalIDRepresentation result = subscriptionsService.callForTenant(tenant, () -> {
             try {
-                return identityApi.resolveGlobalId2ExternalId(gid, idt, context);
+                return executeRequest(tenant, "identity",
+                        () -> identityApi.resolveGlobalId2ExternalId(gid, idt, context));
             } catch (SDKException e) {
                 log.warn("Tenant {} - External ID type {} for {} not found", tenant, idt, gid.getValue());
             }
             return null;
         });
+        // results of testing mappings are not cached, they are resolved with the mock
+        if (outboundExternalIdCache != null && (context == null || context.isSendPayload())) {
+            outboundExternalIdCache.putExternalId(result);
+        }
         return result;
     }
 
+    // remove a deleted device from the identity caches
+    public void removeGlobalIdFromCaches(String tenant, GId gid) {
+        OutboundExternalIdCache outboundExternalIdCache = getOutboundExternalIdCache(tenant);
+        if (outboundExternalIdCache == null) {
+            return;
+        }
+        Map<String, ExternalIDRepresentation> externalIds = outboundExternalIdCache.removeGlobalId(gid);
+        InboundExternalIdCache inboundExternalIdCache = getInboundExternalIdCache(tenant);
+        if (externalIds != null && inboundExternalIdCache != null) {
+            externalIds.values().forEach(
+                    extId -> inboundExternalIdCache
+                            .removeIdForExternalId(new ID(extId.getType(), extId.getExternalId())));
+        }
+        log.debug("Tenant {} - Removed device {} from identity caches", tenant, gid.getValue());
+    }
+
     public MeasurementRepresentation createMeasurement(String name, String type, ManagedObjectRepresentation mor,
             DateTime dateTime, HashMap<String, MeasurementValue> mvMap, String tenant) {
         MeasurementRepresentation measurementRepresentation = new MeasurementRepresentation();
@@ -329,68 +418,97 @@ public class C8YAgent implements ImportBeanDefinitionRegistrar {
     }
 
     // TODO Change this to use ExecutorService + Virtual Threads when available
-    public CompletableFuture<AbstractExtensibleRepresentation> createMEAOAsync(ProcessingContext<?> context)
-            throws ProcessingException {
-        return CompletableFuture.supplyAsync(() -> {
-            String tenant = context.getTenant();
-            StringBuffer error = new StringBuffer("");
-            C8YRequest currentRequest = context.getCurrentRequest();
-            String payload = currentRequest.getRequest();
-            API targetAPI = context.getMapping().getTargetAPI();
-            AbstractExtensibleRepresentation result = subscriptionsService.callForTenant(tenant, () -> {
-                MicroserviceCredentials contextCredentials = removeAppKeyHeaderFromContext(contextService.getContext());
-                return contextService.callWithinContext(contextCredentials, () -> {
-                    AbstractExtensibleRepresentation rt = null;
-                    try {
-                        if (targetAPI.equals(API.EVENT)) {
-                            EventRepresentation eventRepresentation = configurationRegistry.getObjectMapper().readValue(
-                                    payload,
-                                    EventRepresentation.class);
-                            rt = eventApi.create(eventRepresentation);
-                            log.info("Tenant {} - New event posted: {}", tenant, rt);
-                        } else if (targetAPI.equals(API.ALARM)) {
-                            AlarmRepresentation alarmRepresentation = configurationRegistry.getObjectMapper().readValue(
-                                    payload,
-                                    AlarmRepresentation.class);
-                            rt = alarmApi.create(alarmRepresentation);
-                            log.info("Tenant {} - New alarm posted: {}", tenant, rt);
-                        } else if (targetAPI.equals(API.MEASUREMENT)) {
-                            MeasurementRepresentation measurementRepresentation = jsonParser
-                                    .parse(MeasurementRepresentation.class, payload);
-                            rt = measurementApi.create(measurementRepresentation);
-                            log.info("Tenant {} - New measurement posted: {}", tenant, rt);
-                        } else if (targetAPI.equals(API.OPERATION)) {
-                            OperationRepresentation operationRepresentation = jsonParser
-                                    .parse(OperationRepresentation.class, payload);
-                            rt = deviceControlApi.create(operationRepresentation);
-                            log.info("Tenant {} - New operation posted: {}", tenant, rt);
-                        } else {
-                            log.error("Tenant {} - Not existing API!", tenant);
-                        }
-                    } catch (JsonProcessingException e) {
-                        log.error("Tenant {} - Could not map payload: {} {}", tenant, targetAPI, payload);
-                        error.append("Could not map payload: " + targetAPI + "/" + payload);
-                    } catch (SDKException s) {
-                        log.error("Tenant {} - Could not sent payload to c8y: {} {}: ", tenant, targetAPI, payload, s);
-                        error.append("Could not sent payload to c8y: " + targetAPI + "/" + payload + "/" + s);
-                    }
-                    return rt;
-                });
+    /**
+     * Asynchronous variant of <code>createMEAO</code>, the request is executed
+     * on a virtual thread and limited by the <code>C8YRequestExecutor</code> of
+     * the tenant.
+     */
+    public CompletionStage<AbstractExtensibleRepresentation> createMEAOAsync(ProcessingContext<?> context,
+            C8YRequest currentRequest) {
+        return supplyAsync(() -> createMEAO(context, currentRequest));
+    }
+
+    public CompletionStage<ManagedObjectRepresentation> upsertDeviceAsync(String tenant, ID identity,
+            ProcessingContext<?> context, C8YRequest currentRequest, String sourceId) {
+        return supplyAsync(() -> upsertDevice(tenant, identity, context, currentRequest, sourceId));
+    }
+
+    public CompletionStage<ExternalIDRepresentation> resolveExternalId2GlobalIdAsync(String tenant, ID identity,
+            ProcessingContext<?> context) {
+        return supplyAsync(() -> resolveExternalId2GlobalId(tenant, identity, context));
+    }
+
+    private <V> CompletableFuture<V> supplyAsync(Callable<V> request) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        try {
+            configurationRegistry.getVirtThreadPool().submit(() -> {
+                try {
+                    result.complete(request.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
             });
-            if (!error.toString().equals("")) {
-                throw new CompletionException(new ProcessingException(error.toString()));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // execute a request limited by the C8YRequestExecutor of the tenant, the tenant
+    // context has to be set by the caller
+    private <V> V executeRequest(String tenant, String api, Callable<V> request) {
+        try {
+            return getRequestExecutor(tenant).execute(api, request);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
             }
-            return result;
+            throw new CompletionException(e);
+        }
+    }
+
+    private C8YRequestExecutor getRequestExecutor(String tenant) {
+        return requestExecutors.computeIfAbsent(tenant, t -> {
+            ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(t);
+            int maxConcurrency = serviceConfiguration == null
+                    || serviceConfiguration.c8yMaxConcurrentRequests == null ? 50
+                            : serviceConfiguration.c8yMaxConcurrentRequests;
+            int maxRetries = serviceConfiguration == null || serviceConfiguration.c8yRequestRetries == null ? 3
+                    : serviceConfiguration.c8yRequestRetries;
+            return new C8YRequestExecutor(t, maxConcurrency, maxRetries,
+                    configurationRegistry.getProcessingMetrics());
+        });
+    }
+
+    // the request executor and the request summary are created again with the
+    // current service configuration
+    public void deleteRequestExecutor(String tenant) {
+        // closed within the map, so that a new executor registers its gauges after
+        // the gauges of the old one are removed
+        requestExecutors.computeIfPresent(tenant, (t, executor) -> {
+            executor.close();
+            return null;
         });
+        requestLoggers.remove(tenant);
+    }
+
+    private MessageLogger getRequestLogger(String tenant) {
+        return requestLoggers.computeIfAbsent(tenant, t -> new MessageLogger(log, t, "Requests to Cumulocity",
+                configurationRegistry.getServiceConfigurations().get(t)));
     }
 
     public AbstractExtensibleRepresentation createMEAO(ProcessingContext<?> context)
             throws ProcessingException {
+        return createMEAO(context, context.getCurrentRequest());
+    }
+
+    public AbstractExtensibleRepresentation createMEAO(ProcessingContext<?> context, C8YRequest currentRequest)
+            throws ProcessingException {
         String tenant = context.getTenant();
         StringBuffer error = new StringBuffer("");
-        C8YRequest currentRequest = context.getCurrentRequest();
-        String payload = currentRequest.getRequest();
-        ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+        MessageLogger requestLogger = getRequestLogger(tenant);
         API targetAPI = context.getMapping().getTargetAPI();
         AbstractExtensibleRepresentation result = subscriptionsService.callForTenant(tenant, () -> {
             MicroserviceCredentials contextCredentials = removeAppKeyHeaderFromContext(contextService.getContext());
@@ -398,48 +516,66 @@ public class C8YAgent implements ImportBeanDefinitionRegistrar {
                 AbstractExtensibleRepresentation rt = null;
                 try {
                     if (targetAPI.equals(API.EVENT)) {
-                        EventRepresentation eventRepresentation = configurationRegistry.getObjectMapper().readValue(
-                                payload,
+                        EventRepresentation eventRepresentation = getRepresentation(currentRequest,
                                 EventRepresentation.class);
-                        rt = eventApi.create(eventRepresentation);
-                        if (serviceConfiguration.logPayload)
+                        rt = executeRequest(tenant, API.EVENT.notificationFilter,
+                                () -> eventApi.create(eventRepresentation));
+                        if (context.isLogPayload())
                             log.info("Tenant {} - New event posted: {}", tenant, rt);
                         else
-                            log.info("Tenant {} - New event posted with Id {}", tenant,
+                            log.debug("Tenant {} - New event posted with Id {}", tenant,
                                     ((EventRepresentation) rt).getId().getValue());
                     } else if (targetAPI.equals(API.ALARM)) {
-                        AlarmRepresentation alarmRepresentation = configurationRegistry.getObjectMapper().readValue(
-                                payload,
+                        AlarmRepresentation alarmRepresentation = getRepresentation(currentRequest,
                                 AlarmRepresentation.class);
-                        rt = alarmApi.create(alarmRepresentation);
-                        if (serviceConfiguration.logPayload)
+                        rt = executeRequest(tenant, API.ALARM.notificationFilter,
+                                () -> alarmApi.create(alarmRepresentation));
+                        if (context.isLogPayload())
                             log.info("Tenant {} - New alarm posted: {}", tenant, rt);
                         else
-                            log.info("Tenant {} - New alarm posted with Id {}", tenant,
+                            log.debug("Tenant {} - New alarm posted with Id {}", tenant,
                                     ((AlarmRepresentation) rt).getId().getValue());
                     } else if (targetAPI.equals(API.MEASUREMENT)) {
-                        MeasurementRepresentation measurementRepresentation = jsonParser
-                                .parse(MeasurementRepresentation.class, payload);
-                        rt = measurementApi.create(measurementRepresentation);
-                        if (serviceConfiguration.logPayload)
+                        MeasurementRepresentation measurementRepresentation = getRepresentation(currentRequest,
+                                MeasurementRepresentation.class);
+                        BatchWriter<MeasurementRepresentation, MeasurementRepresentation> batchWriter = measurementBatchWriters
+                                .get(tenant);
+                        MeasurementRepresentation measurement = batchWriter == null
+                                ? executeRequest(tenant, API.MEASUREMENT.notificationFilter,
+                                        () -> measurementApi.create(measurementRepresentation))
+                                : batchWriter.write(measurementRepresentation);
+                        rt = measurement;
+                        if (context.isLogPayload())
                             log.info("Tenant {} - New measurement posted: {}", tenant, rt);
                         else
-                            log.info("Tenant {} - New measurement posted with Id {}", tenant,
-                                    ((MeasurementRepresentation) rt).getId().getValue());
+                            log.debug("Tenant {} - New measurement posted with Id {}", tenant,
+                                    measurement == null || measurement.getId() == null ? null
+                                            : measurement.getId().getValue());
                     } else if (targetAPI.equals(API.OPERATION)) {
-                        OperationRepresentation operationRepresentation = jsonParser
-                                .parse(OperationRepresentation.class, payload);
-                        rt = deviceControlApi.create(operationRepresentation);
-                        log.info("Tenant {} - New operation posted: {}", tenant, rt);
+                        OperationRepresentation operationRepresentation = getRepresentation(currentRequest,
+                                OperationRepresentation.class);
+                        rt = executeRequest(tenant, API.OPERATION.notificationFilter,
+                                () -> deviceControlApi.create(operationRepresentation));
+                        if (context.isLogPayload())
+                            log.info("Tenant {} - New operation posted: {}", tenant, rt);
+                        else
+                            log.debug("Tenant {} - New operation posted with Id {}", tenant,
+                                    ((OperationRepresentation) rt).getId().getValue());
                     } else {
                         log.error("Tenant {} - Not existing API!", tenant);
                     }
                 } catch (JsonProcessingException e) {
-                    log.error("Tenant {} - Could not map payload: {} {}", tenant, targetAPI, payload);
-                    error.append("Could not map payload: " + targetAPI + "/" + payload);
+                    log.error("Tenant {} - Could not map payload: {} {}", tenant, targetAPI,
+                            currentRequest.getRequest());
+                    error.append("Could not map payload: " + targetAPI + "/" + currentRequest.getRequest());
                 } catch (SDKException s) {
-                    log.error("Tenant {} - Could not sent payload to c8y: {} {}: ", tenant, targetAPI, payload, s);
-                    error.append("Could not sent payload to c8y: " + targetAPI + "/" + payload + "/" + s);
+                    log.error("Tenant {} - Could not sent payload to c8y: {} {}: ", tenant, targetAPI,
+                            currentRequest.getRequest(), s);
+                    error.append("Could not sent payload to c8y: " + targetAPI + "/" + currentRequest.getRequest()
+                            + "/" + s);
+                }
+                if (rt != null) {
+                    requestLogger.count(targetAPI.name());
                 }
                 return rt;
             });
@@ -450,21 +586,75 @@ public class C8YAgent implements ImportBeanDefinitionRegistrar {
         return result;
     }
 
+    // create the representation from the payload of the request, the string form
+    // is only parsed when the request has no payload, e.g. requests built by
+    // processor extensions
+    private <R extends AbstractExtensibleRepresentation> R getRepresentation(C8YRequest request, Class<R> type)
+            throws JsonProcessingException {
+        R representation = RepresentationFactory.create(request.getPayload(), type);
+        if (representation != null) {
+            return representation;
+        }
+        if (MeasurementRepresentation.class.equals(type) || OperationRepresentation.class.equals(type)) {
+            return jsonParser.parse(type, request.getRequest());
+        }
+        return configurationRegistry.getObjectMapper().readValue(request.getRequest(), type);
+    }
+
     public ManagedObjectRepresentation upsertDevice(String tenant, ID identity, ProcessingContext<?> context)
             throws ProcessingException {
+        return upsertDevice(tenant, identity, context, context.getCurrentRequest(), context.getSourceId());
+    }
+
+    /**
+     * Create or update a device. The request and sourceId are passed explicitly,
+     * so that devices of one context can be upserted concurrently.
+     * When the device does not exist, concurrent creations of a device with the
+     * same external id share one creation. Threads that waited for the creation
+     * of another thread apply their request as an update of the created device.
+     */
+    public ManagedObjectRepresentation upsertDevice(String tenant, ID identity, ProcessingContext<?> context,
+            C8YRequest currentRequest, String sourceId) throws ProcessingException {
+        if (sourceId != null || !context.isSendPayload()) {
+            return upsertDeviceInternal(tenant, identity, context, currentRequest, sourceId);
+        }
+        AtomicBoolean createdByThisThread = new AtomicBoolean(false);
+        ManagedObjectRepresentation device;
+        try {
+            device = deviceCreations.execute(getCoalescingKey(tenant, identity), () -> {
+                createdByThisThread.set(true);
+                // the device might have been created since the external id was resolved
+                ExternalIDRepresentation extId = getInboundExternalIdCache(tenant).getIdByExternalId(identity);
+                return upsertDeviceInternal(tenant, identity, context, currentRequest,
+                        extId == null ? null : extId.getManagedObject().getId().getValue());
+            });
+        } catch (ProcessingException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new ProcessingException(e.getMessage());
+        }
+        if (!createdByThisThread.get() && API.INVENTORY.equals(context.getMapping().getTargetAPI())) {
+            device = upsertDeviceInternal(tenant, identity, context, currentRequest, device.getId().getValue());
+        }
+        return device;
+    }
+
+    private ManagedObjectRepresentation upsertDeviceInternal(String tenant, ID identity,
+            ProcessingContext<?> context, C8YRequest currentRequest, String sourceId) throws ProcessingException {
         StringBuffer error = new StringBuffer("");
-        C8YRequest currentRequest = context.getCurrentRequest();
-        ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+        MessageLogger requestLogger = getRequestLogger(tenant);
         ManagedObjectRepresentation device = subscriptionsService.callForTenant(tenant, () -> {
             MicroserviceCredentials contextCredentials = removeAppKeyHeaderFromContext(contextService.getContext());
             return contextService.callWithinContext(contextCredentials, () -> {
-                ManagedObjectRepresentation mor = configurationRegistry.getObjectMapper().readValue(
-                        currentRequest.getRequest(),
+                ManagedObjectRepresentation mor = getRepresentation(currentRequest,
                         ManagedObjectRepresentation.class);
                 try {
                     // ExternalIDRepresentation extId = resolveExternalId2GlobalId(tenant, identity,
                     // context);
-                    if (context.getSourceId() == null) {
+                    if (sourceId == null) {
                         // Device does not exist
                         // append external id to name
                         mor.setName(mor.getName());
@@ -482,27 +672,44 @@ public class C8YAgent implements ImportBeanDefinitionRegistrar {
                         // remove id
                         mor.setId(null);
 
-                        mor = inventoryApi.create(mor, context);
-                        // TODO Add/Update new managed object to IdentityCache
-                        if (serviceConfiguration.logPayload)
+                        ManagedObjectRepresentation newDevice = mor;
+                        mor = executeRequest(tenant, API.INVENTORY.notificationFilter,
+                                () -> inventoryApi.create(newDevice, context));
+                        if (context.isLogPayload())
                             log.info("Tenant {} - New device created: {}", tenant, mor);
                         else
-                            log.info("Tenant {} - New device created with Id {}", tenant, mor.getId().getValue());
-                        identityApi.create(mor, identity, context);
+                            log.debug("Tenant {} - New device created with Id {}", tenant, mor.getId().getValue());
+                        ManagedObjectRepresentation createdDevice = mor;
+                        ExternalIDRepresentation extId = executeRequest(tenant, "identity",
+                                () -> identityApi.create(createdDevice, identity, context));
+                        if (context.isSendPayload()) {
+                            // replace a cached unknown external id
+                            InboundExternalIdCache inboundExternalIdCache = getInboundExternalIdCache(tenant);
+                            if (inboundExternalIdCache != null) {
+                                inboundExternalIdCache.putIdForExternalId(identity, extId);
+                            }
+                            OutboundExternalIdCache outboundExternalIdCache = getOutboundExternalIdCache(tenant);
+                            if (outboundExternalIdCache != null) {
+                                outboundExternalIdCache.putExternalId(extId);
+                            }
+                        }
                     } else {
                         // Device exists - update needed
-                        mor.setId(new GId(context.getSourceId()));
-                        mor = inventoryApi.update(mor, context);
-                        if (serviceConfiguration.logPayload)
+                        mor.setId(new GId(sourceId));
+                        ManagedObjectRepresentation updatedDevice = mor;
+                        mor = executeRequest(tenant, API.INVENTORY.notificationFilter,
+                                () -> inventoryApi.update(updatedDevice, context));
+                        if (context.isLogPayload())
                             log.info("Tenant {} - Device updated: {}", tenant, mor);
                         else
-                            log.info("Tenant {} - Device {} updated.", tenant, mor.getId().getValue());
+                            log.debug("Tenant {} - Device {} updated.", tenant, mor.getId().getValue());
                     }
                 } catch (SDKException s) {
                     log.error("Tenant {} - Could not sent payload to c8y: {}: ", tenant, currentRequest.getRequest(),
                             s);
                     error.append("Could not sent payload to c8y: " + currentRequest.getRequest() + " " + s);
                 }
+                requestLogger.count(API.INVENTORY.name());
                 return mor;
             });
         });
@@ -825,11 +1032,133 @@ public class C8YAgent implements ImportBeanDefinitionRegistrar {
 
     public void initializeInboundExternalIdCache(String tenant, int inboundExternalIdCacheSize) {
         log.info("Tenant {} - Initialize cache {}", tenant, inboundExternalIdCacheSize);
-        inboundExternalIdCaches.put(tenant, new InboundExternalIdCache(inboundExternalIdCacheSize, tenant));
+        recreateInboundExternalIdCache(tenant, inboundExternalIdCacheSize);
+    }
+
+    // the meters of the previous cache are removed before the new cache registers
+    // its meters, the previous cache is used until it is replaced
+    private void recreateInboundExternalIdCache(String tenant, int inboundExternalIdCacheSize) {
+        InboundExternalIdCache previous = inboundExternalIdCaches.get(tenant);
+        if (previous != null) {
+            previous.close();
+        }
+        inboundExternalIdCaches.put(tenant, createInboundExternalIdCache(tenant, inboundExternalIdCacheSize));
+    }
+
+    private InboundExternalIdCache createInboundExternalIdCache(String tenant, int inboundExternalIdCacheSize) {
+        ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+        int retentionDays = serviceConfiguration == null
+                || serviceConfiguration.inboundExternalIdCacheRetention == null ? 1
+                        : serviceConfiguration.inboundExternalIdCacheRetention;
+        int negativeRetentionSeconds = serviceConfiguration == null
+                || serviceConfiguration.inboundExternalIdCacheNegativeRetention == null ? 60
+                        : serviceConfiguration.inboundExternalIdCacheNegativeRetention;
+        return new InboundExternalIdCache(inboundExternalIdCacheSize, tenant, Duration.ofDays(retentionDays),
+                Duration.ofSeconds(negativeRetentionSeconds),
+                identity -> subscriptionsService.callForTenant(tenant,
+                        () -> loadExternalId2GlobalId(tenant, identity, null)));
+    }
+
+    public void initializeOutboundExternalIdCache(String tenant, int outboundExternalIdCacheSize) {
+        log.info("Tenant {} - Initialize outbound cache {}", tenant, outboundExternalIdCacheSize);
+        ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+        int retentionDays = serviceConfiguration == null
+                || serviceConfiguration.inboundExternalIdCacheRetention == null ? 1
+                        : serviceConfiguration.inboundExternalIdCacheRetention;
+        // the meters of the previous cache are removed before the new cache registers
+        // its meters
+        OutboundExternalIdCache previous = outboundExternalIdCaches.get(tenant);
+        if (previous != null) {
+            previous.close();
+        }
+        outboundExternalIdCaches.put(tenant,
+                new OutboundExternalIdCache(outboundExternalIdCacheSize, tenant, Duration.ofDays(retentionDays)));
+    }
+
+    public OutboundExternalIdCache deleteOutboundExternalIdCache(String tenant) {
+        OutboundExternalIdCache outboundExternalIdCache = outboundExternalIdCaches.remove(tenant);
+        if (outboundExternalIdCache != null) {
+            outboundExternalIdCache.close();
+        }
+        return outboundExternalIdCache;
+    }
+
+    public OutboundExternalIdCache getOutboundExternalIdCache(String tenant) {
+        return outboundExternalIdCaches.get(tenant);
+    }
+
+    public void clearOutboundExternalIdCache(String tenant) {
+        OutboundExternalIdCache outboundExternalIdCache = outboundExternalIdCaches.get(tenant);
+        if (outboundExternalIdCache != null) {
+            outboundExternalIdCache.clearCache();
+        }
+    }
+
+    public void initializeMeasurementBatchWriter(String tenant) {
+        ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+        int batchSize = serviceConfiguration == null || serviceConfiguration.measurementBatchSize == null ? 0
+                : serviceConfiguration.measurementBatchSize;
+        int linger = serviceConfiguration == null || serviceConfiguration.measurementBatchLinger == null ? 0
+                : serviceConfiguration.measurementBatchLinger;
+        // a batch size of 1 or less disables batching
+        if (batchSize <= 1) {
+            deleteMeasurementBatchWriter(tenant);
+            return;
+        }
+        log.info("Tenant {} - Initialize measurement batching, batch size {}, linger {} ms", tenant, batchSize,
+                linger);
+        BatchWriter<MeasurementRepresentation, MeasurementRepresentation> previous = measurementBatchWriters.put(
+                tenant,
+                new BatchWriter<>(tenant, "measurement", batchSize, Duration.ofMillis(linger),
+                        measurements -> createMeasurementBulk(tenant, measurements),
+                        measurement -> createMeasurementSingle(tenant, measurement),
+                        configurationRegistry.getVirtThreadPool(), batchScheduler));
+        if (previous != null) {
+            previous.flush();
+        }
+    }
+
+    public void deleteMeasurementBatchWriter(String tenant) {
+        BatchWriter<MeasurementRepresentation, MeasurementRepresentation> batchWriter = measurementBatchWriters
+                .remove(tenant);
+        if (batchWriter != null) {
+            batchWriter.flush();
+        }
+    }
+
+    private List<MeasurementRepresentation> createMeasurementBulk(String tenant,
+            List<MeasurementRepresentation> measurements) {
+        return subscriptionsService.callForTenant(tenant, () -> {
+            MicroserviceCredentials contextCredentials = removeAppKeyHeaderFromContext(contextService.getContext());
+            return contextService.callWithinContext(contextCredentials, () -> {
+                MeasurementCollectionRepresentation collection = new MeasurementCollectionRepresentation();
+                collection.setMeasurements(measurements);
+                MeasurementCollectionRepresentation created = executeRequest(tenant,
+                        API.MEASUREMENT.notificationFilter, () -> measurementApi.createBulk(collection));
+                // the batch writer fails the requests when the response has no measurements,
+                // the unsaved measurements are not results
+                return created == null || created.getMeasurements() == null
+                        ? List.<MeasurementRepresentation>of()
+                        : created.getMeasurements();
+            });
+        });
+    }
+
+    private MeasurementRepresentation createMeasurementSingle(String tenant,
+            MeasurementRepresentation measurement) {
+        return subscriptionsService.callForTenant(tenant, () -> {
+            MicroserviceCredentials contextCredentials = removeAppKeyHeaderFromContext(contextService.getContext());
+            return contextService.callWithinContext(contextCredentials, () -> executeRequest(tenant,
+                    API.MEASUREMENT.notificationFilter, () -> measurementApi.create(measurement)));
+        });
     }
 
     public InboundExternalIdCache deleteInboundExternalIdCache(String tenant) {
-        return inboundExternalIdCaches.remove(tenant);
+        InboundExternalIdCache inboundExternalIdCache = inboundExternalIdCaches.remove(tenant);
+        if (inboundExternalIdCache != null) {
+            inboundExternalIdCache.close();
+        }
+        return inboundExternalIdCache;
     }
 
     public InboundExternalIdCache getInboundExternalIdCache(String tenant) {
@@ -839,10 +1168,8 @@ public class C8YAgent implements ImportBeanDefinitionRegistrar {
     public void clearInboundExternalIdCache(String tenant, boolean recreate, int inboundExternalIdCacheSize) {
         InboundExternalIdCache inboundExternalIdCache = inboundExternalIdCaches.get(tenant);
         if (inboundExternalIdCache != null) {
-            // FIXME Recreating the cache creates a new instance of InboundExternalIdCache
-            // which causes issues with Metering
             if (recreate) {
-                inboundExternalIdCaches.put(tenant, new InboundExternalIdCache(inboundExternalIdCacheSize, tenant));
+                recreateInboundExternalIdCache(tenant, inboundExternalIdCacheSize);
             } else {
                 inboundExternalIdCache.clearCache();
             }
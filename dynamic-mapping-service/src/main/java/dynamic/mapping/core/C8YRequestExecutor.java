@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.cumulocity.sdk.client.SDKException;
+
+import dynamic.mapping.core.ProcessingMetrics.C8YRequestMeters;
+import dynamic.mapping.model.API;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Executes requests to Cumulocity for one tenant with a bounded number of
+ * concurrent requests.
+ * The limit adapts to the load of the platform (AIMD): a request rejected with
+ * 429 or 503 halves the limit, every successful request raises the limit
+ * until <code>maxConcurrency</code> is reached again. Rejected requests were
+ * not processed by the platform and are retried with exponential backoff and
+ * jitter, other errors are passed on.
+ * The meters of the APIs requested by the <code>C8YAgent</code> are taken from
+ * {@link ProcessingMetrics} when the executor is created, {@link #close()}
+ * removes the gauges bound to the executor when it is replaced.
+ */
+@Slf4j
+public class C8YRequestExecutor {
+
+    private static final long BACKOFF_BASE_MILLIS = 100;
+
+    private static final long BACKOFF_MAX_MILLIS = 5000;
+
+    // APIs requested by the C8YAgent
+    static final List<String> APIS = List.of("identity", API.ALARM.notificationFilter,
+            API.EVENT.notificationFilter, API.MEASUREMENT.notificationFilter, API.INVENTORY.notificationFilter,
+            API.OPERATION.notificationFilter);
+
+
+    private final String tenant;
+
+    @Getter
+    private final int maxConcurrency;
+
+    @Getter
+    private final int maxRetries;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition permitAvailable = lock.newCondition();
+
+    // guarded by lock
+    private double limit;
+
+    // guarded by lock
+    private int inFlight = 0;
+
+    private final ProcessingMetrics processingMetrics;
+
+    // structure: < api , meters >
+    private final Map<String, C8YRequestMeters> apiMeters = new ConcurrentHashMap<>();
+
+    private final List<Gauge> gauges;
+
+    public C8YRequestExecutor(String tenant, int maxConcurrency, int maxRetries) {
+        this(tenant, maxConcurrency, maxRetries, new ProcessingMetrics(Metrics.globalRegistry));
+    }
+
+    public C8YRequestExecutor(String tenant, int maxConcurrency, int maxRetries,
+            ProcessingMetrics processingMetrics) {
+        this.tenant = tenant;
+        this.processingMetrics = processingMetrics;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.limit = this.maxConcurrency;
+
+        APIS.forEach(api -> apiMeters.put(api, processingMetrics.getC8YRequestMeters(tenant, api)));
+        Tags tags = Tags.of("tenant", tenant);
+        this.gauges = List.of(
+                Gauge.builder("dynmapper_c8y_request_limit", this, C8YRequestExecutor::getLimit)
+                        .description("Current limit of concurrent requests to Cumulocity")
+                        .tags(tags).register(Metrics.globalRegistry),
+                Gauge.builder("dynmapper_c8y_requests_in_flight", this, C8YRequestExecutor::getInFlight)
+                        .description("Number of requests to Cumulocity in progress")
+                        .tags(tags).register(Metrics.globalRegistry));
+    }
+
+    /**
+     * Execute the request in the calling thread, waiting for a permit if the
+     * limit of concurrent requests is reached.
+     *
+     * @param api name of the target API, used to tag the metrics
+     */
+    public <V> V execute(String api, Callable<V> request) throws Exception {
+        C8YRequestMeters meters = apiMeters.get(api);
+        if (meters == null) {
+            meters = apiMeters.computeIfAbsent(api, a -> processingMetrics.getC8YRequestMeters(tenant, a));
+        }
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        boolean success = false;
+        try {
+            for (int attempt = 0;; attempt++) {
+                acquire();
+                boolean overloaded = false;
+                try {
+                    V result = request.call();
+                    success = true;
+                    return result;
+                } catch (SDKException e) {
+                    overloaded = isOverloaded(e);
+                    if (!overloaded || attempt >= maxRetries) {
+                        throw e;
+                    }
+                } finally {
+                    release(overloaded);
+                }
+                meters.getRetryCounter().increment();
+                long backoff = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << attempt);
+                long jittered = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+                log.debug("Tenant {} - Request to {} rejected, retry {} in {} ms", tenant, api, attempt + 1,
+                        jittered);
+                TimeUnit.MILLISECONDS.sleep(jittered);
+            }
+        } finally {
+            sample.stop(success ? meters.getSuccessTimer() : meters.getErrorTimer());
+        }
+    }
+
+    // the timers and counters are kept in ProcessingMetrics, the executor replacing
+    // this one uses the same meters
+    public void close() {
+        gauges.forEach(Metrics.globalRegistry::remove);
+    }
+
+    private static boolean isOverloaded(SDKException e) {
+        return e.getHttpStatus() == 429 || e.getHttpStatus() == 503;
+    }
+
+    private void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                permitAvailable.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(boolean overloaded) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (overloaded) {
+                // multiplicative decrease
+                limit = Math.max(1, limit / 2);
+            } else if (limit < maxConcurrency) {
+                // additive increase, by one per round of limit requests
+                limit = Math.min(maxConcurrency, limit + 1 / limit);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -57,6 +57,7 @@ import dynamic.mapping.processor.model.MappingType;
 import dynamic.mapping.processor.outbound.BaseProcessorOutbound;
 import dynamic.mapping.processor.outbound.JSONProcessorOutbound;
 import dynamic.mapping.processor.processor.fixed.InternalProtobufProcessor;
+import io.micrometer.core.instrument.Metrics;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -142,6 +143,11 @@ public class ConfigurationRegistry {
     @Autowired
     private ExecutorService virtThreadPool;
 
+    // meters used while processing messages, registered once per connector and
+    // mapping
+    @Getter
+    private ProcessingMetrics processingMetrics = new ProcessingMetrics(Metrics.globalRegistry);
+
     public Map<MappingType, BaseProcessorInbound<?>> createPayloadProcessorsInbound(String tenant) {
         ExtensibleProcessor extensibleProcessor = getExtensibleProcessors().get(tenant);
         return Map.of(
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+
+package dynamic.mapping.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Runs tasks with the same key one after another in the order they were
+ * submitted, tasks with different keys run in parallel on virtual threads.
+ * E.g. messages of one device are sent to Cumulocity in the order they were
+ * received, while messages of different devices are processed concurrently.
+ * A lane only exists while tasks of its key are pending, tasks without key are
+ * started immediately.
+ */
+public class KeyedOrderedExecutor {
+
+    private final ExecutorService virtThreadPool;
+
+    // structure: < key , completion of the last task of the lane >
+    private final ConcurrentHashMap<Object, CompletableFuture<?>> lanes = new ConcurrentHashMap<>();
+
+    private final Gauge lanesGauge;
+
+    public KeyedOrderedExecutor(String tenant, String connectorIdentifier, String direction,
+            ExecutorService virtThreadPool) {
+        this.virtThreadPool = virtThreadPool;
+        // a gauge left by the executor this one replaces would stay bound to the lanes
+        // of that executor
+        Gauge previous = Metrics.globalRegistry.find("dynmapper_ordered_lanes").tag("tenant", tenant)
+                .tag("connector", connectorIdentifier).tag("direction", direction).gauge();
+        if (previous != null) {
+            Metrics.globalRegistry.remove(previous);
+        }
+        this.lanesGauge = Gauge.builder("dynmapper_ordered_lanes", lanes, ConcurrentHashMap::size)
+                .description("Number of keys with messages waiting for ordered processing")
+                .tag("tenant", tenant).tag("connector", connectorIdentifier).tag("direction", direction)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Submit a task to the lane of the key. The task is started when all tasks
+     * submitted before with the same key are completed, successfully or not.
+     */
+    public <V> CompletableFuture<V> submit(Object key, Callable<V> task) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        if (key == null) {
+            execute(task, result);
+        } else {
+            reserve(key, result).thenRun(() -> execute(task, result));
+        }
+        return result;
+    }
+
+    /**
+     * Append <code>completion</code> to the lane of the key without starting a
+     * task, e.g. when the task is started later by an admission stage. The
+     * returned future completes when all previously appended completions of the
+     * key are completed.
+     */
+    public CompletableFuture<Void> reserve(Object key, CompletableFuture<?> completion) {
+        CompletableFuture<?>[] predecessor = new CompletableFuture<?>[1];
+        lanes.compute(key, (k, tail) -> {
+            predecessor[0] = tail;
+            return completion;
+        });
+        // the lane is removed when its last task completed
+        completion.whenComplete((result, error) -> lanes.remove(key, completion));
+        if (predecessor[0] == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return predecessor[0].handle((result, error) -> null);
+    }
+
+    // run the task on a virtual thread, as the processing might block
+    private <V> void execute(Callable<V> task, CompletableFuture<V> result) {
+        try {
+            virtThreadPool.execute(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    public int getLanes() {
+        return lanes.size();
+    }
+
+    // Method to remove the gauge of the executor when its connector is closed
+    public void close() {
+        Metrics.globalRegistry.remove(lanesGauge);
+    }
+}
@@ -22,8 +22,6 @@
 package dynamic.mapping.core;
 
 import static java.util.Map.entry;
-import static com.dashjoin.jsonata.Jsonata.jsonata;
-import static dynamic.mapping.model.MappingSubstitution.toPrettyJsonString;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -35,6 +33,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -53,10 +53,14 @@ import com.cumulocity.rest.representation.inventory.ManagedObjectRepresentation;
 import com.cumulocity.sdk.client.inventory.InventoryApi;
 import com.cumulocity.sdk.client.inventory.InventoryFilter;
 import com.cumulocity.sdk.client.inventory.ManagedObjectCollection;
+import com.dashjoin.jsonata.Jsonata;
 import com.dashjoin.jsonata.json.Json;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import dynamic.mapping.configuration.ServiceConfiguration;
+import dynamic.mapping.core.cache.InboundTopicCache;
+import dynamic.mapping.core.cache.JsonataExpressionCache;
 import dynamic.mapping.model.API;
 import dynamic.mapping.model.Direction;
 import dynamic.mapping.model.LoggingEventType;
@@ -67,14 +71,19 @@ import dynamic.mapping.model.MappingServiceRepresentation;
 import dynamic.mapping.model.MappingStatus;
 import dynamic.mapping.model.ResolveException;
 import dynamic.mapping.model.SnoopStatus;
+import dynamic.mapping.model.TopicMatcher;
 import dynamic.mapping.model.ValidationError;
+import dynamic.mapping.processor.model.TargetTemplate;
 
 @Slf4j
 @Component
 public class MappingComponent {
 
     // structure: <tenant, < mappingIdent , status>>
-    private Map<String, Map<String, MappingStatus>> tenantMappingStatus = new HashMap<>();
+    private Map<String, Map<String, MappingStatus>> tenantMappingStatus = new ConcurrentHashMap<>();
+
+    // structure: <tenant, time of the last publish of the mapping status>
+    private Map<String, Long> lastMappingStatusPublish = new ConcurrentHashMap<>();
 
     // // structure: <tenant, < id , status>>
     // private Map<String, Map<String, MappingStatus>> tenantMappingLoadingError =
@@ -109,19 +118,133 @@ public class MappingComponent {
     // cache of outbound mappings stored by mapping.id
     private Map<String, Map<String, Mapping>> cacheMappingOutbound = new HashMap<>();
 
-    // cache of outbound mappings stored by mapping.filterOundbound used for
-    // resolving
-    private Map<String, Map<String, List<Mapping>>> resolverMappingOutbound = new HashMap<>();
+    // index of outbound mappings by targetAPI and filterMapping used for resolving
+    private Map<String, OutboundMappingIndex> resolverMappingOutbound = new HashMap<>();
 
     // cache of inbound mappings stored in a tree used for resolving
     @Getter
     private Map<String, MappingTreeNode> resolverMappingInbound = new HashMap<>();
 
+    // cache of inbound mappings resolved for topics, uses the compiled tree
+    private Map<String, InboundTopicCache> inboundTopicCaches = new ConcurrentHashMap<>();
+
+    // cache of compiled JSONata expressions stored by mapping.id and expression
+    private Map<String, JsonataExpressionCache> expressionCaches = new HashMap<>();
+
+    // structure: <tenant, < mappingId , compiled targetTemplate>>
+    private Map<String, Map<String, TargetTemplate>> targetTemplateCaches = new HashMap<>();
+
     public void initializeMappingCaches(String tenant) {
         cacheMappingInbound.put(tenant, new HashMap<>());
         cacheMappingOutbound.put(tenant, new HashMap<>());
-        resolverMappingOutbound.put(tenant, new HashMap<>());
+        resolverMappingOutbound.put(tenant, new OutboundMappingIndex(List.of()));
         resolverMappingInbound.put(tenant, MappingTreeNode.createRootNode(tenant));
+        // the meters of a previous cache are removed before the new cache registers
+        // its meters
+        JsonataExpressionCache previous = expressionCaches.get(tenant);
+        if (previous != null) {
+            previous.close();
+        }
+        expressionCaches.put(tenant, new JsonataExpressionCache(tenant));
+        targetTemplateCaches.put(tenant, new ConcurrentHashMap<>());
+        updateInboundTopicCache(tenant);
+    }
+
+    public void deleteMappingCaches(String tenant) {
+        JsonataExpressionCache expressionCache = expressionCaches.remove(tenant);
+        if (expressionCache != null) {
+            expressionCache.clearCache();
+            expressionCache.close();
+        }
+        targetTemplateCaches.remove(tenant);
+        deleteInboundTopicCache(tenant);
+    }
+
+    public Jsonata getCompiledExpression(String tenant, Mapping mapping, String expression) {
+        JsonataExpressionCache expressionCache = expressionCaches.get(tenant);
+        if (expressionCache == null) {
+            // tenant not initialized, e.g. during startup, compile without caching
+            return Jsonata.jsonata(expression);
+        }
+        return expressionCache.getExpression(mapping, expression);
+    }
+
+    public TargetTemplate getTargetTemplate(String tenant, Mapping mapping) {
+        Map<String, TargetTemplate> templates = targetTemplateCaches.get(tenant);
+        if (templates == null || mapping.id == null) {
+            return TargetTemplate.compile(mapping);
+        }
+        TargetTemplate targetTemplate = templates.get(mapping.id);
+        // recompile if the targetTemplate was changed since it was compiled
+        if (targetTemplate == null || !targetTemplate.getTemplate().equals(mapping.targetTemplate)) {
+            targetTemplate = TargetTemplate.compile(mapping);
+            templates.put(mapping.id, targetTemplate);
+        }
+        return targetTemplate;
+    }
+
+    // compile the inbound mapping tree again, resolutions cached for the previous
+    // tree are dropped
+    private void updateInboundTopicCache(String tenant) {
+        MappingTreeNode tree = resolverMappingInbound.get(tenant);
+        if (tree == null) {
+            deleteInboundTopicCache(tenant);
+            return;
+        }
+        TopicMatcher matcher = tree.compileMatcher();
+        InboundTopicCache inboundTopicCache = inboundTopicCaches.get(tenant);
+        if (inboundTopicCache == null) {
+            ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+            int cacheSize = serviceConfiguration == null || serviceConfiguration.inboundTopicCacheSize == null
+                    ? new ServiceConfiguration().inboundTopicCacheSize
+                    : serviceConfiguration.inboundTopicCacheSize;
+            inboundTopicCaches.put(tenant, new InboundTopicCache(cacheSize, tenant, matcher));
+        } else {
+            inboundTopicCache.update(matcher);
+        }
+    }
+
+    // the meters of the cache are removed, so that a new cache of the tenant
+    // registers meters bound to itself
+    private void deleteInboundTopicCache(String tenant) {
+        InboundTopicCache inboundTopicCache = inboundTopicCaches.remove(tenant);
+        if (inboundTopicCache != null) {
+            inboundTopicCache.close();
+        }
+    }
+
+    private void updateCompiledMapping(String tenant, Mapping mapping) {
+        JsonataExpressionCache expressionCache = expressionCaches.get(tenant);
+        if (expressionCache != null) {
+            expressionCache.putMapping(mapping);
+        }
+        updateTargetTemplateCache(tenant, List.of(mapping));
+    }
+
+    private void updateTargetTemplateCache(String tenant, List<Mapping> mappings) {
+        Map<String, TargetTemplate> templates = targetTemplateCaches.get(tenant);
+        if (templates != null) {
+            mappings.forEach(m -> {
+                try {
+                    templates.put(m.id, TargetTemplate.compile(m));
+                } catch (Exception e) {
+                    // the error is reported again when the mapping is processed
+                    templates.remove(m.id);
+                    log.warn("Tenant {} - Could not compile targetTemplate of mapping {}: {}", tenant, m.id,
+                            e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void deleteCompiledMapping(String tenant, String mappingId) {
+        JsonataExpressionCache expressionCache = expressionCaches.get(tenant);
+        if (expressionCache != null) {
+            expressionCache.removeMapping(mappingId);
+        }
+        if (targetTemplateCaches.get(tenant) != null && mappingId != null) {
+            targetTemplateCaches.get(tenant).remove(mappingId);
+        }
     }
 
     public void initializeMappingStatus(String tenant, boolean reset) {
@@ -134,21 +257,28 @@ public class MappingComponent {
                     (mappingServiceRepresentation.getMappingStatus() == null
                             || mappingServiceRepresentation.getMappingStatus().size() == 0 ? 0
                                     : mappingServiceRepresentation.getMappingStatus().size()));
-            Map<String, MappingStatus> mappingStatus = new HashMap<>();
+            Map<String, MappingStatus> mappingStatus = new ConcurrentHashMap<>();
             mappingServiceRepresentation.getMappingStatus().forEach(ms -> {
                 mappingStatus.put(ms.identifier, ms);
             });
             tenantMappingStatus.put(tenant, mappingStatus);
         } else {
-            tenantMappingStatus.put(tenant, new HashMap<String, MappingStatus>());
+            tenantMappingStatus.put(tenant, new ConcurrentHashMap<String, MappingStatus>());
 
         }
+        // every tenant counts its unspecified messages separately
         if (!tenantMappingStatus.get(tenant).containsKey(MappingStatus.IDENT_UNSPECIFIED_MAPPING)) {
-            tenantMappingStatus.get(tenant).put(MappingStatus.UNSPECIFIED_MAPPING_STATUS.identifier,
-                    MappingStatus.UNSPECIFIED_MAPPING_STATUS);
+            MappingStatus unspecified = MappingStatus.UNSPECIFIED_MAPPING_STATUS;
+            tenantMappingStatus.get(tenant).put(unspecified.identifier,
+                    new MappingStatus(unspecified.id, unspecified.name, unspecified.identifier,
+                            unspecified.direction, unspecified.mappingTopic, unspecified.publishTopic, 0, 0, 0, 0,
+                            null));
         }
+        // the status is published with the next housekeeping
+        lastMappingStatusPublish.remove(tenant);
         initializedMappingStatus.put(tenant, true);
         resolverMappingInbound.put(tenant, MappingTreeNode.createRootNode(tenant));
+        updateInboundTopicCache(tenant);
         if (cacheMappingInbound.get(tenant) == null)
             cacheMappingInbound.put(tenant, new HashMap<>());
         if (cacheMappingOutbound.get(tenant) == null)
@@ -172,23 +302,57 @@ public class MappingComponent {
 
     public void cleanMappingStatus(String tenant) {
         resolverMappingInbound.remove(tenant);
+        deleteInboundTopicCache(tenant);
         tenantMappingStatus.remove(tenant);
+        lastMappingStatusPublish.remove(tenant);
     }
 
+    // send the mapping status, if it changed and mappingStatusInterval passed
+    // since the last publish, e.g. when called by the housekeeping of every
+    // connector
     public void sendMappingStatus(String tenant) {
-        if (configurationRegistry.getServiceConfigurations().get(tenant).sendMappingStatus) {
+        sendMappingStatus(tenant, false);
+    }
+
+    public void sendMappingStatus(String tenant, boolean force) {
+        ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+        if (serviceConfiguration.sendMappingStatus) {
+            long now = System.currentTimeMillis();
+            long interval = serviceConfiguration.mappingStatusInterval == null ? 0
+                    : serviceConfiguration.mappingStatusInterval * 1000L;
+            // claim the publish, concurrent calls within the interval are skipped
+            MutableBoolean claimed = new MutableBoolean(false);
+            lastMappingStatusPublish.compute(tenant, (t, last) -> {
+                if (force || last == null || now - last >= interval) {
+                    claimed.setTrue();
+                    return now;
+                }
+                return last;
+            });
+            if (claimed.isFalse()) {
+                return;
+            }
             subscriptionsService.runForTenant(tenant, () -> {
-                boolean initialized = this.initializedMappingStatus.get(tenant);
+                Boolean initialized = this.initializedMappingStatus.get(tenant);
                 Map<String, MappingStatus> statusMapping = tenantMappingStatus.get(tenant);
                 MappingServiceRepresentation mappingServiceRepresentation = configurationRegistry
                         .getMappingServiceRepresentations().get(tenant);
-                // avoid sending empty monitoring events
-                if (statusMapping.values().size() > 0 && mappingServiceRepresentation != null && initialized) {
-                    log.debug("Tenant {} - Sending monitoring: {}", tenant, statusMapping.values().size());
+                if (statusMapping == null || initialized == null) {
+                    return;
+                }
+                // count the mappings that changed since the last publish, they are marked as
+                // published when the update succeeded
+                long changed = statusMapping.values().stream().filter(MappingStatus::isChanged).count();
+                // avoid sending empty or unchanged monitoring events
+                if (statusMapping.values().size() > 0 && mappingServiceRepresentation != null && initialized
+                        && (changed > 0 || force)) {
+                    log.debug("Tenant {} - Sending monitoring: {}, changed: {}", tenant,
+                            statusMapping.values().size(), changed);
                     Map<String, Object> service = new HashMap<String, Object>();
                     MappingStatus[] ms = statusMapping.values().toArray(new MappingStatus[0]);
                     // add current name of mappings to the status messages
                     for (int index = 0; index < ms.length; index++) {
+                        ms[index].updateMessagesPerSecond(now);
                         ms[index].name = "UNSPECIFIED".equals(ms[index].id) ? "Unspecified" : "Mapping deleted";
                         if (cacheMappingInbound.get(tenant).containsKey(ms[index].id)) {
                             ms[index].name = cacheMappingInbound.get(tenant).get(ms[index].id).name;
@@ -201,9 +365,12 @@ public class MappingComponent {
                     updateMor.setId(GId.asGId(mappingServiceRepresentation.getId()));
                     updateMor.setAttrs(service);
                     this.inventoryApi.update(updateMor);
+                    for (MappingStatus published : ms) {
+                        published.markPublished(now);
+                    }
                 } else {
-                    log.debug("Tenant {} - Ignoring mapping monitoring: {}, initialized: {}", tenant,
-                            statusMapping.values().size(),
+                    log.debug("Tenant {} - Ignoring mapping monitoring: {}, changed: {}, initialized: {}", tenant,
+                            statusMapping.values().size(), changed,
                             initialized);
                 }
             });
@@ -215,14 +382,22 @@ public class MappingComponent {
         Map<String, MappingStatus> mappingStatus = tenantMappingStatus.get(tenant);
         MappingStatus ms = mappingStatus.get(m.identifier);
         if (ms == null) {
-            log.info("Tenant {} - Adding: {}", tenant, m.identifier);
-            ms = new MappingStatus(m.id, m.name, m.identifier, m.direction, m.mappingTopic, m.publishTopic, 0, 0,
-                    0, 0, null);
-            mappingStatus.put(m.identifier, ms);
+            // the status is requested concurrently by the processing threads
+            ms = mappingStatus.computeIfAbsent(m.identifier, identifier -> {
+                log.info("Tenant {} - Adding: {}", tenant, identifier);
+                return new MappingStatus(m.id, m.name, m.identifier, m.direction, m.mappingTopic, m.publishTopic,
+                        0, 0, 0, 0, null);
+            });
         }
         return ms;
     }
 
+    // record the time to process a message with a mapping, the histogram is
+    // published per mapping
+    public void recordProcessingTime(String tenant, Mapping m, long nanos) {
+        configurationRegistry.getProcessingMetrics().getMappingTimer(tenant, m).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
     public void sendMappingLoadingError(String tenant, ManagedObjectRepresentation mo, String message) {
 
         DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -297,6 +472,8 @@ public class MappingComponent {
             // mapping is deactivated and we can delete it
             inventoryApi.delete(GId.asGId(id));
             deleteMappingStatus(tenant, id);
+            configurationRegistry.getProcessingMetrics().removeMapping(tenant, m.getC8yMQTTMapping().identifier);
+            deleteCompiledMapping(tenant, id);
             return m.getC8yMQTTMapping();
         });
         if (result != null)
@@ -376,6 +553,9 @@ public class MappingComponent {
         if (exception.getValue() != null) {
             throw exception.getValue();
         }
+        if (result != null) {
+            updateCompiledMapping(tenant, result);
+        }
         return result;
     }
 
@@ -428,6 +608,7 @@ public class MappingComponent {
         } catch (ResolveException e) {
             log.error("Tenant {} - Could not add mapping {}, ignoring mapping", tenant, mapping, e);
         }
+        updateInboundTopicCache(tenant);
     }
 
     public void deleteFromCacheMappingInbound(String tenant, Mapping mapping) {
@@ -436,6 +617,7 @@ public class MappingComponent {
         } catch (ResolveException e) {
             log.error("Tenant {} - Could not delete mapping {}, ignoring mapping", tenant, mapping, e);
         }
+        updateInboundTopicCache(tenant);
     }
 
     public List<Mapping> rebuildMappingOutboundCache(String tenant) {
@@ -444,47 +626,46 @@ public class MappingComponent {
                 .filter(m -> Direction.OUTBOUND.equals(m.direction))
                 .collect(Collectors.toList());
         log.info("Tenant {} - Loaded mappings outbound: {} to cache", tenant, updatedMappings.size());
+        updateMappingOutboundCache(tenant, updatedMappings);
+        return updatedMappings;
+    }
 
+    // replace the cached outbound mappings and the index used for resolving
+    void updateMappingOutboundCache(String tenant, List<Mapping> updatedMappings) {
         cacheMappingOutbound.replace(tenant, updatedMappings.stream()
                 .collect(Collectors.toMap(Mapping::getId, Function.identity())));
+        if (expressionCaches.get(tenant) != null) {
+            expressionCaches.get(tenant).putMappings(updatedMappings, Direction.OUTBOUND);
+        }
+        updateTargetTemplateCache(tenant, updatedMappings);
 
-        resolverMappingOutbound.replace(tenant, updatedMappings.stream()
-                .filter(m -> {
-                    if (m.getFilterMapping() == null) {
-                        log.warn("Tenant {} - Mapping with ID {} has null filterMapping, ignoring for resolver",
-                                tenant, m.getId());
-                        return false;
-                    }
-                    return true;
-                })
-                .collect(Collectors.groupingBy(Mapping::getFilterMapping)));
-
-        return updatedMappings;
+        updatedMappings.stream()
+                .filter(m -> m.getFilterMapping() == null)
+                .forEach(m -> log.warn("Tenant {} - Mapping with ID {} has null filterMapping, ignoring for resolver",
+                        tenant, m.getId()));
+        resolverMappingOutbound.replace(tenant, new OutboundMappingIndex(updatedMappings));
     }
 
     public List<Mapping> resolveMappingOutbound(String tenant, String message, API api) throws ResolveException {
         // use mappingCacheOutbound and the key filterMapping to identify the matching
         // mappings.
         // the need to be returned in a list
-        List<Mapping> result = new ArrayList<>();
+        List<Mapping> result;
         try {
             Map messageAsMap = (Map) Json.parseJson(message);
-            for (Mapping m : cacheMappingOutbound.get(tenant).values()) {
-                // test if message has property associated for this mapping, JsonPointer must
-                // begin with "/"
-                var expression = jsonata(m.getFilterMapping());
-                Object extractedContent = expression.evaluate(messageAsMap);
-                if (extractedContent != null && m.targetAPI.equals(api)) {
-                    log.info("Tenant {} - Found mapping key fragment {} in C8Y message {}", tenant,
-                            m.getFilterMapping(),
-                            messageAsMap.get("id"));
-                    result.add(m);
-                } else {
-                    log.debug("Tenant {} - Not matching mapping key fragment {} in C8Y message {}, {}, {}, {}", tenant,
-                            m.getFilterMapping(),
-                            m.getFilterMapping(), messageAsMap.get("id"), api, toPrettyJsonString(message));
-                }
+            // only mappings indexed by a fragment of the message are tested, filters that
+            // are not simple paths are evaluated as JSONata expression
+            result = resolverMappingOutbound.get(tenant).resolve(messageAsMap, api, m -> {
+                var expression = getCompiledExpression(tenant, m, m.getFilterMapping());
+                return expression.evaluate(messageAsMap) != null;
+            });
+            for (Mapping m : result) {
+                log.debug("Tenant {} - Found mapping key fragment {} in C8Y message {}", tenant,
+                        m.getFilterMapping(),
+                        messageAsMap.get("id"));
             }
+            log.debug("Tenant {} - Resolved {} outbound mappings for C8Y message {}, {}", tenant, result.size(),
+                    messageAsMap.get("id"), api);
         } catch (IllegalArgumentException e) {
             throw new ResolveException(e.getMessage());
         }
@@ -492,13 +673,13 @@ public class MappingComponent {
     }
 
     public Mapping deleteFromMappingCache(String tenant, Mapping mapping) {
+        deleteCompiledMapping(tenant, mapping.id);
         if (Direction.OUTBOUND.equals(mapping.direction)) {
             Mapping deletedMapping = cacheMappingOutbound.get(tenant).remove(mapping.id);
-            log.info("Tenant {} - Preparing to delete {} {}", tenant, resolverMappingOutbound.get(tenant),
-                    mapping.filterMapping);
+            log.info("Tenant {} - Preparing to delete {} {}", tenant, mapping.id, mapping.filterMapping);
 
-            List<Mapping> cmo = resolverMappingOutbound.get(tenant).get(mapping.filterMapping);
-            cmo.removeIf(m -> mapping.id.equals(m.id));
+            resolverMappingOutbound.replace(tenant,
+                    new OutboundMappingIndex(cacheMappingOutbound.get(tenant).values()));
             return deletedMapping;
         } else {
             Mapping deletedMapping = cacheMappingInbound.get(tenant).remove(mapping.id);
@@ -523,8 +704,13 @@ public class MappingComponent {
         log.info("Tenant {} - Loaded mappings inbound: {} to cache", tenant, updatedMappings.size());
         cacheMappingInbound.replace(tenant, updatedMappings.stream()
                 .collect(Collectors.toMap(Mapping::getId, Function.identity())));
+        if (expressionCaches.get(tenant) != null) {
+            expressionCaches.get(tenant).putMappings(updatedMappings, Direction.INBOUND);
+        }
+        updateTargetTemplateCache(tenant, updatedMappings);
         // update mappings tree
         resolverMappingInbound.replace(tenant, rebuildMappingTree(updatedMappings, tenant));
+        updateInboundTopicCache(tenant);
         return updatedMappings;
     }
 
@@ -707,8 +893,11 @@ public class MappingComponent {
     }
 
     public List<Mapping> resolveMappingInbound(String tenant, String topic) throws ResolveException {
-        List<Mapping> resolvedMappings = getResolverMappingInbound().get(tenant).resolveMapping(topic);
-        return resolvedMappings;
+        InboundTopicCache inboundTopicCache = inboundTopicCaches.get(tenant);
+        if (inboundTopicCache == null) {
+            return getResolverMappingInbound().get(tenant).resolveMapping(topic);
+        }
+        return inboundTopicCache.resolve(topic);
     }
 
     public void resetSnoop(String tenant, String id) throws Exception {
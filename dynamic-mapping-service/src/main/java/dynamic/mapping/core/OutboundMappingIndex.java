@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import dynamic.mapping.model.API;
+import dynamic.mapping.model.Mapping;
+import lombok.Getter;
+
+/**
+ * Index of the outbound mappings of one tenant used to resolve the mappings
+ * for a Cumulocity notification.
+ * Mappings are partitioned by targetAPI and then by the top-level fragment
+ * their filterMapping tests for, e.g. <code>c8y_Temperature</code> or
+ * <code>c8y_Temperature.T</code>. Only mappings indexed by a fragment of the
+ * notification are considered and their filter is checked by navigating the
+ * notification. Filters that are not simple paths are evaluated as JSONata
+ * expression for every notification of the targetAPI.
+ * An index is immutable and is built again when the outbound mappings change.
+ */
+public class OutboundMappingIndex {
+
+    private static final Pattern SIMPLE_PATH = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)*");
+
+    // JSONata literals and operators that are valid path segments otherwise
+    private static final Set<String> RESERVED = Set.of("true", "false", "null", "and", "or", "in");
+
+    private static class IndexedMapping {
+        final Mapping mapping;
+        final String[] segments;
+
+        IndexedMapping(Mapping mapping, String[] segments) {
+            this.mapping = mapping;
+            this.segments = segments;
+        }
+    }
+
+    // structure: < targetAPI , < topLevelFragment , indexedMappings >>
+    private final Map<API, Map<String, List<IndexedMapping>>> indexedMappings = new EnumMap<>(API.class);
+
+    // structure: < targetAPI , mappings with filters evaluated as JSONata >
+    private final Map<API, List<Mapping>> unindexedMappings = new EnumMap<>(API.class);
+
+    @Getter
+    private final int size;
+
+    public OutboundMappingIndex(Collection<Mapping> mappings) {
+        int count = 0;
+        for (Mapping mapping : mappings) {
+            if (mapping.targetAPI == null || mapping.filterMapping == null || mapping.filterMapping.isBlank()) {
+                continue;
+            }
+            String[] segments = getSegments(mapping.filterMapping.trim());
+            if (segments == null) {
+                unindexedMappings.computeIfAbsent(mapping.targetAPI, k -> new ArrayList<>()).add(mapping);
+            } else {
+                indexedMappings.computeIfAbsent(mapping.targetAPI, k -> new HashMap<>())
+                        .computeIfAbsent(segments[0], k -> new ArrayList<>())
+                        .add(new IndexedMapping(mapping, segments));
+            }
+            count++;
+        }
+        this.size = count;
+    }
+
+    /**
+     * Resolve the mappings for a notification of the given API.
+     * 
+     * @param message   the parsed notification
+     * @param api       the API of the notification
+     * @param evaluator evaluates the filterMapping of a mapping as JSONata
+     *                  expression, used for filters that are not simple paths
+     */
+    public List<Mapping> resolve(Map<?, ?> message, API api, Predicate<Mapping> evaluator) {
+        List<Mapping> result = new ArrayList<>();
+        Map<String, List<IndexedMapping>> fragments = indexedMappings.get(api);
+        if (fragments != null) {
+            for (Object fragment : message.keySet()) {
+                List<IndexedMapping> candidates = fragments.get(fragment);
+                if (candidates == null) {
+                    continue;
+                }
+                for (IndexedMapping candidate : candidates) {
+                    Boolean matches = matchPath(message, candidate.segments);
+                    if (matches == null ? evaluator.test(candidate.mapping) : matches) {
+                        result.add(candidate.mapping);
+                    }
+                }
+            }
+        }
+        List<Mapping> unindexed = unindexedMappings.get(api);
+        if (unindexed != null) {
+            for (Mapping mapping : unindexed) {
+                if (evaluator.test(mapping)) {
+                    result.add(mapping);
+                }
+            }
+        }
+        return result;
+    }
+
+    // returns null when the result of the path can only be decided by JSONata,
+    // e.g. when the path traverses arrays
+    private static Boolean matchPath(Map<?, ?> message, String[] segments) {
+        Object current = message;
+        for (String segment : segments) {
+            if (!(current instanceof Map<?, ?> map)) {
+                return current instanceof List ? null : false;
+            }
+            current = map.get(segment);
+            if (current == null) {
+                return map.containsKey(segment) ? null : false;
+            }
+        }
+        return current instanceof List ? null : true;
+    }
+
+    private static String[] getSegments(String filter) {
+        if (!SIMPLE_PATH.matcher(filter).matches()) {
+            return null;
+        }
+        String[] segments = filter.split("\\.");
+        for (String segment : segments) {
+            if (RESERVED.contains(segment)) {
+                return null;
+            }
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+
+package dynamic.mapping.core;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dynamic.mapping.model.Mapping;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the meters used while processing messages once and hands out the
+ * registered handles, so that the processing of a message does not build and
+ * look up meters in the registry.
+ * The number of mappings with their own meters is bounded per tenant, further
+ * mappings share the meters tagged with <code>mapping=_other_</code>.
+ */
+@Slf4j
+public class ProcessingMetrics {
+
+    public static final String OTHER_MAPPINGS = "_other_";
+
+    public static final int DEFAULT_MAX_MAPPING_METERS = 1000;
+
+    /**
+     * Meters of one connector, created when the dispatcher of the connector is
+     * created.
+     */
+    @Getter
+    public static class ConnectorMeters {
+        private final Timer inboundProcessingTimer;
+        private final Counter inboundMessageCounter;
+        private final Timer outboundProcessingTimer;
+        private final Counter outboundMessageCounter;
+
+        ConnectorMeters(MeterRegistry registry, String tenant, String connectorIdentifier) {
+            this.inboundProcessingTimer = Timer.builder("dynmapper_inbound_processing_time")
+                    .tag("tenant", tenant).tag("connector", connectorIdentifier)
+                    .description("Processing time of inbound messages").register(registry);
+            this.inboundMessageCounter = Counter.builder("dynmapper_inbound_message_total")
+                    .tag("tenant", tenant).tag("connector", connectorIdentifier)
+                    .description("Total number of inbound messages").register(registry);
+            this.outboundProcessingTimer = Timer.builder("dynmapper_outbound_processing_time")
+                    .tag("tenant", tenant).tag("connector", connectorIdentifier)
+                    .description("Processing time of outbound messages").register(registry);
+            this.outboundMessageCounter = Counter.builder("dynmapper_outbound_message_total")
+                    .tag("tenant", tenant).tag("connector", connectorIdentifier)
+                    .description("Total number of outbound messages").register(registry);
+        }
+    }
+
+    /**
+     * Meters of the requests to one API of Cumulocity, created with the
+     * <code>C8YRequestExecutor</code> of the tenant.
+     */
+    @Getter
+    public static class C8YRequestMeters {
+        private final Timer successTimer;
+        private final Timer errorTimer;
+        private final Counter retryCounter;
+
+        C8YRequestMeters(MeterRegistry registry, String tenant, String api) {
+            this.successTimer = createTimer(registry, tenant, api, "success");
+            this.errorTimer = createTimer(registry, tenant, api, "error");
+            this.retryCounter = Counter.builder("dynmapper_c8y_request_retries_total")
+                    .description("Total number of requests to Cumulocity retried after 429 or 503")
+                    .tag("tenant", tenant).tag("api", api).register(registry);
+        }
+
+        private static Timer createTimer(MeterRegistry registry, String tenant, String api, String outcome) {
+            return Timer.builder("dynmapper_c8y_request_time")
+                    .description("Latency of requests to Cumulocity including retries")
+                    .tag("tenant", tenant).tag("api", api).tag("outcome", outcome)
+                    .publishPercentileHistogram().register(registry);
+        }
+    }
+
+    private final MeterRegistry registry;
+
+    // structure: <tenant, < connectorIdentifier , meters>>
+    private final Map<String, Map<String, ConnectorMeters>> connectorMeters = new ConcurrentHashMap<>();
+
+    // structure: <tenant, < mappingIdent , processing time>>
+    private final Map<String, Map<String, Timer>> mappingTimers = new ConcurrentHashMap<>();
+
+    // structure: <tenant/direction, processing time of the mappings over the limit>
+    private final Map<String, Timer> otherMappingTimers = new ConcurrentHashMap<>();
+
+    // structure: <tenant, < api , meters>>
+    private final Map<String, Map<String, C8YRequestMeters>> c8yRequestMeters = new ConcurrentHashMap<>();
+
+    // structure: <tenant, identity requests>
+    private final Map<String, Counter> identityRequestCounters = new ConcurrentHashMap<>();
+
+    // structure: <tenant, maximum number of mappings with their own meters>
+    private final Map<String, Integer> maxMappingMeters = new ConcurrentHashMap<>();
+
+    public ProcessingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void setMaxMappingMeters(String tenant, int max) {
+        maxMappingMeters.put(tenant, max);
+    }
+
+    public ConnectorMeters getConnectorMeters(String tenant, String connectorIdentifier) {
+        return connectorMeters.computeIfAbsent(tenant, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(connectorIdentifier, c -> new ConnectorMeters(registry, tenant, c));
+    }
+
+    public C8YRequestMeters getC8YRequestMeters(String tenant, String api) {
+        return c8yRequestMeters.computeIfAbsent(tenant, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(api, a -> new C8YRequestMeters(registry, tenant, a));
+    }
+
+    public Counter getIdentityRequestCounter(String tenant) {
+        Counter counter = identityRequestCounters.get(tenant);
+        if (counter == null) {
+            counter = identityRequestCounters.computeIfAbsent(tenant,
+                    t -> Counter.builder("dynmapper_inbound_identity_requests_total").tag("tenant", t)
+                            .register(registry));
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the timer of the processing time of a mapping. When the tenant
+     * already has the maximum number of mapping timers, the shared timer of the
+     * other mappings is returned.
+     */
+    public Timer getMappingTimer(String tenant, Mapping mapping) {
+        Map<String, Timer> timers = mappingTimers.get(tenant);
+        if (timers == null) {
+            timers = mappingTimers.computeIfAbsent(tenant, t -> new ConcurrentHashMap<>());
+        }
+        Timer timer = timers.get(mapping.identifier);
+        if (timer != null) {
+            return timer;
+        }
+        String direction = String.valueOf(mapping.direction);
+        if (timers.size() >= maxMappingMeters.getOrDefault(tenant, DEFAULT_MAX_MAPPING_METERS)) {
+            // the shared timer is not cached for the mapping, a slot might be freed later
+            return otherMappingTimers.computeIfAbsent(tenant + "/" + direction,
+                    key -> createMappingTimer(tenant, OTHER_MAPPINGS, direction));
+        }
+        return timers.computeIfAbsent(mapping.identifier,
+                identifier -> createMappingTimer(tenant, identifier, direction));
+    }
+
+    private Timer createMappingTimer(String tenant, String mappingTag, String direction) {
+        return Timer.builder("dynmapper_mapping_processing_time")
+                .description("Processing time of messages per mapping")
+                .tag("tenant", tenant).tag("mapping", mappingTag).tag("direction", direction)
+                .serviceLevelObjectives(Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofMillis(25),
+                        Duration.ofMillis(100), Duration.ofMillis(500), Duration.ofSeconds(2))
+                .register(registry);
+    }
+
+    // remove the meters of a deleted mapping
+    public void removeMapping(String tenant, String identifier) {
+        Map<String, Timer> timers = mappingTimers.get(tenant);
+        Timer timer = timers == null ? null : timers.remove(identifier);
+        if (timer != null) {
+            registry.remove(timer);
+        }
+    }
+
+    // remove the meters of a deleted connector
+    public void removeConnector(String tenant, String connectorIdentifier) {
+        Map<String, ConnectorMeters> connectors = connectorMeters.get(tenant);
+        ConnectorMeters meters = connectors == null ? null : connectors.remove(connectorIdentifier);
+        if (meters != null) {
+            removeConnectorMeters(meters);
+        }
+    }
+
+    private void removeConnectorMeters(ConnectorMeters meters) {
+        registry.remove(meters.inboundProcessingTimer);
+        registry.remove(meters.inboundMessageCounter);
+        registry.remove(meters.outboundProcessingTimer);
+        registry.remove(meters.outboundMessageCounter);
+    }
+
+    // remove all meters of a tenant, e.g. when the tenant is unsubscribed
+    public void removeTenant(String tenant) {
+        Map<String, ConnectorMeters> connectors = connectorMeters.remove(tenant);
+        if (connectors != null) {
+            connectors.values().forEach(this::removeConnectorMeters);
+        }
+        Map<String, C8YRequestMeters> requestMeters = c8yRequestMeters.remove(tenant);
+        if (requestMeters != null) {
+            requestMeters.values().forEach(meters -> {
+                registry.remove(meters.successTimer);
+                registry.remove(meters.errorTimer);
+                registry.remove(meters.retryCounter);
+            });
+        }
+        Map<String, Timer> timers = mappingTimers.remove(tenant);
+        if (timers != null) {
+            timers.values().forEach(registry::remove);
+        }
+        otherMappingTimers.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(tenant + "/")) {
+                registry.remove(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+        Counter counter = identityRequestCounters.remove(tenant);
+        if (counter != null) {
+            registry.remove(counter);
+        }
+        maxMappingMeters.remove(tenant);
+        log.debug("Tenant {} - Removed processing meters", tenant);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+
+import com.cumulocity.model.idtype.GId;
+import com.cumulocity.rest.representation.AbstractExtensibleRepresentation;
+import com.cumulocity.rest.representation.alarm.AlarmRepresentation;
+import com.cumulocity.rest.representation.event.EventRepresentation;
+import com.cumulocity.rest.representation.inventory.ManagedObjectRepresentation;
+import com.cumulocity.rest.representation.measurement.MeasurementRepresentation;
+import com.cumulocity.rest.representation.operation.OperationRepresentation;
+
+/**
+ * Creates SDK representations directly from the target payload of a mapping,
+ * without serializing the payload to a string and parsing it again.
+ * The well-known properties, e.g. <code>type</code>, <code>time</code> and
+ * <code>source</code> are set on the representation, all other properties are
+ * added as fragments. When the payload contains properties that require the
+ * JSON parser of the SDK, e.g. references to child devices, <code>null</code>
+ * is returned and the caller has to parse the string form of the payload.
+ */
+public class RepresentationFactory {
+
+    // properties that are parsed into typed references by the SDK
+    private static final Set<String> UNSUPPORTED_PROPERTIES = Set.of("id", "self", "creationTime",
+            "lastUpdated", "childDevices", "childAssets", "childAdditions", "deviceParents", "assetParents",
+            "additionParents");
+
+    private RepresentationFactory() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <R extends AbstractExtensibleRepresentation> R create(Object payload, Class<R> type) {
+        if (!(payload instanceof Map)) {
+            return null;
+        }
+        Map<String, Object> properties = (Map<String, Object>) payload;
+        for (String property : properties.keySet()) {
+            if (UNSUPPORTED_PROPERTIES.contains(property)) {
+                return null;
+            }
+        }
+        try {
+            if (MeasurementRepresentation.class.equals(type)) {
+                return (R) createMeasurement(properties);
+            } else if (EventRepresentation.class.equals(type)) {
+                return (R) createEvent(properties);
+            } else if (AlarmRepresentation.class.equals(type)) {
+                return (R) createAlarm(properties);
+            } else if (OperationRepresentation.class.equals(type)) {
+                return (R) createOperation(properties);
+            } else if (ManagedObjectRepresentation.class.equals(type)) {
+                return (R) createManagedObject(properties);
+            }
+        } catch (IllegalArgumentException e) {
+            // the property has an unexpected type, leave the error reporting to the parser
+        }
+        return null;
+    }
+
+    private static MeasurementRepresentation createMeasurement(Map<String, Object> properties) {
+        MeasurementRepresentation measurement = new MeasurementRepresentation();
+        properties.forEach((property, value) -> {
+            switch (property) {
+                case "type" -> measurement.setType(asString(value));
+                case "time" -> measurement.setDateTime(asDateTime(value));
+                case "source" -> measurement.setSource(asSource(value));
+                default -> measurement.setProperty(property, value);
+            }
+        });
+        return measurement;
+    }
+
+    private static EventRepresentation createEvent(Map<String, Object> properties) {
+        EventRepresentation event = new EventRepresentation();
+        properties.forEach((property, value) -> {
+            switch (property) {
+                case "type" -> event.setType(asString(value));
+                case "text" -> event.setText(asString(value));
+                case "time" -> event.setDateTime(asDateTime(value));
+                case "source" -> event.setSource(asSource(value));
+                default -> event.setProperty(property, value);
+            }
+        });
+        return event;
+    }
+
+    private static AlarmRepresentation createAlarm(Map<String, Object> properties) {
+        AlarmRepresentation alarm = new AlarmRepresentation();
+        properties.forEach((property, value) -> {
+            switch (property) {
+                case "type" -> alarm.setType(asString(value));
+                case "text" -> alarm.setText(asString(value));
+                case "severity" -> alarm.setSeverity(asString(value));
+                case "status" -> alarm.setStatus(asString(value));
+                case "time" -> alarm.setDateTime(asDateTime(value));
+                case "source" -> alarm.setSource(asSource(value));
+                default -> alarm.setProperty(property, value);
+            }
+        });
+        return alarm;
+    }
+
+    private static OperationRepresentation createOperation(Map<String, Object> properties) {
+        OperationRepresentation operation = new OperationRepresentation();
+        properties.forEach((property, value) -> {
+            switch (property) {
+                case "deviceId" -> operation.setDeviceId(asGId(value));
+                default -> operation.setProperty(property, value);
+            }
+        });
+        return operation;
+    }
+
+    private static ManagedObjectRepresentation createManagedObject(Map<String, Object> properties) {
+        ManagedObjectRepresentation managedObject = new ManagedObjectRepresentation();
+        properties.forEach((property, value) -> {
+            switch (property) {
+                case "name" -> managedObject.setName(asString(value));
+                case "type" -> managedObject.setType(asString(value));
+                case "owner" -> managedObject.setOwner(asString(value));
+                default -> managedObject.setProperty(property, value);
+            }
+        });
+        return managedObject;
+    }
+
+    private static String asString(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        throw new IllegalArgumentException("Expected string but found " + value.getClass().getSimpleName());
+    }
+
+    private static DateTime asDateTime(Object value) {
+        String time = asString(value);
+        return time == null ? null : DateTime.parse(time);
+    }
+
+    private static GId asGId(Object value) {
+        if (value instanceof String || value instanceof Number) {
+            return GId.asGId(value.toString());
+        }
+        throw new IllegalArgumentException("Expected id but found " + value);
+    }
+
+    private static ManagedObjectRepresentation asSource(Object value) {
+        if (value instanceof Map<?, ?> source && source.size() == 1 && source.get("id") != null) {
+            ManagedObjectRepresentation managedObject = new ManagedObjectRepresentation();
+            managedObject.setId(asGId(source.get("id")));
+            return managedObject;
+        }
+        throw new IllegalArgumentException("Expected source reference but found " + value);
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2025 Cumulocity GmbH.
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
  *
  * SPDX-License-Identifier: Apache-2.0
  *
@@ -19,43 +19,126 @@
  *
  */
 
+
 package dynamic.mapping.core.cache;
 
-import io.micrometer.core.instrument.Gauge;
-import io.micrometer.core.instrument.Metrics;
-import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import com.cumulocity.model.ID;
 import com.cumulocity.rest.representation.identity.ExternalIDRepresentation;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 
+/**
+ * Cache of resolved external ids for one tenant.
+ * The cache is bounded by <code>cacheSize</code> and evicts with W-TinyLFU.
+ * Every entry expires after <code>retention</code>, entries read in the
+ * second half of their lifetime are reloaded in the background, so that
+ * frequently used external ids never expire.
+ * External ids unknown to the identity service are remembered for
+ * <code>negativeRetention</code>, so that messages of unknown devices do not
+ * query the identity service for every message.
+ * The meters of the cache are removed with {@link #close()}, when the cache
+ * of the tenant is replaced or deleted.
+ */
 public class InboundExternalIdCache {
 
-	//private final LRUMap<ID, ExternalIDRepresentation> cache;
-	private final Map<ID, ExternalIDRepresentation> cache;
+	// marker for external ids not known in the identity service
+	private static final ExternalIDRepresentation NOT_FOUND = new ExternalIDRepresentation();
+
+	private final LoadingCache<ID, ExternalIDRepresentation> cache;
+
+	private final Counter hitCounter;
+
+	private final Counter missCounter;
+
+	private final Timer loadTimer;
 
 	private Gauge cacheSizeGauge = null;
 
-	// Constructor with default cache size
-	public InboundExternalIdCache(String tenant) {
-		this(1000, tenant); // Default size of 1000
-	}
+	// registered once per cause, so that evictions do not register meters
+	private final Map<RemovalCause, Counter> evictionCounters = new EnumMap<>(RemovalCause.class);
 
-	// Constructor with custom cache size
-	public InboundExternalIdCache(int cacheSize,  String tenant) {
-		//Making it thread-safe
-		this.cache = Collections.synchronizedMap(new LinkedHashMap<ID, ExternalIDRepresentation>() {
-			//Removing oldest entries
-			@Override
-			protected boolean removeEldestEntry(Map.Entry<ID, ExternalIDRepresentation> eldest) {
-				return size() > cacheSize;
+	/**
+	 * @param cacheSize         maximum number of cached external ids
+	 * @param tenant            tenant of the cache
+	 * @param retention         lifetime of a resolved external id, zero or
+	 *                          negative for no expiry
+	 * @param negativeRetention lifetime of an unknown external id, zero or
+	 *                          negative to disable negative caching
+	 * @param loader            loads an external id for background refresh,
+	 *                          returns null if the external id is unknown
+	 */
+	public InboundExternalIdCache(int cacheSize, String tenant, Duration retention, Duration negativeRetention,
+			Function<ID, ExternalIDRepresentation> loader) {
+		long retentionNanos = retention.isZero() || retention.isNegative() ? Long.MAX_VALUE : retention.toNanos();
+		long negativeRetentionNanos = negativeRetention.isNegative() ? 0 : negativeRetention.toNanos();
+		for (RemovalCause cause : RemovalCause.values()) {
+			if (cause.wasEvicted()) {
+				evictionCounters.put(cause, Counter.builder("dynmapper_inbound_identity_cache_evictions_total")
+						.description("Total number of external ids evicted from the identity cache")
+						.tags(Tags.of("tenant", tenant, "cause", cause.name().toLowerCase()))
+						.register(Metrics.globalRegistry));
 			}
+		}
+		Caffeine<ID, ExternalIDRepresentation> builder = Caffeine.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfter(new Expiry<ID, ExternalIDRepresentation>() {
+					@Override
+					public long expireAfterCreate(ID key, ExternalIDRepresentation value, long currentTime) {
+						return value == NOT_FOUND ? negativeRetentionNanos : retentionNanos;
+					}
+
+					@Override
+					public long expireAfterUpdate(ID key, ExternalIDRepresentation value, long currentTime,
+							long currentDuration) {
+						return expireAfterCreate(key, value, currentTime);
+					}
+
+					@Override
+					public long expireAfterRead(ID key, ExternalIDRepresentation value, long currentTime,
+							long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.evictionListener((ID key, ExternalIDRepresentation value, RemovalCause cause) -> {
+					Counter counter = evictionCounters.get(cause);
+					if (counter != null) {
+						counter.increment();
+					}
+				});
+		if (retentionNanos != Long.MAX_VALUE) {
+			builder.refreshAfterWrite(retentionNanos / 2, TimeUnit.NANOSECONDS);
+		}
+		this.cache = builder.build(key -> {
+			ExternalIDRepresentation id = loader.apply(key);
+			return id == null ? NOT_FOUND : id;
 		});
+
 		Tags tag = Tags.of("tenant", tenant);
-		this.cacheSizeGauge = Gauge.builder("dynmapper_inbound_identity_cache_size", this.cache, Map::size)
+		this.hitCounter = Counter.builder("dynmapper_inbound_identity_cache_hits_total")
+				.description("Total number of external ids served from the identity cache")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.missCounter = Counter.builder("dynmapper_inbound_identity_cache_misses_total")
+				.description("Total number of external ids not found in the identity cache")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.loadTimer = Timer.builder("dynmapper_inbound_identity_cache_load_time")
+				.description("Time to resolve external ids missing in the identity cache")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.cacheSizeGauge = Gauge.builder("dynmapper_inbound_identity_cache_size", this,
+				InboundExternalIdCache::getCacheSize)
 				.tags(tag)
 				.register(Metrics.globalRegistry);
 	}
@@ -64,28 +147,73 @@ public class InboundExternalIdCache {
 		return cacheSizeGauge;
 	}
 
-	// Method to get ID by external ID
+	/**
+	 * Resolve an external id from the cache, on a miss the external id is loaded
+	 * with the <code>loader</code> and added to the cache. Returns null if the
+	 * external id is unknown. Exceptions of the loader are passed on and nothing
+	 * is cached.
+	 * The loader is called outside of the cache, so a slow identity service
+	 * does not block lookups of other external ids.
+	 */
+	public ExternalIDRepresentation resolve(ID key, Function<ID, ExternalIDRepresentation> loader,
+			boolean cacheResult) {
+		ExternalIDRepresentation id = cache.getIfPresent(key);
+		if (id != null) {
+			hitCounter.increment();
+			return id == NOT_FOUND ? null : id;
+		}
+		missCounter.increment();
+		id = loadTimer.record(() -> loader.apply(key));
+		if (cacheResult) {
+			cache.put(key, id == null ? NOT_FOUND : id);
+		}
+		return id;
+	}
+
+	// Method to get ID by external ID, unknown external ids are returned as null
 	public ExternalIDRepresentation getIdByExternalId(ID key) {
-		return cache.get(key);
+		ExternalIDRepresentation id = cache.getIfPresent(key);
+		return id == NOT_FOUND ? null : id;
 	}
 
-	// Method to put a new entry in the cache
+	// Method to put a new entry in the cache, this replaces a cached unknown
+	// external id
 	public void putIdForExternalId(ID key, ExternalIDRepresentation id) {
-		cache.put(key, id);
+		if (id != null) {
+			cache.put(key, id);
+		}
 	}
 
 	// Method to remove an entry from the cache
 	public void removeIdForExternalId(ID key) {
-		cache.remove(key);
+		cache.invalidate(key);
 	}
 
 	// Method to clear the entire cache
 	public void clearCache() {
-		cache.clear();
+		cache.invalidateAll();
+	}
+
+	// Method to perform pending maintenance, e.g. removing expired entries
+	public void cleanUp() {
+		cache.cleanUp();
 	}
 
 	// Method to get the current size of the cache
 	public int getCacheSize() {
-		return cache.size();
+		return (int) cache.estimatedSize();
+	}
+
+	/**
+	 * Remove the meters of the cache from the registry. Must be called before a
+	 * new cache for the tenant is created, otherwise the new cache would be
+	 * given the meters of this cache, e.g. the size gauge bound to this cache.
+	 */
+	public void close() {
+		Metrics.globalRegistry.remove(hitCounter);
+		Metrics.globalRegistry.remove(missCounter);
+		Metrics.globalRegistry.remove(loadTimer);
+		Metrics.globalRegistry.remove(cacheSizeGauge);
+		evictionCounters.values().forEach(Metrics.globalRegistry::remove);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core.cache;
+
+import java.util.List;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.TopicMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Cache of the inbound mappings resolved for concrete topics of one tenant.
+ * Topics without a mapping are cached with an empty list. The cached
+ * resolutions are bound to the compiled mapping tree they were resolved with,
+ * when the tree is updated all resolutions are dropped.
+ * The meters of the cache are removed with {@link #close()}, when the cache
+ * of the tenant is removed.
+ */
+public class InboundTopicCache {
+
+	private static class Snapshot {
+		final TopicMatcher matcher;
+		// structure: < topic , resolvedMappings >
+		final Cache<String, List<Mapping>> resolutions;
+
+		Snapshot(TopicMatcher matcher, Cache<String, List<Mapping>> resolutions) {
+			this.matcher = matcher;
+			this.resolutions = resolutions;
+		}
+	}
+
+	private final int cacheSize;
+
+	private volatile Snapshot snapshot;
+
+	private final Counter hitCounter;
+
+	private final Counter missCounter;
+
+	private final Gauge cacheSizeGauge;
+
+	/**
+	 * @param cacheSize maximum number of cached topics, zero or negative disables
+	 *                  caching of resolutions
+	 * @param tenant    tenant of the cache
+	 * @param matcher   compiled mapping tree
+	 */
+	public InboundTopicCache(int cacheSize, String tenant, TopicMatcher matcher) {
+		this.cacheSize = cacheSize;
+		this.snapshot = createSnapshot(matcher);
+
+		Tags tag = Tags.of("tenant", tenant);
+		this.hitCounter = Counter.builder("dynmapper_inbound_topic_cache_hits_total")
+				.description("Total number of topics resolved from the inbound topic cache")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.missCounter = Counter.builder("dynmapper_inbound_topic_cache_misses_total")
+				.description("Total number of topics resolved with the mapping tree")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.cacheSizeGauge = Gauge.builder("dynmapper_inbound_topic_cache_size", this, InboundTopicCache::getCacheSize)
+				.tags(tag)
+				.register(Metrics.globalRegistry);
+	}
+
+	// Method to resolve the mappings of a topic, the returned list must not be
+	// modified
+	public List<Mapping> resolve(String topic) {
+		Snapshot current = snapshot;
+		if (current.resolutions == null) {
+			return current.matcher.match(topic);
+		}
+		List<Mapping> resolvedMappings = current.resolutions.getIfPresent(topic);
+		if (resolvedMappings != null) {
+			hitCounter.increment();
+			return resolvedMappings;
+		}
+		missCounter.increment();
+		resolvedMappings = current.matcher.match(topic);
+		current.resolutions.put(topic, resolvedMappings);
+		return resolvedMappings;
+	}
+
+	// Method to replace the compiled mapping tree, all cached resolutions are
+	// dropped
+	public void update(TopicMatcher matcher) {
+		this.snapshot = createSnapshot(matcher);
+	}
+
+	// Method to get the current number of cached topics
+	public int getCacheSize() {
+		Cache<String, List<Mapping>> resolutions = snapshot.resolutions;
+		return resolutions == null ? 0 : (int) resolutions.estimatedSize();
+	}
+
+	// Method to remove the meters of the cache from the registry, must be called
+	// before a new cache for the tenant is created
+	public void close() {
+		Metrics.globalRegistry.remove(hitCounter);
+		Metrics.globalRegistry.remove(missCounter);
+		Metrics.globalRegistry.remove(cacheSizeGauge);
+	}
+
+	private Snapshot createSnapshot(TopicMatcher matcher) {
+		Cache<String, List<Mapping>> resolutions = cacheSize > 0
+				? Caffeine.newBuilder().maximumSize(cacheSize).build()
+				: null;
+		return new Snapshot(matcher, resolutions);
+	}
+}
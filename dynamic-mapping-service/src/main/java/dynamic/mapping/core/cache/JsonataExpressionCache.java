@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.core.cache;
+
+import static com.dashjoin.jsonata.Jsonata.jsonata;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.dashjoin.jsonata.Jsonata;
+
+import dynamic.mapping.model.Direction;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.MappingSubstitution;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache of compiled JSONata expressions for one tenant.
+ * Expressions are stored by mapping.id and expression text, so that the
+ * expressions used in substitutions, filters and outbound resolvers are only
+ * parsed once, when a mapping is loaded or updated. A compiled
+ * <code>Jsonata</code> expression can be evaluated concurrently.
+ * Expressions of mappings that are not yet persisted, e.g. when testing, have
+ * no mapping.id and are compiled without caching.
+ * The meters of the cache are removed with {@link #close()}.
+ */
+@Slf4j
+public class JsonataExpressionCache {
+
+	// structure: < mappingId , < expression , compiledExpression >>
+	private final Map<String, Map<String, Jsonata>> cache = new ConcurrentHashMap<>();
+
+	// structure: < mappingId , direction >
+	private final Map<String, Direction> directions = new ConcurrentHashMap<>();
+
+	private final String tenant;
+
+	private final Counter hitCounter;
+
+	private final Counter missCounter;
+
+	private final Timer compileTimer;
+
+	private final Gauge cacheSizeGauge;
+
+	public JsonataExpressionCache(String tenant) {
+		this.tenant = tenant;
+		Tags tag = Tags.of("tenant", tenant);
+		this.hitCounter = Counter.builder("dynmapper_jsonata_cache_hits_total")
+				.description("Total number of compiled JSONata expressions served from the cache")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.missCounter = Counter.builder("dynmapper_jsonata_cache_misses_total")
+				.description("Total number of JSONata expressions compiled on demand")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.compileTimer = Timer.builder("dynmapper_jsonata_compile_time")
+				.description("Time to compile JSONata expressions")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.cacheSizeGauge = Gauge.builder("dynmapper_jsonata_cache_size", this, JsonataExpressionCache::getCacheSize)
+				.tags(tag)
+				.register(Metrics.globalRegistry);
+	}
+
+	// Method to get the compiled expression, the expression is compiled if not yet
+	// in the cache
+	public Jsonata getExpression(Mapping mapping, String expression) {
+		if (mapping.id == null) {
+			missCounter.increment();
+			return compile(expression);
+		}
+		Map<String, Jsonata> expressions = cache.computeIfAbsent(mapping.id, k -> new ConcurrentHashMap<>());
+		Jsonata compiled = expressions.get(expression);
+		if (compiled != null) {
+			hitCounter.increment();
+			return compiled;
+		}
+		missCounter.increment();
+		compiled = compile(expression);
+		expressions.put(expression, compiled);
+		return compiled;
+	}
+
+	// Method to compile all expressions used by the mapping, replacing previously
+	// compiled expressions of this mapping
+	public void putMapping(Mapping mapping) {
+		if (mapping.id == null) {
+			return;
+		}
+		Map<String, Jsonata> expressions = new ConcurrentHashMap<>();
+		for (String expression : getExpressions(mapping)) {
+			try {
+				expressions.put(expression, compile(expression));
+			} catch (Exception e) {
+				// the error is reported again when the expression is evaluated
+				log.warn("Tenant {} - Could not compile expression {} of mapping {}: {}", tenant, expression,
+						mapping.id, e.getMessage());
+			}
+		}
+		cache.put(mapping.id, expressions);
+		if (mapping.direction != null) {
+			directions.put(mapping.id, mapping.direction);
+		}
+	}
+
+	// Method to replace all cached mappings of one direction, expressions of
+	// mappings no longer in the list are removed
+	public void putMappings(Collection<Mapping> mappings, Direction direction) {
+		Set<String> keys = mappings.stream().map(mapping -> mapping.id).collect(Collectors.toSet());
+		directions.entrySet().removeIf(entry -> {
+			if (direction.equals(entry.getValue()) && !keys.contains(entry.getKey())) {
+				cache.remove(entry.getKey());
+				return true;
+			}
+			return false;
+		});
+		mappings.forEach(this::putMapping);
+	}
+
+	// Method to remove all expressions of a mapping
+	public void removeMapping(String mappingId) {
+		if (mappingId != null) {
+			cache.remove(mappingId);
+			directions.remove(mappingId);
+		}
+	}
+
+	// Method to clear the entire cache
+	public void clearCache() {
+		cache.clear();
+		directions.clear();
+	}
+
+	// Method to remove the meters of the cache from the registry, must be called
+	// before a new cache for the tenant is created
+	public void close() {
+		Metrics.globalRegistry.remove(hitCounter);
+		Metrics.globalRegistry.remove(missCounter);
+		Metrics.globalRegistry.remove(compileTimer);
+		Metrics.globalRegistry.remove(cacheSizeGauge);
+	}
+
+	// Method to get the current number of compiled expressions
+	public int getCacheSize() {
+		return cache.values().stream().mapToInt(Map::size).sum();
+	}
+
+	private Jsonata compile(String expression) {
+		Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+		try {
+			return jsonata(expression);
+		} finally {
+			sample.stop(compileTimer);
+		}
+	}
+
+	private static Set<String> getExpressions(Mapping mapping) {
+		Set<String> expressions = new HashSet<>();
+		if (mapping.filterMapping != null && !("").equals(mapping.filterMapping)) {
+			expressions.add(mapping.filterMapping);
+		}
+		if (mapping.substitutions != null) {
+			for (MappingSubstitution substitution : mapping.substitutions) {
+				if (substitution.pathSource != null && !("").equals(substitution.pathSource)) {
+					expressions.add(substitution.pathSource);
+				}
+			}
+		}
+		// outbound mappings resolve the source id with the identifier of the targetAPI
+		if (Direction.OUTBOUND.equals(mapping.direction) && mapping.targetAPI != null) {
+			expressions.add(mapping.targetAPI.identifier);
+		}
+		return expressions;
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.cumulocity.model.idtype.GId;
+import com.cumulocity.rest.representation.identity.ExternalIDRepresentation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Cache of external ids by global id and external id type for one tenant, used
+ * to enrich outbound payloads with the external id of the device.
+ * The cache is populated from outbound resolutions as well as from inbound
+ * resolutions and implicitly created devices. All external ids of a device
+ * are removed together when the device is deleted.
+ * The meters of the cache are removed with {@link #close()}, when the cache
+ * of the tenant is replaced or deleted.
+ */
+public class OutboundExternalIdCache {
+
+	// structure: < globalId , < externalIdType , externalId >>
+	private final Cache<String, Map<String, ExternalIDRepresentation>> cache;
+
+	private final Counter hitCounter;
+
+	private final Counter missCounter;
+
+	private final Gauge cacheSizeGauge;
+
+	/**
+	 * @param cacheSize maximum number of cached devices
+	 * @param tenant    tenant of the cache
+	 * @param retention lifetime of the external ids of a device, zero or negative
+	 *                  for no expiry
+	 */
+	public OutboundExternalIdCache(int cacheSize, String tenant, Duration retention) {
+		Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(cacheSize);
+		if (!retention.isZero() && !retention.isNegative()) {
+			builder.expireAfterWrite(retention);
+		}
+		this.cache = builder.build();
+
+		Tags tag = Tags.of("tenant", tenant);
+		this.hitCounter = Counter.builder("dynmapper_outbound_identity_cache_hits_total")
+				.description("Total number of external ids served from the outbound identity cache")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.missCounter = Counter.builder("dynmapper_outbound_identity_cache_misses_total")
+				.description("Total number of external ids not found in the outbound identity cache")
+				.tags(tag).register(Metrics.globalRegistry);
+		this.cacheSizeGauge = Gauge.builder("dynmapper_outbound_identity_cache_size", this, OutboundExternalIdCache::getCacheSize)
+				.tags(tag)
+				.register(Metrics.globalRegistry);
+	}
+
+	// Method to get the external id of a given type for a global id
+	public ExternalIDRepresentation getExternalId(GId globalId, String externalIdType) {
+		Map<String, ExternalIDRepresentation> externalIds = cache.getIfPresent(globalId.getValue());
+		ExternalIDRepresentation externalId = externalIds == null ? null : externalIds.get(externalIdType);
+		if (externalId != null) {
+			hitCounter.increment();
+		} else {
+			missCounter.increment();
+		}
+		return externalId;
+	}
+
+	// Method to put an external id, the global id and the type are taken from the
+	// external id
+	public void putExternalId(ExternalIDRepresentation externalId) {
+		if (externalId == null || externalId.getType() == null || externalId.getManagedObject() == null
+				|| externalId.getManagedObject().getId() == null) {
+			return;
+		}
+		cache.get(externalId.getManagedObject().getId().getValue(), k -> new ConcurrentHashMap<>())
+				.put(externalId.getType(), externalId);
+	}
+
+	// Method to remove all external ids of a global id, returns the removed
+	// external ids
+	public Map<String, ExternalIDRepresentation> removeGlobalId(GId globalId) {
+		return cache.asMap().remove(globalId.getValue());
+	}
+
+	// Method to clear the entire cache
+	public void clearCache() {
+		cache.invalidateAll();
+	}
+
+	// Method to perform pending maintenance, e.g. removing expired entries
+	public void cleanUp() {
+		cache.cleanUp();
+	}
+
+	// Method to get the current number of cached devices
+	public int getCacheSize() {
+		return (int) cache.estimatedSize();
+	}
+
+	// Method to remove the meters of the cache from the registry, must be called
+	// before a new cache for the tenant is created
+	public void close() {
+		Metrics.globalRegistry.remove(hitCounter);
+		Metrics.globalRegistry.remove(missCounter);
+		Metrics.globalRegistry.remove(cacheSizeGauge);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core.cache;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Coalesces concurrent calls with the same key into one call.
+ * The first thread calling <code>execute</code> for a key runs the call, all
+ * threads calling <code>execute</code> for the same key while the call is in
+ * progress wait for and share its result. Results are not kept after the
+ * call completed, caching is left to the caller.
+ */
+public class RequestCoalescer<K, V> {
+
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final Counter coalescedCounter;
+
+	public RequestCoalescer(String name) {
+		this.coalescedCounter = Counter.builder("dynmapper_coalesced_requests_total")
+				.description("Total number of requests served by a concurrent request with the same key")
+				.tag("request", name)
+				.register(Metrics.globalRegistry);
+	}
+
+	/**
+	 * Run the call or wait for the call in progress for the same key. Exceptions
+	 * of the call are passed on to all waiting threads.
+	 */
+	public V execute(K key, Callable<V> call) throws Exception {
+		CompletableFuture<V> own = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+		if (existing != null) {
+			coalescedCounter.increment();
+			try {
+				return existing.get();
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof Exception cause ? cause : e;
+			}
+		}
+		try {
+			V result = call.call();
+			own.complete(result);
+			return result;
+		} catch (Throwable e) {
+			own.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, own);
+		}
+	}
+
+	// Method to get the number of calls in progress
+	public int getInFlight() {
+		return inFlight.size();
+	}
+}
@@ -110,6 +110,10 @@ public class Mapping implements Serializable {
     @NotNull
     public Boolean debug;
 
+    // log the payload of every n-th message of the mapping, overrides the
+    // logPayloadSampleRate of the service configuration
+    public Integer logPayloadSampleRate;
+
     @NotNull
     public Boolean tested;
 
@@ -21,7 +21,7 @@
 
 package dynamic.mapping.model;
 
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -29,10 +29,16 @@ import lombok.ToString;
 
 import jakarta.validation.constraints.NotNull;
 import java.io.Serializable;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Statistics of a mapping. The counters are incremented concurrently by the
+ * processing threads and are exposed as plain numbers, e.g.
+ * <code>messagesReceived</code>, when the status is serialized.
+ */
 @Getter
 @NoArgsConstructor
-@AllArgsConstructor
 @ToString(exclude = {})
 public class MappingStatus implements Serializable {
 
@@ -64,13 +70,13 @@ public class MappingStatus implements Serializable {
   public String publishTopic;
 
   @NotNull
-  public long messagesReceived;
+  private final LongAdder messagesReceived = new LongAdder();
 
   @NotNull
-  public long errors;
+  private final LongAdder errors = new LongAdder();
 
   @NotNull
-  public long snoopedTemplatesActive;
+  private final LongAdder snoopedTemplatesActive = new LongAdder();
 
   @NotNull
   public long snoopedTemplatesTotal;
@@ -79,16 +85,135 @@ public class MappingStatus implements Serializable {
   @Setter
   public String loadingError;
 
+  // messages per second received between the last two publishes of the status
+  @NotNull
+  public double messagesPerSecond;
+
+  // values of the last publish, guarded by this
+  @Getter(AccessLevel.NONE)
+  private long publishedMessagesReceived = -1;
+
+  @Getter(AccessLevel.NONE)
+  private long publishedErrors = -1;
+
+  @Getter(AccessLevel.NONE)
+  private long publishedSnoopedTemplatesActive = -1;
+
+  @Getter(AccessLevel.NONE)
+  private long publishedSnoopedTemplatesTotal = -1;
+
+  @Getter(AccessLevel.NONE)
+  private String publishedLoadingError;
+
+  @Getter(AccessLevel.NONE)
+  private long publishedAt = 0;
+
+  public MappingStatus(String id, String name, String identifier, Direction direction, String mappingTopic,
+      String publishTopic, long messagesReceived, long errors, long snoopedTemplatesActive,
+      long snoopedTemplatesTotal, String loadingError) {
+    this.id = id;
+    this.name = name;
+    this.identifier = identifier;
+    this.direction = direction;
+    this.mappingTopic = mappingTopic;
+    this.publishTopic = publishTopic;
+    this.messagesReceived.add(messagesReceived);
+    this.errors.add(errors);
+    this.snoopedTemplatesActive.add(snoopedTemplatesActive);
+    this.snoopedTemplatesTotal = snoopedTemplatesTotal;
+    this.loadingError = loadingError;
+  }
+
+  public long getMessagesReceived() {
+    return messagesReceived.sum();
+  }
+
+  // used when the status is restored from the inventory
+  public void setMessagesReceived(long value) {
+    messagesReceived.reset();
+    messagesReceived.add(value);
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  public void setErrors(long value) {
+    errors.reset();
+    errors.add(value);
+  }
+
+  public long getSnoopedTemplatesActive() {
+    return snoopedTemplatesActive.sum();
+  }
+
+  public void setSnoopedTemplatesActive(long value) {
+    snoopedTemplatesActive.reset();
+    snoopedTemplatesActive.add(value);
+  }
+
+  public void incrementMessagesReceived() {
+    messagesReceived.increment();
+  }
+
+  public void incrementErrors() {
+    errors.increment();
+  }
+
+  public void incrementSnoopedTemplatesActive() {
+    snoopedTemplatesActive.increment();
+  }
+
+  /**
+   * @return true if the status changed since the last publish
+   */
+  public synchronized boolean isChanged() {
+    return getMessagesReceived() != publishedMessagesReceived || getErrors() != publishedErrors
+        || getSnoopedTemplatesActive() != publishedSnoopedTemplatesActive
+        || snoopedTemplatesTotal != publishedSnoopedTemplatesTotal
+        || !Objects.equals(loadingError, publishedLoadingError);
+  }
+
+  /**
+   * Update <code>messagesPerSecond</code> with the messages received since the
+   * last publish.
+   */
+  public synchronized void updateMessagesPerSecond(long now) {
+    if (publishedAt > 0 && now > publishedAt && publishedMessagesReceived >= 0) {
+      messagesPerSecond = Math.max(0, getMessagesReceived() - publishedMessagesReceived) * 1000.0
+          / (now - publishedAt);
+    }
+  }
+
+  /**
+   * Remember the current values as published and update
+   * <code>messagesPerSecond</code>.
+   * 
+   * @return true if the status changed since the last publish
+   */
+  public synchronized boolean markPublished(long now) {
+    boolean changed = isChanged();
+    updateMessagesPerSecond(now);
+    publishedMessagesReceived = getMessagesReceived();
+    publishedErrors = getErrors();
+    publishedSnoopedTemplatesActive = getSnoopedTemplatesActive();
+    publishedSnoopedTemplatesTotal = snoopedTemplatesTotal;
+    publishedLoadingError = loadingError;
+    publishedAt = now;
+    return changed;
+  }
+
   @Override
   public boolean equals(Object m) {
     return (m instanceof MappingStatus) && id == ((MappingStatus) m).id;
   }
 
   public void reset() {
-    messagesReceived = 0;
-    errors = 0;
+    messagesReceived.reset();
+    errors.reset();
     loadingError = "";
-    snoopedTemplatesActive = 0;
+    snoopedTemplatesActive.reset();
     snoopedTemplatesTotal = 0;
+    messagesPerSecond = 0;
   }
-}
\ No newline at end of file
+}
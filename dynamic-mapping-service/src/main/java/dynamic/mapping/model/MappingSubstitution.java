@@ -166,14 +166,17 @@ public class MappingSubstitution implements Serializable {
     public static void addNestedValue(DocumentContext jsonObject, String path, Object value) {
         String[] parts = path.split("\\.");
         StringBuilder currentPath = new StringBuilder("$");
-        
-        // Create all parent objects except the last one
+        Object current = jsonObject.json();
+
+        // Create the missing parent objects, existing parent objects are kept with
+        // their properties
         for (int i = 0; i < parts.length - 1; i++) {
-            if (i == 0) {
-                jsonObject.put("$", parts[i], new HashMap<>());
-            } else {
-                jsonObject.put(currentPath.toString(), parts[i], new HashMap<>());
+            Object child = current instanceof Map<?, ?> map ? map.get(parts[i]) : null;
+            if (!(child instanceof Map)) {
+                child = new HashMap<String, Object>();
+                jsonObject.put(currentPath.toString(), parts[i], child);
             }
+            current = child;
             currentPath.append(".").append(parts[i]);
         }
         
@@ -139,7 +139,15 @@
          }
      }
  
-     // Helper methods for node operations
+     // Method to compile the tree into an immutable matcher, modifications of the
+    // tree are not visible in the matcher
+    public TopicMatcher compileMatcher() {
+        synchronized (treeModificationLock) {
+            return TopicMatcher.compile(this);
+        }
+    }
+
+    // Helper methods for node operations
      public Optional<List<MappingTreeNode>> getChildrenOptional(String level) {
          return Optional.ofNullable(childNodes.get(level));
      }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable compiled form of the inbound mapping tree.
+ * Topics are tokenized in place, without splitting the topic with a regular
+ * expression, and the levels are looked up in open addressing tables that are
+ * compared with the region of the topic. Apart from the list of resolved
+ * mappings no objects are allocated while matching a topic.
+ * The semantics are the same as in <code>MappingTreeNode.resolveMapping</code>:
+ * a sequence of <code>/</code> is one level, <code>+</code> matches exactly one
+ * level and <code>#</code> matches one or more remaining levels.
+ */
+public class TopicMatcher {
+
+    private static final String SEPARATOR = "/";
+
+    private static final Mapping[] NO_MAPPINGS = new Mapping[0];
+
+    private final Node root;
+
+    private TopicMatcher(Node root) {
+        this.root = root;
+    }
+
+    public static TopicMatcher compile(MappingTreeNode rootNode) {
+        return new TopicMatcher(compile(List.of(rootNode)));
+    }
+
+    // Method to resolve the mappings for a topic, the returned list must not be
+    // modified
+    public List<Mapping> match(String topic) {
+        // the topic is trimmed as in Mapping.splitTopicIncludingSeparatorAsArray()
+        int start = 0;
+        int end = topic.length();
+        while (start < end && topic.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && topic.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        List<Mapping> results = new ArrayList<>(2);
+        match(root, topic, start, end, results);
+        return results.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(results);
+    }
+
+    private static void match(Node node, String topic, int position, int end, List<Mapping> results) {
+        if (position >= end) {
+            Collections.addAll(results, node.mappings);
+            return;
+        }
+        int tokenEnd = position;
+        Node exact;
+        if (topic.charAt(position) == '/') {
+            // consecutive separators are one level
+            while (tokenEnd < end && topic.charAt(tokenEnd) == '/') {
+                tokenEnd++;
+            }
+            exact = node.separator;
+        } else {
+            while (tokenEnd < end && topic.charAt(tokenEnd) != '/') {
+                tokenEnd++;
+            }
+            exact = node.get(topic, position, tokenEnd);
+        }
+        if (exact != null) {
+            match(exact, topic, tokenEnd, end, results);
+        }
+        if (node.singleWildcard != null) {
+            match(node.singleWildcard, topic, tokenEnd, end, results);
+        }
+        Collections.addAll(results, node.multiWildcardMappings);
+    }
+
+    // merges the mapping nodes and inner nodes registered for the same level
+    private static Node compile(List<MappingTreeNode> treeNodes) {
+        List<Mapping> mappings = new ArrayList<>();
+        Map<String, List<MappingTreeNode>> children = new HashMap<>();
+        for (MappingTreeNode treeNode : treeNodes) {
+            if (treeNode.isMappingNode()) {
+                mappings.add(treeNode.getMapping());
+            }
+            synchronized (treeNode.getChildNodes()) {
+                treeNode.getChildNodes().forEach((level, nodes) -> children
+                        .computeIfAbsent(level, k -> new ArrayList<>()).addAll(nodes));
+            }
+        }
+
+        Node node = new Node(children.size(), mappings.toArray(NO_MAPPINGS));
+        children.forEach((level, nodes) -> {
+            if (Mapping.TOPIC_WILDCARD_MULTI.equals(level)) {
+                node.multiWildcardMappings = nodes.stream().filter(MappingTreeNode::isMappingNode)
+                        .map(MappingTreeNode::getMapping).toArray(Mapping[]::new);
+            } else if (Mapping.TOPIC_WILDCARD_SINGLE.equals(level)) {
+                node.singleWildcard = compile(nodes);
+            } else if (SEPARATOR.equals(level)) {
+                node.separator = compile(nodes);
+            } else {
+                node.put(level, compile(nodes));
+            }
+        });
+        return node;
+    }
+
+    private static int hash(String topic, int start, int end) {
+        // same as String.hashCode() for the region
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + topic.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static class Node {
+        // open addressing table of the levels with exact matches
+        private final String[] levels;
+        private final int[] hashes;
+        private final Node[] children;
+        private final int mask;
+
+        private final Mapping[] mappings;
+        private Node separator;
+        private Node singleWildcard;
+        private Mapping[] multiWildcardMappings = NO_MAPPINGS;
+
+        Node(int expectedSize, Mapping[] mappings) {
+            int capacity = Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1;
+            this.levels = new String[capacity];
+            this.hashes = new int[capacity];
+            this.children = new Node[capacity];
+            this.mask = capacity - 1;
+            this.mappings = mappings;
+        }
+
+        void put(String level, Node child) {
+            int h = hash(level, 0, level.length());
+            int i = h & mask;
+            while (levels[i] != null) {
+                i = (i + 1) & mask;
+            }
+            levels[i] = level;
+            hashes[i] = h;
+            children[i] = child;
+        }
+
+        Node get(String topic, int start, int end) {
+            int h = hash(topic, start, end);
+            int length = end - start;
+            int i = h & mask;
+            String level;
+            while ((level = levels[i]) != null) {
+                if (hashes[i] == h && level.length() == length && topic.regionMatches(start, level, 0, length)) {
+                    return children[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+    }
+}
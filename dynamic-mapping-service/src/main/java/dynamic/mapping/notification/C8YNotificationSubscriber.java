@@ -46,7 +46,9 @@ import dynamic.mapping.model.C8YNotificationSubscription;
 import dynamic.mapping.model.Device;
 import dynamic.mapping.notification.websocket.CustomWebSocketClient;
 import dynamic.mapping.notification.websocket.NotificationCallback;
+import dynamic.mapping.configuration.ServiceConfiguration;
 import dynamic.mapping.processor.outbound.DispatcherOutbound;
+import dynamic.mapping.processor.outbound.SharedDispatcherOutbound;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.ArrayStack;
@@ -104,7 +106,12 @@ public class C8YNotificationSubscriber {
 	private ScheduledExecutorService executorTokenService = null;
 	private final String DEVICE_SUBSCRIBER = "DynamicMapperDeviceSubscriber";
 	private final String DEVICE_SUBSCRIPTION = "DynamicMapperDeviceSubscription";
+	// key of the token and the client of the shared consumer of a tenant
+	private final String SHARED_CONSUMER = "Shared";
 	private Map<String, Map<String, CustomWebSocketClient>> deviceClientMap = new HashMap<>();
+	// structure: <tenant, sharedDispatcherOutbound>, reused when the shared consumer
+	// reconnects
+	private Map<String, SharedDispatcherOutbound> sharedDispatcherOutbounds = new ConcurrentHashMap<>();
 	private Map<String, Integer> deviceWSStatusCode = new HashMap<>();
 
 	private Map<String, Map<String, Mqtt3Client>> activePushConnections = new HashMap<>();
@@ -115,7 +122,7 @@ public class C8YNotificationSubscriber {
 	public void addSubscriber(String tenant, String identifier, DispatcherOutbound dispatcherOutbound) {
 		Map<String, DispatcherOutbound> dispatcherOutboundMap = getDispatcherOutboundMaps().get(tenant);
 		if (dispatcherOutboundMap == null) {
-			dispatcherOutboundMap = new HashMap<>();
+			dispatcherOutboundMap = new ConcurrentHashMap<>();
 			dispatcherOutboundMap.put(identifier, dispatcherOutbound);
 			getDispatcherOutboundMaps().put(tenant, dispatcherOutboundMap);
 		} else {
@@ -154,8 +161,10 @@ public class C8YNotificationSubscriber {
 		// When one subscription exists, connect...
 		if (deviceSubList.size() > 0) {
 			try {
-				// For each dispatcher/connector create a new connection
-				if (dispatcherOutboundMaps.get(tenant) != null) {
+				if (isSharedNotificationConsumer(tenant)) {
+					connectSharedConsumer(tenant, deviceTokens);
+				} else if (dispatcherOutboundMaps.get(tenant) != null) {
+					// For each dispatcher/connector create a new connection
 					for (DispatcherOutbound dispatcherOutbound : dispatcherOutboundMaps.get(tenant)
 							.values()) {
 						//Only connect if connector is enabled
@@ -192,6 +201,25 @@ public class C8YNotificationSubscriber {
 		}
 	}
 
+	private boolean isSharedNotificationConsumer(String tenant) {
+		ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+		return serviceConfiguration != null && serviceConfiguration.sharedNotificationConsumer;
+	}
+
+	// one consumer receives the notifications for all connectors of the tenant
+	private void connectSharedConsumer(String tenant, Map<String, String> deviceTokens) throws URISyntaxException {
+		Map<String, DispatcherOutbound> dispatcherOutboundMap = dispatcherOutboundMaps.computeIfAbsent(tenant,
+				t -> new ConcurrentHashMap<>());
+		String tokenSeed = DEVICE_SUBSCRIBER + SHARED_CONSUMER + additionalSubscriptionIdTest;
+		String token = createToken(DEVICE_SUBSCRIPTION, tokenSeed);
+		log.info("Tenant {} - Connecting shared consumer for {} connectors", tenant, dispatcherOutboundMap.size());
+		deviceTokens.put(SHARED_CONSUMER, token);
+		SharedDispatcherOutbound sharedDispatcherOutbound = sharedDispatcherOutbounds.computeIfAbsent(tenant,
+				t -> new SharedDispatcherOutbound(configurationRegistry, t, dispatcherOutboundMap));
+		CustomWebSocketClient client = connect(token, sharedDispatcherOutbound);
+		deviceClientMap.get(tenant).put(SHARED_CONSUMER, client);
+	}
+
 	public void notificationSubscriberReconnect(String tenant) {
 		subscriptionsService.runForTenant(tenant, () -> {
 			disconnect(tenant);
@@ -308,20 +336,24 @@ public class C8YNotificationSubscriber {
 								"Tenant {} - No Outbound dispatcher for any connector is registered, add a connector first!",
 								tenant);
 
-					for (DispatcherOutbound dispatcherOutbound : dispatcherOutboundMaps.get(tenant)
-							.values()) {
-						String tokenSeed = DEVICE_SUBSCRIBER
-								+ dispatcherOutbound.getConnectorClient().getConnectorIdentifier()
-								+ additionalSubscriptionIdTest;
-						String token = createToken(DEVICE_SUBSCRIPTION,
-								tokenSeed);
-						log.info("Tenant {} - Creating new Subscription for Device {} with ID {} for Connector {}",
-								tenant, deviceName,
-								mor.getId().getValue(), dispatcherOutbound.getConnectorClient().getConnectorName());
-						deviceTokens.put(dispatcherOutbound.getConnectorClient().getConnectorIdentifier(), token);
-						CustomWebSocketClient client = connect(token, dispatcherOutbound);
-						deviceClientMap.get(tenant).put(dispatcherOutbound.getConnectorClient().getConnectorIdentifier(),
-								client);
+					if (isSharedNotificationConsumer(tenant)) {
+						connectSharedConsumer(tenant, deviceTokens);
+					} else {
+						for (DispatcherOutbound dispatcherOutbound : dispatcherOutboundMaps.get(tenant)
+								.values()) {
+							String tokenSeed = DEVICE_SUBSCRIBER
+									+ dispatcherOutbound.getConnectorClient().getConnectorIdentifier()
+									+ additionalSubscriptionIdTest;
+							String token = createToken(DEVICE_SUBSCRIPTION,
+									tokenSeed);
+							log.info("Tenant {} - Creating new Subscription for Device {} with ID {} for Connector {}",
+									tenant, deviceName,
+									mor.getId().getValue(), dispatcherOutbound.getConnectorClient().getConnectorName());
+							deviceTokens.put(dispatcherOutbound.getConnectorClient().getConnectorIdentifier(), token);
+							CustomWebSocketClient client = connect(token, dispatcherOutbound);
+							deviceClientMap.get(tenant).put(dispatcherOutbound.getConnectorClient().getConnectorIdentifier(),
+									client);
+						}
 					}
 				} catch (URISyntaxException e) {
 					log.error("Tenant {} - Error on connecting to Notification Service: {}", tenant,
@@ -449,6 +481,10 @@ public class C8YNotificationSubscriber {
 	}
 
 	public void unsubscribeDeviceSubscriber(String tenant) {
+		SharedDispatcherOutbound sharedDispatcherOutbound = sharedDispatcherOutbounds.remove(tenant);
+		if (sharedDispatcherOutbound != null) {
+			sharedDispatcherOutbound.close();
+		}
 		if (deviceTokenPerConnector.get(tenant) != null) {
 			for (String token : deviceTokenPerConnector.get(tenant).values()) {
 				tokenApi.unsubscribe(new Token(token));
@@ -518,7 +554,7 @@ public class C8YNotificationSubscriber {
 	public void addConnector(String tenant, String connectorIdentifier, DispatcherOutbound dispatcherOutbound) {
 		Map<String, DispatcherOutbound> dispatcherOutboundMap = getDispatcherOutboundMaps().get(tenant);
 		if (dispatcherOutboundMap == null) {
-			dispatcherOutboundMap = new HashMap<>();
+			dispatcherOutboundMap = new ConcurrentHashMap<>();
 			getDispatcherOutboundMaps().put(tenant, dispatcherOutboundMap);
 		}
 		Map<String, String> deviceTokens = deviceTokenPerConnector.get(tenant);
@@ -561,7 +597,15 @@ public class C8YNotificationSubscriber {
 		try {
 			String baseUrl = this.baseUrl.replace("http", "ws");
 			URI webSocketUrl = new URI(baseUrl + WEBSOCKET_PATH + token);
-			final CustomWebSocketClient client = new CustomWebSocketClient(webSocketUrl, callback, tenant);
+			ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+			int maxUnacked = serviceConfiguration != null && serviceConfiguration.notificationMaxUnacked != null
+					? serviceConfiguration.notificationMaxUnacked
+					: 0;
+			long ackLinger = serviceConfiguration != null && serviceConfiguration.notificationAckLinger != null
+					? serviceConfiguration.notificationAckLinger
+					: 0;
+			final CustomWebSocketClient client = new CustomWebSocketClient(webSocketUrl, callback, tenant,
+					maxUnacked, ackLinger);
 			client.setConnectionLostTimeout(30);
 			client.connect();
 			configurationRegistry.getC8yAgent().sendNotificationLifecycle(tenant, ConnectorStatus.CONNECTING, null);
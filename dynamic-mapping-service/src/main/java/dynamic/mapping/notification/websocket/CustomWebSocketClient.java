@@ -23,10 +23,16 @@ package dynamic.mapping.notification.websocket;
 
 import lombok.extern.slf4j.Slf4j;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.Framedata;
 import org.java_websocket.handshake.ServerHandshake;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -36,11 +42,31 @@ public class CustomWebSocketClient extends WebSocketClient {
     private final NotificationCallback callback;
     private ScheduledExecutorService executorService = null;
     private String tenant;
+    // maximum number of processed but unacknowledged notifications, 0 acknowledges
+    // notifications when they are received
+    private final int maxUnacked;
+    private final long ackLingerMillis;
+    // created per connection, acknowledgements of a closed connection are not sent
+    private volatile NotificationAcknowledger acknowledger = null;
+    // notifications waiting for processing, they are handed over to a virtual
+    // thread so that the reader thread, which also answers pings and close
+    // frames, never blocks. The queue is unbounded, as every notification must be
+    // processed and acknowledged, the notification service stops delivering when
+    // too many notifications are unacknowledged
+    private volatile BlockingQueue<Notification> received = null;
+    private volatile Thread dispatcher = null;
 
     public CustomWebSocketClient(URI serverUri, NotificationCallback callback, String tenant) {
+        this(serverUri, callback, tenant, 0, 0);
+    }
+
+    public CustomWebSocketClient(URI serverUri, NotificationCallback callback, String tenant, int maxUnacked,
+            long ackLingerMillis) {
         super(serverUri);
         this.callback = callback;
         this.tenant = tenant;
+        this.maxUnacked = maxUnacked;
+        this.ackLingerMillis = Math.max(1, ackLingerMillis);
     }
 
     @Override
@@ -49,17 +75,82 @@ public class CustomWebSocketClient extends WebSocketClient {
         this.callback.onOpen(this.uri);
         //send(ByteBuffer.allocate(0));
         executorService.scheduleAtFixedRate(this::sendPing, 1, 1, TimeUnit.MINUTES);
+        if (maxUnacked > 0) {
+            NotificationAcknowledger acknowledger = new NotificationAcknowledger(maxUnacked, this::sendAcks);
+            BlockingQueue<Notification> received = new LinkedBlockingQueue<>();
+            this.acknowledger = acknowledger;
+            this.received = received;
+            this.dispatcher = Thread.ofVirtual().name("notification-dispatcher-" + tenant)
+                    .start(() -> dispatch(acknowledger, received));
+            executorService.scheduleAtFixedRate(() -> flushAcks(acknowledger), ackLingerMillis, ackLingerMillis,
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     public void onMessage(String message) {
         Notification notification = Notification.parse(message);
-        this.callback.onNotification(notification);
-        if (notification.getAckHeader() != null) {
-            send(notification.getAckHeader()); // ack message
-        } else {
+        NotificationAcknowledger acknowledger = this.acknowledger;
+        if (acknowledger == null) {
+            this.callback.onNotification(notification);
+            if (notification.getAckHeader() != null) {
+                send(notification.getAckHeader()); // ack message
+            } else {
+                throw new RuntimeException("No message id found for ack");
+            }
+            return;
+        }
+        if (notification.getAckHeader() == null) {
             throw new RuntimeException("No message id found for ack");
         }
+        BlockingQueue<Notification> received = this.received;
+        if (received == null) {
+            // the connection is closed, the notification is not acknowledged and
+            // redelivered after the reconnect
+            log.debug("Tenant {} - Notification received after close, notification is redelivered after reconnect",
+                    tenant);
+            return;
+        }
+        received.add(notification);
+    }
+
+    // processes the received notifications while at most maxUnacked notifications
+    // are unacknowledged, waiting here slows down the notification service when
+    // the brokers are slow
+    private void dispatch(NotificationAcknowledger acknowledger, BlockingQueue<Notification> received) {
+        while (!Thread.currentThread().isInterrupted()) {
+            Notification notification;
+            try {
+                notification = received.take();
+                acknowledger.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                this.callback.onNotificationDeferred(notification)
+                        .whenComplete((result, error) -> acknowledger.complete(notification.getAckHeader()));
+            } catch (RuntimeException e) {
+                acknowledger.release();
+                log.error("Tenant {} - Error processing notification: ", tenant, e);
+            }
+        }
+    }
+
+    // the acknowledgements are written with one call to the socket
+    private void sendAcks(List<String> acks) {
+        List<Framedata> frames = new ArrayList<>();
+        for (String ack : acks) {
+            frames.addAll(getDraft().createFrames(ack, true));
+        }
+        sendFrame(frames);
+    }
+
+    private void flushAcks(NotificationAcknowledger acknowledger) {
+        try {
+            acknowledger.flush();
+        } catch (Exception e) {
+            log.warn("Tenant {} - Failed to acknowledge notifications: {}", tenant, e.getMessage());
+        }
     }
 
     @Override
@@ -67,6 +158,10 @@ public class CustomWebSocketClient extends WebSocketClient {
         log.info("Tenant {} - WebSocket closed {} statusCode: {}, reason: {}", tenant, remote ? "by server." : "", statusCode, reason);
         if (this.executorService != null)
             this.executorService.shutdownNow();
+        this.acknowledger = null;
+        this.received = null;
+        if (this.dispatcher != null)
+            this.dispatcher.interrupt();
         this.callback.onClose(statusCode, reason);
     }
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.notification.websocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+
+/**
+ * Acknowledges notifications after they were processed instead of when they
+ * were received.
+ * At most <code>maxUnacked</code> notifications are processed but not yet
+ * acknowledged, the consumer waits in <code>acquire</code> until further
+ * notifications are acknowledged. Processed notifications are collected and
+ * their acknowledgements are sent together with <code>flush</code>, which is
+ * called periodically.
+ */
+public class NotificationAcknowledger {
+
+    @Getter
+    private final int maxUnacked;
+
+    private final Semaphore unacked;
+
+    // sends the ack headers of the processed notifications
+    private final Consumer<List<String>> sender;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // guarded by lock
+    private List<String> processed = new ArrayList<>();
+
+    public NotificationAcknowledger(int maxUnacked, Consumer<List<String>> sender) {
+        this.maxUnacked = maxUnacked;
+        this.unacked = new Semaphore(maxUnacked);
+        this.sender = sender;
+    }
+
+    /**
+     * Wait until a further notification can be processed without exceeding
+     * <code>maxUnacked</code>.
+     */
+    public void acquire() throws InterruptedException {
+        unacked.acquire();
+    }
+
+    /**
+     * Give back the capacity of a notification that is not acknowledged, e.g.
+     * because it could not be processed.
+     */
+    public void release() {
+        unacked.release();
+    }
+
+    /**
+     * Mark a notification as processed, it is acknowledged with the next flush.
+     */
+    public void complete(String ackHeader) {
+        lock.lock();
+        try {
+            processed.add(ackHeader);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Method to send the acknowledgements of all processed notifications
+    public void flush() {
+        List<String> acks;
+        lock.lock();
+        try {
+            if (processed.isEmpty()) {
+                return;
+            }
+            acks = processed;
+            processed = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            sender.accept(acks);
+        } finally {
+            // unacknowledged notifications are redelivered after a reconnect, so the
+            // capacity is given back even when sending failed
+            unacked.release(acks.size());
+        }
+    }
+
+    public int getUnacked() {
+        return maxUnacked - unacked.availablePermits();
+    }
+}
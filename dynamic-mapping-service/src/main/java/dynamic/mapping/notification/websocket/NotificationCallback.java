@@ -22,6 +22,7 @@
 package dynamic.mapping.notification.websocket;
 
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implement this interface to handle notifications.
@@ -40,6 +41,16 @@ public interface NotificationCallback {
      */
     void onNotification(Notification notification);
 
+    /**
+     * Called on receiving a notification when acknowledgements are deferred. The notification is acknowledged when the returned future completed, e.g. when the resulting messages were published.
+     * @param notification the notification received.
+     * @return future that completes when the notification was processed.
+     */
+    default CompletableFuture<?> onNotificationDeferred(Notification notification) {
+        onNotification(notification);
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Called on receiving an exception from the WebSocket connection. This may be whilst actively connected or during connection/disconnection.
      * @param t the exception thrown from the connection.
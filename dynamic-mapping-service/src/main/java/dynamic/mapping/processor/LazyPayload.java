@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.processor;
+
+import static dynamic.mapping.model.MappingSubstitution.toPrettyJsonString;
+
+/**
+ * Wraps a payload passed as argument to a log statement. The payload is only
+ * rendered as pretty printed JSON when the log statement is written, i.e. when
+ * the logger calls <code>toString()</code>. The rendered payload is kept, so
+ * that it is rendered at most once for several log statements.
+ */
+public final class LazyPayload {
+
+    private final Object payload;
+
+    private String rendered;
+
+    private LazyPayload(Object payload) {
+        this.payload = payload;
+    }
+
+    public static LazyPayload of(Object payload) {
+        return new LazyPayload(payload);
+    }
+
+    @Override
+    public String toString() {
+        if (rendered == null) {
+            rendered = String.valueOf(toPrettyJsonString(payload));
+        }
+        return rendered;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.processor;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+
+import dynamic.mapping.configuration.ServiceConfiguration;
+import dynamic.mapping.model.Mapping;
+
+/**
+ * Logging of single messages on the processing path.
+ * Payloads are only logged for mappings in debug mode and, when
+ * <code>logPayload</code> is enabled, for every n-th message of a mapping, as
+ * defined by <code>logPayloadSampleRate</code> of the mapping or else of the
+ * service configuration. Other statements about single
+ * messages are logged at debug level. Instead an info summary of the counted
+ * messages is written at most once per <code>logSummaryInterval</code>.
+ */
+public class MessageLogger {
+
+    private final Logger log;
+
+    private final String tenant;
+
+    private final String name;
+
+    private final long summaryIntervalNanos;
+
+    // structure: <mappingIdentifier, messages of the mapping>
+    private final Map<String, AtomicLong> sampleCounters = new ConcurrentHashMap<>();
+
+    // structure: <category, messages since the last summary>
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastSummary;
+
+    public MessageLogger(Logger log, String tenant, String name, int summaryIntervalSeconds) {
+        this.log = log;
+        this.tenant = tenant;
+        this.name = name;
+        this.summaryIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(0, summaryIntervalSeconds));
+        this.lastSummary = new AtomicLong(System.nanoTime());
+    }
+
+    public MessageLogger(Logger log, String tenant, String name, ServiceConfiguration serviceConfiguration) {
+        this(log, tenant, name, serviceConfiguration == null || serviceConfiguration.logSummaryInterval == null ? 60
+                : serviceConfiguration.logSummaryInterval);
+    }
+
+    /**
+     * Decides if the payload of a message processed with a mapping is logged.
+     * Call once per message and mapping, the decision is kept in the
+     * <code>ProcessingContext</code>.
+     */
+    public boolean samplePayload(ServiceConfiguration serviceConfiguration, Mapping mapping) {
+        if (mapping.debug) {
+            return true;
+        }
+        if (serviceConfiguration == null || !serviceConfiguration.logPayload) {
+            return false;
+        }
+        Integer configuredRate = mapping.logPayloadSampleRate != null ? mapping.logPayloadSampleRate
+                : serviceConfiguration.logPayloadSampleRate;
+        int sampleRate = configuredRate == null ? 1 : configuredRate;
+        if (sampleRate <= 1) {
+            return true;
+        }
+        return sampleCounters.computeIfAbsent(mapping.identifier, identifier -> new AtomicLong())
+                .getAndIncrement() % sampleRate == 0;
+    }
+
+    /**
+     * Count a message for the summary, e.g. per mapping or API. The summary is
+     * written by the first message after the interval passed.
+     */
+    public void count(String category) {
+        if (summaryIntervalNanos == 0) {
+            return;
+        }
+        counts.computeIfAbsent(category, c -> new LongAdder()).increment();
+        long now = System.nanoTime();
+        long last = lastSummary.get();
+        if (now - last >= summaryIntervalNanos && lastSummary.compareAndSet(last, now)) {
+            logSummary(now - last);
+        }
+    }
+
+    private void logSummary(long elapsedNanos) {
+        Map<String, Long> summary = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                summary.put(entry.getKey(), count);
+                total += count;
+            }
+        }
+        log.info("Tenant {} - {}: {} messages in the last {} s: {}", tenant, name, total,
+                TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), summary);
+    }
+}
@@ -21,16 +21,12 @@
 
 package dynamic.mapping.processor.inbound;
 
-import static dynamic.mapping.model.MappingSubstitution.substituteValueInPayload;
-
 import com.cumulocity.model.ID;
-import com.cumulocity.rest.representation.AbstractExtensibleRepresentation;
 import com.cumulocity.rest.representation.identity.ExternalIDRepresentation;
 import com.cumulocity.rest.representation.inventory.ManagedObjectRepresentation;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.DocumentContext;
-import com.jayway.jsonpath.JsonPath;
 
 import dynamic.mapping.model.Mapping;
 import dynamic.mapping.model.MappingSubstitution;
@@ -40,12 +36,14 @@ import lombok.extern.slf4j.Slf4j;
 import dynamic.mapping.connector.core.callback.ConnectorMessage;
 import dynamic.mapping.core.C8YAgent;
 import dynamic.mapping.core.ConfigurationRegistry;
+import dynamic.mapping.core.MappingComponent;
 import dynamic.mapping.model.API;
 import dynamic.mapping.model.MappingRepresentation;
 import dynamic.mapping.processor.ProcessingException;
 import dynamic.mapping.processor.model.C8YRequest;
 import dynamic.mapping.processor.model.ProcessingContext;
 import dynamic.mapping.processor.model.RepairStrategy;
+import dynamic.mapping.processor.model.TargetTemplate;
 
 import org.springframework.web.bind.annotation.RequestMethod;
 
@@ -53,9 +51,13 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Slf4j
 public abstract class BaseProcessorInbound<T> {
@@ -64,10 +66,13 @@ public abstract class BaseProcessorInbound<T> {
         this.objectMapper = configurationRegistry.getObjectMapper();
         this.c8yAgent = configurationRegistry.getC8yAgent();
         this.virtThreadPool = configurationRegistry.getVirtThreadPool();
+        this.mappingComponent = configurationRegistry.getMappingComponent();
     }
 
     protected C8YAgent c8yAgent;
 
+    protected MappingComponent mappingComponent;
+
     protected ObjectMapper objectMapper;
 
     protected ExecutorService virtThreadPool;
@@ -133,49 +138,44 @@ public abstract class BaseProcessorInbound<T> {
         Mapping mapping = context.getMapping();
         String tenant = context.getTenant();
         List<MappingSubstitution.SubstituteValue> deviceEntries = context.getDeviceEntries();
-        // if devices have to be created implicitly, then request have to b process in
-        // sequence, other multiple threads will try to create a device with the same
-        // externalId
-        if (mapping.createNonExistingDevice) {
-            for (int i = 0; i < deviceEntries.size(); i++) {
-                // for (MappingSubstitution.SubstituteValue device : deviceEntries) {
-                getBuildProcessingContext(context, deviceEntries.get(i),
-                        i, deviceEntries.size());
-            }
-            log.info("Tenant {} - Context is completed, sequentially processed, createNonExistingDevice: {} !", tenant,
-                    mapping.createNonExistingDevice);
-        } else {
-            List<Future<ProcessingContext<T>>> contextFutureList = new ArrayList<>();
-            for (int i = 0; i < deviceEntries.size(); i++) {
-                // for (MappingSubstitution.SubstituteValue device : deviceEntries) {
-                int finalI = i;
-                contextFutureList.add(virtThreadPool.submit(() -> {
-                    return getBuildProcessingContext(context, deviceEntries.get(finalI),
-                            finalI, deviceEntries.size());
-                }));
-            }
-            int j = 0;
-            for (Future<ProcessingContext<T>> currentContext : contextFutureList) {
-                try {
-                    log.debug("Tenant {} - Waiting context is completed {}...", tenant, j);
-                    currentContext.get(60, TimeUnit.SECONDS);
-                    j++;
-                } catch (Exception e) {
-                    log.error("Tenant {} - Error waiting for result of Processing context", tenant, e);
-                }
+        // devices created implicitly are created only once, concurrent creations of a
+        // device with the same externalId share one request in C8YAgent
+        // the requests to Cumulocity are pipelined, the payload of the next device is
+        // built while the requests of previous devices are in progress
+        List<Future<ProcessingContext<T>>> contextFutureList = new ArrayList<>();
+        for (int i = 0; i < deviceEntries.size(); i++) {
+            // for (MappingSubstitution.SubstituteValue device : deviceEntries) {
+            int finalI = i;
+            contextFutureList.add(CompletableFuture.supplyAsync(() -> {
+                return getBuildProcessingContext(context, deviceEntries.get(finalI),
+                        finalI, deviceEntries.size());
+            }, virtThreadPool).thenCompose(Function.identity()));
+        }
+        int j = 0;
+        for (Future<ProcessingContext<T>> currentContext : contextFutureList) {
+            try {
+                log.debug("Tenant {} - Waiting context is completed {}...", tenant, j);
+                currentContext.get(60, TimeUnit.SECONDS);
+                j++;
+            } catch (Exception e) {
+                log.error("Tenant {} - Error waiting for result of Processing context", tenant, e);
             }
-            log.info("Tenant {} - Context is completed, {} parallel requests processed!", tenant, j);
         }
+        log.debug("Tenant {} - Context is completed, {} parallel requests processed, createNonExistingDevice: {} !",
+                tenant, j, mapping.createNonExistingDevice);
     }
 
-    private ProcessingContext<T> getBuildProcessingContext(ProcessingContext<T> context,
+    // returns a stage that completes when the request for the device is completed
+    private CompletionStage<ProcessingContext<T>> getBuildProcessingContext(ProcessingContext<T> context,
             MappingSubstitution.SubstituteValue device, int finalI,
             int size) {
         Set<String> pathTargets = context.getPathTargets();
         Mapping mapping = context.getMapping();
         String tenant = context.getTenant();
         int predecessor = -1;
-        DocumentContext payloadTarget = JsonPath.parse(mapping.targetTemplate);
+        CompletionStage<ProcessingContext<T>> result = CompletableFuture.completedFuture(context);
+        TargetTemplate targetTemplate = mappingComponent.getTargetTemplate(tenant, mapping);
+        DocumentContext payloadTarget = targetTemplate.newDocument();
         for (String pathTarget : pathTargets) {
             MappingSubstitution.SubstituteValue substitute = new MappingSubstitution.SubstituteValue(
                     "NOT_DEFINED", TYPE.TEXTUAL,
@@ -203,49 +203,63 @@ public abstract class BaseProcessorInbound<T> {
              * step 4 resolve externalIds to c8ySourceIds and create attroc devices
              */
             // check if the targetPath == externalId and we need to resolve an external id
-            prepareAndSubstituteInPayload(context, payloadTarget, pathTarget, substitute);
+            prepareAndSubstituteInPayload(context, targetTemplate, payloadTarget, pathTarget, substitute);
         }
         /*
          * step 5 prepare target payload for sending to c8y
          */
         if (mapping.targetAPI.equals(API.INVENTORY)) {
-            var newPredecessor = context.addRequest(
-                    new C8YRequest(predecessor,
-                            context.getMapping().updateExistingDevice ? RequestMethod.POST : RequestMethod.PATCH,
-                            device.value.toString(),
-                            mapping.externalIdType,
-                            payloadTarget.jsonString(),
-                            null, API.INVENTORY, null));
+            C8YRequest request = new C8YRequest(predecessor,
+                    context.getMapping().updateExistingDevice ? RequestMethod.POST : RequestMethod.PATCH,
+                    device.value.toString(),
+                    mapping.externalIdType,
+                    null,
+                    null, API.INVENTORY, null);
+            // the string form of the payload is only rendered when needed, e.g. for testing
+            request.setPayload(payloadTarget.json());
+            var newPredecessor = context.addRequest(request);
             try {
                 ID identity = new ID(mapping.externalIdType, device.value.toString());
-                ExternalIDRepresentation sourceId = c8yAgent.resolveExternalId2GlobalId(tenant,
-                        identity, context);
-                context.setSourceId(sourceId.getManagedObject().getId().getValue());
-                ManagedObjectRepresentation attocDevice = c8yAgent.upsertDevice(tenant,
+                ExternalIDRepresentation resolvedSourceId = c8yAgent.resolveExternalId2GlobalId(tenant,
                         identity, context);
-                var response = objectMapper.writeValueAsString(attocDevice);
-                context.getCurrentRequest().setResponse(response);
-                context.getCurrentRequest().setSourceId(attocDevice.getId().getValue());
+                // the sourceId of the context is shared by all devices, the upsert uses the
+                // sourceId of this device
+                String sourceId = resolvedSourceId == null ? null
+                        : resolvedSourceId.getManagedObject().getId().getValue();
+                context.setSourceId(sourceId);
+                result = c8yAgent.upsertDeviceAsync(tenant, identity, context, request, sourceId)
+                        .thenApply(attocDevice -> {
+                            try {
+                                request.setResponse(objectMapper.writeValueAsString(attocDevice));
+                            } catch (JsonProcessingException e) {
+                                request.setError(e);
+                            }
+                            request.setSourceId(attocDevice.getId().getValue());
+                            return context;
+                        })
+                        .exceptionally(e -> completeWithError(context, request, e));
             } catch (Exception e) {
-                context.getCurrentRequest().setError(e);
+                request.setError(e);
             }
             predecessor = newPredecessor;
         } else if (!mapping.targetAPI.equals(API.INVENTORY)) {
-            AbstractExtensibleRepresentation attocRequest = null;
-            var newPredecessor = context.addRequest(
-                    new C8YRequest(predecessor, RequestMethod.POST, device.value.toString(),
-                            mapping.externalIdType,
-                            payloadTarget.jsonString(),
-                            null, mapping.targetAPI, null));
-            try {
-                if (context.isSendPayload()) {
-                    c8yAgent.createMEAO(context);
-                    String response = objectMapper.writeValueAsString(attocRequest);
-                    context.getCurrentRequest().setResponse(response);
-                }
-
-            } catch (Exception e) {
-                context.getCurrentRequest().setError(e);
+            C8YRequest request = new C8YRequest(predecessor, RequestMethod.POST, device.value.toString(),
+                    mapping.externalIdType,
+                    null,
+                    null, mapping.targetAPI, null);
+            request.setPayload(payloadTarget.json());
+            var newPredecessor = context.addRequest(request);
+            if (context.isSendPayload()) {
+                result = c8yAgent.createMEAOAsync(context, request)
+                        .thenApply(attocRequest -> {
+                            try {
+                                request.setResponse(objectMapper.writeValueAsString(attocRequest));
+                            } catch (JsonProcessingException e) {
+                                request.setError(e);
+                            }
+                            return context;
+                        })
+                        .exceptionally(e -> completeWithError(context, request, e));
             }
             predecessor = newPredecessor;
         } else {
@@ -255,11 +269,18 @@ public abstract class BaseProcessorInbound<T> {
         log.debug("Tenant {} - Added payload for sending: {}, {}, numberDevices: {}", tenant, payloadTarget,
                 mapping.targetAPI,
                 size);
+        return result;
+    }
+
+    private ProcessingContext<T> completeWithError(ProcessingContext<T> context, C8YRequest request,
+            Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        request.setError(cause instanceof Exception exception ? exception : new CompletionException(cause));
         return context;
     }
 
-    private void prepareAndSubstituteInPayload(ProcessingContext<T> context, DocumentContext payloadTarget,
-            String pathTarget, MappingSubstitution.SubstituteValue substitute) {
+    private void prepareAndSubstituteInPayload(ProcessingContext<T> context, TargetTemplate targetTemplate,
+            DocumentContext payloadTarget, String pathTarget, MappingSubstitution.SubstituteValue substitute) {
         Mapping mapping = context.getMapping();
         String tenant = context.getTenant();
         if ((Mapping.IDENTITY + ".externalId").equals(pathTarget)) {
@@ -275,7 +296,7 @@ public abstract class BaseProcessorInbound<T> {
                 } else {
                     sourceId.value = resolvedSourceId.getManagedObject().getId().getValue();
                 }
-                substituteValueInPayload(sourceId, payloadTarget, mapping.transformGenericPath2C8YPath(pathTarget));
+                targetTemplate.substitute(sourceId, payloadTarget, mapping.transformGenericPath2C8YPath(pathTarget));
                 context.setSourceId(sourceId.value.toString());
                 substitute.repairStrategy = RepairStrategy.CREATE_IF_MISSING;
             }
@@ -283,11 +304,11 @@ public abstract class BaseProcessorInbound<T> {
             MappingSubstitution.SubstituteValue sourceId = new MappingSubstitution.SubstituteValue(substitute.value,
                     TYPE.TEXTUAL, RepairStrategy.CREATE_IF_MISSING);
             // in this case the device needs to exists beforehand
-            substituteValueInPayload(sourceId, payloadTarget, mapping.transformGenericPath2C8YPath(pathTarget));
+            targetTemplate.substitute(sourceId, payloadTarget, mapping.transformGenericPath2C8YPath(pathTarget));
             context.setSourceId(sourceId.value.toString());
             substitute.repairStrategy = RepairStrategy.CREATE_IF_MISSING;
         } else {
-            substituteValueInPayload(substitute, payloadTarget, pathTarget);
+            targetTemplate.substitute(substitute, payloadTarget, pathTarget);
         }
     }
 
@@ -298,21 +319,26 @@ public abstract class BaseProcessorInbound<T> {
         request.put(MappingRepresentation.MAPPING_GENERATED_TEST_DEVICE, null);
         request.put("c8y_IsDevice", null);
         request.put("com_cumulocity_model_Agent", null);
+        C8YRequest deviceRequest = null;
         try {
             var predecessor = context.getRequests().size();
             var requestString = objectMapper.writeValueAsString(request);
-            context.addRequest(
-                    new C8YRequest(predecessor,
-                            context.getMapping().updateExistingDevice ? RequestMethod.POST : RequestMethod.PATCH, null,
-                            context.getMapping().externalIdType, requestString, null, API.INVENTORY, null));
+            deviceRequest = new C8YRequest(predecessor,
+                    context.getMapping().updateExistingDevice ? RequestMethod.POST : RequestMethod.PATCH, null,
+                    context.getMapping().externalIdType, requestString, null, API.INVENTORY, null);
+            context.addRequest(deviceRequest);
             ManagedObjectRepresentation attocDevice = c8yAgent.upsertDevice(context.getTenant(),
-                    identity, context);
+                    identity, context, deviceRequest, null);
             var response = objectMapper.writeValueAsString(attocDevice);
-            context.getCurrentRequest().setResponse(response);
-            context.getCurrentRequest().setSourceId(attocDevice.getId().getValue());
+            deviceRequest.setResponse(response);
+            deviceRequest.setSourceId(attocDevice.getId().getValue());
             return attocDevice.getId().getValue();
         } catch (ProcessingException | JsonProcessingException e) {
-            context.getCurrentRequest().setError(e);
+            if (deviceRequest != null) {
+                deviceRequest.setError(e);
+            } else {
+                context.getCurrentRequest().setError(e);
+            }
         }
         return null;
     }
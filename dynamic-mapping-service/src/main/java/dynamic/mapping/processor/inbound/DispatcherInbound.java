@@ -21,9 +21,11 @@
 
 package dynamic.mapping.processor.inbound;
 
+import com.dashjoin.jsonata.json.Json;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.MappingSubstitution;
 import dynamic.mapping.model.MappingStatus;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
@@ -35,18 +37,25 @@ import dynamic.mapping.connector.core.callback.GenericMessageCallback;
 import dynamic.mapping.connector.core.client.AConnectorClient;
 import dynamic.mapping.core.C8YAgent;
 import dynamic.mapping.core.ConfigurationRegistry;
+import dynamic.mapping.core.KeyedOrderedExecutor;
 import dynamic.mapping.core.MappingComponent;
+import dynamic.mapping.core.ProcessingMetrics.ConnectorMeters;
 import dynamic.mapping.model.SnoopStatus;
+import dynamic.mapping.processor.MessageLogger;
 import dynamic.mapping.processor.model.C8YRequest;
 import dynamic.mapping.processor.model.MappingType;
+import dynamic.mapping.processor.model.OrderingKey;
 import dynamic.mapping.processor.model.ProcessingContext;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * AsynchronousDispatcherInbound
@@ -82,12 +91,33 @@ public class DispatcherInbound implements GenericMessageCallback {
 
     private Counter inboundMessageCounter;
 
+    private InboundAdmissionControl admissionControl;
+
+    // null if messages are processed without ordering
+    private KeyedOrderedExecutor orderedExecutor;
+
+    private OrderingKey orderingKey;
+
+    private MessageLogger messageLogger;
+
     public DispatcherInbound(ConfigurationRegistry configurationRegistry,
             AConnectorClient connectorClient) {
         this.connectorClient = connectorClient;
         this.virtThreadPool = configurationRegistry.getVirtThreadPool();
         this.mappingComponent = configurationRegistry.getMappingComponent();
         this.configurationRegistry = configurationRegistry;
+        ServiceConfiguration serviceConfiguration = connectorClient.getServiceConfiguration();
+        this.orderingKey = serviceConfiguration.processingOrderingKey == null ? OrderingKey.NONE
+                : serviceConfiguration.processingOrderingKey;
+        this.orderedExecutor = orderingKey == OrderingKey.NONE ? null
+                : new KeyedOrderedExecutor(connectorClient.getTenant(), connectorClient.getConnectorIdentifier(),
+                        "inbound", virtThreadPool);
+        this.admissionControl = new InboundAdmissionControl(connectorClient.getTenant(),
+                connectorClient.getConnectorIdentifier(), virtThreadPool,
+                serviceConfiguration.inboundMaxInFlight, serviceConfiguration.inboundMaxQueuedBytes,
+                serviceConfiguration.inboundOverflowPolicy, orderedExecutor);
+        this.messageLogger = new MessageLogger(log, connectorClient.getTenant(),
+                "Inbound connector " + connectorClient.getConnectorIdentifier(), serviceConfiguration);
     }
 
     public static class MappingInboundTask<T> implements Callable<List<ProcessingContext<?>>> {
@@ -102,10 +132,12 @@ public class DispatcherInbound implements GenericMessageCallback {
         Counter inboundProcessingCounter;
         AConnectorClient connectorClient;
         ExecutorService virtThreadPool;
+        MessageLogger messageLogger;
 
         public MappingInboundTask(ConfigurationRegistry configurationRegistry, List<Mapping> resolvedMappings,
-                ConnectorMessage message, AConnectorClient connectorClient) {
+                ConnectorMessage message, AConnectorClient connectorClient, MessageLogger messageLogger) {
             this.connectorClient = connectorClient;
+            this.messageLogger = messageLogger;
             this.resolvedMappings = resolvedMappings;
             this.mappingComponent = configurationRegistry.getMappingComponent();
             this.c8yAgent = configurationRegistry.getC8yAgent();
@@ -114,13 +146,10 @@ public class DispatcherInbound implements GenericMessageCallback {
             this.connectorMessage = message;
             this.objectMapper = configurationRegistry.getObjectMapper();
             this.serviceConfiguration = configurationRegistry.getServiceConfigurations().get(message.getTenant());
-            this.inboundProcessingTimer = Timer.builder("dynmapper_inbound_processing_time")
-                    .tag("tenant", connectorMessage.getTenant())
-                    .tag("connector", connectorMessage.getConnectorIdentifier())
-                    .description("Processing time of inbound messages").register(Metrics.globalRegistry);
-            this.inboundProcessingCounter = Counter.builder("dynmapper_inbound_message_total")
-                    .tag("tenant", connectorMessage.getTenant()).description("Total number of inbound messages")
-                    .tag("connector", connectorMessage.getConnectorIdentifier()).register(Metrics.globalRegistry);
+            ConnectorMeters meters = configurationRegistry.getProcessingMetrics()
+                    .getConnectorMeters(message.getTenant(), message.getConnectorIdentifier());
+            this.inboundProcessingTimer = meters.getInboundProcessingTimer();
+            this.inboundProcessingCounter = meters.getInboundMessageCounter();
             this.virtThreadPool = configurationRegistry.getVirtThreadPool();
 
         }
@@ -145,31 +174,34 @@ public class DispatcherInbound implements GenericMessageCallback {
                     BaseProcessorInbound processor = payloadProcessorsInbound.get(mapping.mappingType);
                     try {
                         if (processor != null) {
+                            long processingStart = System.nanoTime();
                             inboundProcessingCounter.increment();
                             Object payload = processor.deserializePayload(mapping, connectorMessage);
                             ProcessingContext<?> context = ProcessingContext.builder().payload(payload).topic(topic)
                                     .mappingType(mapping.mappingType).mapping(mapping).sendPayload(sendPayload)
                                     .tenant(tenant).supportsMessageContext(connectorMessage.isSupportsMessageContext()
                                             && mapping.supportsMessageContext).key(connectorMessage.getKey()).serviceConfiguration(serviceConfiguration)
+                                    .logPayload(messageLogger.samplePayload(serviceConfiguration, mapping))
                                     .build();
-                            if (serviceConfiguration.logPayload || mapping.debug) {
+                            if (context.isLogPayload()) {
                                 log.info("Tenant {} - New message on topic: {}, on connector: {}, wrapped message: {}",
                                         tenant,
                                         context.getTopic(),
                                         connectorClient.getConnectorIdentifier(),
-                                        context.getPayload().toString());
+                                        context.getPayload());
                             } else {
-                                log.info("Tenant {} - New message on topic: {}, on connector: {}", tenant,
+                                log.debug("Tenant {} - New message on topic: {}, on connector: {}", tenant,
                                         context.getTopic(), connectorClient.getConnectorIdentifier());
                             }
-                            mappingStatus.messagesReceived++;
+                            messageLogger.count(mapping.identifier);
+                            mappingStatus.incrementMessagesReceived();
                             if (mapping.snoopStatus == SnoopStatus.ENABLED
                                     || mapping.snoopStatus == SnoopStatus.STARTED) {
                                 String serializedPayload = objectMapper.writeValueAsString(context.getPayload());
                                 if (serializedPayload != null) {
                                     mapping.addSnoopedTemplate(serializedPayload);
                                     mappingStatus.snoopedTemplatesTotal = mapping.snoopedTemplates.size();
-                                    mappingStatus.snoopedTemplatesActive++;
+                                    mappingStatus.incrementSnoopedTemplatesActive();
 
                                     log.debug("Tenant {} - Adding snoopedTemplate to map: {},{},{}", tenant,
                                             mapping.mappingTopic,
@@ -192,13 +224,15 @@ public class DispatcherInbound implements GenericMessageCallback {
                                     processor.substituteInTargetAndSend(context);
                                     List<C8YRequest> resultRequests = context.getRequests();
                                     if (context.hasError() || resultRequests.stream().anyMatch(r -> r.hasError())) {
-                                        mappingStatus.errors++;
+                                        mappingStatus.incrementErrors();
                                     }
                                 }
                             }
+                            mappingComponent.recordProcessingTime(tenant, mapping,
+                                    System.nanoTime() - processingStart);
                             processingResult.add(context);
                         } else {
-                            mappingStatusUnspecified.errors++;
+                            mappingStatusUnspecified.incrementErrors();
                             log.error("Tenant {} - No processor for MessageType: {} registered, ignoring this message!",
                                     tenant, mapping.mappingType);
                         }
@@ -206,7 +240,7 @@ public class DispatcherInbound implements GenericMessageCallback {
                         log.warn("Tenant {} - Message could NOT be parsed, ignoring this message: {}", tenant,
                                 e.getMessage());
                         log.debug("Tenant {} - Message Stacktrace: ", tenant, e);
-                        mappingStatus.errors++;
+                        mappingStatus.incrementErrors();
                     }
                 }
             });
@@ -216,12 +250,14 @@ public class DispatcherInbound implements GenericMessageCallback {
         }
     }
 
-    public Future<List<ProcessingContext<?>>> processMessage(ConnectorMessage message) {
+    @Override
+    public CompletableFuture<List<ProcessingContext<?>>> processMessage(ConnectorMessage message) {
         String topic = message.getTopic();
         String tenant = message.getTenant();
 
         MappingStatus mappingStatusUnspecified = mappingComponent.getMappingStatus(tenant, Mapping.UNSPECIFIED_MAPPING);
-        Future<List<ProcessingContext<?>>> futureProcessingResult = null;
+        CompletableFuture<List<ProcessingContext<?>>> futureProcessingResult = CompletableFuture
+                .completedFuture(new ArrayList<>());
         List<Mapping> resolvedMappings = new ArrayList<>();
 
         if (topic != null && !topic.startsWith("$SYS")) {
@@ -233,7 +269,7 @@ public class DispatcherInbound implements GenericMessageCallback {
                             "Tenant {} - Error resolving appropriate map for topic {}. Could NOT be parsed. Ignoring this message!",
                             tenant, topic);
                     log.debug(e.getMessage(), e);
-                    mappingStatusUnspecified.errors++;
+                    mappingStatusUnspecified.incrementErrors();
                 }
             } else {
                 return futureProcessingResult;
@@ -242,14 +278,77 @@ public class DispatcherInbound implements GenericMessageCallback {
             return futureProcessingResult;
         }
 
-        futureProcessingResult = virtThreadPool.submit(
-                new MappingInboundTask(configurationRegistry, resolvedMappings,
-                        message, connectorClient));
+        // admission control limits the number of messages in process and blocks, drops
+        // or rejects messages when the queue is full
+        futureProcessingResult = admissionControl.submit(
+                new MappingInboundTask<>(configurationRegistry, resolvedMappings,
+                        message, connectorClient, messageLogger),
+                message.getPayload().length, getOrderingKey(message, resolvedMappings));
+        futureProcessingResult.whenComplete((result, e) -> {
+            if (e instanceof RejectedExecutionException) {
+                mappingStatusUnspecified.incrementErrors();
+            }
+        });
 
         return futureProcessingResult;
 
     }
 
+    // messages with the same key are processed in the order they were received,
+    // null if the message can be processed independently
+    private Object getOrderingKey(ConnectorMessage message, List<Mapping> resolvedMappings) {
+        switch (orderingKey) {
+            case TOPIC:
+                return message.getTopic();
+            case MESSAGE_KEY:
+                return message.getKey() != null ? ByteBuffer.wrap(message.getKey()) : message.getTopic();
+            case DEVICE_ID:
+                Object deviceId = getDeviceId(message, resolvedMappings);
+                return deviceId != null ? deviceId : message.getTopic();
+            default:
+                return null;
+        }
+    }
+
+    // evaluate the substitution of the device identifier of the first resolved
+    // mapping that defines one, the payload has to be JSON. The parsed payload is
+    // passed on to the processor, so the payload is only parsed once
+    private Object getDeviceId(ConnectorMessage message, List<Mapping> resolvedMappings) {
+        for (Mapping mapping : resolvedMappings) {
+            if (mapping.substitutions == null) {
+                continue;
+            }
+            for (MappingSubstitution substitution : mapping.substitutions) {
+                if (mapping.definesDeviceIdentifier(substitution)) {
+                    try {
+                        Object payload = Json.parseJson(new String(message.getPayload(), StandardCharsets.UTF_8));
+                        message.setParsedPayload(payload);
+                        return mappingComponent.getCompiledExpression(message.getTenant(), mapping,
+                                substitution.pathSource).evaluate(payload);
+                    } catch (Exception e) {
+                        log.debug("Tenant {} - Could not evaluate device identifier for ordering: {}",
+                                message.getTenant(), e.getMessage());
+                        return null;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // Method to test if the admission control has no capacity for further messages
+    public boolean isSaturated() {
+        return admissionControl.isSaturated();
+    }
+
+    // Method to remove the meters of the dispatcher when the connector is closed
+    public void close() {
+        admissionControl.close();
+        if (orderedExecutor != null) {
+            orderedExecutor.close();
+        }
+    }
+
     @Override
     public void onClose(String closeMessage, Throwable closeException) {
     }
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.processor.inbound;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import dynamic.mapping.core.KeyedOrderedExecutor;
+import dynamic.mapping.processor.model.OverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded admission stage for inbound messages of one connector.
+ * At most <code>maxInFlight</code> tasks are processed concurrently, further
+ * messages are queued until <code>maxQueuedBytes</code> of payload are
+ * waiting. When the queue is full the <code>OverflowPolicy</code> decides if
+ * the connector callback is blocked, the oldest queued message is dropped or
+ * the new message is rejected.
+ * A value of 0 or less for <code>maxInFlight</code> disables the admission
+ * control and tasks are submitted directly.
+ * Tasks submitted with a key are started in the order they were admitted
+ * after the previous task with the same key completed, when a
+ * <code>KeyedOrderedExecutor</code> is given. A task only takes a processing
+ * slot when its turn has come, so one busy key cannot take all slots.
+ * The meters of the admission control are removed with {@link #close()}, when
+ * the connector is closed.
+ */
+@Slf4j
+public class InboundAdmissionControl {
+
+    private static class Admission<V> {
+        final Callable<V> task;
+        final int size;
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+        final Object key;
+        // completes when the previous task with the same key completed
+        CompletableFuture<Void> turn = null;
+
+        Admission(Callable<V> task, int size, Object key) {
+            this.task = task;
+            this.size = size;
+            this.key = key;
+        }
+    }
+
+    private static final double SATURATION_THRESHOLD = 0.9;
+
+    private final String tenant;
+
+    private final String connectorIdentifier;
+
+    private final ExecutorService virtThreadPool;
+
+    // null if tasks are processed without ordering
+    private final KeyedOrderedExecutor orderedExecutor;
+
+    @Getter
+    private final int maxInFlight;
+
+    @Getter
+    private final long maxQueuedBytes;
+
+    @Getter
+    private final OverflowPolicy overflowPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = lock.newCondition();
+
+    // guarded by lock, tasks waiting for a processing slot or for their turn in the
+    // order they were admitted
+    private final LinkedHashSet<Admission<?>> queue = new LinkedHashSet<>();
+
+    // guarded by lock, queued tasks that can be started, in the order their turn
+    // came
+    private final LinkedHashSet<Admission<?>> ready = new LinkedHashSet<>();
+
+    // guarded by lock
+    private int inFlight = 0;
+
+    // guarded by lock
+    private long queuedBytes = 0;
+
+    private final Timer waitTimer;
+
+    private final Counter droppedCounter;
+
+    private final Counter rejectedCounter;
+
+    private final List<Meter> meters = new ArrayList<>();
+
+    public InboundAdmissionControl(String tenant, String connectorIdentifier, ExecutorService virtThreadPool,
+            int maxInFlight, long maxQueuedBytes, OverflowPolicy overflowPolicy) {
+        this(tenant, connectorIdentifier, virtThreadPool, maxInFlight, maxQueuedBytes, overflowPolicy, null);
+    }
+
+    public InboundAdmissionControl(String tenant, String connectorIdentifier, ExecutorService virtThreadPool,
+            int maxInFlight, long maxQueuedBytes, OverflowPolicy overflowPolicy,
+            KeyedOrderedExecutor orderedExecutor) {
+        this.tenant = tenant;
+        this.connectorIdentifier = connectorIdentifier;
+        this.virtThreadPool = virtThreadPool;
+        this.orderedExecutor = orderedExecutor;
+        this.maxInFlight = maxInFlight;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.overflowPolicy = overflowPolicy == null ? OverflowPolicy.BLOCK : overflowPolicy;
+
+        Tags tags = Tags.of("tenant", tenant, "connector", connectorIdentifier);
+        meters.add(Gauge.builder("dynmapper_inbound_queue_depth", this, InboundAdmissionControl::getQueueDepth)
+                .description("Number of inbound messages waiting for processing")
+                .tags(tags).register(Metrics.globalRegistry));
+        meters.add(Gauge.builder("dynmapper_inbound_queue_bytes", this, InboundAdmissionControl::getQueuedBytes)
+                .description("Payload bytes of inbound messages waiting for processing")
+                .tags(tags).register(Metrics.globalRegistry));
+        meters.add(Gauge.builder("dynmapper_inbound_in_flight", this, InboundAdmissionControl::getInFlight)
+                .description("Number of inbound messages currently processed")
+                .tags(tags).register(Metrics.globalRegistry));
+        this.waitTimer = Timer.builder("dynmapper_inbound_queue_wait_time")
+                .description("Time inbound messages wait for admission")
+                .tags(tags).register(Metrics.globalRegistry);
+        this.droppedCounter = Counter.builder("dynmapper_inbound_rejected_total")
+                .description("Total number of inbound messages not admitted for processing")
+                .tags(tags).tag("reason", "dropped").register(Metrics.globalRegistry);
+        this.rejectedCounter = Counter.builder("dynmapper_inbound_rejected_total")
+                .description("Total number of inbound messages not admitted for processing")
+                .tags(tags).tag("reason", "rejected").register(Metrics.globalRegistry);
+        meters.add(waitTimer);
+        meters.add(droppedCounter);
+        meters.add(rejectedCounter);
+    }
+
+    /**
+     * Remove the meters from the registry, otherwise the gauges of the connector
+     * stay bound to this admission control after the connector was recreated.
+     */
+    public void close() {
+        meters.forEach(Metrics.globalRegistry::remove);
+    }
+
+    /**
+     * Submit a task for processing. Depending on the <code>OverflowPolicy</code>
+     * this method blocks until the task is admitted. A task that is dropped or
+     * rejected completes exceptionally with a
+     * <code>RejectedExecutionException</code>.
+     */
+    public <V> CompletableFuture<V> submit(Callable<V> task, int size) {
+        return submit(task, size, null);
+    }
+
+    /**
+     * Submit a task for processing after the previously admitted task with the
+     * same key. A <code>null</code> key starts the task without ordering.
+     */
+    public <V> CompletableFuture<V> submit(Callable<V> task, int size, Object key) {
+        Admission<V> admission = new Admission<>(task, size, key);
+        if (maxInFlight <= 0) {
+            reserve(admission);
+            if (admission.turn == null || admission.turn.isDone()) {
+                run(admission);
+            } else {
+                admission.turn.thenRun(() -> run(admission));
+            }
+            return admission.future;
+        }
+
+        boolean waitsForTurn = false;
+        List<Admission<?>> dropped = new ArrayList<>();
+        List<Admission<?>> started = List.of();
+        lock.lock();
+        try {
+            while (true) {
+                // accept at least one message in the queue, even when the payload is larger
+                // than maxQueuedBytes
+                if ((inFlight < maxInFlight && ready.isEmpty()) || queue.isEmpty()
+                        || queuedBytes + size <= maxQueuedBytes) {
+                    reserve(admission);
+                    queue.add(admission);
+                    queuedBytes += size;
+                    if (admission.turn == null || admission.turn.isDone()) {
+                        ready.add(admission);
+                        started = dispatch();
+                    } else {
+                        waitsForTurn = true;
+                    }
+                    break;
+                }
+                if (overflowPolicy == OverflowPolicy.BLOCK) {
+                    try {
+                        notFull.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        reject(admission, rejectedCounter, "interrupted while waiting for admission");
+                        return admission.future;
+                    }
+                } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                    Admission<?> oldest = queue.removeFirst();
+                    ready.remove(oldest);
+                    queuedBytes -= oldest.size;
+                    dropped.add(oldest);
+                } else {
+                    reject(admission, rejectedCounter, "inbound queue is full");
+                    return admission.future;
+                }
+            }
+        } finally {
+            lock.unlock();
+            dropped.forEach(d -> reject(d, droppedCounter, "dropped oldest message from full inbound queue"));
+        }
+        started.forEach(this::start);
+        if (waitsForTurn) {
+            // the task takes a processing slot when its turn has come, so tasks waiting
+            // behind a busy key do not hold slots needed by other keys
+            admission.turn.thenRun(() -> onTurn(admission));
+        }
+        return admission.future;
+    }
+
+    // tasks are appended to their lane in the order of admission, so that a task
+    // never waits for a task with the same key that was admitted after it
+    private void reserve(Admission<?> admission) {
+        if (orderedExecutor != null && admission.key != null) {
+            admission.turn = orderedExecutor.reserve(admission.key, admission.future);
+        }
+    }
+
+    // the previous task with the same key completed
+    private void onTurn(Admission<?> admission) {
+        List<Admission<?>> started = List.of();
+        lock.lock();
+        try {
+            // a dropped task is no longer queued
+            if (queue.contains(admission)) {
+                ready.add(admission);
+                started = dispatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+        started.forEach(this::start);
+    }
+
+    // take processing slots for the ready tasks in the order they became ready,
+    // lock must be held
+    private List<Admission<?>> dispatch() {
+        List<Admission<?>> started = new ArrayList<>();
+        while (inFlight < maxInFlight && !ready.isEmpty()) {
+            Admission<?> next = ready.removeFirst();
+            queue.remove(next);
+            queuedBytes -= next.size;
+            inFlight++;
+            started.add(next);
+        }
+        if (!started.isEmpty()) {
+            notFull.signalAll();
+        }
+        return started;
+    }
+
+    private void start(Admission<?> admission) {
+        waitTimer.record(System.nanoTime() - admission.enqueuedAt, TimeUnit.NANOSECONDS);
+        run(admission);
+    }
+
+    private <V> void run(Admission<V> admission) {
+        try {
+            virtThreadPool.submit(() -> {
+                try {
+                    admission.future.complete(admission.task.call());
+                } catch (Throwable e) {
+                    admission.future.completeExceptionally(e);
+                } finally {
+                    release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admission.future.completeExceptionally(e);
+            release();
+        }
+    }
+
+    private void release() {
+        if (maxInFlight <= 0) {
+            return;
+        }
+        List<Admission<?>> started;
+        lock.lock();
+        try {
+            inFlight--;
+            started = dispatch();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        started.forEach(this::start);
+    }
+
+    private void reject(Admission<?> admission, Counter counter, String reason) {
+        counter.increment();
+        log.warn("Tenant {} - Message not processed on connector {}: {}", tenant, connectorIdentifier, reason);
+        admission.future.completeExceptionally(new RejectedExecutionException(reason));
+    }
+
+    /**
+     * @return true if all processing slots are taken and the queue is filled to
+     *         more than 90% of <code>maxQueuedBytes</code>, i.e. further
+     *         messages are about to be blocked, dropped or rejected
+     */
+    public boolean isSaturated() {
+        if (maxInFlight <= 0) {
+            return false;
+        }
+        lock.lock();
+        try {
+            return inFlight >= maxInFlight && queuedBytes >= maxQueuedBytes * SATURATION_THRESHOLD;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getQueuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
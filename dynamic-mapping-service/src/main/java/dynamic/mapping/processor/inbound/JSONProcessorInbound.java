@@ -21,9 +21,7 @@
 
 package dynamic.mapping.processor.inbound;
 
-import static com.dashjoin.jsonata.Jsonata.jsonata;
 import static dynamic.mapping.model.MappingSubstitution.isArray;
-import static dynamic.mapping.model.MappingSubstitution.toPrettyJsonString;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -42,6 +40,7 @@ import dynamic.mapping.model.API;
 import dynamic.mapping.model.Mapping;
 import dynamic.mapping.model.MappingSubstitution;
 import dynamic.mapping.model.MappingSubstitution.SubstituteValue.TYPE;
+import dynamic.mapping.processor.LazyPayload;
 import dynamic.mapping.processor.ProcessingException;
 import dynamic.mapping.processor.model.ProcessingContext;
 import dynamic.mapping.processor.model.RepairStrategy;
@@ -57,7 +56,11 @@ public class JSONProcessorInbound extends BaseProcessorInbound<Object> {
     @Override
     public Object deserializePayload(
             Mapping mapping, ConnectorMessage message) throws IOException {
-        Object jsonObject = Json.parseJson(new String(message.getPayload(), "UTF-8"));
+        // the payload might already be parsed by the dispatcher
+        Object jsonObject = message.takeParsedPayload();
+        if (jsonObject == null) {
+            jsonObject = Json.parseJson(new String(message.getPayload(), "UTF-8"));
+        }
         return jsonObject;
     }
 
@@ -72,8 +75,8 @@ public class JSONProcessorInbound extends BaseProcessorInbound<Object> {
         Object payloadObject = context.getPayload();
         Map<String, List<MappingSubstitution.SubstituteValue>> processingCache = context.getProcessingCache();
 
-        String payload = toPrettyJsonString(payloadObject);
-        if (serviceConfiguration.logPayload || mapping.debug) {
+        LazyPayload payload = LazyPayload.of(payloadObject);
+        if (context.isLogPayload()) {
             log.debug("Tenant {} - Patched payload: {} {} {} {}", tenant, payload, serviceConfiguration.logPayload,
                     mapping.debug, serviceConfiguration.logPayload || mapping.debug);
         }
@@ -85,7 +88,7 @@ public class JSONProcessorInbound extends BaseProcessorInbound<Object> {
              * step 1 extract content from inbound payload
              */
             try {
-                var expr = jsonata(substitution.pathSource);
+                var expr = mappingComponent.getCompiledExpression(tenant, mapping, substitution.pathSource);
                 extractedSourceContent = expr.evaluate(payloadObject);
             } catch (Exception e) {
                 log.error("Tenant {} - Exception for: {}, {}: ", tenant, substitution.pathSource,
@@ -141,9 +144,9 @@ public class JSONProcessorInbound extends BaseProcessorInbound<Object> {
         String mappingFilter = context.getMapping().getFilterMapping();
         if (mappingFilter != null && !("").equals(mappingFilter)) {
             Object payloadObjectNode = context.getPayload();
-            String payload = toPrettyJsonString(payloadObjectNode);
+            LazyPayload payload = LazyPayload.of(payloadObjectNode);
             try {
-                var expr = jsonata(mappingFilter);
+                var expr = mappingComponent.getCompiledExpression(tenant, context.getMapping(), mappingFilter);
                 Object extractedSourceContent = expr.evaluate(payloadObjectNode);
                 context.setIgnoreFurtherProcessing(!isNodeTrue(extractedSourceContent));
             } catch (Exception e) {
@@ -21,28 +21,67 @@
 
 package dynamic.mapping.processor.model;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.jayway.jsonpath.JsonPath;
+
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import dynamic.mapping.model.API;
 import org.springframework.web.bind.annotation.RequestMethod;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class C8YRequest {
     private int predecessor = -1;;
     private RequestMethod method;
     private String sourceId;
     private String externalIdType;
+    @Setter(AccessLevel.NONE)
     private String request;
+    // target payload as parsed document, e.g. a map. When the payload is set,
+    // the string form in request is only rendered when it is read
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private Object payload;
     private String response;
     private API targetAPI;
     private Exception error;
     // this property documents if a C8Y request was already submitted and is created only for documentation/testing purpose.
     // this happens when a device is created implicitly with mapping.createNonExistingDevice == true
     // private boolean alreadySubmitted;
+
+    public C8YRequest(int predecessor, RequestMethod method, String sourceId, String externalIdType, String request,
+            String response, API targetAPI, Exception error) {
+        this.predecessor = predecessor;
+        this.method = method;
+        this.sourceId = sourceId;
+        this.externalIdType = externalIdType;
+        this.request = request;
+        this.response = response;
+        this.targetAPI = targetAPI;
+        this.error = error;
+    }
+
     public boolean hasError() {
         return error != null;
     }
+
+    public synchronized String getRequest() {
+        if (request == null && payload != null) {
+            request = JsonPath.parse(payload).jsonString();
+        }
+        return request;
+    }
+
+    public synchronized void setRequest(String request) {
+        this.request = request;
+        this.payload = null;
+    }
+
+    public synchronized void setPayload(Object payload) {
+        this.payload = payload;
+        this.request = null;
+    }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.processor.model;
+
+public enum OrderingKey {
+    NONE, // messages are processed independently of each other
+    TOPIC, // messages with the same topic are processed in the order they were received
+    MESSAGE_KEY, // messages with the same key, e.g. the Kafka record key, are processed in order, falls back to the topic
+    DEVICE_ID, // messages of the same device are processed in order, the device identifier is evaluated with the mapping
+}
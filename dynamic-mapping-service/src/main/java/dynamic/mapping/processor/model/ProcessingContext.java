@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import dynamic.mapping.configuration.ServiceConfiguration;
 import dynamic.mapping.model.Mapping;
@@ -71,6 +72,11 @@ public class ProcessingContext<O> {
     @Builder.Default
     private List<Exception> errors = new ArrayList<Exception>();
 
+    // publishes of requests that are completed asynchronously by the connector,
+    // e.g. when the broker acknowledged the message
+    @Builder.Default
+    private List<CompletableFuture<?>> pendingPublishes = new ArrayList<CompletableFuture<?>>();
+
     @Builder.Default
     private ProcessingType processingType = ProcessingType.UNDEFINED;
 
@@ -86,6 +92,11 @@ public class ProcessingContext<O> {
     @Builder.Default
     private boolean needsRepair = false;
 
+    // the payload of this message is logged, the message was sampled when it was
+    // received
+    @Builder.Default
+    private boolean logPayload = false;
+
     private String tenant;
 
     private ServiceConfiguration serviceConfiguration;
@@ -106,15 +117,27 @@ public class ProcessingContext<O> {
         return errors != null && errors.size() > 0;
     }
 
-    public int addRequest(C8YRequest c8yRequest) {
+    // requests of one context can be added concurrently, when several devices are
+    // processed in parallel
+    public synchronized int addRequest(C8YRequest c8yRequest) {
         requests.add(c8yRequest);
         return requests.size() - 1;
     }
 
-    public C8YRequest getCurrentRequest() {
+    public synchronized C8YRequest getCurrentRequest() {
         return requests.get(requests.size() - 1);
     }
 
+    public synchronized void addPendingPublish(CompletableFuture<?> publish) {
+        pendingPublishes.add(publish);
+    }
+
+    // completes when all asynchronous publishes of the context are completed,
+    // successfully or with an error
+    public synchronized CompletableFuture<Void> getPublishCompletion() {
+        return CompletableFuture.allOf(pendingPublishes.toArray(new CompletableFuture<?>[0]));
+    }
+
     public void addError(ProcessingException processingException) {
         errors.add(processingException);
     }
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.processor.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.MappingSubstitution;
+import lombok.Getter;
+
+/**
+ * Compiled form of the targetTemplate of a mapping.
+ * The targetTemplate is parsed once into a skeleton and every pathTarget of the
+ * substitutions is resolved into a slot. For every message only the skeleton is
+ * copied and the values are written into the slots, without parsing the
+ * template or the paths again.
+ * Simple dotted paths, e.g. <code>c8y_Temperature.T.value</code> are written
+ * directly into the nested maps, all other paths use a precompiled
+ * <code>JsonPath</code>.
+ * Instances are immutable apart from the lazily added slots for paths not
+ * defined in the substitutions, e.g. <code>time</code>, and can be shared
+ * between threads.
+ */
+public class TargetTemplate {
+
+    private static final Pattern SIMPLE_PATH = Pattern.compile("[^.\\[\\]'\"*?@()$\\s]+(\\.[^.\\[\\]'\"*?@()$\\s]+)*");
+
+    @Getter
+    private final String template;
+
+    private final Object skeleton;
+
+    // structure: < pathTarget , slot >
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    private TargetTemplate(String template, Object skeleton) {
+        this.template = template;
+        this.skeleton = skeleton;
+    }
+
+    public static TargetTemplate compile(Mapping mapping) {
+        Object skeleton = JsonPath.parse(mapping.targetTemplate).json();
+        TargetTemplate targetTemplate = new TargetTemplate(mapping.targetTemplate, skeleton);
+        if (mapping.substitutions != null) {
+            for (MappingSubstitution substitution : mapping.substitutions) {
+                if (substitution.pathTarget != null) {
+                    targetTemplate.getSlot(substitution.pathTarget);
+                    if (mapping.targetAPI != null) {
+                        targetTemplate.getSlot(mapping.transformGenericPath2C8YPath(substitution.pathTarget));
+                    }
+                }
+            }
+        }
+        return targetTemplate;
+    }
+
+    /**
+     * Create a new document for a target payload. The skeleton is copied, so the
+     * returned document can be modified without affecting other messages.
+     */
+    public DocumentContext newDocument() {
+        return JsonPath.parse(deepCopy(skeleton));
+    }
+
+    /**
+     * Write the substitute into the target payload, semantics are the same as in
+     * <code>MappingSubstitution.substituteValueInPayload</code>.
+     */
+    public void substitute(MappingSubstitution.SubstituteValue sub, DocumentContext payloadTarget,
+            String pathTarget) {
+        if (sub == null)
+            return;
+        getSlot(pathTarget).write(sub, payloadTarget);
+    }
+
+    private Slot getSlot(String pathTarget) {
+        return slots.computeIfAbsent(pathTarget, Slot::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object deepCopy(Object node) {
+        if (node instanceof Map) {
+            Map<String, Object> source = (Map<String, Object>) node;
+            Map<String, Object> copy = new LinkedHashMap<>(Math.max(4, source.size() * 2));
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                copy.put(entry.getKey(), deepCopy(entry.getValue()));
+            }
+            return copy;
+        } else if (node instanceof List) {
+            List<Object> source = (List<Object>) node;
+            List<Object> copy = new ArrayList<>(source.size());
+            for (Object element : source) {
+                copy.add(deepCopy(element));
+            }
+            return copy;
+        }
+        // strings, numbers, booleans and null are immutable
+        return node;
+    }
+
+    private static class Slot {
+        private final String path;
+        // keys of the nested objects, null when the path is not a simple path
+        private final String[] segments;
+        // precompiled path, used when the path is not a simple path
+        private final JsonPath compiledPath;
+
+        Slot(String path) {
+            this.path = path;
+            String relativePath = path.startsWith("$.") ? path.substring(2) : path;
+            if ("$".equals(path)) {
+                this.segments = new String[0];
+                this.compiledPath = null;
+            } else if (SIMPLE_PATH.matcher(relativePath).matches()) {
+                this.segments = relativePath.split("\\.");
+                this.compiledPath = null;
+            } else {
+                this.segments = null;
+                this.compiledPath = JsonPath.compile(path);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void write(MappingSubstitution.SubstituteValue sub, DocumentContext payloadTarget) {
+            Object root = payloadTarget.json();
+            if (segments == null || !(root instanceof Map)) {
+                writeJsonPath(sub, payloadTarget);
+                return;
+            }
+            Map<String, Object> rootObject = (Map<String, Object>) root;
+            if (segments.length == 0) {
+                // merge the properties of the substitute into the root object
+                if (sub.value instanceof Map<?, ?> map) {
+                    rootObject.putAll((Map<String, Object>) map);
+                }
+                return;
+            }
+            String leaf = segments[segments.length - 1];
+            if (sub.repairStrategy.equals(RepairStrategy.REMOVE_IF_MISSING_OR_NULL) && sub.value == null) {
+                getParent(rootObject, false).remove(leaf);
+            } else if (sub.repairStrategy.equals(RepairStrategy.CREATE_IF_MISSING)) {
+                // merged as in MappingSubstitution.addNestedValue, used for the other paths
+                getParent(rootObject, true).put(leaf, sub.value);
+            } else {
+                Map<String, Object> parent = getParent(rootObject, false);
+                // as in JsonPath.set() a missing leaf is not added
+                if (!parent.containsKey(leaf)) {
+                    throw new PathNotFoundException(String.format("Path: %s not found!", path));
+                }
+                parent.put(leaf, sub.value);
+            }
+        }
+
+        private void writeJsonPath(MappingSubstitution.SubstituteValue sub, DocumentContext payloadTarget) {
+            if (compiledPath == null) {
+                MappingSubstitution.substituteValueInPayload(sub, payloadTarget, path);
+                return;
+            }
+            try {
+                if (sub.repairStrategy.equals(RepairStrategy.REMOVE_IF_MISSING_OR_NULL) && sub.value == null) {
+                    payloadTarget.delete(compiledPath);
+                } else if (sub.repairStrategy.equals(RepairStrategy.CREATE_IF_MISSING)) {
+                    MappingSubstitution.addNestedValue(payloadTarget, path, sub.value);
+                } else {
+                    payloadTarget.set(compiledPath, sub.value);
+                }
+            } catch (PathNotFoundException e) {
+                throw new PathNotFoundException(String.format("Path: %s not found!", path));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> getParent(Map<String, Object> rootObject, boolean create) {
+            Map<String, Object> current = rootObject;
+            for (int i = 0; i < segments.length - 1; i++) {
+                Object child = current.get(segments[i]);
+                if (!(child instanceof Map)) {
+                    if (!create) {
+                        throw new PathNotFoundException(String.format("Path: %s not found!", path));
+                    }
+                    // create only missing parent objects, existing siblings are kept
+                    child = new HashMap<String, Object>();
+                    current.put(segments[i], child);
+                }
+                current = (Map<String, Object>) child;
+            }
+            return current;
+        }
+    }
+}
@@ -21,10 +21,6 @@
 
 package dynamic.mapping.processor.outbound;
 
-import static dynamic.mapping.model.MappingSubstitution.substituteValueInPayload;
-import static dynamic.mapping.model.MappingSubstitution.toPrettyJsonString;
-import static com.dashjoin.jsonata.Jsonata.jsonata;
-
 import java.io.IOException;
 import java.util.*;
 
@@ -34,21 +30,23 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import com.cumulocity.model.idtype.GId;
 import com.cumulocity.rest.representation.identity.ExternalIDRepresentation;
 import com.jayway.jsonpath.DocumentContext;
-import com.jayway.jsonpath.JsonPath;
 
 import dynamic.mapping.configuration.ServiceConfiguration;
 import dynamic.mapping.connector.core.client.AConnectorClient;
 import dynamic.mapping.core.C8YAgent;
 import dynamic.mapping.core.ConfigurationRegistry;
+import dynamic.mapping.core.MappingComponent;
 import dynamic.mapping.model.API;
 import dynamic.mapping.model.Mapping;
 import dynamic.mapping.model.MappingSubstitution;
 import dynamic.mapping.model.MappingSubstitution.SubstituteValue.TYPE;
 import dynamic.mapping.processor.C8YMessage;
+import dynamic.mapping.processor.LazyPayload;
 import dynamic.mapping.processor.ProcessingException;
 import dynamic.mapping.processor.model.C8YRequest;
 import dynamic.mapping.processor.model.ProcessingContext;
 import dynamic.mapping.processor.model.RepairStrategy;
+import dynamic.mapping.processor.model.TargetTemplate;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
 
@@ -58,10 +56,13 @@ public abstract class BaseProcessorOutbound<T> {
     public BaseProcessorOutbound(ConfigurationRegistry configurationRegistry, AConnectorClient connectorClient) {
         this.connectorClient = connectorClient;
         this.c8yAgent = configurationRegistry.getC8yAgent();
+        this.mappingComponent = configurationRegistry.getMappingComponent();
     }
 
     protected C8YAgent c8yAgent;
 
+    protected MappingComponent mappingComponent;
+
     protected AConnectorClient connectorClient;
 
     public abstract T deserializePayload(Mapping mapping, C8YMessage c8yMessage)
@@ -78,7 +79,7 @@ public abstract class BaseProcessorOutbound<T> {
         String tenant = context.getTenant();
         Object payloadObject = context.getPayload();
         Mapping mapping = context.getMapping();
-        String payloadAsString = toPrettyJsonString(payloadObject);
+        LazyPayload payloadAsString = LazyPayload.of(payloadObject);
         var sourceId = extractContent(context, mapping, payloadObject, payloadAsString,
                 mapping.targetAPI.identifier);
         context.setSourceId(sourceId.toString());
@@ -118,7 +119,8 @@ public abstract class BaseProcessorOutbound<T> {
         Set<String> pathTargets = processingCache.keySet();
 
         int predecessor = -1;
-        DocumentContext payloadTarget = JsonPath.parse(mapping.targetTemplate);
+        TargetTemplate targetTemplate = mappingComponent.getTargetTemplate(tenant, mapping);
+        DocumentContext payloadTarget = targetTemplate.newDocument();
         /*
          * step 0 patch payload with dummy property _TOPIC_LEVEL_ in case the content
          * is required in the payload for a substitution
@@ -133,7 +135,7 @@ public abstract class BaseProcessorOutbound<T> {
             };
             payloadTarget.put("$", Mapping.TOKEN_CONTEXT_DATA, cod);
         }
-        if (serviceConfiguration.logPayload || mapping.debug) {
+        if (context.isLogPayload()) {
             String patchedPayloadTarget = payloadTarget.jsonString();
             log.info("Tenant {} - Patched payload: {} {} {} {}", tenant, patchedPayloadTarget,
                     serviceConfiguration.logPayload, mapping.debug, serviceConfiguration.logPayload || mapping.debug);
@@ -148,7 +150,7 @@ public abstract class BaseProcessorOutbound<T> {
             if (processingCache.get(pathTarget).size() > 0) {
                 substitute = processingCache.get(pathTarget).get(0).clone();
             }
-            substituteValueInPayload(substitute, payloadTarget, pathTarget);
+            targetTemplate.substitute(substitute, payloadTarget, pathTarget);
         }
         /*
          * step 4 prepare target payload for sending to mqttBroker
@@ -161,7 +163,7 @@ public abstract class BaseProcessorOutbound<T> {
                 MutableInt c = new MutableInt(0);
                 //MutableInt index = new MutableInt(0);
                 String[] splitTopicInAsList = Mapping.splitTopicIncludingSeparatorAsArray(context.getTopic());
-                log.info("Tenant {} - Resolving topic: context.getTopic() {}, splitTopicInAsList {}, topicLevels {}", tenant, context.getTopic(),splitTopicInAsList, topicLevels);
+                log.debug("Tenant {} - Resolving topic: context.getTopic() {}, splitTopicInAsList {}, topicLevels {}", tenant, context.getTopic(),splitTopicInAsList, topicLevels);
                 topicLevels.forEach(tl -> {
                     while (c.intValue() < splitTopicInAsList.length
                             && ("/".equals(splitTopicInAsList[c.intValue()]) && c.intValue() > 0 )) {
@@ -218,11 +220,11 @@ public abstract class BaseProcessorOutbound<T> {
     }
 
     protected Object extractContent(ProcessingContext<T> context, Mapping mapping, Object payloadJsonNode,
-            String payloadAsString, @NotNull String ps) {
+            LazyPayload payloadAsString, @NotNull String ps) {
         Object extractedSourceContent = null;
         try {
             // var expr = jsonata(mapping.transformGenericPath2C8YPath(ps));
-            var expr = jsonata(ps);
+            var expr = mappingComponent.getCompiledExpression(context.getTenant(), mapping, ps);
             extractedSourceContent = expr.evaluate(payloadJsonNode);
         } catch (Exception e) {
             log.error("Tenant {} - EvaluateRuntimeException for: {}, {}: ", context.getTenant(),
@@ -22,8 +22,10 @@
 package dynamic.mapping.processor.outbound;
 
 import com.cumulocity.model.JSONBase;
+import com.cumulocity.model.idtype.GId;
 import com.cumulocity.model.operation.OperationStatus;
 import com.cumulocity.rest.representation.operation.OperationRepresentation;
+import com.dashjoin.jsonata.json.Json;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import dynamic.mapping.configuration.ServiceConfiguration;
@@ -34,6 +36,7 @@ import dynamic.mapping.model.SnoopStatus;
 import dynamic.mapping.notification.websocket.NotificationCallback;
 import dynamic.mapping.processor.model.C8YRequest;
 import dynamic.mapping.processor.model.MappingType;
+import dynamic.mapping.processor.model.OrderingKey;
 import dynamic.mapping.processor.model.ProcessingContext;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
@@ -42,11 +45,14 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import dynamic.mapping.core.C8YAgent;
 import dynamic.mapping.core.ConfigurationRegistry;
+import dynamic.mapping.core.KeyedOrderedExecutor;
 import dynamic.mapping.core.MappingComponent;
+import dynamic.mapping.core.ProcessingMetrics.ConnectorMeters;
 import dynamic.mapping.model.API;
 import dynamic.mapping.notification.C8YNotificationSubscriber;
 import dynamic.mapping.notification.websocket.Notification;
 import dynamic.mapping.processor.C8YMessage;
+import dynamic.mapping.processor.MessageLogger;
 
 import java.net.URI;
 import java.util.ArrayList;
@@ -95,6 +101,13 @@ public class DispatcherOutbound implements NotificationCallback {
 
     protected Map<MappingType, BaseProcessorOutbound<?>> payloadProcessorsOutbound;
 
+    protected OrderingKey orderingKey;
+
+    // null if messages are processed without ordering
+    protected KeyedOrderedExecutor orderedExecutor;
+
+    protected MessageLogger messageLogger;
+
     // The Outbound Dispatcher is hardly connected to the Connector otherwise it is
     // not possible to correlate messages received bei Notification API to the
     // correct Connector
@@ -114,7 +127,15 @@ public class DispatcherOutbound implements NotificationCallback {
                 .get(connectorClient.getConnectorIdentifier());
         this.configurationRegistry = configurationRegistry;
         this.notificationSubscriber = configurationRegistry.getNotificationSubscriber();
-
+        ServiceConfiguration serviceConfiguration = connectorClient.getServiceConfiguration();
+        this.orderingKey = serviceConfiguration == null || serviceConfiguration.processingOrderingKey == null
+                ? OrderingKey.NONE
+                : serviceConfiguration.processingOrderingKey;
+        this.orderedExecutor = orderingKey == OrderingKey.NONE ? null
+                : new KeyedOrderedExecutor(connectorClient.getTenant(),
+                        connectorClient.getConnectorIdentifier(), "outbound", virtThreadPool);
+        this.messageLogger = new MessageLogger(log, connectorClient.getTenant(),
+                "Outbound connector " + connectorClient.getConnectorIdentifier(), serviceConfiguration);
     }
 
     @Override
@@ -126,9 +147,30 @@ public class DispatcherOutbound implements NotificationCallback {
 
     @Override
     public void onNotification(Notification notification) {
+        dispatch(notification);
+    }
+
+    @Override
+    public CompletableFuture<?> onNotificationDeferred(Notification notification) {
+        return dispatch(notification);
+    }
+
+    // the returned future completes when the notification was processed and the
+    // resulting messages were published
+    private CompletableFuture<?> dispatch(Notification notification) {
         // We don't care about UPDATES nor DELETES and ignore notifications if connector
         // is not connected
         String tenant = getTenantFromNotificationHeaders(notification.getNotificationHeaders());
+        if ("DELETE".equals(notification.getNotificationHeaders().get(1))
+                && API.INVENTORY.equals(notification.getApi())) {
+            // header has the format: /<tenant>/managedObjects/<id>
+            // only received when the device is subscribed for the inventory api, the device
+            // subscriptions of other apis don't include managed object deletes, so their
+            // cached external ids are only dropped when they expire
+            String[] source = notification.getNotificationHeaders().get(0).split("/");
+            if (source.length > 3)
+                c8yAgent.removeGlobalIdFromCaches(tenant, new GId(source[3]));
+        }
         if (!connectorClient.isConnected())
             log.warn("Tenant {} - Notification message received but connector {} is not connected. Ignoring message..",
                     tenant, connectorClient.getConnectorName());
@@ -143,12 +185,54 @@ public class DispatcherOutbound implements NotificationCallback {
             c8yMessage.setApi(notification.getApi());
             c8yMessage.setTenant(tenant);
             c8yMessage.setSendPayload(true);
-            virtThreadPool.submit(() -> {
-                processMessage(c8yMessage);
-            });
+            if (orderedExecutor == null) {
+                return CompletableFuture.supplyAsync(() -> whenPublished(processMessage(c8yMessage)), virtThreadPool)
+                        .thenCompose(published -> published).handle((result, error) -> null);
+            }
+            // the next message of the same device is processed when the publishes of this
+            // message are completed
+            Object key = getDeviceId(c8yMessage);
+            return orderedExecutor.submit(key, () -> {
+                whenPublished(processMessage(c8yMessage)).handle((result, error) -> null).join();
+                return null;
+            }).handle((result, error) -> null);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Returns the device of a Cumulocity message, e.g. the source of a measurement,
+     * or null if the payload does not reference a device.
+     */
+    @SuppressWarnings("rawtypes")
+    public static Object getDeviceId(C8YMessage c8yMessage) {
+        try {
+            if (!(Json.parseJson(c8yMessage.getPayload()) instanceof Map message)) {
+                return null;
+            }
+            if (API.INVENTORY.equals(c8yMessage.getApi())) {
+                return message.get("id");
+            } else if (API.OPERATION.equals(c8yMessage.getApi())) {
+                return message.get("deviceId");
+            }
+            return message.get("source") instanceof Map source ? source.get("id") : null;
+        } catch (Exception e) {
+            return null;
         }
     }
 
+    /**
+     * Returns a future that completes when the message was processed and all
+     * asynchronous publishes of the resulting processing contexts were completed.
+     */
+    public static CompletableFuture<Void> whenPublished(CompletableFuture<List<ProcessingContext<?>>> processing) {
+        if (processing == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return processing.thenCompose(contexts -> CompletableFuture.allOf(contexts.stream()
+                .map(ProcessingContext::getPublishCompletion).toArray(CompletableFuture<?>[]::new)));
+    }
+
     @Override
     public void onError(Throwable t) {
         log.error("Tenant {} - We got an exception: ", connectorClient.getTenant(), t);
@@ -178,22 +262,21 @@ public class DispatcherOutbound implements NotificationCallback {
         AConnectorClient connectorClient;
         Timer outboundProcessingTimer;
         Counter outboundProcessingCounter;
+        MessageLogger messageLogger;
 
         public MappingOutboundTask(ConfigurationRegistry configurationRegistry, List<Mapping> resolvedMappings,
                 MappingComponent mappingComponent,
                 Map<MappingType, BaseProcessorOutbound<T>> payloadProcessorsOutbound,
-                C8YMessage c8yMessage, AConnectorClient connectorClient) {
+                C8YMessage c8yMessage, AConnectorClient connectorClient, MessageLogger messageLogger) {
             this.connectorClient = connectorClient;
+            this.messageLogger = messageLogger;
             this.resolvedMappings = resolvedMappings;
             this.mappingComponent = mappingComponent;
             this.c8yAgent = configurationRegistry.getC8yAgent();
-            this.outboundProcessingTimer = Timer.builder("dynmapper_outbound_processing_time")
-                    .tag("tenant", connectorClient.getTenant())
-                    .tag("connector", connectorClient.getConnectorIdentifier())
-                    .description("Processing time of outbound messages").register(Metrics.globalRegistry);
-            this.outboundProcessingCounter = Counter.builder("dynmapper_outbound_message_total")
-                    .tag("tenant", connectorClient.getTenant()).description("Total number of outbound messages")
-                    .tag("connector", connectorClient.getConnectorIdentifier()).register(Metrics.globalRegistry);
+            ConnectorMeters meters = configurationRegistry.getProcessingMetrics()
+                    .getConnectorMeters(connectorClient.getTenant(), connectorClient.getConnectorIdentifier());
+            this.outboundProcessingTimer = meters.getOutboundProcessingTimer();
+            this.outboundProcessingCounter = meters.getOutboundMessageCounter();
             this.c8yMessage = c8yMessage;
             this.objectMapper = configurationRegistry.getObjectMapper();
             this.serviceConfiguration = configurationRegistry.getServiceConfigurations().get(c8yMessage.getTenant());
@@ -220,33 +303,36 @@ public class DispatcherOutbound implements NotificationCallback {
                     BaseProcessorOutbound processor = payloadProcessorsOutbound.get(mapping.mappingType);
                     try {
                         if (processor != null) {
+                            long processingStart = System.nanoTime();
                             Object payload = processor.deserializePayload(mapping, c8yMessage);
                             ProcessingContext<?> context = ProcessingContext.builder().payload(payload)
                                     .topic(mapping.publishTopic)
                                     .mappingType(mapping.mappingType).mapping(mapping).sendPayload(sendPayload)
                                     .tenant(tenant).supportsMessageContext(mapping.supportsMessageContext)
                                     .qos(mapping.qos).serviceConfiguration(serviceConfiguration)
+                                    .logPayload(messageLogger.samplePayload(serviceConfiguration, mapping))
                                     .build();
-                            if (serviceConfiguration.logPayload || mapping.debug) {
+                            if (context.isLogPayload()) {
                                 log.info(
                                         "Tenant {} - New message for topic: {}, for connector: {}, wrapped message: {}",
                                         tenant,
                                         context.getTopic(),
                                         connectorClient.getConnectorIdentifier(),
-                                        context.getPayload().toString());
+                                        context.getPayload());
                             } else {
-                                log.info("Tenant {} - New message for topic: {}, for connector: {}, sendPayload: {}",
+                                log.debug("Tenant {} - New message for topic: {}, for connector: {}, sendPayload: {}",
                                         tenant,
                                         context.getTopic(), connectorClient.getConnectorIdentifier(), sendPayload);
                             }
-                            mappingStatus.messagesReceived++;
+                            messageLogger.count(mapping.identifier);
+                            mappingStatus.incrementMessagesReceived();
                             if (mapping.snoopStatus == SnoopStatus.ENABLED
                                     || mapping.snoopStatus == SnoopStatus.STARTED) {
                                 String serializedPayload = objectMapper.writeValueAsString(context.getPayload());
                                 if (serializedPayload != null) {
                                     mapping.addSnoopedTemplate(serializedPayload);
                                     mappingStatus.snoopedTemplatesTotal = mapping.snoopedTemplates.size();
-                                    mappingStatus.snoopedTemplatesActive++;
+                                    mappingStatus.incrementSnoopedTemplatesActive();
 
                                     log.debug("Tenant {} - Adding snoopedTemplate to map: {},{},{}", tenant,
                                             mapping.mappingTopic,
@@ -264,25 +350,18 @@ public class DispatcherOutbound implements NotificationCallback {
                                 processor.enrichPayload(context);
                                 processor.extractFromSource(context);
                                 processor.substituteInTargetAndSend(context);
-                                Counter.builder("dynmapper_outbound_message_total")
-                                        .tag("tenant", c8yMessage.getTenant())
-                                        .description("Total number of outbound messages")
-                                        .tag("connector", processor.connectorClient.getConnectorIdentifier())
-                                        .register(Metrics.globalRegistry).increment();
-                                timer.stop(Timer.builder("dynmapper_outbound_processing_time")
-                                        .tag("tenant", c8yMessage.getTenant())
-                                        .tag("connector", processor.connectorClient.getConnectorIdentifier())
-                                        .description("Processing time of outbound messages")
-                                        .register(Metrics.globalRegistry));
+                                outboundProcessingCounter.increment();
 
                                 List<C8YRequest> resultRequests = context.getRequests();
                                 if (context.hasError() || resultRequests.stream().anyMatch(r -> r.hasError())) {
-                                    mappingStatus.errors++;
+                                    mappingStatus.incrementErrors();
                                 }
                             }
+                            mappingComponent.recordProcessingTime(tenant, mapping,
+                                    System.nanoTime() - processingStart);
                             processingResult.add(context);
                         } else {
-                            mappingStatusUnspecified.errors++;
+                            mappingStatusUnspecified.incrementErrors();
                             log.error("Tenant {} - No process for MessageType: {} registered, ignoring this message!",
                                     tenant, mapping.mappingType);
                         }
@@ -290,7 +369,7 @@ public class DispatcherOutbound implements NotificationCallback {
                         log.warn("Tenant {} - Message could NOT be parsed, ignoring this message: {}", tenant,
                                 e.getMessage());
                         log.error("Tenant {} - Message Stacktrace: ", tenant, e);
-                        mappingStatus.errors++;
+                        mappingStatus.incrementErrors();
                     }
                 }
             });
@@ -300,25 +379,15 @@ public class DispatcherOutbound implements NotificationCallback {
 
     }
 
-    public Future<List<ProcessingContext<?>>> processMessage(C8YMessage c8yMessage) {
+    public CompletableFuture<List<ProcessingContext<?>>> processMessage(C8YMessage c8yMessage) {
         String tenant = c8yMessage.getTenant();
         MappingStatus mappingStatusUnspecified = mappingComponent.getMappingStatus(tenant, Mapping.UNSPECIFIED_MAPPING);
-        Future<List<ProcessingContext<?>>> futureProcessingResult = null;
         List<Mapping> resolvedMappings = new ArrayList<>();
 
-        // Handle C8Y Operation Status
-        // TODO Add OperationAutoAck Status to activate/deactive
-        OperationRepresentation op = null;
-        //
-        if (c8yMessage.getApi().equals(API.OPERATION)) {
-            op = JSONBase.getJSONParser().parse(OperationRepresentation.class, c8yMessage.getPayload());
-        }
         if (c8yMessage.getPayload() != null) {
             try {
                 resolvedMappings = mappingComponent.resolveMappingOutbound(tenant, c8yMessage.getPayload(),
                         c8yMessage.getApi());
-                if (resolvedMappings.size() > 0 && op != null)
-                    c8yAgent.updateOperationStatus(tenant, op, OperationStatus.EXECUTING, null);
             } catch (Exception e) {
                 log.warn("Tenant {} - Error resolving appropriate map. Could NOT be parsed. Ignoring this message!",
                         tenant);
@@ -326,15 +395,34 @@ public class DispatcherOutbound implements NotificationCallback {
                 // if (op != null)
                 // c8yAgent.updateOperationStatus(tenant, op, OperationStatus.FAILED,
                 // e.getLocalizedMessage());
-                mappingStatusUnspecified.errors++;
+                mappingStatusUnspecified.incrementErrors();
             }
         } else {
-            return futureProcessingResult;
+            return null;
         }
+        return processMessage(c8yMessage, resolvedMappings);
+    }
 
-        futureProcessingResult = virtThreadPool.submit(
-                new MappingOutboundTask(configurationRegistry, resolvedMappings, mappingComponent,
-                        payloadProcessorsOutbound, c8yMessage, connectorClient));
+    /**
+     * Process a message with mappings that were already resolved and update the
+     * status of an operation with the processing result.
+     */
+    public CompletableFuture<List<ProcessingContext<?>>> processMessage(C8YMessage c8yMessage,
+            List<Mapping> resolvedMappings) {
+        String tenant = c8yMessage.getTenant();
+        CompletableFuture<List<ProcessingContext<?>>> futureProcessingResult = null;
+
+        // Handle C8Y Operation Status
+        // TODO Add OperationAutoAck Status to activate/deactive
+        OperationRepresentation op = null;
+        //
+        if (c8yMessage.getApi().equals(API.OPERATION)) {
+            op = JSONBase.getJSONParser().parse(OperationRepresentation.class, c8yMessage.getPayload());
+            if (resolvedMappings.size() > 0)
+                c8yAgent.updateOperationStatus(tenant, op, OperationStatus.EXECUTING, null);
+        }
+
+        futureProcessingResult = processResolvedMessage(c8yMessage, resolvedMappings);
 
         if (op != null) {
             // Blocking for Operations to receive the processing result to update operation
@@ -365,4 +453,23 @@ public class DispatcherOutbound implements NotificationCallback {
         }
         return futureProcessingResult;
     }
-}
\ No newline at end of file
+
+    /**
+     * Process a message with mappings that were already resolved, without
+     * updating the status of an operation. Used by the
+     * <code>SharedDispatcherOutbound</code>, which updates the status once for all
+     * connectors of a tenant.
+     */
+    public CompletableFuture<List<ProcessingContext<?>>> processResolvedMessage(C8YMessage c8yMessage,
+            List<Mapping> resolvedMappings) {
+        Callable<List<ProcessingContext<?>>> task = new MappingOutboundTask(configurationRegistry, resolvedMappings,
+                mappingComponent, payloadProcessorsOutbound, c8yMessage, connectorClient, messageLogger);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, virtThreadPool);
+    }
+}
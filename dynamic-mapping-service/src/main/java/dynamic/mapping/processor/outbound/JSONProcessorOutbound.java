@@ -22,7 +22,6 @@
 package dynamic.mapping.processor.outbound;
 
 import static dynamic.mapping.model.MappingSubstitution.isArray;
-import static dynamic.mapping.model.MappingSubstitution.toPrettyJsonString;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -38,6 +37,7 @@ import dynamic.mapping.core.ConfigurationRegistry;
 import dynamic.mapping.model.Mapping;
 import dynamic.mapping.model.MappingSubstitution;
 import dynamic.mapping.processor.C8YMessage;
+import dynamic.mapping.processor.LazyPayload;
 import dynamic.mapping.processor.ProcessingException;
 import dynamic.mapping.processor.model.ProcessingContext;
 import lombok.extern.slf4j.Slf4j;
@@ -66,9 +66,9 @@ public class JSONProcessorOutbound extends BaseProcessorOutbound<Object> {
         Object payloadObject = context.getPayload();
 
         Map<String, List<MappingSubstitution.SubstituteValue>> processingCache = context.getProcessingCache();
-        String payloadAsString = toPrettyJsonString(payloadObject);
+        LazyPayload payloadAsString = LazyPayload.of(payloadObject);
 
-        if (serviceConfiguration.logPayload || mapping.debug) {
+        if (context.isLogPayload()) {
             log.info("Tenant {} - Incoming payload (patched) in extractFromSource(): {} {} {} {}", tenant,
                     payloadAsString,
                     serviceConfiguration.logPayload, mapping.debug, serviceConfiguration.logPayload || mapping.debug);
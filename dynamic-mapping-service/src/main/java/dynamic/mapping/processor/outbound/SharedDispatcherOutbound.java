@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.processor.outbound;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.cumulocity.model.JSONBase;
+import com.cumulocity.model.idtype.GId;
+import com.cumulocity.model.operation.OperationStatus;
+import com.cumulocity.rest.representation.operation.OperationRepresentation;
+
+import dynamic.mapping.core.C8YAgent;
+import dynamic.mapping.configuration.ServiceConfiguration;
+import dynamic.mapping.core.ConfigurationRegistry;
+import dynamic.mapping.core.KeyedOrderedExecutor;
+import dynamic.mapping.core.MappingComponent;
+import dynamic.mapping.model.API;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.MappingStatus;
+import dynamic.mapping.notification.C8YNotificationSubscriber;
+import dynamic.mapping.notification.websocket.Notification;
+import dynamic.mapping.notification.websocket.NotificationCallback;
+import dynamic.mapping.processor.C8YMessage;
+import dynamic.mapping.processor.model.OrderingKey;
+import dynamic.mapping.processor.model.ProcessingContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Receives the notifications of one tenant with a single Notification 2.0
+ * consumer, instead of one consumer per outbound connector.
+ * The outbound mappings of a notification are resolved once and the
+ * notification is passed to the <code>DispatcherOutbound</code> of every
+ * connected connector that deploys at least one of the resolved mappings.
+ * The status of an operation is updated once for all connectors.
+ * One instance is created per tenant and reused when the consumer reconnects,
+ * it is closed when the tenant is unsubscribed.
+ */
+@Slf4j
+public class SharedDispatcherOutbound implements NotificationCallback {
+
+    private final String tenant;
+
+    // structure: <connectorIdentifier, dispatcherOutbound>, shared with the
+    // C8YNotificationSubscriber
+    private final Map<String, DispatcherOutbound> dispatcherOutboundMap;
+
+    private final C8YNotificationSubscriber notificationSubscriber;
+
+    private final C8YAgent c8yAgent;
+
+    private final MappingComponent mappingComponent;
+
+    private final ConfigurationRegistry configurationRegistry;
+
+    private final Counter notificationCounter;
+
+    // created when ordered processing is enabled for the tenant
+    private volatile KeyedOrderedExecutor orderedExecutor;
+
+    public SharedDispatcherOutbound(ConfigurationRegistry configurationRegistry, String tenant,
+            Map<String, DispatcherOutbound> dispatcherOutboundMap) {
+        this.tenant = tenant;
+        this.dispatcherOutboundMap = dispatcherOutboundMap;
+        this.configurationRegistry = configurationRegistry;
+        this.notificationSubscriber = configurationRegistry.getNotificationSubscriber();
+        this.c8yAgent = configurationRegistry.getC8yAgent();
+        this.mappingComponent = configurationRegistry.getMappingComponent();
+        this.notificationCounter = Counter.builder("dynmapper_outbound_notification_total")
+                .description("Total number of notifications received by the shared notification consumer")
+                .tag("tenant", tenant).register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public void onOpen(URI serverUri) {
+        log.info("Tenant {} - Shared consumer connected to Cumulocity notification service over Web Socket",
+                tenant);
+        notificationSubscriber.setDeviceConnectionStatus(tenant, 200);
+    }
+
+    @Override
+    public void onNotification(Notification notification) {
+        dispatch(notification);
+    }
+
+    @Override
+    public CompletableFuture<?> onNotificationDeferred(Notification notification) {
+        return dispatch(notification);
+    }
+
+    // the returned future completes when the notification was processed and the
+    // resulting messages were published by all connectors
+    private CompletableFuture<?> dispatch(Notification notification) {
+        notificationCounter.increment();
+        // We don't care about UPDATES nor DELETES
+        if ("DELETE".equals(notification.getNotificationHeaders().get(1))
+                && API.INVENTORY.equals(notification.getApi())) {
+            // header has the format: /<tenant>/managedObjects/<id>
+            // only received when the device is subscribed for the inventory api, the device
+            // subscriptions of other apis don't include managed object deletes, so their
+            // cached external ids are only dropped when they expire
+            String[] source = notification.getNotificationHeaders().get(0).split("/");
+            if (source.length > 3)
+                c8yAgent.removeGlobalIdFromCaches(tenant, new GId(source[3]));
+        }
+        if ("CREATE".equals(notification.getNotificationHeaders().get(1))) {
+            C8YMessage c8yMessage = new C8YMessage();
+            c8yMessage.setPayload(notification.getMessage());
+            c8yMessage.setApi(notification.getApi());
+            c8yMessage.setTenant(tenant);
+            c8yMessage.setSendPayload(true);
+            // the next message of the same device is processed when the publishes of this
+            // message are completed
+            if (getOrderingKey() == OrderingKey.NONE) {
+                return CompletableFuture.supplyAsync(() -> processMessage(c8yMessage),
+                        configurationRegistry.getVirtThreadPool())
+                        .thenCompose(published -> published).handle((result, error) -> null);
+            }
+            Object key = DispatcherOutbound.getDeviceId(c8yMessage);
+            return getOrderedExecutor().submit(key, () -> {
+                processMessage(c8yMessage).handle((result, error) -> null).join();
+                return null;
+            }).handle((result, error) -> null);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // the configuration of the tenant can change while the consumer is connected
+    private OrderingKey getOrderingKey() {
+        ServiceConfiguration serviceConfiguration = configurationRegistry.getServiceConfigurations().get(tenant);
+        return serviceConfiguration == null || serviceConfiguration.processingOrderingKey == null
+                ? OrderingKey.NONE
+                : serviceConfiguration.processingOrderingKey;
+    }
+
+    private KeyedOrderedExecutor getOrderedExecutor() {
+        if (orderedExecutor == null) {
+            synchronized (this) {
+                if (orderedExecutor == null) {
+                    orderedExecutor = new KeyedOrderedExecutor(tenant, "shared", "outbound",
+                            configurationRegistry.getVirtThreadPool());
+                }
+            }
+        }
+        return orderedExecutor;
+    }
+
+    // remove the meters of the tenant, called when the tenant is unsubscribed
+    public void close() {
+        Metrics.globalRegistry.remove(notificationCounter);
+        KeyedOrderedExecutor executor = orderedExecutor;
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    public CompletableFuture<Void> processMessage(C8YMessage c8yMessage) {
+        if (c8yMessage.getPayload() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<Mapping> resolvedMappings;
+        try {
+            resolvedMappings = mappingComponent.resolveMappingOutbound(tenant, c8yMessage.getPayload(),
+                    c8yMessage.getApi());
+        } catch (Exception e) {
+            log.warn("Tenant {} - Error resolving appropriate map. Could NOT be parsed. Ignoring this message!",
+                    tenant);
+            log.debug(e.getMessage(), tenant);
+            MappingStatus mappingStatusUnspecified = mappingComponent.getMappingStatus(tenant,
+                    Mapping.UNSPECIFIED_MAPPING);
+            mappingStatusUnspecified.incrementErrors();
+            return CompletableFuture.completedFuture(null);
+        }
+        if (resolvedMappings.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<DispatcherOutbound> receivers = new ArrayList<>();
+        for (DispatcherOutbound dispatcherOutbound : new ArrayList<>(dispatcherOutboundMap.values())) {
+            var connectorClient = dispatcherOutbound.getConnectorClient();
+            if (!connectorClient.isConnected()) {
+                continue;
+            }
+            Map<String, Mapping> deployed = connectorClient.getMappingsDeployedOutbound();
+            if (resolvedMappings.stream().anyMatch(m -> deployed.containsKey(m.identifier))) {
+                receivers.add(dispatcherOutbound);
+            }
+        }
+        if (receivers.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Handle C8Y Operation Status
+        OperationRepresentation op = null;
+        if (API.OPERATION.equals(c8yMessage.getApi())) {
+            op = JSONBase.getJSONParser().parse(OperationRepresentation.class, c8yMessage.getPayload());
+            c8yAgent.updateOperationStatus(tenant, op, OperationStatus.EXECUTING, null);
+        }
+
+        List<CompletableFuture<List<ProcessingContext<?>>>> processing = new ArrayList<>();
+        for (DispatcherOutbound dispatcherOutbound : receivers) {
+            processing.add(dispatcherOutbound.processResolvedMessage(c8yMessage, resolvedMappings));
+        }
+        CompletableFuture<Void> processed = CompletableFuture
+                .allOf(processing.toArray(new CompletableFuture<?>[0]));
+        if (op != null) {
+            final OperationRepresentation operation = op;
+            processed = processed.handle((result, error) -> {
+                updateOperationStatus(operation, processing);
+                return null;
+            });
+        }
+        return processed.handle((result, error) -> null)
+                .thenCompose(result -> CompletableFuture.allOf(processing.stream()
+                        .map(DispatcherOutbound::whenPublished).toArray(CompletableFuture<?>[]::new)));
+    }
+
+    // the operation failed if the processing failed for one of the connectors
+    private void updateOperationStatus(OperationRepresentation op,
+            List<CompletableFuture<List<ProcessingContext<?>>>> processing) {
+        List<String> errors = new ArrayList<>();
+        boolean processed = false;
+        for (CompletableFuture<List<ProcessingContext<?>>> future : processing) {
+            try {
+                for (ProcessingContext<?> context : future.join()) {
+                    processed = true;
+                    if (context.hasError()) {
+                        errors.add(context.getErrors().toString());
+                    }
+                }
+            } catch (CompletionException e) {
+                log.error("Tenant {} - Error waiting for result of Processing context", tenant, e);
+                errors.add(String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+            }
+        }
+        if (!errors.isEmpty()) {
+            c8yAgent.updateOperationStatus(tenant, op, OperationStatus.FAILED, String.join(", ", errors));
+        } else if (processed) {
+            c8yAgent.updateOperationStatus(tenant, op, OperationStatus.SUCCESSFUL, null);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.error("Tenant {} - We got an exception: ", tenant, t);
+    }
+
+    @Override
+    public void onClose(int statusCode, String reason) {
+        log.info("Tenant {} - Web Socket connection of shared consumer closed.", tenant);
+        if (reason != null && reason.contains("401"))
+            notificationSubscriber.setDeviceConnectionStatus(tenant, 401);
+        else
+            notificationSubscriber.setDeviceConnectionStatus(tenant, null);
+    }
+}
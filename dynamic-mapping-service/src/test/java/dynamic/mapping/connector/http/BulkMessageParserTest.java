@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.connector.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class BulkMessageParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<String[]> parse(String body) throws IOException {
+        List<String[]> messages = new ArrayList<>();
+        int count = BulkMessageParser.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                objectMapper,
+                (subTopic, payload) -> messages
+                        .add(new String[] { subTopic, new String(payload, StandardCharsets.UTF_8) }));
+        assertEquals(messages.size(), count);
+        return messages;
+    }
+
+    @Test
+    @DisplayName("Messages of a JSON array are read one by one")
+    void testJsonArray() throws IOException {
+        List<String[]> messages = parse("[{\"temp\":21.5},{\"temp\":22}]");
+        assertEquals(2, messages.size());
+        assertNull(messages.get(0)[0]);
+        assertEquals("{\"temp\":21.5}", messages.get(0)[1]);
+        assertEquals("{\"temp\":22}", messages.get(1)[1]);
+    }
+
+    @Test
+    @DisplayName("Messages of NDJSON are read line by line")
+    void testNdjson() throws IOException {
+        List<String[]> messages = parse("{\"temp\":21.5}\n{\"temp\":22}\n\n{\"temp\":23}\n");
+        assertEquals(3, messages.size());
+        assertEquals("{\"temp\":23}", messages.get(2)[1]);
+    }
+
+    @Test
+    @DisplayName("An envelope sets the sub topic, textual payloads are passed unchanged")
+    void testEnvelope() throws IOException {
+        List<String[]> messages = parse(
+                "[{\"topic\":\"berlin_01\",\"payload\":{\"temp\":21.5}},{\"topic\":\"berlin_02\",\"payload\":\"21.5;C\"},{\"payload\":1,\"unit\":\"C\"}]");
+        assertEquals("berlin_01", messages.get(0)[0]);
+        assertEquals("{\"temp\":21.5}", messages.get(0)[1]);
+        assertEquals("berlin_02", messages.get(1)[0]);
+        assertEquals("21.5;C", messages.get(1)[1]);
+        // additional fields, so the object is the payload itself
+        assertNull(messages.get(2)[0]);
+        assertEquals("{\"payload\":1,\"unit\":\"C\"}", messages.get(2)[1]);
+    }
+
+    @Test
+    @DisplayName("An object with only a payload or only a topic is the payload itself")
+    void testIncompleteEnvelope() throws IOException {
+        List<String[]> messages = parse("{\"payload\":\"21.5;C\"}\n{\"topic\":\"berlin_01\"}\n");
+        assertNull(messages.get(0)[0]);
+        assertEquals("{\"payload\":\"21.5;C\"}", messages.get(0)[1]);
+        assertNull(messages.get(1)[0]);
+        assertEquals("{\"topic\":\"berlin_01\"}", messages.get(1)[1]);
+    }
+
+    @Test
+    @DisplayName("A truncated body fails after the complete messages are passed on")
+    void testTruncated() {
+        List<String[]> messages = new ArrayList<>();
+        assertThrows(IOException.class, () -> BulkMessageParser.parse(
+                new ByteArrayInputStream("[{\"temp\":21.5},{\"temp\":".getBytes(StandardCharsets.UTF_8)),
+                objectMapper, (subTopic, payload) -> messages.add(new String[] { subTopic })));
+        assertEquals(1, messages.size());
+    }
+
+    @Test
+    @DisplayName("The sub topic is appended to the topic of the request")
+    void testJoinTopic() {
+        assertEquals("temp", BulkMessageParser.joinTopic("temp", null));
+        assertEquals("temp/berlin_01", BulkMessageParser.joinTopic("temp", "berlin_01"));
+        assertEquals("temp/berlin_01", BulkMessageParser.joinTopic("temp/", "/berlin_01"));
+        assertEquals("berlin_01", BulkMessageParser.joinTopic("", "berlin_01"));
+    }
+}
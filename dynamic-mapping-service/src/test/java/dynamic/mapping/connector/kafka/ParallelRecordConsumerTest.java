@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.connector.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ParallelRecordConsumerTest {
+
+	private static final String TOPIC = "measurements";
+	private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+	private MockConsumer<String, String> consumer;
+	private ExecutorService executor;
+	// structure: < offset , processing >
+	private Map<Long, CompletableFuture<Void>> started;
+
+	@BeforeEach
+	void setUp() {
+		consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+		consumer.assign(List.of(PARTITION));
+		consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+		executor = Executors.newVirtualThreadPerTaskExecutor();
+		started = new ConcurrentHashMap<>();
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private ParallelRecordConsumer parallelConsumer(int maxInFlight) {
+		return new ParallelRecordConsumer("t1", consumer, maxInFlight, executor, record -> {
+			CompletableFuture<Void> processing = new CompletableFuture<>();
+			started.put(record.offset(), processing);
+			return processing;
+		});
+	}
+
+	private void addRecord(long offset, String key) {
+		consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, key, "payload"));
+	}
+
+	private Long committedOffset() {
+		OffsetAndMetadata committed = consumer.committed(Set.of(PARTITION)).get(PARTITION);
+		return committed == null ? null : committed.offset();
+	}
+
+	@Test
+	@DisplayName("Should process records of different keys in parallel and of the same key in order")
+	void testOrderingPerKey() throws Exception {
+		ParallelRecordConsumer parallelConsumer = parallelConsumer(100);
+		addRecord(0, "a");
+		addRecord(1, "a");
+		addRecord(2, "b");
+		parallelConsumer.pollOnce();
+
+		assertEquals(Set.of(0L, 2L), started.keySet());
+		started.get(0L).complete(null);
+		// the next record of the lane is started asynchronously
+		for (int i = 0; i < 100 && !started.containsKey(1L); i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(started.containsKey(1L));
+	}
+
+	@Test
+	@DisplayName("Should commit offsets only up to the first record in process")
+	void testCommitAfterProcessing() {
+		ParallelRecordConsumer parallelConsumer = parallelConsumer(100);
+		addRecord(0, "a");
+		addRecord(1, "b");
+		addRecord(2, "c");
+		parallelConsumer.pollOnce();
+
+		started.get(1L).complete(null);
+		started.get(2L).complete(null);
+		parallelConsumer.pollOnce();
+		assertNull(committedOffset());
+
+		started.get(0L).completeExceptionally(new RuntimeException("failed"));
+		parallelConsumer.pollOnce();
+		assertEquals(3L, committedOffset());
+	}
+
+	@Test
+	@DisplayName("Should pause a partition when the in-flight window is full")
+	void testPause() {
+		ParallelRecordConsumer parallelConsumer = parallelConsumer(2);
+		addRecord(0, "a");
+		addRecord(1, "b");
+		parallelConsumer.pollOnce();
+		assertEquals(Set.of(PARTITION), consumer.paused());
+
+		started.get(0L).complete(null);
+		parallelConsumer.pollOnce();
+		assertTrue(consumer.paused().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Should not commit a record whose processing was interrupted")
+	void testInterrupted() throws Exception {
+		ParallelRecordConsumer parallelConsumer = new ParallelRecordConsumer("t1", consumer, 100, executor,
+				record -> {
+					if (record.offset() == 1L) {
+						throw new InterruptException("interrupted");
+					}
+					CompletableFuture<Void> processing = new CompletableFuture<>();
+					started.put(record.offset(), processing);
+					return processing;
+				});
+		addRecord(0, "a");
+		addRecord(1, "a");
+		parallelConsumer.pollOnce();
+
+		// the record 1 is started asynchronously when the record 0 of its lane completed
+		started.get(0L).complete(null);
+		InterruptException error = null;
+		for (int i = 0; i < 100 && error == null; i++) {
+			Thread.sleep(10);
+			try {
+				parallelConsumer.pollOnce();
+			} catch (InterruptException e) {
+				error = e;
+			}
+		}
+		assertNotNull(error);
+		parallelConsumer.commitProcessed();
+		assertEquals(1L, committedOffset());
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.connector.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dynamic.mapping.core.ConnectorStatusEvent;
+
+class TopicConsumerTest {
+
+	private static final String TOPIC = "measurements";
+	private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+	private ExecutorService executor;
+	private TestConsumer consumer;
+	// offsets committed synchronously or asynchronously
+	private Map<TopicPartition, OffsetAndMetadata> committed;
+	private TestListener listener;
+
+	// emulates the KafkaConsumer, which fails blocking calls on an interrupted
+	// thread
+	private class TestConsumer extends MockConsumer<byte[], byte[]> {
+		volatile Runnable onWakeup = () -> {
+		};
+
+		TestConsumer() {
+			super(OffsetResetStrategy.EARLIEST);
+		}
+
+		@Override
+		public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptException("Thread was interrupted");
+			}
+			committed.putAll(offsets);
+			super.commitSync(offsets);
+		}
+
+		@Override
+		public synchronized void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets,
+				OffsetCommitCallback callback) {
+			committed.putAll(offsets);
+			super.commitAsync(offsets, callback);
+		}
+
+		@Override
+		public void wakeup() {
+			onWakeup.run();
+			super.wakeup();
+		}
+	}
+
+	private static class TestListener implements TopicConsumerListener {
+		final List<CompletableFuture<Void>> processing = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void onEvent(byte[] key, byte[] event) {
+			processing.add(CompletableFuture.completedFuture(null));
+		}
+
+		@Override
+		public CompletableFuture<?> processEvent(byte[] key, byte[] event) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			processing.add(future);
+			return future;
+		}
+
+		@Override
+		public void onStarted() {
+		}
+
+		@Override
+		public void onStoppedByErrorAndReconnecting(Exception error) {
+		}
+
+		@Override
+		public void onStopped() {
+		}
+	}
+
+	@BeforeEach
+	void setUp() {
+		executor = Executors.newVirtualThreadPerTaskExecutor();
+		consumer = new TestConsumer();
+		committed = new ConcurrentHashMap<>();
+		listener = new TestListener();
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "Condition not met in time");
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	@DisplayName("Should commit the offsets of processed records when the topic consumer is closed")
+	void testCloseCommitsProcessed() throws Exception {
+		TopicConfig topicConfig = new TopicConfig("t100", "localhost:9092", TOPIC, "user", "password",
+				"SCRAM-SHA-256", "group", new Properties());
+		topicConfig.setMaxInFlightRecords(10);
+		topicConfig.setVirtThreadPool(executor);
+		TopicConsumer topicConsumer = new TopicConsumer(topicConfig, new ConnectorStatusEvent(), config -> consumer);
+		topicConsumer.start(listener);
+		await(() -> consumer.subscription().contains(TOPIC));
+		consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+		consumer.rebalance(List.of(PARTITION));
+		for (long offset = 0; offset < 3; offset++) {
+			consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, null, "payload".getBytes()));
+		}
+		await(() -> listener.processing.size() == 3);
+
+		// the records are completed while the topic consumer is closed
+		consumer.onWakeup = () -> listener.processing.forEach(processing -> processing.complete(null));
+		topicConsumer.close();
+
+		assertEquals(3, committed.get(PARTITION).offset());
+		assertTrue(consumer.closed());
+	}
+}
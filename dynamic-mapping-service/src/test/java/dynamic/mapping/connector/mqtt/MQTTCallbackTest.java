@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.connector.mqtt;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
+
+import dynamic.mapping.connector.core.callback.GenericMessageCallback;
+
+class MQTTCallbackTest {
+
+    private static Mqtt3Publish message() {
+        Mqtt3Publish message = mock(Mqtt3Publish.class);
+        when(message.getTopic()).thenReturn(MqttTopic.of("device/4711"));
+        when(message.getPayload())
+                .thenReturn(Optional.of(ByteBuffer.wrap("{\"t\":1}".getBytes(StandardCharsets.UTF_8))));
+        return message;
+    }
+
+    @Test
+    @DisplayName("Should acknowledge a message after its processing completed")
+    void testAcknowledgeProcessed() {
+        GenericMessageCallback callback = mock(GenericMessageCallback.class);
+        when(callback.processMessage(any())).thenReturn(CompletableFuture.completedFuture(List.of()));
+        MQTTCallback mqttCallback = new MQTTCallback(callback, "t100", "c1", false, 1);
+        Mqtt3Publish message = message();
+
+        mqttCallback.accept(message);
+
+        verify(message).acknowledge();
+        // the window has capacity again
+        mqttCallback.accept(message());
+    }
+
+    @Test
+    @DisplayName("Should not acknowledge a failed message, so that the broker redelivers it")
+    void testFailedNotAcknowledged() {
+        GenericMessageCallback callback = mock(GenericMessageCallback.class);
+        when(callback.processMessage(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("failed")));
+        MQTTCallback mqttCallback = new MQTTCallback(callback, "t100", "c1", false, 1);
+        Mqtt3Publish message = message();
+
+        mqttCallback.accept(message);
+
+        verify(message, never()).acknowledge();
+        // the slot of the window is released anyway, the next message is processed
+        Mqtt3Publish next = message();
+        mqttCallback.accept(next);
+        verify(callback, times(2)).processMessage(any());
+        verify(next, never()).acknowledge();
+    }
+
+    @Test
+    @DisplayName("Should acknowledge a failed message when configured")
+    void testFailedAcknowledged() {
+        GenericMessageCallback callback = mock(GenericMessageCallback.class);
+        when(callback.processMessage(any())).thenThrow(new IllegalStateException("failed"));
+        MQTTCallback mqttCallback = new MQTTCallback(callback, "t100", "c1", false, 1, true);
+        Mqtt3Publish message = message();
+
+        mqttCallback.accept(message);
+
+        verify(message).acknowledge();
+    }
+}
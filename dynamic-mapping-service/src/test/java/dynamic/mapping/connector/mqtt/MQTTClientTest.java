@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.connector.mqtt;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import com.hivemq.client.mqtt.mqtt3.Mqtt3AsyncClient;
+import com.hivemq.client.mqtt.mqtt3.Mqtt3BlockingClient;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
+
+import dynamic.mapping.model.API;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.QOS;
+import dynamic.mapping.processor.model.C8YRequest;
+import dynamic.mapping.processor.model.ProcessingContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MQTTClientTest {
+
+    // client of a connector without configuration, the broker is mocked
+    private static class TestMQTTClient extends MQTTClient {
+        TestMQTTClient(Mqtt3BlockingClient mqttClient) {
+            this.tenant = "t100";
+            this.connectorIdentifier = "mqtt1";
+            this.connectorName = "MQTT";
+            this.mqttClient = mqttClient;
+        }
+    }
+
+    private MQTTClient client;
+
+    // meters of the global registry only report values with a registry added
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // publishes not yet completed by the mocked broker
+    private final List<CompletableFuture<Mqtt3Publish>> publishes = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Metrics.addRegistry(registry);
+        Mqtt3BlockingClient blockingClient = mock(Mqtt3BlockingClient.class);
+        Mqtt3AsyncClient asyncClient = mock(Mqtt3AsyncClient.class);
+        when(blockingClient.toAsync()).thenReturn(asyncClient);
+        when(asyncClient.publish(any(Mqtt3Publish.class))).thenAnswer(invocation -> {
+            CompletableFuture<Mqtt3Publish> publish = new CompletableFuture<>();
+            publishes.add(publish);
+            return publish;
+        });
+        client = new TestMQTTClient(blockingClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.stopHousekeepingAndClose();
+        Metrics.removeRegistry(registry);
+    }
+
+    private static ProcessingContext<Object> context(int i) {
+        Mapping mapping = new Mapping();
+        mapping.name = "Mapping - " + i;
+        ProcessingContext<Object> context = ProcessingContext.<Object>builder().mapping(mapping)
+                .qos(QOS.AT_LEAST_ONCE).resolvedPublishTopic("measurements/" + i).tenant("t100").build();
+        context.addRequest(new C8YRequest(0, RequestMethod.POST, null, null, "{\"value\":" + i + "}", null,
+                API.MEASUREMENT, null));
+        return context;
+    }
+
+    private Gauge inFlightGauge() {
+        return Metrics.globalRegistry.find("dynmapper_mqtt_publish_in_flight").tag("tenant", "t100")
+                .tag("connector", "mqtt1").gauge();
+    }
+
+    @Test
+    @DisplayName("Should block publishing when the in-flight window is full")
+    void testInFlightWindow() throws Exception {
+        client.enableAsyncPublish(2);
+        ProcessingContext<Object> first = context(1);
+        client.publishMEAO(first);
+        client.publishMEAO(context(2));
+        assertEquals(2, client.getPublishesInFlight());
+        assertEquals(2.0, inFlightGauge().value());
+
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> client.publishMEAO(context(3)));
+        Thread.sleep(100);
+        assertFalse(third.isDone());
+        assertEquals(2, publishes.size());
+
+        // the broker completes the first publish, the third is published
+        publishes.get(0).complete(mock(Mqtt3Publish.class));
+        third.get(10, TimeUnit.SECONDS);
+        assertEquals(3, publishes.size());
+        assertEquals(2, client.getPublishesInFlight());
+        assertNotNull(first.getCurrentRequest().getResponse());
+        assertNull(first.getCurrentRequest().getError());
+        assertTrue(first.getPublishCompletion().isDone());
+    }
+
+    @Test
+    @DisplayName("Should remove the in-flight gauge when the client is closed")
+    void testGaugeRemovedOnClose() {
+        client.enableAsyncPublish(2);
+        assertNotNull(inFlightGauge());
+
+        client.close();
+        assertNull(inFlightGauge());
+
+        // a new client of the connector registers a gauge bound to itself
+        client.enableAsyncPublish(1);
+        client.publishMEAO(context(1));
+        assertEquals(1.0, inFlightGauge().value());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.connector.webhook;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.Metrics;
+
+class WebHookPublisherTest {
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    // bodies of all received requests
+    private final List<String> received = new ArrayList<>();
+
+    // number of requests answered with 503 before requests are accepted
+    private final AtomicInteger unavailable = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/measurements", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                synchronized (received) {
+                    received.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+            int status = unavailable.getAndDecrement() > 0 ? 503 : 200;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private WebHookPublisher publisher(int batchSize, int maxRetries) {
+        return new WebHookPublisher("t100", "test", Map.of(), 2, false, 2, batchSize, Duration.ofMillis(20),
+                maxRetries, executor);
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/measurements";
+    }
+
+    @Test
+    @DisplayName("Batches are posted as JSON array, also a batch of one payload")
+    void testPublishBatch() throws Exception {
+        try (WebHookPublisher publisher = publisher(2, 0)) {
+            CompletableFuture<Void> a = publisher.publish(url(), "{\"a\":1}");
+            CompletableFuture<Void> b = publisher.publish(url(), "{\"b\":2}");
+            CompletableFuture.allOf(a, b).get(10, TimeUnit.SECONDS);
+            publisher.publish(url(), "{\"c\":3}").get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of("[{\"a\":1},{\"b\":2}]", "[{\"c\":3}]"), received);
+    }
+
+    @Test
+    @DisplayName("Transiently failing requests are retried")
+    void testPublishRetry() throws Exception {
+        unavailable.set(2);
+        try (WebHookPublisher publisher = publisher(1, 3)) {
+            publisher.publish(url(), "{\"a\":1}").get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of("{\"a\":1}", "{\"a\":1}", "{\"a\":1}"), received);
+    }
+
+    @Test
+    @DisplayName("All payloads of a batch fail when the batch still fails after retries")
+    void testPublishFailure() throws Exception {
+        unavailable.set(Integer.MAX_VALUE);
+        try (WebHookPublisher publisher = publisher(2, 1)) {
+            CompletableFuture<Void> a = publisher.publish(url(), "{\"a\":1}");
+            CompletableFuture<Void> b = publisher.publish(url(), "{\"b\":2}");
+            assertThrows(ExecutionException.class, () -> a.get(10, TimeUnit.SECONDS));
+            assertThrows(ExecutionException.class, () -> b.get(10, TimeUnit.SECONDS));
+        }
+        // the batch is posted once and retried once, the payloads are not posted one by one
+        assertEquals(List.of("[{\"a\":1},{\"b\":2}]", "[{\"a\":1},{\"b\":2}]"), received);
+    }
+
+    @Test
+    @DisplayName("Payloads of a batch are posted as one JSON array")
+    void testToJsonArray() {
+        assertEquals("[{\"a\":1}]", WebHookPublisher.toJsonArray(List.of("{\"a\":1}")));
+        assertEquals("[{\"a\":1},{\"b\":2},[3]]",
+                WebHookPublisher.toJsonArray(List.of("{\"a\":1}", "{\"b\":2}", "[3]")));
+    }
+
+    @Test
+    @DisplayName("Only transient status codes are retried")
+    void testIsRetryable() {
+        assertTrue(WebHookPublisher.isRetryable(429));
+        assertTrue(WebHookPublisher.isRetryable(503));
+        assertTrue(WebHookPublisher.isRetryable(504));
+        assertFalse(WebHookPublisher.isRetryable(400));
+        assertFalse(WebHookPublisher.isRetryable(401));
+        assertFalse(WebHookPublisher.isRetryable(404));
+        assertFalse(WebHookPublisher.isRetryable(501));
+    }
+
+    @Test
+    @DisplayName("Backoff doubles with every attempt, is jittered and prefers Retry-After")
+    void testBackoff() {
+        assertBackoff(200, WebHookPublisher.backoff(0, null));
+        assertBackoff(400, WebHookPublisher.backoff(1, null));
+        assertBackoff(800, WebHookPublisher.backoff(2, null));
+        assertBackoff(10000, WebHookPublisher.backoff(30, null));
+        assertEquals(2000, WebHookPublisher.backoff(0, new BasicHeader(HttpHeaders.RETRY_AFTER, "2")));
+        assertEquals(10000, WebHookPublisher.backoff(0, new BasicHeader(HttpHeaders.RETRY_AFTER, "120")));
+        assertBackoff(400,
+                WebHookPublisher.backoff(1, new BasicHeader(HttpHeaders.RETRY_AFTER, "Wed, 21 Oct 2015 07:28:00 GMT")));
+    }
+
+    private static void assertBackoff(long expected, long backoff) {
+        assertTrue(backoff >= expected / 2 && backoff <= expected,
+                "backoff " + backoff + " not in [" + expected / 2 + ", " + expected + "]");
+    }
+
+    @Test
+    @DisplayName("The meters of the publisher are removed when it is closed")
+    void testCloseRemovesMeters() {
+        WebHookPublisher publisher = publisher(1, 0);
+        assertNotNull(Metrics.globalRegistry.find("dynmapper_webhook_request_time").tag("tenant", "t100")
+                .tag("connector", "test").meter());
+        publisher.close();
+        assertNull(Metrics.globalRegistry.find("dynmapper_webhook_request_time").tag("tenant", "t100")
+                .tag("connector", "test").meter());
+        assertNull(Metrics.globalRegistry.find("dynmapper_webhook_retries_total").tag("tenant", "t100")
+                .tag("connector", "test").meter());
+        assertNull(Metrics.globalRegistry.find("dynmapper_webhook_errors_total").tag("tenant", "t100")
+                .tag("connector", "test").meter());
+    }
+}
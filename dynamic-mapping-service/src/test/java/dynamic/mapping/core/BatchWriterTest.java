@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BatchWriterTest {
+
+    private ExecutorService executor;
+
+    private ScheduledExecutorService scheduler;
+
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    private BatchWriter<String, String> writer(int maxBatchSize, Duration linger) {
+        return new BatchWriter<>("t100", "test", maxBatchSize, linger, requests -> {
+            synchronized (batchSizes) {
+                batchSizes.add(requests.size());
+            }
+            if (requests.contains("fail")) {
+                throw new IllegalStateException("bulk request failed");
+            }
+            return requests.stream().map(String::toUpperCase).toList();
+        }, request -> {
+            if (request.equals("fail")) {
+                throw new IllegalArgumentException("invalid request");
+            }
+            return request.toUpperCase();
+        }, executor, scheduler);
+    }
+
+    @Test
+    @DisplayName("Should write a batch when the maximum batch size is reached")
+    void testBatchSize() throws Exception {
+        BatchWriter<String, String> writer = writer(3, Duration.ofMinutes(1));
+        CompletableFuture<String> a = writer.submit("a");
+        CompletableFuture<String> b = writer.submit("b");
+        CompletableFuture<String> c = writer.submit("c");
+
+        assertEquals("A", a.get(10, TimeUnit.SECONDS));
+        assertEquals("B", b.get(10, TimeUnit.SECONDS));
+        assertEquals("C", c.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of(3), batchSizes);
+    }
+
+    @Test
+    @DisplayName("Should write an incomplete batch after the linger time")
+    void testLinger() throws Exception {
+        BatchWriter<String, String> writer = writer(100, Duration.ofMillis(10));
+        CompletableFuture<String> a = writer.submit("a");
+        CompletableFuture<String> b = writer.submit("b");
+
+        assertEquals("A", a.get(10, TimeUnit.SECONDS));
+        assertEquals("B", b.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of(2), batchSizes);
+    }
+
+    @Test
+    @DisplayName("Should complete every request individually when the bulk request fails")
+    void testBulkFailure() throws Exception {
+        BatchWriter<String, String> writer = writer(2, Duration.ofMinutes(1));
+        CompletableFuture<String> a = writer.submit("a");
+        CompletableFuture<String> fail = writer.submit("fail");
+
+        assertEquals("A", a.get(10, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> fail.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    @DisplayName("Should fail the batch without writing it again when the bulk response lacks results")
+    void testShortBulkResponse() throws Exception {
+        List<String> singles = new ArrayList<>();
+        BatchWriter<String, String> writer = new BatchWriter<>("t100", "test", 2, Duration.ofMinutes(1),
+                requests -> List.of("A"), request -> {
+                    singles.add(request);
+                    return request.toUpperCase();
+                }, executor, scheduler);
+        CompletableFuture<String> a = writer.submit("a");
+        CompletableFuture<String> b = writer.submit("b");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> a.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        e = assertThrows(ExecutionException.class, () -> b.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertTrue(singles.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should write every batch in bulk and fail it as a whole without a single writer")
+    void testBulkOnly() throws Exception {
+        BatchWriter<String, String> writer = new BatchWriter<>("t100", "test", 2, Duration.ofMillis(10),
+                requests -> {
+                    synchronized (batchSizes) {
+                        batchSizes.add(requests.size());
+                    }
+                    if (requests.contains("fail")) {
+                        throw new IllegalStateException("bulk request failed");
+                    }
+                    return requests.stream().map(String::toUpperCase).toList();
+                }, null, executor, scheduler);
+
+        assertEquals("A", writer.submit("a").get(10, TimeUnit.SECONDS));
+        CompletableFuture<String> b = writer.submit("b");
+        CompletableFuture<String> fail = writer.submit("fail");
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> b.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        e = assertThrows(ExecutionException.class, () -> fail.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(List.of(1, 2), batchSizes);
+    }
+
+    @Test
+    @DisplayName("Should write pending requests on flush")
+    void testFlush() throws Exception {
+        BatchWriter<String, String> writer = writer(100, Duration.ofMinutes(1));
+        CompletableFuture<String> a = writer.submit("a");
+        writer.flush();
+
+        assertEquals("A", a.get(10, TimeUnit.SECONDS));
+    }
+}
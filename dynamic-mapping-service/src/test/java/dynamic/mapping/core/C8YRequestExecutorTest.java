@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.cumulocity.sdk.client.SDKException;
+
+class C8YRequestExecutorTest {
+
+    @Test
+    @DisplayName("Should retry requests rejected with 429 or 503 and halve the limit")
+    void testRetryOverloaded() throws Exception {
+        C8YRequestExecutor executor = new C8YRequestExecutor("t100", 8, 3);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.execute("measurements", () -> {
+            switch (calls.incrementAndGet()) {
+                case 1:
+                    throw new SDKException(429, "Too Many Requests");
+                case 2:
+                    throw new SDKException(503, "Service Unavailable");
+                default:
+                    return "created";
+            }
+        });
+
+        assertEquals("created", result);
+        assertEquals(3, calls.get());
+        // 8 halved twice, then raised by 1/2 with the successful request
+        assertEquals(2.5, executor.getLimit(), 0.0001);
+        assertEquals(0, executor.getInFlight());
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Should pass on the rejection after the maximum number of retries")
+    void testRetriesExhausted() {
+        C8YRequestExecutor executor = new C8YRequestExecutor("t100", 8, 1);
+        AtomicInteger calls = new AtomicInteger();
+
+        SDKException e = assertThrows(SDKException.class, () -> executor.execute("measurements", () -> {
+            calls.incrementAndGet();
+            throw new SDKException(503, "Service Unavailable");
+        }));
+
+        assertEquals(503, e.getHttpStatus());
+        assertEquals(2, calls.get());
+        assertEquals(2, executor.getLimit(), 0.0001);
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Should not retry other errors and keep the limit")
+    void testNoRetryOnClientError() {
+        C8YRequestExecutor executor = new C8YRequestExecutor("t100", 8, 3);
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(SDKException.class, () -> executor.execute("identity", () -> {
+            calls.incrementAndGet();
+            throw new SDKException(404, "Not Found");
+        }));
+
+        assertEquals(1, calls.get());
+        assertEquals(8, executor.getLimit(), 0.0001);
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Should raise the limit additively up to the maximum concurrency")
+    void testAdditiveIncrease() throws Exception {
+        C8YRequestExecutor executor = new C8YRequestExecutor("t100", 4, 0);
+        assertThrows(SDKException.class, () -> executor.execute("events", () -> {
+            throw new SDKException(429, "Too Many Requests");
+        }));
+        assertEquals(2, executor.getLimit(), 0.0001);
+
+        double previous = executor.getLimit();
+        for (int i = 0; i < 20; i++) {
+            executor.execute("events", () -> "created");
+            double limit = executor.getLimit();
+            assertTrue(limit >= previous && limit <= 4);
+            previous = limit;
+        }
+        assertEquals(4, executor.getLimit(), 0.0001);
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Should not execute more requests concurrently than the limit")
+    void testLimitConcurrency() throws Exception {
+        C8YRequestExecutor executor = new C8YRequestExecutor("t100", 2, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<?>[] requests = new Future<?>[3];
+            for (int i = 0; i < requests.length; i++) {
+                requests[i] = threads.submit(() -> executor.execute("alarms", () -> {
+                    running.incrementAndGet();
+                    return release.await(10, TimeUnit.SECONDS);
+                }));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while (running.get() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            assertEquals(2, running.get());
+            assertEquals(2, executor.getInFlight());
+
+            release.countDown();
+            for (Future<?> request : requests) {
+                request.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(3, running.get());
+            assertEquals(0, executor.getInFlight());
+        } finally {
+            threads.shutdownNow();
+            executor.close();
+        }
+    }
+}
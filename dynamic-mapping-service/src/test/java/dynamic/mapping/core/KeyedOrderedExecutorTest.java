@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class KeyedOrderedExecutorTest {
+
+    private ExecutorService executor;
+
+    private KeyedOrderedExecutor orderedExecutor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        orderedExecutor = new KeyedOrderedExecutor("t100", "test", "inbound", executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Tasks with the same key run in the order they were submitted")
+    void testSameKeyInOrder() throws Exception {
+        List<Integer> processed = new ArrayList<>();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int value = i;
+            futures.add(orderedExecutor.submit("device1", () -> {
+                // later tasks would overtake earlier ones without ordering
+                Thread.sleep(value % 3);
+                synchronized (processed) {
+                    processed.add(value);
+                }
+                return value;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, processed.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Tasks with different keys run in parallel")
+    void testDifferentKeysInParallel() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CompletableFuture<String> first = orderedExecutor.submit("device1", () -> {
+            blocked.await();
+            return "first";
+        });
+        CompletableFuture<String> other = orderedExecutor.submit("device2", () -> "other");
+        CompletableFuture<String> second = orderedExecutor.submit("device1", () -> "second");
+
+        assertEquals("other", other.get(5, TimeUnit.SECONDS));
+        assertFalse(second.isDone());
+        blocked.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("A failed task does not block the following tasks of its key")
+    void testFailedTask() throws Exception {
+        CompletableFuture<String> failed = orderedExecutor.submit("device1", () -> {
+            throw new IllegalStateException("processing failed");
+        });
+        CompletableFuture<String> next = orderedExecutor.submit("device1", () -> "next");
+
+        assertEquals("next", next.get(5, TimeUnit.SECONDS));
+        assertTrue(failed.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("A reserved position blocks the lane until it is completed")
+    void testReserve() throws Exception {
+        CompletableFuture<Void> reserved = new CompletableFuture<>();
+        assertTrue(orderedExecutor.reserve("device1", reserved).isDone());
+        CompletableFuture<String> next = orderedExecutor.submit("device1", () -> "next");
+
+        assertFalse(next.isDone());
+        assertEquals(1, orderedExecutor.getLanes());
+        reserved.complete(null);
+        assertEquals("next", next.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core;
+
+import static com.dashjoin.jsonata.Jsonata.jsonata;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.dashjoin.jsonata.json.Json;
+
+import dynamic.mapping.model.API;
+import dynamic.mapping.model.Direction;
+import dynamic.mapping.model.Mapping;
+
+class OutboundMappingIndexTest {
+
+    private static final String MEASUREMENT = "{\"id\":\"1\",\"type\":\"c8y_Temperature\",\"source\":{\"id\":\"4711\"},\"c8y_Temperature\":{\"T\":{\"value\":21,\"unit\":\"C\"}},\"c8y_Tags\":[{\"name\":\"a\"}]}";
+
+    private static Mapping mapping(String id, API targetAPI, String filterMapping) {
+        Mapping mapping = new Mapping();
+        mapping.id = id;
+        mapping.direction = Direction.OUTBOUND;
+        mapping.targetAPI = targetAPI;
+        mapping.filterMapping = filterMapping;
+        return mapping;
+    }
+
+    private static List<String> ids(List<Mapping> mappings) {
+        return mappings.stream().map(m -> m.id).sorted().toList();
+    }
+
+    @Test
+    @DisplayName("Should resolve the same mappings as evaluating every filter")
+    void testSameResolutionAsScan() {
+        List<Mapping> mappings = new ArrayList<>();
+        mappings.add(mapping("1", API.MEASUREMENT, "c8y_Temperature"));
+        mappings.add(mapping("2", API.MEASUREMENT, "c8y_Temperature.T.value"));
+        mappings.add(mapping("3", API.MEASUREMENT, "c8y_Temperature.T.missing"));
+        mappings.add(mapping("4", API.MEASUREMENT, "c8y_Pressure"));
+        mappings.add(mapping("5", API.EVENT, "c8y_Temperature"));
+        mappings.add(mapping("6", API.MEASUREMENT, "c8y_Temperature.T.value > 20"));
+        mappings.add(mapping("7", API.MEASUREMENT, "type = 'c8y_Other'"));
+        mappings.add(mapping("8", API.MEASUREMENT, "c8y_Tags.name"));
+        mappings.add(mapping("9", API.MEASUREMENT, "source.id.value"));
+        Map<?, ?> message = (Map<?, ?>) Json.parseJson(MEASUREMENT);
+        Predicate<Mapping> evaluator = m -> jsonata(m.filterMapping).evaluate(message) != null;
+
+        List<Mapping> expected = mappings.stream()
+                .filter(m -> m.targetAPI.equals(API.MEASUREMENT) && evaluator.test(m)).toList();
+        List<Mapping> actual = new OutboundMappingIndex(mappings).resolve(message, API.MEASUREMENT, evaluator);
+
+        assertEquals(ids(expected), ids(actual));
+        assertEquals(List.of("1", "2", "6", "8"), ids(actual));
+    }
+
+    @Test
+    @DisplayName("Should evaluate only filters that are not simple paths")
+    void testEvaluatesOnlyUnindexedFilters() {
+        List<Mapping> mappings = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            mappings.add(mapping("f" + i, API.MEASUREMENT, "c8y_Fragment" + i));
+        }
+        mappings.add(mapping("x", API.MEASUREMENT, "$exists(c8y_Temperature)"));
+        Map<?, ?> message = (Map<?, ?>) Json.parseJson(MEASUREMENT);
+        List<String> evaluated = new ArrayList<>();
+
+        List<Mapping> actual = new OutboundMappingIndex(mappings).resolve(message, API.MEASUREMENT, m -> {
+            evaluated.add(m.id);
+            return true;
+        });
+
+        assertEquals(List.of("x"), evaluated);
+        assertEquals(List.of("x"), ids(actual));
+    }
+}
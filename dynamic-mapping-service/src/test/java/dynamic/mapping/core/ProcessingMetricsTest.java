@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dynamic.mapping.core.ProcessingMetrics.ConnectorMeters;
+import dynamic.mapping.model.Direction;
+import dynamic.mapping.model.Mapping;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProcessingMetricsTest {
+
+    private SimpleMeterRegistry registry;
+
+    private ProcessingMetrics processingMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        processingMetrics = new ProcessingMetrics(registry);
+    }
+
+    private static Mapping mapping(String identifier) {
+        Mapping mapping = new Mapping();
+        mapping.identifier = identifier;
+        mapping.direction = Direction.INBOUND;
+        return mapping;
+    }
+
+    @Test
+    @DisplayName("The meters of a connector are registered once")
+    void testConnectorMetersRegisteredOnce() {
+        ConnectorMeters meters = processingMetrics.getConnectorMeters("t100", "mqtt1");
+        assertSame(meters, processingMetrics.getConnectorMeters("t100", "mqtt1"));
+        assertNotSame(meters, processingMetrics.getConnectorMeters("t100", "mqtt2"));
+
+        meters.getInboundMessageCounter().increment();
+        assertEquals(1.0, registry.get("dynmapper_inbound_message_total")
+                .tag("tenant", "t100").tag("connector", "mqtt1").counter().count());
+    }
+
+    @Test
+    @DisplayName("Mappings over the limit share the timer of the other mappings")
+    void testMappingTimersBounded() {
+        processingMetrics.setMaxMappingMeters("t100", 2);
+        Timer first = processingMetrics.getMappingTimer("t100", mapping("m1"));
+        Timer second = processingMetrics.getMappingTimer("t100", mapping("m2"));
+        Timer third = processingMetrics.getMappingTimer("t100", mapping("m3"));
+        Timer fourth = processingMetrics.getMappingTimer("t100", mapping("m4"));
+
+        assertSame(first, processingMetrics.getMappingTimer("t100", mapping("m1")));
+        assertNotSame(first, second);
+        assertSame(third, fourth);
+        assertEquals(ProcessingMetrics.OTHER_MAPPINGS, third.getId().getTag("mapping"));
+        assertEquals(3, registry.find("dynmapper_mapping_processing_time").timers().size());
+    }
+
+    @Test
+    @DisplayName("Removing a mapping frees its timer for another mapping")
+    void testRemoveMapping() {
+        processingMetrics.setMaxMappingMeters("t100", 1);
+        processingMetrics.getMappingTimer("t100", mapping("m1"));
+        assertEquals(ProcessingMetrics.OTHER_MAPPINGS,
+                processingMetrics.getMappingTimer("t100", mapping("m2")).getId().getTag("mapping"));
+
+        processingMetrics.removeMapping("t100", "m1");
+
+        assertEquals("m2", processingMetrics.getMappingTimer("t100", mapping("m2")).getId().getTag("mapping"));
+        assertNull(registry.find("dynmapper_mapping_processing_time").tag("mapping", "m1").timer());
+    }
+
+    @Test
+    @DisplayName("Removing a connector removes its meters from the registry")
+    void testRemoveConnector() {
+        ConnectorMeters meters = processingMetrics.getConnectorMeters("t100", "mqtt1");
+        processingMetrics.getConnectorMeters("t100", "mqtt2");
+
+        processingMetrics.removeConnector("t100", "mqtt1");
+
+        assertNull(registry.find("dynmapper_inbound_message_total").tag("connector", "mqtt1").counter());
+        assertNotNull(registry.find("dynmapper_inbound_message_total").tag("connector", "mqtt2").counter());
+        // a connector created again with the same identifier gets new meters
+        assertNotSame(meters, processingMetrics.getConnectorMeters("t100", "mqtt1"));
+    }
+
+    @Test
+    @DisplayName("The meters of requests to Cumulocity are registered once per API")
+    void testC8YRequestMeters() {
+        assertSame(processingMetrics.getC8YRequestMeters("t100", "measurements"),
+                processingMetrics.getC8YRequestMeters("t100", "measurements"));
+        processingMetrics.getC8YRequestMeters("t100", "events");
+
+        assertEquals(4, registry.find("dynmapper_c8y_request_time").tag("tenant", "t100").timers().size());
+        assertEquals(2, registry.find("dynmapper_c8y_request_retries_total").counters().size());
+    }
+
+    @Test
+    @DisplayName("Removing a tenant removes its meters from the registry")
+    void testRemoveTenant() {
+        processingMetrics.getConnectorMeters("t100", "mqtt1");
+        processingMetrics.getMappingTimer("t100", mapping("m1"));
+        processingMetrics.getIdentityRequestCounter("t100");
+        processingMetrics.getC8YRequestMeters("t100", "measurements");
+        processingMetrics.getConnectorMeters("t200", "mqtt1");
+
+        processingMetrics.removeTenant("t100");
+
+        assertTrue(registry.find("dynmapper_inbound_processing_time").tag("tenant", "t100").timers().isEmpty());
+        assertNull(registry.find("dynmapper_mapping_processing_time").tag("tenant", "t100").timer());
+        assertNull(registry.find("dynmapper_inbound_identity_requests_total").tag("tenant", "t100").counter());
+        assertTrue(registry.find("dynmapper_c8y_request_time").tag("tenant", "t100").timers().isEmpty());
+        assertNull(registry.find("dynmapper_c8y_request_retries_total").tag("tenant", "t100").counter());
+        assertNotNull(registry.find("dynmapper_inbound_processing_time").tag("tenant", "t200").timer());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.cumulocity.rest.representation.event.EventRepresentation;
+import com.cumulocity.rest.representation.inventory.ManagedObjectRepresentation;
+import com.cumulocity.rest.representation.measurement.MeasurementRepresentation;
+import com.jayway.jsonpath.JsonPath;
+
+import dynamic.mapping.processor.model.C8YRequest;
+
+class RepresentationFactoryTest {
+
+    @Test
+    @DisplayName("Should create measurement with typed properties and fragments")
+    void testMeasurement() {
+        Object payload = JsonPath.parse(
+                "{\"type\":\"c8y_TemperatureMeasurement\",\"time\":\"2025-01-01T00:00:00.000Z\",\"source\":{\"id\":\"4711\"},\"c8y_TemperatureMeasurement\":{\"T\":{\"value\":42,\"unit\":\"C\"}}}")
+                .json();
+        MeasurementRepresentation measurement = RepresentationFactory.create(payload,
+                MeasurementRepresentation.class);
+
+        assertNotNull(measurement);
+        assertEquals("c8y_TemperatureMeasurement", measurement.getType());
+        assertEquals("4711", measurement.getSource().getId().getValue());
+        assertEquals(1735689600000L, measurement.getDateTime().getMillis());
+        assertTrue(measurement.getAttrs().containsKey("c8y_TemperatureMeasurement"));
+    }
+
+    @Test
+    @DisplayName("Should fall back to parsing for unexpected property types")
+    void testFallback() {
+        Map<String, Object> payload = Map.of("type", "c8y_Event", "time", 42);
+        assertNull(RepresentationFactory.create(payload, EventRepresentation.class));
+        assertNull(RepresentationFactory.create(Map.of("id", "1"), ManagedObjectRepresentation.class));
+        assertNull(RepresentationFactory.create("{}", ManagedObjectRepresentation.class));
+    }
+
+    @Test
+    @DisplayName("Should render the request string lazily from the payload")
+    void testLazyRequest() {
+        C8YRequest request = new C8YRequest();
+        request.setPayload(Map.of("type", "c8y_Event"));
+
+        assertEquals("{\"type\":\"c8y_Event\"}", request.getRequest());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.cumulocity.model.ID;
+import com.cumulocity.model.idtype.GId;
+import com.cumulocity.rest.representation.identity.ExternalIDRepresentation;
+import com.cumulocity.rest.representation.inventory.ManagedObjectRepresentation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InboundExternalIdCacheTest {
+
+    private static ExternalIDRepresentation externalId(String value, String globalId) {
+        ManagedObjectRepresentation mor = new ManagedObjectRepresentation();
+        mor.setId(new GId(globalId));
+        ExternalIDRepresentation externalId = new ExternalIDRepresentation();
+        externalId.setType("c8y_Serial");
+        externalId.setExternalId(value);
+        externalId.setManagedObject(mor);
+        return externalId;
+    }
+
+    private static InboundExternalIdCache cache(Duration negativeRetention) {
+        return new InboundExternalIdCache(100, "t100", Duration.ofDays(1), negativeRetention, id -> null);
+    }
+
+    @Test
+    @DisplayName("Should load an external id only once")
+    void testResolve() {
+        InboundExternalIdCache cache = cache(Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        ID identity = new ID("c8y_Serial", "device-1");
+
+        for (int i = 0; i < 3; i++) {
+            ExternalIDRepresentation result = cache.resolve(identity, id -> {
+                loads.incrementAndGet();
+                return externalId("device-1", "4711");
+            }, true);
+            assertEquals("4711", result.getManagedObject().getId().getValue());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getCacheSize());
+    }
+
+    @Test
+    @DisplayName("Should remember unknown external ids until a device is created")
+    void testNegativeCaching() {
+        InboundExternalIdCache cache = cache(Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        ID identity = new ID("c8y_Serial", "device-2");
+
+        assertNull(cache.resolve(identity, id -> {
+            loads.incrementAndGet();
+            return null;
+        }, true));
+        assertNull(cache.resolve(identity, id -> {
+            loads.incrementAndGet();
+            return null;
+        }, true));
+        assertEquals(1, loads.get());
+        assertNull(cache.getIdByExternalId(identity));
+
+        cache.putIdForExternalId(identity, externalId("device-2", "4712"));
+        assertEquals("4712", cache.getIdByExternalId(identity).getManagedObject().getId().getValue());
+    }
+
+    @Test
+    @DisplayName("Should not remember unknown external ids when negative caching is disabled")
+    void testNegativeCachingDisabled() {
+        InboundExternalIdCache cache = cache(Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+        ID identity = new ID("c8y_Serial", "device-3");
+
+        cache.resolve(identity, id -> {
+            loads.incrementAndGet();
+            return null;
+        }, true);
+        cache.resolve(identity, id -> {
+            loads.incrementAndGet();
+            return null;
+        }, true);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should not cache results when requested")
+    void testResolveWithoutCaching() {
+        InboundExternalIdCache cache = cache(Duration.ofMinutes(1));
+        ID identity = new ID("c8y_Serial", "device-4");
+
+        cache.resolve(identity, id -> externalId("device-4", "4714"), false);
+        assertNull(cache.getIdByExternalId(identity));
+    }
+
+    @Test
+    @DisplayName("Should bind the size gauge to the cache that replaced a closed cache")
+    void testClose() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            InboundExternalIdCache previous = new InboundExternalIdCache(100, "t200", Duration.ofDays(1),
+                    Duration.ofMinutes(1), id -> null);
+            previous.putIdForExternalId(new ID("c8y_Serial", "device-1"), externalId("device-1", "4711"));
+            previous.close();
+            assertNull(Metrics.globalRegistry.find("dynmapper_inbound_identity_cache_size").tag("tenant", "t200")
+                    .gauge());
+            assertNull(Metrics.globalRegistry.find("dynmapper_inbound_identity_cache_evictions_total")
+                    .tag("tenant", "t200").counter());
+
+            InboundExternalIdCache cache = new InboundExternalIdCache(100, "t200", Duration.ofDays(1),
+                    Duration.ofMinutes(1), id -> null);
+            Gauge size = Metrics.globalRegistry.find("dynmapper_inbound_identity_cache_size").tag("tenant", "t200")
+                    .gauge();
+            assertEquals(0.0, size.value());
+            cache.putIdForExternalId(new ID("c8y_Serial", "device-2"), externalId("device-2", "4712"));
+            cache.putIdForExternalId(new ID("c8y_Serial", "device-3"), externalId("device-3", "4713"));
+            assertEquals(2.0, size.value());
+            assertEquals(1, Metrics.globalRegistry.find("dynmapper_inbound_identity_cache_evictions_total")
+                    .tag("tenant", "t200").tag("cause", "size").counters().size());
+            cache.close();
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.core.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RequestCoalescerTest {
+
+    @Test
+    @DisplayName("Should share one call between concurrent requests with the same key")
+    void testConcurrentRequests() throws Exception {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>("test");
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescer.execute("t100/c8y_Serial/device-1", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return "4711";
+            })));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 10; i++) {
+                results.add(executor.submit(() -> coalescer.execute("t100/c8y_Serial/device-1", () -> {
+                    calls.incrementAndGet();
+                    return "other";
+                })));
+            }
+            // give the requests time to join the call in progress
+            Thread.sleep(200);
+            assertTrue(results.stream().noneMatch(Future::isDone));
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("4711", result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+            assertEquals(0, coalescer.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should pass exceptions on and not keep failed calls")
+    void testException() throws Exception {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>("test");
+        assertThrows(IllegalStateException.class, () -> coalescer.execute("key", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals("4711", coalescer.execute("key", () -> "4711"));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class MappingStatusTest {
+
+    private MappingStatus status() {
+        return new MappingStatus("1", "Mapping", "abc", Direction.INBOUND, "device/#", null, 0, 0, 0, 0, null);
+    }
+
+    @Test
+    @DisplayName("Concurrent increments are not lost")
+    void testConcurrentIncrements() throws InterruptedException {
+        MappingStatus status = status();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                executor.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        status.incrementMessagesReceived();
+                        status.incrementErrors();
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+        assertEquals(100000, status.getMessagesReceived());
+        assertEquals(100000, status.getErrors());
+    }
+
+    @Test
+    @DisplayName("Only a changed status is published again and the rate is calculated")
+    void testMarkPublished() {
+        MappingStatus status = status();
+        assertTrue(status.markPublished(1000));
+        assertFalse(status.markPublished(2000));
+
+        for (int i = 0; i < 50; i++) {
+            status.incrementMessagesReceived();
+        }
+        assertTrue(status.markPublished(12000));
+        assertEquals(5.0, status.getMessagesPerSecond(), 0.001);
+
+        status.setLoadingError("invalid template");
+        assertTrue(status.markPublished(13000));
+        assertFalse(status.markPublished(14000));
+    }
+
+    @Test
+    @DisplayName("Checking for changes does not mark the status as published")
+    void testIsChanged() {
+        MappingStatus status = status();
+        assertTrue(status.isChanged());
+        assertTrue(status.isChanged());
+        status.markPublished(1000);
+        assertFalse(status.isChanged());
+
+        for (int i = 0; i < 20; i++) {
+            status.incrementMessagesReceived();
+        }
+        assertTrue(status.isChanged());
+        status.updateMessagesPerSecond(11000);
+        assertEquals(2.0, status.getMessagesPerSecond(), 0.001);
+        assertTrue(status.isChanged());
+    }
+
+    @Test
+    @DisplayName("Counters are serialized and restored as numbers")
+    void testJson() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        MappingStatus status = status();
+        status.incrementMessagesReceived();
+        status.incrementMessagesReceived();
+        status.incrementErrors();
+
+        JsonNode json = objectMapper.valueToTree(status);
+        assertEquals(2, json.get("messagesReceived").asLong());
+        assertEquals(1, json.get("errors").asLong());
+        assertFalse(json.has("publishedAt"));
+
+        MappingStatus restored = objectMapper.treeToValue(json, MappingStatus.class);
+        assertEquals(2, restored.getMessagesReceived());
+        assertEquals(1, restored.getErrors());
+        assertEquals("abc", restored.identifier);
+    }
+}
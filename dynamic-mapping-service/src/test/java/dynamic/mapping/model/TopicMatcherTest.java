@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class TopicMatcherTest {
+    private static final String TEST_MAPPING_FILE = "/mappings-test-INBOUND.json";
+
+    private MappingTreeNode tree;
+
+    @BeforeEach
+    void setUp() throws IOException, ResolveException {
+        List<Mapping> mappings;
+        try (InputStream is = getClass().getResourceAsStream(TEST_MAPPING_FILE)) {
+            mappings = new ObjectMapper().readValue(is, new TypeReference<List<Mapping>>() {
+            });
+        }
+        tree = MappingTreeNode.createRootNode("TEST_TENANT");
+        for (Mapping mapping : mappings) {
+            tree.addMapping(mapping);
+        }
+    }
+
+    @Test
+    @DisplayName("Should resolve the same mappings as the mapping tree")
+    void testSameResolutionAsTree() throws ResolveException {
+        TopicMatcher matcher = tree.compileMatcher();
+        String[] topics = { "device/test", "device/test/sub", "device/test/sub/subsub", "asset", "/asset",
+                "device/test1/sub", "device/test1/x", "device/test1/x/special/sub", "device/test1/x/y",
+                "device//test1///sub", " device/test ", "device/test/", "device", "unknown/topic" };
+        for (String topic : topics) {
+            assertEquals(names(tree.resolveMapping(topic)), names(matcher.match(topic)),
+                    "Resolved mappings differ for topic " + topic);
+        }
+    }
+
+    @Test
+    @DisplayName("Should not see modifications of the tree after compiling")
+    void testImmutable() throws ResolveException {
+        TopicMatcher matcher = tree.compileMatcher();
+        Mapping mapping = new Mapping();
+        mapping.id = "000000010";
+        mapping.name = "Mapping - 10";
+        mapping.mappingTopic = "other/topic";
+        tree.addMapping(mapping);
+
+        assertTrue(matcher.match("other/topic").isEmpty());
+        assertEquals(List.of("Mapping - 10"), names(tree.compileMatcher().match("other/topic")));
+    }
+
+    private static List<String> names(List<Mapping> mappings) {
+        return mappings.stream().map(Mapping::getName).sorted().toList();
+    }
+}
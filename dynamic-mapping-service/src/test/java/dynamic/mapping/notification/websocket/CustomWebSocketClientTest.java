@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.notification.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.java_websocket.framing.Framedata;
+import org.java_websocket.handshake.ServerHandshake;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CustomWebSocketClientTest {
+
+    private static String notification(int id) {
+        return "ack" + id + "\n/t100/measurements/" + id + "\nCREATE\n\n{\"id\":\"" + id + "\"}";
+    }
+
+    @Test
+    @DisplayName("Receiving notifications does not block while too many are unacknowledged")
+    void testOnMessageDoesNotBlock() throws Exception {
+        CompletableFuture<Object> processing = new CompletableFuture<>();
+        NotificationCallback callback = mock(NotificationCallback.class);
+        when(callback.onNotificationDeferred(any())).thenReturn(processing);
+        CustomWebSocketClient client = new CustomWebSocketClient(new URI("ws://localhost:1"), callback, "t100",
+                1, 1000);
+        client.onOpen(mock(ServerHandshake.class));
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                for (int i = 0; i < 10; i++) {
+                    client.onMessage(notification(i));
+                }
+            });
+            // only one notification is processed until it is acknowledged
+            verify(callback, timeout(5000).times(1)).onNotificationDeferred(any());
+            Thread.sleep(100);
+            verify(callback, times(1)).onNotificationDeferred(any());
+        } finally {
+            client.onClose(1000, "test", false);
+        }
+    }
+
+    @Test
+    @DisplayName("Every notification is processed and acknowledged when more are received than can be unacknowledged")
+    void testAllNotificationsAcknowledged() throws Exception {
+        NotificationCallback callback = mock(NotificationCallback.class);
+        when(callback.onNotificationDeferred(any())).thenReturn(CompletableFuture.completedFuture(null));
+        Set<String> acks = ConcurrentHashMap.newKeySet();
+        CustomWebSocketClient client = new CustomWebSocketClient(new URI("ws://localhost:1"), callback, "t100",
+                2, 10) {
+            @Override
+            public void sendFrame(Collection<Framedata> frames) {
+                frames.forEach(frame -> acks.add(StandardCharsets.UTF_8.decode(frame.getPayloadData()).toString()));
+            }
+        };
+        client.onOpen(mock(ServerHandshake.class));
+        try {
+            for (int i = 0; i < 50; i++) {
+                client.onMessage(notification(i));
+            }
+            verify(callback, timeout(5000).times(50)).onNotificationDeferred(any());
+            for (int i = 0; i < 500 && acks.size() < 50; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(50, acks.size());
+            assertTrue(acks.contains("ack49"));
+        } finally {
+            client.onClose(1000, "test", false);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+
+package dynamic.mapping.notification.websocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class NotificationAcknowledgerTest {
+
+    @Test
+    @DisplayName("Acknowledgements of processed notifications are sent together")
+    void testFlushSendsProcessed() throws InterruptedException {
+        List<List<String>> sent = new ArrayList<>();
+        NotificationAcknowledger acknowledger = new NotificationAcknowledger(10, sent::add);
+        acknowledger.acquire();
+        acknowledger.acquire();
+        acknowledger.acquire();
+        acknowledger.complete("a");
+        acknowledger.complete("b");
+        assertEquals(3, acknowledger.getUnacked());
+
+        acknowledger.flush();
+        assertEquals(1, sent.size());
+        assertEquals(List.of("a", "b"), sent.get(0));
+        assertEquals(1, acknowledger.getUnacked());
+
+        // nothing is sent when no further notification was processed
+        acknowledger.flush();
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    @DisplayName("Capacity is given back when the notification is released or sending fails")
+    void testCapacity() throws InterruptedException {
+        NotificationAcknowledger acknowledger = new NotificationAcknowledger(2, acks -> {
+            throw new IllegalStateException("not connected");
+        });
+        acknowledger.acquire();
+        acknowledger.acquire();
+        assertEquals(2, acknowledger.getUnacked());
+
+        acknowledger.release();
+        assertEquals(1, acknowledger.getUnacked());
+
+        acknowledger.complete("a");
+        assertThrows(IllegalStateException.class, acknowledger::flush);
+        assertEquals(0, acknowledger.getUnacked());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import dynamic.mapping.configuration.ServiceConfiguration;
+import dynamic.mapping.model.Mapping;
+
+class MessageLoggerTest {
+
+    private Logger logger;
+
+    private ServiceConfiguration serviceConfiguration;
+
+    @BeforeEach
+    void setUp() {
+        logger = mock(Logger.class);
+        serviceConfiguration = new ServiceConfiguration();
+    }
+
+    private static Mapping mapping(String identifier, boolean debug) {
+        Mapping mapping = new Mapping();
+        mapping.identifier = identifier;
+        mapping.debug = debug;
+        return mapping;
+    }
+
+    @Test
+    @DisplayName("Payloads are only logged when logPayload is enabled or the mapping is in debug mode")
+    void testSamplePayloadDisabled() {
+        MessageLogger messageLogger = new MessageLogger(logger, "t100", "test", 0);
+        assertFalse(messageLogger.samplePayload(serviceConfiguration, mapping("m1", false)));
+        assertTrue(messageLogger.samplePayload(serviceConfiguration, mapping("m2", true)));
+    }
+
+    @Test
+    @DisplayName("Every n-th payload of a mapping is logged")
+    void testSamplePayloadPerMapping() {
+        serviceConfiguration.logPayload = true;
+        serviceConfiguration.logPayloadSampleRate = 3;
+        MessageLogger messageLogger = new MessageLogger(logger, "t100", "test", 0);
+        Mapping first = mapping("m1", false);
+        Mapping second = mapping("m2", false);
+
+        int sampledFirst = 0;
+        for (int i = 0; i < 9; i++) {
+            if (messageLogger.samplePayload(serviceConfiguration, first)) {
+                sampledFirst++;
+            }
+        }
+        assertEquals(3, sampledFirst);
+        // the messages of another mapping are sampled independently
+        assertTrue(messageLogger.samplePayload(serviceConfiguration, second));
+    }
+
+    @Test
+    @DisplayName("The sample rate of a mapping overrides the rate of the service configuration")
+    void testSamplePayloadMappingRate() {
+        serviceConfiguration.logPayload = true;
+        serviceConfiguration.logPayloadSampleRate = 1;
+        MessageLogger messageLogger = new MessageLogger(logger, "t100", "test", 0);
+        Mapping sampled = mapping("m1", false);
+        sampled.logPayloadSampleRate = 4;
+
+        int logged = 0;
+        for (int i = 0; i < 8; i++) {
+            if (messageLogger.samplePayload(serviceConfiguration, sampled)) {
+                logged++;
+            }
+        }
+        assertEquals(2, logged);
+        assertTrue(messageLogger.samplePayload(serviceConfiguration, mapping("m2", false)));
+    }
+
+    @Test
+    @DisplayName("The summary is written once per interval")
+    void testSummary() throws Exception {
+        MessageLogger messageLogger = new MessageLogger(logger, "t100", "test", 1);
+        messageLogger.count("m1");
+        verifyNoInteractions(logger);
+
+        Thread.sleep(1100);
+        messageLogger.count("m1");
+        verify(logger).info("Tenant {} - {}: {} messages in the last {} s: {}", "t100", "test", 2L, 1L,
+                Map.of("m1", 2L));
+    }
+
+    @Test
+    @DisplayName("A payload is rendered when it is logged and only once")
+    void testLazyPayload() {
+        Map<String, Object> payload = new HashMap<>(Map.of("temperature", 20));
+        LazyPayload lazyPayload = LazyPayload.of(payload);
+        String rendered = lazyPayload.toString();
+        assertTrue(rendered.contains("temperature"));
+        payload.put("humidity", 50);
+        assertSame(rendered, lazyPayload.toString());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.processor.inbound;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import dynamic.mapping.core.KeyedOrderedExecutor;
+import dynamic.mapping.processor.model.OverflowPolicy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class InboundAdmissionControlTest {
+
+    private ExecutorService executor;
+
+    private InboundAdmissionControl admissionControl;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        admissionControl = new InboundAdmissionControl("t100", "test", executor, 2, 1000,
+                OverflowPolicy.REJECT, new KeyedOrderedExecutor("t100", "test", "inbound", executor));
+    }
+
+    @AfterEach
+    void tearDown() {
+        admissionControl.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Tasks waiting behind a busy key do not take the processing slots of other keys")
+    void testBusyKeyDoesNotStarveOtherKeys() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> busy = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int index = i;
+            busy.add(admissionControl.submit(() -> {
+                blocked.await();
+                processed.add(index);
+                return index;
+            }, 10, "busy"));
+        }
+        // only the first task of the busy key is processed, the others wait for
+        // their turn without a processing slot
+        CompletableFuture<Integer> other = admissionControl.submit(() -> 42, 10, "other");
+        assertEquals(42, other.get(10, TimeUnit.SECONDS));
+        assertTrue(processed.isEmpty());
+
+        blocked.countDown();
+        CompletableFuture.allOf(busy.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        assertEquals(List.of(0, 1, 2, 3), processed);
+        assertEquals(0, admissionControl.getQueueDepth());
+    }
+
+    @Test
+    @DisplayName("The gauges of a closed admission control are bound to the one that replaced it")
+    void testClose() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        InboundAdmissionControl previous = new InboundAdmissionControl("t200", "test", executor, 1, 1000,
+                OverflowPolicy.REJECT);
+        InboundAdmissionControl replacing = null;
+        CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            previous.submit(() -> blocked.await(10, TimeUnit.SECONDS), 10);
+            previous.close();
+            assertNull(Metrics.globalRegistry.find("dynmapper_inbound_in_flight").tag("tenant", "t200").gauge());
+
+            replacing = new InboundAdmissionControl("t200", "test", executor, 1, 1000, OverflowPolicy.REJECT);
+            Gauge inFlight = Metrics.globalRegistry.find("dynmapper_inbound_in_flight").tag("tenant", "t200")
+                    .gauge();
+            assertEquals(0.0, inFlight.value());
+        } finally {
+            blocked.countDown();
+            if (replacing != null) {
+                replacing.close();
+            }
+            Metrics.removeRegistry(registry);
+        }
+    }
+}
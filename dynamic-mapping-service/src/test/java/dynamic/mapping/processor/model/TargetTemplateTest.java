@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.processor.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+
+import dynamic.mapping.model.API;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.model.MappingSubstitution;
+import dynamic.mapping.model.MappingSubstitution.SubstituteValue;
+import dynamic.mapping.model.MappingSubstitution.SubstituteValue.TYPE;
+
+class TargetTemplateTest {
+
+    private static final String MEASUREMENT_TEMPLATE = "{\"c8y_TemperatureMeasurement\":{\"T\":{\"value\":110,\"unit\":\"C\"}},\"time\":\"2022-08-05T00:14:49.389+02:00\",\"type\":\"c8y_TemperatureMeasurement\"}";
+    private static final String EVENT_TEMPLATE = "{\"type\":\"c8y_BusEvent\",\"text\":\"Bus was stopped\",\"time\":\"2022-08-05T00:14:49.389+02:00\"}";
+    private static final String INVENTORY_TEMPLATE = "{\"name\":\"Vibration Sensor\",\"type\":\"maker_Vibration_Sensor\",\"c8y_IsDevice\":{}}";
+
+    private static Mapping mapping(API targetAPI, String targetTemplate, String... pathTargets) {
+        Mapping mapping = new Mapping();
+        mapping.id = "1";
+        mapping.targetAPI = targetAPI;
+        mapping.targetTemplate = targetTemplate;
+        mapping.substitutions = new MappingSubstitution[pathTargets.length];
+        for (int i = 0; i < pathTargets.length; i++) {
+            MappingSubstitution substitution = new MappingSubstitution();
+            substitution.pathSource = pathTargets[i];
+            substitution.pathTarget = pathTargets[i];
+            mapping.substitutions[i] = substitution;
+        }
+        return mapping;
+    }
+
+    private static SubstituteValue value(Object value, RepairStrategy repairStrategy) {
+        return new SubstituteValue(value, TYPE.TEXTUAL, repairStrategy);
+    }
+
+    @Test
+    @DisplayName("Should produce the same measurement payload as JsonPath substitution")
+    void testMeasurement() {
+        Mapping mapping = mapping(API.MEASUREMENT, MEASUREMENT_TEMPLATE, "c8y_TemperatureMeasurement.T.value",
+                "time", "source.id");
+        TargetTemplate targetTemplate = TargetTemplate.compile(mapping);
+
+        DocumentContext expected = JsonPath.parse(MEASUREMENT_TEMPLATE);
+        MappingSubstitution.substituteValueInPayload(value(42, RepairStrategy.DEFAULT), expected,
+                "c8y_TemperatureMeasurement.T.value");
+        MappingSubstitution.substituteValueInPayload(value("2025-01-01T00:00:00.000Z", RepairStrategy.DEFAULT),
+                expected, "time");
+        MappingSubstitution.substituteValueInPayload(value("4711", RepairStrategy.CREATE_IF_MISSING), expected,
+                "source.id");
+
+        DocumentContext actual = targetTemplate.newDocument();
+        targetTemplate.substitute(value(42, RepairStrategy.DEFAULT), actual, "c8y_TemperatureMeasurement.T.value");
+        targetTemplate.substitute(value("2025-01-01T00:00:00.000Z", RepairStrategy.DEFAULT), actual, "time");
+        targetTemplate.substitute(value("4711", RepairStrategy.CREATE_IF_MISSING), actual, "source.id");
+
+        assertEquals(expected.read("$", Map.class), actual.read("$", Map.class));
+    }
+
+    @Test
+    @DisplayName("Should produce the same event payload as JsonPath substitution")
+    void testEvent() {
+        Mapping mapping = mapping(API.EVENT, EVENT_TEMPLATE, "text", "type");
+        TargetTemplate targetTemplate = TargetTemplate.compile(mapping);
+
+        DocumentContext expected = JsonPath.parse(EVENT_TEMPLATE);
+        MappingSubstitution.substituteValueInPayload(value(null, RepairStrategy.REMOVE_IF_MISSING_OR_NULL), expected,
+                "text");
+        MappingSubstitution.substituteValueInPayload(value("c8y_Stop", RepairStrategy.DEFAULT), expected, "type");
+
+        DocumentContext actual = targetTemplate.newDocument();
+        targetTemplate.substitute(value(null, RepairStrategy.REMOVE_IF_MISSING_OR_NULL), actual, "text");
+        targetTemplate.substitute(value("c8y_Stop", RepairStrategy.DEFAULT), actual, "type");
+
+        assertEquals(expected.read("$", Map.class), actual.read("$", Map.class));
+    }
+
+    @Test
+    @DisplayName("Should keep existing siblings when creating missing parents in inventory payload")
+    void testInventory() {
+        Mapping mapping = mapping(API.INVENTORY, INVENTORY_TEMPLATE, "name", "c8y_Hardware.serialNumber",
+                "c8y_Hardware.model");
+        TargetTemplate targetTemplate = TargetTemplate.compile(mapping);
+
+        DocumentContext actual = targetTemplate.newDocument();
+        targetTemplate.substitute(value("Sensor 1", RepairStrategy.DEFAULT), actual, "name");
+        targetTemplate.substitute(value("SN-1", RepairStrategy.CREATE_IF_MISSING), actual,
+                "c8y_Hardware.serialNumber");
+        targetTemplate.substitute(value("M-1", RepairStrategy.CREATE_IF_MISSING), actual, "c8y_Hardware.model");
+
+        assertEquals("Sensor 1", actual.read("$.name"));
+        assertEquals("SN-1", actual.read("$.c8y_Hardware.serialNumber"));
+        assertEquals("M-1", actual.read("$.c8y_Hardware.model"));
+    }
+
+    @Test
+    @DisplayName("Should create missing parents for nested paths as JsonPath substitution")
+    void testCreateIfMissingNested() {
+        Mapping mapping = mapping(API.MEASUREMENT, MEASUREMENT_TEMPLATE, "c8y_TemperatureMeasurement.T.unit",
+                "c8y_Battery.B.value", "c8y_Battery.B.unit", "c8y_Battery.level['percent']");
+        TargetTemplate targetTemplate = TargetTemplate.compile(mapping);
+        String[] paths = { "c8y_TemperatureMeasurement.T.unit", "c8y_Battery.B.value", "c8y_Battery.B.unit",
+                "c8y_Battery.level['percent']" };
+        Object[] values = { "K", 98, "%", 75 };
+
+        DocumentContext expected = JsonPath.parse(MEASUREMENT_TEMPLATE);
+        DocumentContext actual = targetTemplate.newDocument();
+        for (int i = 0; i < paths.length; i++) {
+            MappingSubstitution.substituteValueInPayload(value(values[i], RepairStrategy.CREATE_IF_MISSING),
+                    expected, paths[i]);
+            targetTemplate.substitute(value(values[i], RepairStrategy.CREATE_IF_MISSING), actual, paths[i]);
+        }
+
+        assertEquals(expected.read("$", Map.class), actual.read("$", Map.class));
+        // existing siblings are kept by both
+        assertEquals(110, (Integer) actual.read("$.c8y_TemperatureMeasurement.T.value"));
+        assertEquals(98, (Integer) actual.read("$.c8y_Battery.B.value"));
+        assertEquals("%", actual.read("$.c8y_Battery.B.unit"));
+    }
+
+    @Test
+    @DisplayName("Should not modify the skeleton when substituting")
+    void testSkeletonIsNotModified() {
+        Mapping mapping = mapping(API.MEASUREMENT, MEASUREMENT_TEMPLATE, "c8y_TemperatureMeasurement.T.value");
+        TargetTemplate targetTemplate = TargetTemplate.compile(mapping);
+
+        DocumentContext first = targetTemplate.newDocument();
+        targetTemplate.substitute(value(42, RepairStrategy.DEFAULT), first, "c8y_TemperatureMeasurement.T.value");
+        DocumentContext second = targetTemplate.newDocument();
+
+        assertEquals(42, (Integer) first.read("$.c8y_TemperatureMeasurement.T.value"));
+        assertEquals(110, (Integer) second.read("$.c8y_TemperatureMeasurement.T.value"));
+    }
+
+    @Test
+    @DisplayName("Should fail for missing properties as JsonPath substitution")
+    void testMissingPath() {
+        Mapping mapping = mapping(API.EVENT, EVENT_TEMPLATE, "c8y_Unknown.value");
+        TargetTemplate targetTemplate = TargetTemplate.compile(mapping);
+        DocumentContext actual = targetTemplate.newDocument();
+
+        assertThrows(PathNotFoundException.class,
+                () -> targetTemplate.substitute(value("x", RepairStrategy.DEFAULT), actual, "c8y_Unknown.value"));
+    }
+}
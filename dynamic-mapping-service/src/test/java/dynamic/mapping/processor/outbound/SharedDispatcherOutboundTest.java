@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2022-2025 Cumulocity GmbH.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  @authors Christof Strack, Stefan Witschel
+ *
+ */
+
+package dynamic.mapping.processor.outbound;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.cumulocity.model.operation.OperationStatus;
+import com.cumulocity.rest.representation.operation.OperationRepresentation;
+
+import dynamic.mapping.connector.core.client.AConnectorClient;
+import dynamic.mapping.core.C8YAgent;
+import dynamic.mapping.core.ConfigurationRegistry;
+import dynamic.mapping.core.MappingComponent;
+import dynamic.mapping.model.API;
+import dynamic.mapping.model.Mapping;
+import dynamic.mapping.notification.C8YNotificationSubscriber;
+import dynamic.mapping.processor.C8YMessage;
+import dynamic.mapping.processor.ProcessingException;
+import dynamic.mapping.processor.model.ProcessingContext;
+import io.micrometer.core.instrument.Metrics;
+
+class SharedDispatcherOutboundTest {
+
+    private static final String TENANT = "t100";
+
+    private static final String OPERATION = "{\"id\":\"4711\",\"deviceId\":\"12345\",\"status\":\"PENDING\","
+            + "\"c8y_Command\":{\"text\":\"reboot\"}}";
+
+    private ExecutorService executor;
+
+    private C8YAgent c8yAgent;
+
+    private Mapping mapping;
+
+    private Map<String, DispatcherOutbound> dispatcherOutboundMap;
+
+    private SharedDispatcherOutbound sharedDispatcherOutbound;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        c8yAgent = mock(C8YAgent.class);
+        mapping = new Mapping();
+        mapping.identifier = "m1";
+        MappingComponent mappingComponent = mock(MappingComponent.class);
+        when(mappingComponent.resolveMappingOutbound(eq(TENANT), anyString(), eq(API.OPERATION)))
+                .thenReturn(List.of(mapping));
+
+        ConfigurationRegistry configurationRegistry = new ConfigurationRegistry();
+        configurationRegistry.setC8yAgent(c8yAgent);
+        configurationRegistry.setC8yAgent(mock(C8YNotificationSubscriber.class));
+        configurationRegistry.setMappingComponent(mappingComponent);
+        configurationRegistry.setVirtThreadPool(executor);
+        dispatcherOutboundMap = new ConcurrentHashMap<>();
+        sharedDispatcherOutbound = new SharedDispatcherOutbound(configurationRegistry, TENANT,
+                dispatcherOutboundMap);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void addConnector(String identifier, boolean failing) {
+        AConnectorClient connectorClient = mock(AConnectorClient.class);
+        when(connectorClient.isConnected()).thenReturn(true);
+        when(connectorClient.getMappingsDeployedOutbound()).thenReturn(Map.of(mapping.identifier, mapping));
+        ProcessingContext<Object> context = ProcessingContext.<Object>builder().mapping(mapping).tenant(TENANT)
+                .build();
+        if (failing) {
+            context.addError(new ProcessingException("publish failed"));
+        }
+        DispatcherOutbound dispatcherOutbound = mock(DispatcherOutbound.class);
+        when(dispatcherOutbound.getConnectorClient()).thenReturn(connectorClient);
+        when(dispatcherOutbound.processResolvedMessage(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(context)));
+        dispatcherOutboundMap.put(identifier, dispatcherOutbound);
+    }
+
+    private C8YMessage operation() {
+        C8YMessage c8yMessage = new C8YMessage();
+        c8yMessage.setPayload(OPERATION);
+        c8yMessage.setApi(API.OPERATION);
+        c8yMessage.setTenant(TENANT);
+        c8yMessage.setSendPayload(true);
+        return c8yMessage;
+    }
+
+    @Test
+    @DisplayName("Should update the status of an operation once for all connectors")
+    void testOperationSuccessful() throws Exception {
+        addConnector("c1", false);
+        addConnector("c2", false);
+
+        sharedDispatcherOutbound.processMessage(operation()).get(10, TimeUnit.SECONDS);
+
+        verify(c8yAgent, times(1)).updateOperationStatus(eq(TENANT), any(OperationRepresentation.class),
+                eq(OperationStatus.EXECUTING), isNull());
+        verify(c8yAgent, times(1)).updateOperationStatus(eq(TENANT), any(OperationRepresentation.class),
+                eq(OperationStatus.SUCCESSFUL), isNull());
+        verify(c8yAgent, never()).updateOperationStatus(eq(TENANT), any(OperationRepresentation.class),
+                eq(OperationStatus.FAILED), any());
+    }
+
+    @Test
+    @DisplayName("Should fail an operation when the processing failed for one of the connectors")
+    void testOperationFailed() throws Exception {
+        addConnector("c1", false);
+        addConnector("c2", true);
+
+        sharedDispatcherOutbound.processMessage(operation()).get(10, TimeUnit.SECONDS);
+
+        verify(c8yAgent, times(1)).updateOperationStatus(eq(TENANT), any(OperationRepresentation.class),
+                eq(OperationStatus.EXECUTING), isNull());
+        verify(c8yAgent, times(1)).updateOperationStatus(eq(TENANT), any(OperationRepresentation.class),
+                eq(OperationStatus.FAILED), anyString());
+        verify(c8yAgent, never()).updateOperationStatus(eq(TENANT), any(OperationRepresentation.class),
+                eq(OperationStatus.SUCCESSFUL), any());
+    }
+
+    @Test
+    @DisplayName("Should remove the notification counter of the tenant when closed")
+    void testClose() {
+        assertNotNull(Metrics.globalRegistry.find("dynmapper_outbound_notification_total").tag("tenant", TENANT)
+                .counter());
+        sharedDispatcherOutbound.close();
+        assertNull(Metrics.globalRegistry.find("dynmapper_outbound_notification_total").tag("tenant", TENANT)
+                .counter());
+    }
+}